@@ -0,0 +1,185 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.NoHeadException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * <code>BackgroundPusherTest</code> tests the {@link BackgroundPusher}: batching of the pending branches, the retry
+ * backoff, waiting for the user and the reported number of pending commits. The scheduled pushes are never executed
+ * by the executor; instead the test triggers every push.
+ */
+public class BackgroundPusherTest {
+
+    private ScheduledExecutorService executor;
+    private List<Set<String>> pushed;
+    private Map<String, Integer> remaining;
+    private List<Integer> reported;
+    private Runnable duringPush;
+    private boolean fail;
+    private boolean defer;
+    private BackgroundPusher pusher;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        pushed = new ArrayList<>();
+        remaining = new HashMap<>();
+        reported = new ArrayList<>();
+        pusher = new BackgroundPusher(this::push, executor, 3600000);
+        pusher.setListener(reported::add);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Map<String, Integer> push(Set<String> branches) throws GitAPIException, IOException {
+        pushed.add(branches);
+        if (duringPush != null) {
+            duringPush.run();
+        }
+        if (fail) {
+            throw new NoHeadException("Remote is not available");
+        }
+        return defer ? null : new HashMap<>(remaining);
+    }
+
+    /**
+     * Tests that the commits scheduled before the push are pushed together and that the pending count is reported.
+     */
+    @Test
+    public void testBatchedPush() {
+        assertFalse(pusher.isScheduled());
+        pusher.schedule("master", 1);
+        assertTrue(pusher.isScheduled());
+        pusher.schedule("master", 2);
+        pusher.schedule("second", 1);
+        pusher.schedule("third", 0);
+        assertEquals(3, pusher.getPendingCount());
+        assertEquals(Arrays.asList(1, 2, 3), reported);
+
+        pusher.push();
+        assertEquals(1, pushed.size());
+        assertEquals(new HashSet<>(Arrays.asList("master", "second")), pushed.get(0));
+        assertEquals(0, pusher.getPendingCount());
+        assertFalse(pusher.isScheduled());
+        assertEquals(Integer.valueOf(0), reported.get(reported.size() - 1));
+
+        // nothing to push
+        pusher.push();
+        assertEquals(1, pushed.size());
+    }
+
+    /**
+     * Tests that a failed push is repeated with an increasing delay, which is reset after the push succeeds.
+     */
+    @Test
+    public void testRetry() {
+        pusher.schedule("master", 2);
+        fail = true;
+        pusher.push();
+        assertEquals(2, pusher.getPendingCount());
+        assertTrue(pusher.isScheduled());
+        assertEquals(2 * BackgroundPusher.MIN_BACKOFF, pusher.getBackoff());
+        pusher.push();
+        assertEquals(4 * BackgroundPusher.MIN_BACKOFF, pusher.getBackoff());
+
+        // the push went through, but the commits were rejected
+        fail = false;
+        remaining.put("master", 2);
+        pusher.push();
+        assertEquals(2, pusher.getPendingCount());
+        assertEquals(8 * BackgroundPusher.MIN_BACKOFF, pusher.getBackoff());
+
+        remaining.clear();
+        pusher.push();
+        assertEquals(0, pusher.getPendingCount());
+        assertFalse(pusher.isScheduled());
+        assertEquals(BackgroundPusher.MIN_BACKOFF, pusher.getBackoff());
+        assertEquals(4, pushed.size());
+    }
+
+    /**
+     * Tests that a commit made while the push is in progress stays pending and is pushed by the next push.
+     */
+    @Test
+    public void testCommitDuringPush() {
+        pusher.schedule("master", 1);
+        pusher.schedule("second", 1);
+        duringPush = () -> pusher.schedule("master", 2);
+        pusher.push();
+        assertEquals(2, pusher.getPendingCount());
+        assertTrue(pusher.isScheduled());
+
+        duringPush = null;
+        pusher.push();
+        assertEquals(Arrays.asList("master"), new ArrayList<>(pushed.get(1)));
+        assertEquals(0, pusher.getPendingCount());
+    }
+
+    /**
+     * Tests that the branches that cannot be pushed without the user stay pending without retries, until a push is
+     * scheduled again.
+     */
+    @Test
+    public void testWaitForUser() {
+        pusher.schedule("master", 2);
+        defer = true;
+        pusher.push();
+        assertEquals(2, pusher.getPendingCount());
+        assertFalse(pusher.isScheduled());
+        assertEquals(BackgroundPusher.MIN_BACKOFF, pusher.getBackoff());
+
+        // a synchronisation of another branch resumes the pending push
+        defer = false;
+        pusher.schedule("second", 0);
+        assertTrue(pusher.isScheduled());
+        pusher.push();
+        assertEquals(0, pusher.getPendingCount());
+        assertEquals(2, pushed.size());
+    }
+
+    /**
+     * Tests that cancelling the pusher drops the pending branches.
+     */
+    @Test
+    public void testCancel() {
+        pusher.schedule("master", 1);
+        pusher.cancel();
+        assertFalse(pusher.isScheduled());
+        assertEquals(0, pusher.getPendingCount());
+        assertEquals(Arrays.asList(1, 0), reported);
+        pusher.push();
+        assertTrue(pushed.isEmpty());
+    }
+}
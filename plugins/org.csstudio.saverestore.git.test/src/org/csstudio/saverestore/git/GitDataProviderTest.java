@@ -78,6 +78,8 @@ public class GitDataProviderTest {
         Arrays.asList("d1", "d2"), "description");
     private VSnapshot snapshot = new VSnapshot(branchSnapshot3, Arrays.asList("pv1"),
         Arrays.asList(VDisconnectedData.INSTANCE), Instant.now(), null);
+    private VSnapshot snapshot2 = new VSnapshot(branchSnapshot2, Arrays.asList("pv2"),
+        Arrays.asList(VDisconnectedData.INSTANCE), Instant.now(), null);
 
     @Before
     public void setUp() throws Exception {
@@ -124,6 +126,8 @@ public class GitDataProviderTest {
             .thenReturn(new Result<Snapshot>(null, ChangeType.NONE));
         when(grm.tagSnapshot(branchSnapshot, "name4", "message")).thenThrow(exception);
         when(grm.loadSnapshotData(branchSnapshot)).thenReturn(snapshot);
+        when(grm.loadSnapshotData(branchSnapshot2)).thenReturn(snapshot2);
+        when(grm.loadSnapshotData(branchSnapshot3)).thenThrow(exception);
         when(grm.findSnapshotsByCommentOrUser("temp", branch, true, true, Optional.empty(), Optional.empty()))
             .thenReturn(Arrays.asList(branchSnapshot, branchSnapshot3));
         when(grm.findSnapshotsByCommentOrUser("temp", branch, true, false, Optional.empty(), Optional.empty()))
@@ -317,6 +321,19 @@ public class GitDataProviderTest {
         assertEquals(snapshot, data);
     }
 
+    @Test
+    public void testGetSnapshotContents() throws DataProviderException {
+        List<VSnapshot> data = dataProvider
+            .getSnapshotContents(Arrays.asList(branchSnapshot2, branchSnapshot, branchSnapshot2));
+        assertEquals(Arrays.asList(snapshot2, snapshot, snapshot2), data);
+        try {
+            dataProvider.getSnapshotContents(Arrays.asList(branchSnapshot, branchSnapshot3));
+            fail("Exception should occur");
+        } catch (DataProviderException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
     @Test
     public void testFindSnapshots() throws DataProviderException {
         List<SearchCriterion> criteria = dataProvider.getSupportedSearchCriteria();
@@ -20,6 +20,7 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,6 +32,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.saverestore.DataProvider.ImportType;
 import org.csstudio.saverestore.DataProviderException;
@@ -54,8 +57,11 @@ import org.eclipse.jgit.api.CommitCommand;
 import org.eclipse.jgit.api.CreateBranchCommand.SetupUpstreamMode;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.ReflogEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -398,6 +404,25 @@ public class GitManagerTest {
         assertTrue(branchV3.equalsExceptSnapshot(snap));
     }
 
+    @Test
+    public void testReadWithoutCheckout() throws Exception {
+        // reading data from a branch should not switch the working tree to that branch
+        List<Snapshot> snapshots = manager.getSnapshots(secondBranchSaveSet, 0, Optional.empty());
+        assertEquals(4, snapshots.size());
+        VSnapshot snap = manager.loadSnapshotData(snapshots.get(0));
+        assertTrue(secondV1.equalsExceptSnapshot(snap));
+        snapshots = manager.findSnapshotsByCommentOrUser("tweety", secondBranch, false, true, Optional.empty(),
+            Optional.empty());
+        assertEquals(1, snapshots.size());
+        assertEquals(3, manager.getBaseLevels(secondBranch).size());
+        List<SaveSet> sets = manager.getSaveSets(Optional.of(secondBase), secondBranch);
+        assertTrue(sets.contains(secondSaveSet));
+        assertEquals(secondBSD, manager.loadSaveSetData(secondSaveSet, Optional.empty()));
+        try (Git git = Git.open(repositoryPath)) {
+            assertEquals("master", git.getRepository().getBranch());
+        }
+    }
+
     @Test
     public void testSaveSaveSet() throws IOException, GitAPIException {
         SaveSet newSaveSet = new SaveSet(secondBranch, Optional.of(secondBase), new String[] { "created", "set" },
@@ -482,6 +507,40 @@ public class GitManagerTest {
         assertFalse(newSnapshot.getTagName().isPresent());
     }
 
+    @Test
+    public void testSnapshotIndex() throws Exception {
+        List<Snapshot> snapshots = manager.getSnapshots(branchSaveSet, 0, Optional.empty());
+        assertEquals(3, snapshots.size());
+        File indexFile = new File(new File(repositoryPath, ".git"), SnapshotIndex.INDEX_FILE);
+        assertTrue("Index file should be created", indexFile.exists());
+
+        // a commit made outside of the manager has to be picked up by the index
+        SaveSet newSaveSet = new SaveSet(branch, Optional.of(branchBase), new String[] { "indexed", "set.bms" },
+            GitDataProvider.ID);
+        Snapshot snapshot = new Snapshot(newSaveSet, Instant.ofEpochMilli(time), "indexed comment", "road runner");
+        VSnapshot vSnapshot = new VSnapshot(snapshot, Arrays.asList("pv1"), Arrays.asList(true),
+            Arrays.asList(createData(0)), Arrays.asList("rb1"), Arrays.asList(createData(0)), Arrays.asList("1"),
+            Instant.ofEpochMilli(time));
+        try (Git git = Git.open(repositoryPath)) {
+            writeSnapshot(git, vSnapshot);
+        }
+        snapshots = manager.getSnapshots(newSaveSet, 0, Optional.empty());
+        assertEquals(1, snapshots.size());
+        assertTrue(snapshot.almostEquals(snapshots.get(0)));
+
+        // a corrupted index is rebuilt
+        Files.write(indexFile.toPath(), new byte[] { 1, 2, 3 });
+        manager.dispose();
+        manager.initialise(repositoryPath.toURI(), repositoryPath);
+        snapshots = manager.getSnapshots(branchSaveSet, 0, Optional.empty());
+        assertEquals(3, snapshots.size());
+        assertTrue(branchSnapshot.almostEquals(snapshots.get(0)));
+        assertTrue(branchSnapshot2.almostEquals(snapshots.get(1)));
+        assertTrue(branchSnapshot3.almostEquals(snapshots.get(2)));
+        snapshots = manager.getSnapshots(newSaveSet, 0, Optional.empty());
+        assertEquals(1, snapshots.size());
+    }
+
     @Test
     public void testFindSnapshots() throws IOException, GitAPIException, DataProviderException {
         List<Snapshot> snapshots = manager.findSnapshotsByCommentOrUser("succotash", branch, true, false,
@@ -672,4 +731,127 @@ public class GitManagerTest {
         assertEquals("first comment", newData.getSnapshot().get().getComment());
     }
 
+    @Test
+    public void testBulkImport() throws Exception {
+        Branch newBranch = manager.createBranch(branch, "foobar");
+        BaseLevel bl = new BaseLevel(newBranch, "imported", "imported");
+        List<Snapshot> sourceSnapshots = manager.getSnapshots(branchSaveSet, 0, Optional.empty());
+        ObjectId oldHead;
+        try (Git git = Git.open(repositoryPath)) {
+            oldHead = git.getRepository().resolve("foobar");
+        }
+        Result<Boolean> result = manager.importData(branchSaveSet, newBranch, Optional.of(bl),
+            ImportType.ALL_SNAPSHOTS);
+        assertTrue(result.data);
+
+        try (Git git = Git.open(repositoryPath)) {
+            // one commit per file, but a single update of the branch
+            ReflogEntry entry = git.reflog().setRef("foobar").call().iterator().next();
+            assertEquals("import: " + (sourceSnapshots.size() + 1) + " commits", entry.getComment());
+            assertEquals(oldHead, entry.getOldId());
+            int count = 0;
+            for (RevCommit c : git.log().addRange(oldHead, git.getRepository().resolve("foobar")).call()) {
+                count++;
+            }
+            assertEquals(sourceSnapshots.size() + 1, count);
+        }
+        // the working tree contains the imported files
+        assertTrue(Files.exists(Paths.get(repositoryPath.getAbsolutePath(), "imported", "Snapshots", "foo",
+            "test.snp")));
+
+        SaveSet newSet = new SaveSet(newBranch, Optional.of(bl), branchSaveSet.getPath(), GitDataProvider.ID);
+        List<Snapshot> snapshots = manager.getSnapshots(newSet, 0, Optional.empty());
+        assertEquals(sourceSnapshots.size(), snapshots.size());
+        for (int i = 0; i < snapshots.size(); i++) {
+            Snapshot source = sourceSnapshots.get(i);
+            Snapshot imported = snapshots.get(i);
+            assertEquals(source.getComment(), imported.getComment());
+            assertEquals(source.getOwner(), imported.getOwner());
+            assertEquals(source.getDate(), imported.getDate());
+            assertTrue(manager.loadSnapshotData(source)
+                .equalsExceptSnapshotOrSaveSet(manager.loadSnapshotData(imported)));
+        }
+        assertEquals(branchBSD.getPVList(), manager.loadSaveSetData(newSet, Optional.empty()).getPVList());
+    }
+
+    @Test
+    public void testWriteBehind() throws Exception {
+        // a bare copy of the test repository acts as the remote, which is cloned into another folder
+        File remote = new File(System.getProperty("java.io.tmpdir"), "R" + (int) (Math.random() * 1000));
+        File clone = new File(System.getProperty("java.io.tmpdir"), "C" + (int) (Math.random() * 1000));
+        Git.cloneRepository().setBare(true).setURI(repositoryPath.toURI().toString()).setDirectory(remote).call()
+            .close();
+        GitManager writeBehind = new GitManager() {
+            @Override
+            protected Credentials getCredentials(Optional<Credentials> previous) {
+                return new Credentials("", new char[0], false);
+            }
+        };
+        List<Integer> reported = new CopyOnWriteArrayList<>();
+        GitManager restarted = null;
+        try (Git remoteGit = Git.open(remote)) {
+            writeBehind.setWriteBehind(true);
+            writeBehind.setPendingChangesListener(reported::add);
+            writeBehind.initialise(URI.create("file://" + remote.getAbsolutePath()), clone);
+            ObjectId remoteHead = remoteGit.getRepository().resolve("master");
+            assertEquals(0, writeBehind.getPendingChanges());
+
+            Instant now = Instant.ofEpochSecond(System.currentTimeMillis() / 1000);
+            VSnapshot snapshot = new VSnapshot(new Snapshot(branchSaveSet, now, null, null),
+                Arrays.asList("pv1", "pv2"), Arrays.asList(true, true), Arrays.asList(createData(0), createData(1)),
+                Arrays.asList("rb1", "rb2"), Arrays.asList(createData(0), createData(1)), Arrays.asList("50", "50"),
+                now);
+            Result<VSnapshot> result = writeBehind.saveSnapshot(snapshot, "write behind");
+            assertEquals(ChangeType.SAVE, result.change);
+            // the snapshot is committed locally, but not pushed yet
+            assertEquals(1, writeBehind.getPendingChanges());
+            assertEquals(remoteHead, remoteGit.getRepository().resolve("master"));
+            List<Snapshot> snapshots = writeBehind.getSnapshots(branchSaveSet, 0, Optional.empty());
+            assertEquals("write behind", snapshots.get(0).getComment());
+
+            long end = System.currentTimeMillis() + 30000;
+            while (writeBehind.getPendingChanges() > 0 && System.currentTimeMillis() < end) {
+                Thread.sleep(100);
+            }
+            assertEquals(0, writeBehind.getPendingChanges());
+            assertEquals(Arrays.asList(1, 0), reported);
+            RevCommit pushed = remoteGit.log().add(remoteGit.getRepository().resolve("master")).setMaxCount(1).call()
+                .iterator().next();
+            assertEquals("write behind", pushed.getFullMessage());
+
+            // after a restart the unpushed commits wait for the user, who is not asked for the credentials
+            snapshot = new VSnapshot(new Snapshot(branchSaveSet, now.plusSeconds(1), null, null),
+                Arrays.asList("pv1"), Arrays.asList(true), Arrays.asList(createData(2)), Arrays.asList("rb1"),
+                Arrays.asList(createData(2)), Arrays.asList("50"), now.plusSeconds(1));
+            writeBehind.setAutomaticSynchronisation(false);
+            writeBehind.saveSnapshot(snapshot, "after restart");
+            writeBehind.dispose();
+            AtomicInteger prompts = new AtomicInteger();
+            restarted = new GitManager() {
+                @Override
+                protected Credentials getCredentials(Optional<Credentials> previous) {
+                    prompts.incrementAndGet();
+                    return new Credentials("", new char[0], false);
+                }
+            };
+            restarted.setWriteBehind(true);
+            restarted.initialise(URI.create("file://" + remote.getAbsolutePath()), clone);
+            int initialPrompts = prompts.get();
+            assertEquals(1, restarted.getPendingChanges());
+            Thread.sleep(BackgroundPusher.BATCH_DELAY + 1000);
+            assertEquals(initialPrompts, prompts.get());
+            assertEquals(1, restarted.getPendingChanges());
+            restarted.synchronise(Optional.empty());
+            assertEquals(0, restarted.getPendingChanges());
+            assertEquals("after restart", remoteGit.log().add(remoteGit.getRepository().resolve("master"))
+                .setMaxCount(1).call().iterator().next().getFullMessage());
+        } finally {
+            writeBehind.dispose();
+            if (restarted != null) {
+                restarted.dispose();
+            }
+            GitManager.deleteFolder(clone);
+            GitManager.deleteFolder(remote);
+        }
+    }
 }
@@ -35,6 +35,8 @@ public class Activator extends AbstractUIPlugin {
     public static final String PREF_URL = "url";
     public static final String PREF_DESTINATION = "destination";
     public static final String PREF_AUTOMATIC_SYNC = "automaticSynhronisation";
+    public static final String PREF_BINARY_SNAPSHOTS = "binarySnapshots";
+    public static final String PREF_WRITE_BEHIND = "writeBehind";
 
     private static Activator defaultInstance;
 
@@ -68,6 +70,25 @@ public class Activator extends AbstractUIPlugin {
         return str == null ? null : URI.create(str);
     }
 
+    /**
+     * Returns true if the snapshots should be stored in the binary format or false if they should be stored as csv.
+     *
+     * @return true if binary format is selected or false otherwise
+     */
+    public boolean isBinarySnapshots() {
+        return getPreferenceStore().getBoolean(PREF_BINARY_SNAPSHOTS);
+    }
+
+    /**
+     * Returns true if the saved snapshots should be pushed to the remote repository in the background or false if
+     * they should be pushed immediately.
+     *
+     * @return true if write-behind is selected or false otherwise
+     */
+    public boolean isWriteBehind() {
+        return getPreferenceStore().getBoolean(PREF_WRITE_BEHIND);
+    }
+
     /**
      * Returns the destination folder with the local git clone.
      *
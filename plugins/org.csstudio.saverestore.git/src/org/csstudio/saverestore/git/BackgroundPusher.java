@@ -0,0 +1,253 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.git;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+
+import org.csstudio.saverestore.SaveRestoreService;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+/**
+ *
+ * <code>BackgroundPusher</code> pushes the commits that were made locally to the remote repository in the background.
+ * The branches with unpushed commits are collected for a short while, so that several saves made in a quick
+ * succession are pushed together. If the push fails, it is repeated, with the delay between the attempts doubled
+ * after each failed attempt (up to a maximum) and reset after a successful push.
+ * <p>
+ * If the push cannot be made without asking the user (e.g. there are no credentials), the branches remain pending
+ * without any retries, until a push is scheduled again by a user action.
+ * <p>
+ * The number of unpushed commits is reported to the listener whenever it changes.
+ */
+final class BackgroundPusher {
+
+    /**
+     * <code>PushAction</code> pushes the given branches to the remote repository.
+     */
+    @FunctionalInterface
+    interface PushAction {
+
+        /**
+         * Pushes the local commits of the given branches to the remote repository and returns the number of commits
+         * that remain unpushed for each of the branches. The action should never ask the user for input; if the
+         * push requires it, the action should return null.
+         *
+         * @param branches the short names of the branches to push
+         * @return the number of unpushed commits per branch (missing branches have no unpushed commits) or null if
+         *         the branches could not be pushed without user interaction
+         * @throws GitAPIException if there was an error during push
+         * @throws IOException in case of an IO error
+         */
+        Map<String, Integer> push(Set<String> branches) throws GitAPIException, IOException;
+    }
+
+    /** The delay in milliseconds between the first scheduled commit and the push */
+    static final long BATCH_DELAY = 2000;
+    /** The initial delay in milliseconds before a failed push is repeated */
+    static final long MIN_BACKOFF = 5000;
+    /** The maximum delay in milliseconds before a failed push is repeated */
+    static final long MAX_BACKOFF = 300000;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Git Background Push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PushAction action;
+    private final ScheduledExecutorService executor;
+    private final long batchDelay;
+    private final Map<String, Integer> pending = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+    private volatile IntConsumer listener;
+    private ScheduledFuture<?> task;
+    private long backoff = MIN_BACKOFF;
+
+    /**
+     * Constructs a new pusher, which executes the pushes on the shared background thread.
+     *
+     * @param action the action that pushes the branches
+     */
+    BackgroundPusher(PushAction action) {
+        this(action, EXECUTOR, BATCH_DELAY);
+    }
+
+    /**
+     * Constructs a new pusher.
+     *
+     * @param action the action that pushes the branches
+     * @param executor the executor that executes the pushes
+     * @param batchDelay the delay in milliseconds between the first scheduled commit and the push
+     */
+    BackgroundPusher(PushAction action, ScheduledExecutorService executor, long batchDelay) {
+        this.action = action;
+        this.executor = executor;
+        this.batchDelay = batchDelay;
+    }
+
+    /**
+     * Sets the listener which receives the number of unpushed commits whenever the number changes.
+     *
+     * @param listener the listener (can be null)
+     */
+    void setListener(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Records the number of unpushed commits of the given branch and schedules a push of all pending branches, unless
+     * one is already scheduled. If there are no unpushed commits, the branch is removed from the pending branches.
+     *
+     * @param branch the short name of the branch
+     * @param unpushed the number of commits on the branch, which have not been pushed yet
+     */
+    void schedule(String branch, int unpushed) {
+        int count;
+        synchronized (this) {
+            if (unpushed > 0) {
+                pending.put(branch, unpushed);
+                changed.add(branch);
+            } else if (pending.remove(branch) == null && (pending.isEmpty() || task != null)) {
+                return;
+            }
+            if (task == null && !pending.isEmpty()) {
+                // also resumes the branches that are waiting for the user
+                task = executor.schedule(this::push, batchDelay, TimeUnit.MILLISECONDS);
+            }
+            count = getPendingCount();
+        }
+        notifyListener(count);
+    }
+
+    /**
+     * Pushes all pending branches. Branches which received new commits during the push stay pending. If any of the
+     * branches could not be pushed, another attempt is scheduled after the backoff delay. If the push requires user
+     * interaction, the branches stay pending and no other attempt is scheduled.
+     */
+    void push() {
+        Set<String> branches;
+        synchronized (this) {
+            task = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            branches = new HashSet<>(pending.keySet());
+            changed.clear();
+        }
+        Map<String, Integer> remaining = null;
+        boolean failed = false;
+        try {
+            remaining = action.push(branches);
+        } catch (GitAPIException | IOException | RuntimeException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, "Could not push the changes to the remote repository.", e);
+            failed = true;
+        }
+        if (remaining == null && !failed) {
+            SaveRestoreService.LOGGER.log(Level.INFO,
+                "Push of {0} commits is waiting for the next synchronisation with the remote repository.",
+                getPendingCount());
+            return;
+        }
+        int count;
+        synchronized (this) {
+            for (String branch : branches) {
+                if (remaining == null || changed.contains(branch) || !pending.containsKey(branch)) {
+                    // a new commit was made or the branch was dropped during the push, which is handled separately
+                    continue;
+                }
+                Integer unpushed = remaining.get(branch);
+                if (unpushed == null || unpushed == 0) {
+                    pending.remove(branch);
+                } else {
+                    pending.put(branch, unpushed);
+                    failed = true;
+                }
+            }
+            if (!failed) {
+                backoff = MIN_BACKOFF;
+            } else if (!pending.isEmpty() && task == null) {
+                task = executor.schedule(this::push, backoff, TimeUnit.MILLISECONDS);
+                SaveRestoreService.LOGGER.log(Level.INFO, "Push of {0} commits will be repeated in {1} ms.",
+                    new Object[] { getPendingCount(), backoff });
+                backoff = Math.min(backoff << 1, MAX_BACKOFF);
+            }
+            count = getPendingCount();
+        }
+        notifyListener(count);
+    }
+
+    /**
+     * Returns the number of commits that have not been pushed yet.
+     *
+     * @return the number of unpushed commits
+     */
+    synchronized int getPendingCount() {
+        int count = 0;
+        for (Integer i : pending.values()) {
+            count += i;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the delay in milliseconds, which will be applied if the next push fails.
+     *
+     * @return the current backoff delay
+     */
+    synchronized long getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * Returns true if a push is scheduled or false otherwise.
+     *
+     * @return true if a push is scheduled
+     */
+    synchronized boolean isScheduled() {
+        return task != null;
+    }
+
+    /**
+     * Cancels the scheduled push and forgets all pending branches. The commits remain in the local repository.
+     */
+    void cancel() {
+        synchronized (this) {
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            pending.clear();
+            changed.clear();
+            backoff = MIN_BACKOFF;
+        }
+        notifyListener(0);
+    }
+
+    private void notifyListener(int count) {
+        IntConsumer l = listener;
+        if (l != null) {
+            l.accept(count);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.git;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+import org.csstudio.saverestore.SaveRestoreService;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ *
+ * <code>BulkImporter</code> appends a series of commits to a branch without touching the working tree. Every commit
+ * places an existing blob (e.g. a file from another branch or base level) at the given path; the blob is referenced
+ * by its id and is neither read nor decoded. The trees and commits are built in memory and written through a single
+ * {@link ObjectInserter}. The branch is moved to the last commit by a single ref update when the import is finished.
+ * <p>
+ * The progress is logged periodically and the statistics can be read at any time.
+ */
+final class BulkImporter implements AutoCloseable {
+
+    /** The minimum time in milliseconds between two progress reports */
+    static final long PROGRESS_PERIOD = 2000;
+
+    private final Repository repository;
+    private final String branch;
+    private final ObjectId start;
+    private final ObjectInserter inserter;
+    private final ObjectReader reader;
+    private final DirCache index;
+    private final long startTime;
+    private ObjectId head;
+    private int commitCount;
+    private long byteCount;
+    private long lastReport;
+
+    /**
+     * Constructs a new importer, which appends the commits to the head of the given branch.
+     *
+     * @param repository the repository to import into
+     * @param branch the short name of the branch to which the commits are appended
+     * @throws IOException if the branch could not be read
+     */
+    BulkImporter(Repository repository, String branch) throws IOException {
+        this.repository = repository;
+        this.branch = branch;
+        this.start = repository.resolve(Constants.R_HEADS + branch);
+        this.head = start;
+        this.inserter = repository.newObjectInserter();
+        this.reader = inserter.newReader();
+        this.index = DirCache.newInCore();
+        if (start != null) {
+            try (RevWalk walk = new RevWalk(reader)) {
+                DirCacheBuilder builder = index.builder();
+                builder.addTree(new byte[0], DirCacheEntry.STAGE_0, reader, walk.parseCommit(start).getTree());
+                builder.finish();
+            }
+        }
+        this.startTime = System.currentTimeMillis();
+        this.lastReport = startTime;
+    }
+
+    /**
+     * Creates a commit, which places the blob at the given path. The author and the committer of the commit are
+     * both set to the given identity.
+     *
+     * @param path the path of the file relative to the repository root
+     * @param blob the id of the file content
+     * @param ident the identity of the author and committer
+     * @param message the commit message
+     * @return the id of the new commit
+     * @throws IOException if the commit could not be written
+     */
+    ObjectId add(String path, ObjectId blob, PersonIdent ident, String message) throws IOException {
+        DirCacheEditor editor = index.editor();
+        editor.add(new DirCacheEditor.PathEdit(path) {
+            @Override
+            public void apply(DirCacheEntry entry) {
+                entry.setFileMode(FileMode.REGULAR_FILE);
+                entry.setObjectId(blob);
+            }
+        });
+        editor.finish();
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(index.writeTree(inserter));
+        if (head != null) {
+            commit.setParentId(head);
+        }
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message);
+        head = inserter.insert(commit);
+        commitCount++;
+        byteCount += reader.getObjectSize(blob, Constants.OBJ_BLOB);
+        long now = System.currentTimeMillis();
+        if (now - lastReport >= PROGRESS_PERIOD) {
+            lastReport = now;
+            SaveRestoreService.LOGGER.log(Level.INFO, "Import into branch {0} in progress: {1}.",
+                new Object[] { branch, this });
+        }
+        return head;
+    }
+
+    /**
+     * Writes all objects to the repository and moves the branch to the last created commit. If no commits were
+     * created, nothing happens.
+     *
+     * @throws IOException if the objects could not be written or the branch was moved by someone else during import
+     */
+    void finish() throws IOException {
+        if (commitCount == 0) {
+            return;
+        }
+        inserter.flush();
+        RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+        update.setExpectedOldObjectId(start == null ? ObjectId.zeroId() : start);
+        update.setNewObjectId(head);
+        update.setRefLogMessage("import: " + commitCount + " commits", false);
+        RefUpdate.Result result = update.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FAST_FORWARD) {
+            throw new IOException("Could not update branch '" + branch + "': " + result + ".");
+        }
+        SaveRestoreService.LOGGER.log(Level.INFO, "Import into branch {0} completed: {1}.",
+            new Object[] { branch, this });
+    }
+
+    /**
+     * Returns the number of commits created by this importer.
+     *
+     * @return the number of commits
+     */
+    int getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Returns the total size of the imported files in bytes.
+     *
+     * @return the number of imported bytes
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the time in milliseconds since the import started.
+     *
+     * @return the duration of the import
+     */
+    long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Returns the number of commits created per second since the import started.
+     *
+     * @return the commit throughput
+     */
+    double getCommitsPerSecond() {
+        return commitCount * 1000. / Math.max(1, getElapsedTime());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        reader.close();
+        inserter.close();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        long elapsed = getElapsedTime();
+        return commitCount + " commits, " + byteCount + " bytes in " + elapsed + " ms ("
+            + String.format("%.1f", getCommitsPerSecond()) + " commits/s, "
+            + String.format("%.1f", byteCount / 1024. * 1000. / Math.max(1, elapsed)) + " kB/s)";
+    }
+}
@@ -17,7 +17,9 @@ package org.csstudio.saverestore.git;
  */
 enum FileType {
 
-    SAVE_SET(".bms", "BeamlineSets"), SNAPSHOT(".snp", "Snapshots");
+    SAVE_SET(".bms", "BeamlineSets"), SNAPSHOT(".snp", "Snapshots"),
+    // binary snapshots share the location and suffix with the csv snapshots; the content is recognised by its header
+    BINARY_SNAPSHOT(".snp", "Snapshots");
 
     final String suffix;
     final String directory;
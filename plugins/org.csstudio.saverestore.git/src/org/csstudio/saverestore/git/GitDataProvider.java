@@ -22,6 +22,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.saverestore.CompletionNotifier;
 import org.csstudio.saverestore.DataProvider;
@@ -53,6 +58,15 @@ public class GitDataProvider implements DataProvider {
     private static final SearchCriterion USER = SearchCriterion.of("User",false, false);
     private static final List<SearchCriterion> SEARCH_CRITERIA = Collections
         .unmodifiableList(Arrays.asList(COMMENT, TAG_NAME, TAG_MESSAGE, USER));
+    /** The maximum number of snapshots that are loaded concurrently */
+    private static final int NUMBER_OF_LOADERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // the snapshots are not loaded in the common pool, which is used by the parallel decoder of the snapshot files
+    private static final AtomicInteger LOADER_COUNTER = new AtomicInteger();
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(NUMBER_OF_LOADERS, r -> {
+        Thread thread = new Thread(r, "Git Snapshot Loader " + LOADER_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final GitManager grm;
     private final List<CompletionNotifier> notifiers;
@@ -73,6 +87,11 @@ public class GitDataProvider implements DataProvider {
     public GitDataProvider(GitManager grm) {
         notifiers = new ArrayList<>();
         this.grm = grm;
+        this.grm.setPendingChangesListener(pending -> {
+            for (CompletionNotifier n : getNotifiers()) {
+                n.pendingChangesUpdated(pending);
+            }
+        });
     }
 
     /*
@@ -88,6 +107,8 @@ public class GitDataProvider implements DataProvider {
                 throw new DataProviderException("Repository was not defined.");
             }
             File dest = Activator.getInstance().getDestination();
+            grm.setBinarySnapshots(Activator.getInstance().isBinarySnapshots());
+            grm.setWriteBehind(Activator.getInstance().isWriteBehind());
             grm.initialise(remote, dest);
             initialized = true;
         } catch (RuntimeException | GitAPIException e) {
@@ -111,6 +132,8 @@ public class GitDataProvider implements DataProvider {
             URI remote = Activator.getInstance().getGitURI();
             File dest = Activator.getInstance().getDestination();
             GitManager.deleteFolder(dest);
+            grm.setBinarySnapshots(Activator.getInstance().isBinarySnapshots());
+            grm.setWriteBehind(Activator.getInstance().isWriteBehind());
             boolean b = grm.initialise(remote, dest);
             initialized = true;
             for (CompletionNotifier n : getNotifiers()) {
@@ -377,6 +400,52 @@ public class GitDataProvider implements DataProvider {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotRevision(org.csstudio.saverestore.data.Snapshot)
+     */
+    @Override
+    public Optional<String> getSnapshotRevision(Snapshot snapshot) {
+        return Optional.ofNullable(snapshot.getParameters().get(GitManager.PARAM_GIT_REVISION));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotContents(java.util.List)
+     */
+    @Override
+    public List<VSnapshot> getSnapshotContents(List<Snapshot> snapshots) throws DataProviderException {
+        if (snapshots.size() < 2) {
+            return DataProvider.super.getSnapshotContents(snapshots);
+        }
+        checkInitialised();
+        // the git manager reads directly from the object database, so the snapshots can be loaded concurrently
+        List<CompletableFuture<VSnapshot>> futures = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getSnapshotContent(snapshot);
+                } catch (DataProviderException e) {
+                    throw new CompletionException(e);
+                }
+            }, LOADER));
+        }
+        List<VSnapshot> contents = new ArrayList<>(snapshots.size());
+        try {
+            for (CompletableFuture<VSnapshot> future : futures) {
+                contents.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataProviderException) {
+                throw (DataProviderException) e.getCause();
+            }
+            throw new DataProviderException("Error loading the snapshots content.", e.getCause());
+        }
+        return contents;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -435,7 +504,7 @@ public class GitDataProvider implements DataProvider {
         Result<Boolean> answer = null;
         try {
             answer = grm.importData(source, toBranch, toBaseLevel, type);
-        } catch (RuntimeException | IOException | GitAPIException | ParseException e) {
+        } catch (RuntimeException | IOException | GitAPIException e) {
             throw new DataProviderException("Error importing data from '" + source.getPathAsString() + "'.", e);
         }
 
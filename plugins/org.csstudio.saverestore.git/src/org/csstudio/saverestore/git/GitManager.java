@@ -12,15 +12,18 @@ package org.csstudio.saverestore.git;
 
 import static org.csstudio.saverestore.git.CredentialUtilities.toCredentialsProvider;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -32,7 +35,13 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -57,6 +66,7 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand.ListMode;
 import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.RefNotFoundException;
 import org.eclipse.jgit.api.errors.TransportException;
@@ -64,6 +74,7 @@ import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.BranchTrackingStatus;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -106,22 +117,35 @@ public class GitManager {
 
     private static final String GIT_PATH_DELIMITER = "/";
     // tags of git specific parameters for the snapshot
-    private static final String PARAM_GIT_REVISION = "gitRevision";
+    static final String PARAM_GIT_REVISION = "gitRevision";
     private static final String PARAM_GIT_TAG_NAME = "gitTagName";
     private static final String PARAM_TAG_CREATOR = "tagCreator";
     private static final String PARAM_TAG_NAME = "tagName";
     private static final String PARAM_TAG_MESSAGE = "tagMessage";
     private static final String UNKNOWN = "UNKNOWN";
+    // the size of the buffer used when the files are written
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
 
     // the pattern describing all forbidden characters in git tag
     private static final Pattern TAG_PATTERN = Pattern
         .compile("[\\x00-\\x1F\\x7E-\\xFF()~\\^: /?*\\[\\]@\\\\{\\.{2}]+");
 
+    // Reads of committed data are served from the object database and may run in parallel with each other and with
+    // the working tree operations (checkout, pull, commit, push). Those hold the read lock as well, but are in addition
+    // serialised by the working tree lock. The write lock is only held while the repository is being (re)opened.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock workingTreeLock = new ReentrantLock();
+
     private Git git;
     private Repository repository;
     private File repositoryPath;
-    private boolean automatic = true;
-    private boolean localOnly = false;
+    private volatile boolean automatic = true;
+    private volatile boolean localOnly = false;
+    private volatile boolean binarySnapshots = false;
+    private volatile boolean writeBehind = false;
+    private volatile Credentials pushCredentials;
+    private final BackgroundPusher pusher = new BackgroundPusher(this::pushPending);
+    private SnapshotIndex snapshotIndex;
 
     @SuppressWarnings("unchecked")
     private static final List<String> EMPTY_LIST = Collections.EMPTY_LIST;
@@ -173,7 +197,7 @@ public class GitManager {
      *
      * @return true if only local or false for remote only
      */
-    synchronized boolean isLocalOnly() {
+    boolean isLocalOnly() {
         return localOnly;
     }
 
@@ -181,7 +205,10 @@ public class GitManager {
      * Dispose of all resources allocated by this manager.
      */
     public void dispose() {
+        pusher.cancel();
+        lock.writeLock().lock();
         try {
+            snapshotIndex = null;
             if (repository != null) {
                 repository.close();
                 repository = null;
@@ -192,6 +219,8 @@ public class GitManager {
             }
         } catch (Exception e) {
             SaveRestoreService.LOGGER.log(Level.SEVERE, "Git cleanup error.", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -201,13 +230,62 @@ public class GitManager {
      *
      * @param automatic true if automatic synchronisation should be enabled
      */
-    public synchronized void setAutomaticSynchronisation(boolean automatic) {
+    public void setAutomaticSynchronisation(boolean automatic) {
         if (localOnly && automatic) {
             return;
         }
         this.automatic = automatic;
     }
 
+    /**
+     * Enable or disable storing of snapshots in the binary format. When enabled new snapshots are stored in the binary
+     * columnar format, otherwise they are stored as csv files. Snapshots in both formats can always be read.
+     *
+     * @param binary true if snapshots should be stored in the binary format or false for csv
+     */
+    public void setBinarySnapshots(boolean binary) {
+        this.binarySnapshots = binary;
+    }
+
+    /**
+     * Enable or disable the write-behind mode for snapshots. When enabled and the repository is synchronised
+     * automatically, a saved snapshot is only committed to the local repository and the commit is pushed to the
+     * remote repository in the background, together with any other commits made in the meantime. The background push
+     * never asks for credentials; it uses the credentials of the last save or synchronisation. If the push fails it
+     * is repeated with an increasing delay, unless the credentials are missing or rejected. In that case the
+     * background push stops and the commits remain pending until the next save or synchronisation, which asks the
+     * user for the credentials. The commits stay in the local repository, so any commits that were not pushed before
+     * the application was closed are pushed after the first save or synchronisation once the manager is initialised
+     * again.
+     *
+     * @param writeBehind true if the snapshots should be pushed in the background or false if they should be pushed
+     *            before {@link #saveSnapshot(VSnapshot, String)} returns
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Sets the listener, which receives the number of local commits waiting to be pushed to the remote repository in
+     * the background, whenever the number changes.
+     *
+     * @param listener the listener (can be null)
+     * @see #setWriteBehind(boolean)
+     */
+    public void setPendingChangesListener(IntConsumer listener) {
+        pusher.setListener(listener);
+    }
+
+    /**
+     * Returns the number of local commits, which are waiting to be pushed to the remote repository in the background.
+     *
+     * @return the number of unpushed commits
+     * @see #setWriteBehind(boolean)
+     */
+    public int getPendingChanges() {
+        return pusher.getPendingCount();
+    }
+
     /**
      * Initialise this manager by establishing the clone of the remote repository or pull if the destination directory
      * is already a clone of the remote repository. If the destination already exists and its origin is not the same as
@@ -218,16 +296,27 @@ public class GitManager {
      * @return true if initialisation was successful or false otherwise (cancelled due to lack of permissions)
      * @throws GitAPIException in case of an error
      */
-    public synchronized boolean initialise(URI remoteRepository, File destinationDirectory) throws GitAPIException {
-        if (!internalInitialise(remoteRepository, destinationDirectory)) {
-            deleteFolder(destinationDirectory);
-            return internalInitialise(remoteRepository, destinationDirectory);
+    public boolean initialise(URI remoteRepository, File destinationDirectory) throws GitAPIException {
+        lock.writeLock().lock();
+        try {
+            boolean success = internalInitialise(remoteRepository, destinationDirectory);
+            if (!success) {
+                deleteFolder(destinationDirectory);
+                success = internalInitialise(remoteRepository, destinationDirectory);
+            }
+            if (repository != null) {
+                snapshotIndex = new SnapshotIndex(repository);
+                if (writeBehind && automatic) {
+                    scheduleUnpushedBranches();
+                }
+            }
+            return success;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return true;
     }
 
-    private synchronized boolean internalInitialise(URI remoteRepository, File destinationDirectory)
-        throws GitAPIException {
+    private boolean internalInitialise(URI remoteRepository, File destinationDirectory) throws GitAPIException {
         if (!remoteRepository.toString().contains("://")) {
             // it is not git:// or http:// or https:// or ssh://
             File file = null;
@@ -316,6 +405,38 @@ public class GitManager {
         return true;
     }
 
+    /**
+     * Schedule the background push of all local branches which contain commits that were not pushed yet (e.g. the
+     * application was closed before the push completed).
+     */
+    private void scheduleUnpushedBranches() {
+        try {
+            for (Ref ref : git.branchList().call()) {
+                String branch = Repository.shortenRefName(ref.getName());
+                pusher.schedule(branch, countUnpushed(branch));
+            }
+        } catch (GitAPIException | IOException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, "Could not determine the unpushed commits.", e);
+        }
+    }
+
+    /**
+     * Acquire the locks required for any operation that changes or depends on the working tree. The working tree
+     * operations are executed one at a time, but may run in parallel with the reads from the object database.
+     */
+    private void lockWorkingTree() {
+        lock.readLock().lock();
+        workingTreeLock.lock();
+    }
+
+    /**
+     * Release the locks acquired by {@link #lockWorkingTree()}.
+     */
+    private void unlockWorkingTree() {
+        workingTreeLock.unlock();
+        lock.readLock().unlock();
+    }
+
     /**
      * Switch the working branch of the repository to the given branch. If the current branch is already the requested
      * branch, nothing happens.
@@ -324,7 +445,7 @@ public class GitManager {
      * @throws GitAPIException if there was an exception during the checkout
      * @throws IOException if the current branch cannot be determined
      */
-    private synchronized void setBranch(Branch branch) throws GitAPIException, IOException {
+    private void setBranch(Branch branch) throws GitAPIException, IOException {
         if (!branch.getShortName().equals(repository.getBranch())) {
             Ref ref = null;
             try {
@@ -346,26 +467,31 @@ public class GitManager {
      * @return the list of branches
      * @throws GitAPIException if the branches could not be read
      */
-    public synchronized List<Branch> getBranches() throws GitAPIException {
-        List<Ref> branchesRef = git.branchList().setListMode(ListMode.ALL).call();
-        List<Branch> branches = new ArrayList<>(branchesRef.size());
-        for (Ref b : branchesRef) {
-            String name = b.getName();
-            if ("HEAD".equals(name)) {
-                continue;
-            }
-            Branch branch;
-            if (name.indexOf('/') > 0) {
-                branch = new Branch(name, name.substring(name.lastIndexOf('/') + 1));
-            } else {
-                branch = new Branch(name, name);
-            }
-            if (!branches.contains(branch)) {
-                branches.add(branch);
+    public List<Branch> getBranches() throws GitAPIException {
+        lock.readLock().lock();
+        try {
+            List<Ref> branchesRef = git.branchList().setListMode(ListMode.ALL).call();
+            List<Branch> branches = new ArrayList<>(branchesRef.size());
+            for (Ref b : branchesRef) {
+                String name = b.getName();
+                if ("HEAD".equals(name)) {
+                    continue;
+                }
+                Branch branch;
+                if (name.indexOf('/') > 0) {
+                    branch = new Branch(name, name.substring(name.lastIndexOf('/') + 1));
+                } else {
+                    branch = new Branch(name, name);
+                }
+                if (!branches.contains(branch)) {
+                    branches.add(branch);
+                }
             }
+            Collections.sort(branches);
+            return branches;
+        } finally {
+            lock.readLock().unlock();
         }
-        Collections.sort(branches);
-        return branches;
     }
 
     /**
@@ -375,14 +501,26 @@ public class GitManager {
      * @return true if changes in the local repository were made
      * @throws GitAPIException if there is an error during push or pull
      */
-    public synchronized boolean synchronise(Optional<Credentials> cp) throws GitAPIException {
-        Credentials c = cp.isPresent() ? cp.get() : getCredentials(Optional.empty());
-        if (c != null) {
-            Object[] obj = pull(c);
-            push((Credentials) obj[0], true);
-            return (Boolean) obj[1];
+    public boolean synchronise(Optional<Credentials> cp) throws GitAPIException {
+        lockWorkingTree();
+        try {
+            Credentials c = cp.isPresent() ? cp.get() : getCredentials(Optional.empty());
+            if (c != null) {
+                Object[] obj = pull(c);
+                Credentials pushed = push((Credentials) obj[0], true);
+                updateSnapshotIndex();
+                if (writeBehind) {
+                    if (pushed != null) {
+                        pushCredentials = pushed;
+                    }
+                    updatePending();
+                }
+                return (Boolean) obj[1];
+            }
+            return false;
+        } finally {
+            unlockWorkingTree();
         }
-        return false;
     }
 
     /**
@@ -390,6 +528,10 @@ public class GitManager {
      * this case does not to be a true save set - it can also point to a folder containing multiple save sets. All files
      * from the source or below it are copied to the branch and base level. If the import type specifies the
      * corresponding snapshots are also imported.
+     * <p>
+     * The files are copied as they are, without being parsed. Every imported file is committed as a separate revision
+     * with the original author, date and comment, but the commits are built in memory and the branch is updated only
+     * once, after all files have been imported. The changes are pushed to the remote repository at the end.
      *
      * @param source the source of data (file or folder)
      * @param toBranch the destination branch
@@ -398,146 +540,180 @@ public class GitManager {
      * @return true if successful combined with the type of change that was done to the repository
      * @throws GitAPIException if there was an error executing git actions
      * @throws IOException in case of an IO error
-     * @throws ParseException if the snapshot content could not be parsed
-     */
-    public synchronized Result<Boolean> importData(SaveSet source, Branch toBranch, Optional<BaseLevel> toBaseLevel,
-        ImportType type) throws GitAPIException, IOException, ParseException {
-        boolean oldAutomatic = this.automatic;
-        setAutomaticSynchronisation(false);
-        Credentials cred = getCredentials(Optional.empty());
-        Object[] obj = pull(cred);
-        ChangeType change = (Boolean) obj[1] ? ChangeType.PULL : ChangeType.SAVE;
-        cred = (Credentials) obj[0];
+     */
+    public Result<Boolean> importData(SaveSet source, Branch toBranch, Optional<BaseLevel> toBaseLevel,
+        ImportType type) throws GitAPIException, IOException {
+        lockWorkingTree();
         try {
-            if (source.getName().isEmpty()) {
-                // it is a folder
-                List<SaveSet> sets = getSaveSets(source.getBaseLevel(), source.getBranch(),
-                    Optional.of(source.getPathAsString()));
-                for (SaveSet s : sets) {
-                    importSaveSet(s, toBaseLevel, toBranch, type, cred);
+            Credentials cred = getCredentials(Optional.empty());
+            Object[] obj = pull(cred);
+            ChangeType change = (Boolean) obj[1] ? ChangeType.PULL : ChangeType.SAVE;
+            cred = (Credentials) obj[0];
+            setBranch(toBranch);
+            String user = cred == null ? UNKNOWN : cred.getUsername();
+            try (BulkImporter importer = new BulkImporter(repository, toBranch.getShortName())) {
+                if (source.getName().isEmpty()) {
+                    // it is a folder
+                    List<SaveSet> sets = getSaveSets(source.getBaseLevel(), source.getBranch(),
+                        Optional.of(source.getPathAsString()));
+                    for (SaveSet s : sets) {
+                        importSaveSet(s, toBaseLevel, toBranch, type, user, importer);
+                    }
+                } else {
+                    // single save set
+                    importSaveSet(source, toBaseLevel, toBranch, type, user, importer);
                 }
-            } else {
-                // single save set
-                importSaveSet(source, toBaseLevel, toBranch, type, cred);
+                importer.finish();
             }
+            // the branch is checked out, bring the working tree up to date with the imported commits
+            git.reset().setMode(ResetType.HARD).call();
+            updateSnapshotIndex();
+            push(cred, true);
+            return new Result<>(true, change);
         } finally {
-            setAutomaticSynchronisation(oldAutomatic);
+            unlockWorkingTree();
         }
-        push(cred, true);
-        return new Result<>(true, change);
     }
 
     private void importSaveSet(SaveSet source, Optional<BaseLevel> toBaseLevel, Branch toBranch, ImportType type,
-        Credentials cred) throws GitAPIException, IOException, ParseException {
-        SaveSetData data = loadSaveSetData(source, Optional.empty());
+        String user, BulkImporter importer) throws GitAPIException, IOException {
         SaveSet newSet = new SaveSet(toBranch, toBaseLevel, source.getPath(), source.getDataProviderId());
-        SaveSetData newData = new SaveSetData(newSet, data.getPVList(), data.getReadbackList(), data.getDeltaList(),
-            data.getDescription());
         String comment = "Imported from " + source.getBranch().getShortName() + "/" + source.getBaseLevel().get() + "/"
             + source.getPathAsString();
-        saveSaveSet(newData, comment, cred);
+        RevCommit head = getBranchHead(source.getBranch());
+        if (head == null) {
+            throw new FileNotFoundException("Branch '" + source.getBranch().getShortName() + "' does not exist.");
+        }
+        String saveSetPath = convertPathToString(source, FileType.SAVE_SET);
+        importer.add(convertPathToString(newSet, FileType.SAVE_SET), findBlob(head, saveSetPath),
+            new PersonIdent(user, UNKNOWN), comment);
+        List<Snapshot> list;
         if (type == ImportType.LAST_SNAPSHOT) {
-            List<Snapshot> list = getSnapshots(source, 1, Optional.empty());
-            if (!list.isEmpty()) {
-                Snapshot snapshot = list.get(0);
-                VSnapshot snp = loadSnapshotData(snapshot);
-                VSnapshot newSnp = new VSnapshot(new Snapshot(newSet), snp.getNames(), snp.getSelected(),
-                    snp.getValues(), snp.getReadbackNames(), snp.getReadbackValues(), snp.getDeltas(),
-                    snp.getTimestamp());
-                saveSnapshot(newSnp, snapshot.getComment(), snapshot.getDate(), snapshot.getOwner());
-            }
+            list = getSnapshots(source, 1, Optional.empty());
         } else if (type == ImportType.ALL_SNAPSHOTS) {
-            List<Snapshot> list = getSnapshots(source, 0, Optional.empty());
-            for (int i = list.size() - 1; i > -1; i--) {
-                Snapshot s = list.get(i);
-                VSnapshot snp = loadSnapshotData(s);
-                VSnapshot newSnp = new VSnapshot(new Snapshot(newSet), snp.getNames(), snp.getSelected(),
-                    snp.getValues(), snp.getReadbackNames(), snp.getReadbackValues(), snp.getDeltas(),
-                    snp.getTimestamp());
-                saveSnapshot(newSnp, s.getComment(), s.getDate(), s.getOwner());
+            list = getSnapshots(source, 0, Optional.empty());
+        } else {
+            return;
+        }
+        String snapshotPath = convertPathToString(source, FileType.SNAPSHOT);
+        String newSnapshotPath = convertPathToString(newSet, FileType.SNAPSHOT);
+        // the list starts with the newest snapshot, but the oldest one has to be committed first
+        for (int i = list.size() - 1; i > -1; i--) {
+            RevCommit commit = getCommitFromRevision(list.get(i).getParameters().get(PARAM_GIT_REVISION));
+            PersonIdent ident = commit.getCommitterIdent();
+            importer.add(newSnapshotPath, findBlob(commit, snapshotPath),
+                new PersonIdent(ident.getName(), UNKNOWN, ident.getWhen(), ident.getTimeZone()),
+                commit.getFullMessage());
+        }
+    }
+
+    /**
+     * Returns the id of the file content at the given path in the given commit.
+     *
+     * @param commit the commit to look into
+     * @param path the path to the file
+     * @return the id of the blob
+     * @throws IOException if the file does not exist in the commit or could not be read
+     */
+    private ObjectId findBlob(RevCommit commit, String path) throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, commit.getTree())) {
+            if (treeWalk == null) {
+                throw new FileNotFoundException("File '" + path + "' could not be found.");
             }
+            return treeWalk.getObjectId(0);
         }
     }
 
     /**
-     * Reads and returns the list of all base levels in the current branch.
+     * Reads and returns the list of all base levels in the given branch. The base levels are read from the tree of the
+     * branch head; the branch is not checked out.
      *
      * @param branch the branch from which to retrieve base levels
      * @return the list of base levels
      */
-    public synchronized List<BaseLevel> getBaseLevels(Branch branch) throws GitAPIException, IOException {
-        setBranch(branch);
-        File[] files = repositoryPath.listFiles();
-        List<BaseLevel> baseLevels = new ArrayList<>();
-        if (files != null) {
-            for (File f : files) {
-                if (f.isDirectory() && f.getName().charAt(0) != '.') {
-                    baseLevels.add(new BaseLevel(branch, f.getName(), f.getName()));
+    public List<BaseLevel> getBaseLevels(Branch branch) throws GitAPIException, IOException {
+        lock.readLock().lock();
+        try {
+            List<BaseLevel> baseLevels = new ArrayList<>();
+            RevCommit head = getBranchHead(branch);
+            if (head == null) {
+                return baseLevels;
+            }
+            try (TreeWalk treeWalk = new TreeWalk(repository)) {
+                treeWalk.addTree(head.getTree());
+                while (treeWalk.next()) {
+                    String name = treeWalk.getNameString();
+                    if (treeWalk.isSubtree() && name.charAt(0) != '.') {
+                        baseLevels.add(new BaseLevel(branch, name, name));
+                    }
                 }
             }
+            return baseLevels;
+        } finally {
+            lock.readLock().unlock();
         }
-        return baseLevels;
     }
 
     /**
-     * Returns the list of all available save sets in the current branch. The search is done by reading the data on the
-     * file system, not by searching the git repository.
+     * Returns the list of all available save sets in the given branch. The save sets are read from the tree of the
+     * branch head; the branch is not checked out.
      *
      * @param baseLevel the base level for which the save sets are requested (optional, if base levels are not used)
-     * @param branch the branch to switch to
+     * @param branch the branch from which to retrieve the save sets
      * @return the list of save sets
-     * @throws IOException if the current branch could not be retrieved
+     * @throws IOException if the tree of the branch could not be read
      */
-    public synchronized List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch branch)
+    public List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch branch)
         throws IOException, GitAPIException {
-        return getSaveSets(baseLevel, branch, Optional.empty());
+        lock.readLock().lock();
+        try {
+            return getSaveSets(baseLevel, branch, Optional.empty());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Returns the list of all available save sets in the current branch. The search is done by reading the data on the
-     * file system, not by searching the git repository.
+     * Returns the list of all available save sets in the given branch. The save sets are read from the tree of the
+     * branch head; the branch is not checked out.
      *
      * @param baseLevel the base level for which the save sets are requested (optional, if base levels are not used)
-     * @param branch the branch to switch to
+     * @param branch the branch from which to retrieve the save sets
      * @param basePath the base path at which to look for the save sets
      * @return the list of save sets
-     * @throws IOException if the current branch could not be retrieved
+     * @throws IOException if the tree of the branch could not be read
      */
     private List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch branch, Optional<String> basePath)
-        throws IOException, GitAPIException {
-        setBranch(branch);
+        throws IOException {
         List<SaveSet> descriptorList = new ArrayList<>();
-        File[] files = repositoryPath.listFiles();
-        if (files != null) {
-            String base = baseLevel.isPresent() ? baseLevel.get().getStorageName() : null;
-            String basePresentation = baseLevel.isPresent() ? baseLevel.get().getPresentationName() : null;
-            Branch bbranch = baseLevel.isPresent() ? baseLevel.get().getBranch() : null;
-            if (bbranch == null || !bbranch.equals(branch)) {
-                bbranch = branch;
-            }
-            Optional<BaseLevel> bl = Optional.of(new BaseLevel(bbranch, base, basePresentation));
-            for (File f : files) {
-                if (f.getName().equals(base)) {
-                    File b = new File(f, FileType.SAVE_SET.directory);
-                    if (basePath.isPresent()) {
-                        b = new File(b, basePath.get());
-                    }
-                    List<File> setFiles = new ArrayList<>();
-                    gatherSaveSets(b, setFiles);
-                    String path = repositoryPath.getAbsolutePath();
-                    int length = path.length();
-                    if (!(path.charAt(length - 1) == '/' || path.charAt(length - 1) == '\\')) {
-                        length++;
-                    }
-                    for (File bf : setFiles) {
-                        String s = bf.getAbsolutePath().substring(length);
-                        String[] filePathArray = convertStringToPath(s, bl);
-                        if (filePathArray.length > 0) {
-                            SaveSet saveSet = new SaveSet(branch, bl, filePathArray, GitDataProvider.ID);
-                            descriptorList.add(saveSet);
-                        }
-                    }
-                    break;
+        String base = baseLevel.isPresent() ? baseLevel.get().getStorageName() : null;
+        RevCommit head = getBranchHead(branch);
+        if (head == null || base == null || base.isEmpty()) {
+            return descriptorList;
+        }
+        String basePresentation = baseLevel.get().getPresentationName();
+        Branch bbranch = baseLevel.get().getBranch();
+        if (bbranch == null || !bbranch.equals(branch)) {
+            bbranch = branch;
+        }
+        Optional<BaseLevel> bl = Optional.of(new BaseLevel(bbranch, base, basePresentation));
+        StringBuilder dir = new StringBuilder(100).append(base).append(GIT_PATH_DELIMITER)
+            .append(FileType.SAVE_SET.directory);
+        if (basePath.isPresent() && !basePath.get().isEmpty()) {
+            dir.append(GIT_PATH_DELIMITER).append(basePath.get().replace('\\', '/'));
+        }
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(head.getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilter.create(dir.toString()));
+            while (treeWalk.next()) {
+                String s = treeWalk.getPathString();
+                if (!s.toLowerCase(Locale.UK).endsWith(FileType.SAVE_SET.suffix)) {
+                    continue;
+                }
+                String[] filePathArray = convertStringToPath(s, bl);
+                if (filePathArray.length > 0) {
+                    descriptorList.add(new SaveSet(branch, bl, filePathArray, GitDataProvider.ID));
                 }
             }
         }
@@ -552,18 +728,23 @@ public class GitManager {
      * @param revision optional revision number; if not given head revision is used
      * @return the content of the save set file
      * @throws IOException if there was an error reading the contents of the file
-     * @throws GitAPIException if setting the branch failed
+     * @throws GitAPIException if the data could not be read
      */
-    public synchronized SaveSetData loadSaveSetData(SaveSet descriptor, Optional<String> revision)
+    public SaveSetData loadSaveSetData(SaveSet descriptor, Optional<String> revision)
         throws IOException, GitAPIException {
-        setBranch(descriptor.getBranch());
-        String path = convertPathToString(descriptor, FileType.SAVE_SET);
+        lock.readLock().lock();
         try {
-            return loadFile(revision, path, FileType.SAVE_SET, SaveSetData.class, descriptor);
-        } catch (ParseException e) {
-            // cannot happen, but just in case, make a log
-            SaveRestoreService.LOGGER.log(Level.SEVERE, "Unexpected error when loading save set content", e);
-            return null;
+            String path = convertPathToString(descriptor, FileType.SAVE_SET);
+            try {
+                return loadFile(revision, descriptor.getBranch(), path, FileType.SAVE_SET, SaveSetData.class,
+                    descriptor);
+            } catch (ParseException e) {
+                // cannot happen, but just in case, make a log
+                SaveRestoreService.LOGGER.log(Level.SEVERE, "Unexpected error when loading save set content", e);
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -577,22 +758,80 @@ public class GitManager {
      * @throws IOException if the commits could not be read
      * @throws GitAPIException if the commits could not be read
      */
-    public synchronized List<Snapshot> getSnapshots(SaveSet saveSet, int numberOfRevisions,
+    public List<Snapshot> getSnapshots(SaveSet saveSet, int numberOfRevisions,
         Optional<Snapshot> fromThisOneBack) throws IOException, GitAPIException {
-        setBranch(saveSet.getBranch());
-        List<Snapshot> snapshots = new ArrayList<>();
-
-        String path = convertPathToString(saveSet, FileType.SNAPSHOT);
-        path = path.replace(FileType.SAVE_SET.directory, FileType.SNAPSHOT.directory);
-        path = path.replace(FileType.SAVE_SET.suffix, FileType.SNAPSHOT.suffix);
+        lock.readLock().lock();
+        try {
+            List<Snapshot> snapshots = new ArrayList<>();
+
+            String path = convertPathToString(saveSet, FileType.SNAPSHOT);
+            path = path.replace(FileType.SAVE_SET.directory, FileType.SNAPSHOT.directory);
+            path = path.replace(FileType.SAVE_SET.suffix, FileType.SNAPSHOT.suffix);
+
+            String rev = fromThisOneBack.isPresent()
+                ? fromThisOneBack.get().getParameters().get(PARAM_GIT_REVISION) : null;
+            String branch = saveSet.getBranch().getShortName();
+            Ref ref = getBranchRef(saveSet.getBranch());
+            SnapshotIndex index = snapshotIndex;
+            List<SnapshotIndex.Entry> entries = index.getEntries(branch, ref == null ? null : ref.getObjectId(),
+                path);
+            int start = 0;
+            if (rev != null) {
+                start = -1;
+                for (int i = 0; i < entries.size(); i++) {
+                    if (entries.get(i).revision.equals(rev)) {
+                        // do not return the revision that the client already knows
+                        start = i + 1;
+                        break;
+                    }
+                }
+                if (start < 0) {
+                    // the revision is not part of this branch's history of the file; walk the history from there
+                    return getSnapshotsFromLog(saveSet, path, numberOfRevisions, rev);
+                }
+            }
+            int end = numberOfRevisions > 0 ? Math.min(entries.size(), start + numberOfRevisions) : entries.size();
+            for (int i = start; i < end; i++) {
+                SnapshotIndex.Entry entry = entries.get(i);
+                MetaInfo meta = new MetaInfo(entry.comment, entry.creator, null, new Date(entry.timestamp),
+                    entry.revision);
+                Map<String, String> parameters = new HashMap<>();
+                SnapshotIndex.Tag tag = index.getTag(entry.revision);
+                if (tag == null) {
+                    parameters.put(PARAM_GIT_REVISION, entry.revision);
+                } else {
+                    insertTagData(tag.name, tag.message, tag.creator, parameters, entry.revision, branch);
+                }
+                snapshots.add(new Snapshot(saveSet, meta.timestamp.toInstant(), meta.comment, meta.creator,
+                    parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters, EMPTY_LIST));
+            }
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-        String rev = fromThisOneBack.isPresent() ? fromThisOneBack.get().getParameters().get(PARAM_GIT_REVISION) : null;
-        List<RevCommit> fileRevisions = findCommitsFor(path, numberOfRevisions, Optional.ofNullable(rev));
+    /**
+     * Returns the list of snapshots for the given save set by walking the history of the snapshot file from the given
+     * revision back. This is only used when the revision cannot be found in the snapshot index.
+     *
+     * @param saveSet the save set for which the snapshots are requested
+     * @param path the path to the snapshot file
+     * @param numberOfRevisions the maximum number of snapshot revisions to load
+     * @param rev the revision at which to start and then going back
+     * @return the list of snapshot revisions older than the given revision
+     * @throws IOException if the commits could not be read
+     * @throws GitAPIException if the commits could not be read
+     */
+    private List<Snapshot> getSnapshotsFromLog(SaveSet saveSet, String path, int numberOfRevisions, String rev)
+        throws IOException, GitAPIException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        List<RevCommit> fileRevisions = findCommitsFor(path, numberOfRevisions, Optional.of(rev));
         Map<String, RevTag> tags = loadTagsForRevisions(fileRevisions);
         String branch = saveSet.getBranch().getShortName();
         for (RevCommit commit : fileRevisions) {
             String revision = commit.getName();
-            if (rev != null && rev.equals(revision)) {
+            if (rev.equals(revision)) {
                 // do not return the revision that the client already knows
                 continue;
             }
@@ -615,12 +854,16 @@ public class GitManager {
      * @throws ParseException if
      * @throws IOException
      */
-    public synchronized VSnapshot loadSnapshotData(Snapshot snapshot)
+    public VSnapshot loadSnapshotData(Snapshot snapshot)
         throws ParseException, IOException, GitAPIException {
-        setBranch(snapshot.getSaveSet().getBranch());
-        String path = convertPathToString(snapshot.getSaveSet(), FileType.SNAPSHOT);
-        return loadFile(Optional.ofNullable(snapshot.getParameters().get(PARAM_GIT_REVISION)), path, FileType.SNAPSHOT,
-            VSnapshot.class, snapshot);
+        lock.readLock().lock();
+        try {
+            String path = convertPathToString(snapshot.getSaveSet(), FileType.SNAPSHOT);
+            return loadFile(Optional.ofNullable(snapshot.getParameters().get(PARAM_GIT_REVISION)),
+                snapshot.getSaveSet().getBranch(), path, FileType.SNAPSHOT, VSnapshot.class, snapshot);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -632,9 +875,14 @@ public class GitManager {
      * @throws IOException if writing to the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<SaveSetData> saveSaveSet(SaveSetData data, String comment)
+    public Result<SaveSetData> saveSaveSet(SaveSetData data, String comment)
         throws IOException, GitAPIException {
-        return saveSaveSet(data, comment, null);
+        lockWorkingTree();
+        try {
+            return saveSaveSet(data, comment, null);
+        } finally {
+            unlockWorkingTree();
+        }
     }
 
     /**
@@ -687,41 +935,47 @@ public class GitManager {
      * @throws IOException in case of an error
      * @throws GitAPIException in case of an error
      */
-    public synchronized Result<SaveSet> deleteSaveSet(SaveSet set, String comment) throws IOException, GitAPIException {
-        SaveSet deleted = null;
-        ChangeType change = ChangeType.NONE;
-        delete: {
-            Credentials cp = getCredentials(Optional.empty());
-            if (cp != null) {
-                setBranch(set.getBranch());
-                change = ChangeType.SAVE;
-                if (automatic) {
-                    Object[] obj = pull(cp);
-                    cp = (Credentials) obj[0];
-                    change = (Boolean) obj[1] ? ChangeType.PULL : change;
-                    if (cp == null) {
-                        break delete;
-                    }
-                }
-                String relativePath = convertPathToString(set, FileType.SAVE_SET);
-                if (deleteFile(relativePath, repositoryPath)) {
-                    deleted = set;
-                    commit(relativePath, new MetaInfo(comment, cp.getUsername(), UNKNOWN, null, null), true);
-                    // delete also the snapshot file
-                    relativePath = convertPathToString(set, FileType.SNAPSHOT);
-                    deleteFile(relativePath, repositoryPath);
-                    commit(relativePath, new MetaInfo(comment, cp.getUsername(), null, null, null), true);
+    public Result<SaveSet> deleteSaveSet(SaveSet set, String comment) throws IOException, GitAPIException {
+        lockWorkingTree();
+        try {
+            SaveSet deleted = null;
+            ChangeType change = ChangeType.NONE;
+            delete: {
+                Credentials cp = getCredentials(Optional.empty());
+                if (cp != null) {
+                    setBranch(set.getBranch());
+                    change = ChangeType.SAVE;
                     if (automatic) {
-                        push(cp, false);
+                        Object[] obj = pull(cp);
+                        cp = (Credentials) obj[0];
+                        change = (Boolean) obj[1] ? ChangeType.PULL : change;
+                        if (cp == null) {
+                            break delete;
+                        }
+                    }
+                    String relativePath = convertPathToString(set, FileType.SAVE_SET);
+                    if (deleteFile(relativePath, repositoryPath)) {
+                        deleted = set;
+                        commit(relativePath, new MetaInfo(comment, cp.getUsername(), UNKNOWN, null, null), true);
+                        // delete also the snapshot file
+                        relativePath = convertPathToString(set, FileType.SNAPSHOT);
+                        deleteFile(relativePath, repositoryPath);
+                        commit(relativePath, new MetaInfo(comment, cp.getUsername(), null, null, null), true);
+                        if (automatic) {
+                            push(cp, false);
+                        }
                     }
                 }
             }
+            return new Result<>(deleted, change);
+        } finally {
+            unlockWorkingTree();
         }
-        return new Result<>(deleted, change);
     }
 
     /**
-     * Save the snapshot data and commit the file as a new revision.
+     * Save the snapshot data and commit the file as a new revision. In the write-behind mode the revision is only
+     * committed locally and pushed to the remote repository in the background.
      *
      * @param snapshot the snapshot data
      * @param comment the comment for the commit
@@ -729,9 +983,14 @@ public class GitManager {
      * @throws IOException if writing the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<VSnapshot> saveSnapshot(VSnapshot snapshot, String comment)
+    public Result<VSnapshot> saveSnapshot(VSnapshot snapshot, String comment)
         throws IOException, GitAPIException {
-        return saveSnapshot(snapshot, comment, snapshot.getTimestamp(), null);
+        lockWorkingTree();
+        try {
+            return saveSnapshot(snapshot, comment, snapshot.getTimestamp(), null);
+        } finally {
+            unlockWorkingTree();
+        }
     }
 
     /**
@@ -749,11 +1008,13 @@ public class GitManager {
         throws IOException, GitAPIException {
         VSnapshot vsnp = null;
         ChangeType change = ChangeType.NONE;
+        // in write-behind mode the remote is not contacted; the commit is pushed later by the background pusher
+        boolean sync = automatic && !writeBehind;
         save: {
             Credentials cp = getCredentials(Optional.empty());
             if (cp != null) {
                 change = ChangeType.SAVE;
-                if (automatic) {
+                if (sync) {
                     Object[] obj = pull(cp);
                     cp = (Credentials) obj[0];
                     change = (Boolean) obj[1] ? ChangeType.PULL : change;
@@ -764,12 +1025,17 @@ public class GitManager {
                 setBranch(snapshot.getSaveSet().getBranch());
                 Snapshot descriptor = snapshot.getSnapshot().get();
                 String relativePath = convertPathToString(descriptor.getSaveSet(), FileType.SNAPSHOT);
-                writeToFile(relativePath, repositoryPath, FileType.SNAPSHOT, snapshot);
+                writeToFile(relativePath, repositoryPath,
+                    binarySnapshots ? FileType.BINARY_SNAPSHOT : FileType.SNAPSHOT, snapshot);
                 MetaInfo info = commit(relativePath, new MetaInfo(comment, user == null ? cp.getUsername() : user,
                     UNKNOWN, time == null ? new Date(0) : Date.from(time), null), false);
-                if (automatic) {
+                if (sync) {
                     push(cp, false);
+                } else if (automatic) {
+                    pushCredentials = cp;
+                    updatePending();
                 }
+                updateSnapshotIndex();
                 Map<String, String> parameters = new HashMap<>();
                 parameters.put(PARAM_GIT_REVISION, info.revision);
                 Snapshot snp = new Snapshot(descriptor.getSaveSet(), info.timestamp.toInstant(), info.comment,
@@ -783,17 +1049,26 @@ public class GitManager {
     }
 
     /**
-     * Creates a new branch with the given name. The new branch is based on the current one.
+     * Creates a new branch with the given name. The new branch starts at the head of the old branch. Neither of the
+     * branches is checked out.
      *
      * @param oldBranch the base branch from which we want to create a new one
      * @param branch the branch to create
      * @throws GitAPIException in case of an error
      * @throws IOException in case of an error
      */
-    public synchronized Branch createBranch(Branch oldBranch, String branch) throws GitAPIException, IOException {
-        setBranch(oldBranch);
-        git.branchCreate().setName(branch).call();
-        return new Branch(branch, branch);
+    public Branch createBranch(Branch oldBranch, String branch) throws GitAPIException, IOException {
+        lockWorkingTree();
+        try {
+            Ref ref = getBranchRef(oldBranch);
+            if (ref == null) {
+                throw new RefNotFoundException("Branch '" + oldBranch.getShortName() + "' does not exist.");
+            }
+            git.branchCreate().setName(branch).setStartPoint(ref.getName()).call();
+            return new Branch(branch, branch);
+        } finally {
+            unlockWorkingTree();
+        }
     }
 
     /**
@@ -806,61 +1081,148 @@ public class GitManager {
      * @throws IOException if writing the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<Snapshot> tagSnapshot(Snapshot snapshot, String name, String message)
+    public Result<Snapshot> tagSnapshot(Snapshot snapshot, String name, String message)
         throws IOException, GitAPIException, DataProviderException {
-        if (name != null && TAG_PATTERN.matcher(name).replaceAll("").length() != name.length()) {
-            throw new DataProviderException("Tag name contains invalid characters.");
-        }
-        Snapshot snp = null;
-        ChangeType change = ChangeType.NONE;
-        tag: {
-            Credentials cp = getCredentials(Optional.empty());
-            if (cp != null) {
-                setBranch(snapshot.getSaveSet().getBranch());
-                change = ChangeType.SAVE;
-                if (automatic) {
-                    Object[] obj = pull(cp);
-                    cp = (Credentials) obj[0];
-                    change = (Boolean) obj[1] ? ChangeType.PULL : change;
-                    if (cp == null) {
-                        break tag;
+        lockWorkingTree();
+        try {
+            if (name != null && TAG_PATTERN.matcher(name).replaceAll("").length() != name.length()) {
+                throw new DataProviderException("Tag name contains invalid characters.");
+            }
+            Snapshot snp = null;
+            ChangeType change = ChangeType.NONE;
+            tag: {
+                Credentials cp = getCredentials(Optional.empty());
+                if (cp != null) {
+                    setBranch(snapshot.getSaveSet().getBranch());
+                    change = ChangeType.SAVE;
+                    if (automatic) {
+                        Object[] obj = pull(cp);
+                        cp = (Credentials) obj[0];
+                        change = (Boolean) obj[1] ? ChangeType.PULL : change;
+                        if (cp == null) {
+                            break tag;
+                        }
                     }
-                }
-                // remove the existing tag
-                String revision = snapshot.getParameters().get(PARAM_GIT_REVISION);
-                RevCommit commit = getCommitFromRevision(revision);
-                RevTag existingTag = loadTagsForRevisions(Arrays.asList(commit)).get(revision);
-                if (existingTag != null) {
-                    git.tagDelete().setTags(existingTag.getTagName()).call();
-                    if (!localOnly) {
-                        RefSpec refSpec = new RefSpec().setSource(null)
-                            .setDestination("refs/tags/" + existingTag.getTagName());
-                        git.push().setCredentialsProvider(toCredentialsProvider(cp)).setRefSpecs(refSpec).call();
+                    // remove the existing tag
+                    String revision = snapshot.getParameters().get(PARAM_GIT_REVISION);
+                    RevCommit commit = getCommitFromRevision(revision);
+                    RevTag existingTag = loadTagsForRevisions(Arrays.asList(commit)).get(revision);
+                    if (existingTag != null) {
+                        git.tagDelete().setTags(existingTag.getTagName()).call();
+                        if (!localOnly) {
+                            RefSpec refSpec = new RefSpec().setSource(null)
+                                .setDestination("refs/tags/" + existingTag.getTagName());
+                            git.push().setCredentialsProvider(toCredentialsProvider(cp)).setRefSpecs(refSpec).call();
+                        }
                     }
-                }
 
-                Map<String, String> parameters = new HashMap<>();
-                parameters.put(PARAM_GIT_REVISION, revision);
-                String tagName = null;
-                String tagMessage = null;
-                if (name != null && !name.isEmpty()) {
-                    String gitTagName = composeTagName(snapshot.getSaveSet().getBranch(),
-                        snapshot.getSaveSet().getBaseLevel(), snapshot.getSaveSet().getPath(), name);
-                    PersonIdent tagger = new PersonIdent(cp.getUsername(), UNKNOWN);
-                    git.tag().setName(gitTagName).setMessage(message).setTagger(tagger).setObjectId(commit).call();
-                    if (automatic) {
-                        push(cp, true);
+                    Map<String, String> parameters = new HashMap<>();
+                    parameters.put(PARAM_GIT_REVISION, revision);
+                    String tagName = null;
+                    String tagMessage = null;
+                    if (name != null && !name.isEmpty()) {
+                        String gitTagName = composeTagName(snapshot.getSaveSet().getBranch(),
+                            snapshot.getSaveSet().getBaseLevel(), snapshot.getSaveSet().getPath(), name);
+                        PersonIdent tagger = new PersonIdent(cp.getUsername(), UNKNOWN);
+                        git.tag().setName(gitTagName).setMessage(message).setTagger(tagger).setObjectId(commit).call();
+                        if (automatic) {
+                            push(cp, true);
+                        }
+                        parameters.put(PARAM_GIT_TAG_NAME, gitTagName);
+                        parameters.put(PARAM_TAG_CREATOR, cp.getUsername());
+                        tagName = name;
+                        tagMessage = message;
                     }
-                    parameters.put(PARAM_GIT_TAG_NAME, gitTagName);
-                    parameters.put(PARAM_TAG_CREATOR, cp.getUsername());
-                    tagName = name;
-                    tagMessage = message;
+                    updateSnapshotIndex();
+                    snp = new Snapshot(snapshot.getSaveSet(), snapshot.getDate(), snapshot.getComment(),
+                        snapshot.getOwner(), tagName, tagMessage, parameters, EMPTY_LIST);
                 }
-                snp = new Snapshot(snapshot.getSaveSet(), snapshot.getDate(), snapshot.getComment(),
-                    snapshot.getOwner(), tagName, tagMessage, parameters, EMPTY_LIST);
             }
+            return new Result<>(snp, change);
+        } finally {
+            unlockWorkingTree();
+        }
+    }
+
+    /**
+     * Bring the snapshot index of the current branch up to date after the repository was changed. The index is also
+     * updated when it is read, therefore a failure here is only logged.
+     */
+    private void updateSnapshotIndex() {
+        try {
+            String branch = repository.getBranch();
+            Ref ref = repository.exactRef(Constants.R_HEADS + branch);
+            snapshotIndex.update(branch, ref == null ? null : ref.getObjectId());
+        } catch (IOException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, "Could not update the snapshot index.", e);
+        }
+    }
+
+    /**
+     * Update the number of unpushed commits of the current branch in the background pusher, which schedules the push
+     * if there are any.
+     */
+    private void updatePending() {
+        try {
+            String branch = repository.getBranch();
+            pusher.schedule(branch, countUnpushed(branch));
+        } catch (IOException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, "Could not determine the unpushed commits.", e);
+        }
+    }
+
+    /**
+     * Returns the number of commits on the local branch, which are not on its remote tracking branch.
+     *
+     * @param branch the short name of the branch
+     * @return the number of unpushed commits or 0 if the branch is not tracking a remote branch
+     * @throws IOException if the branches could not be read
+     */
+    private int countUnpushed(String branch) throws IOException {
+        BranchTrackingStatus status = BranchTrackingStatus.of(repository, branch);
+        return status == null ? 0 : status.getAheadCount();
+    }
+
+    /**
+     * Pull and push the given branches. This method is called by the background pusher and works only with the
+     * credentials that were last used for saving or synchronising. The user is never asked for credentials: if there
+     * are none or they are rejected, the branches remain pending until the next save or synchronisation.
+     *
+     * @param branches the short names of the branches to push
+     * @return the number of commits per branch that are still not pushed or null if there are no valid credentials
+     * @throws GitAPIException if there was an error during pull or push
+     * @throws IOException if a branch could not be checked out
+     */
+    private Map<String, Integer> pushPending(Set<String> branches) throws GitAPIException, IOException {
+        lockWorkingTree();
+        try {
+            Map<String, Integer> remaining = new HashMap<>();
+            if (repository == null || localOnly) {
+                // the manager was disposed and the pending branches will be scheduled again when initialised
+                return remaining;
+            }
+            Credentials cred = pushCredentials;
+            for (String branch : branches) {
+                if (cred == null) {
+                    pushCredentials = null;
+                    return null;
+                }
+                setBranch(new Branch(branch, branch));
+                cred = (Credentials) pull(cred, false)[0];
+                if (cred != null) {
+                    cred = push(cred, false, false);
+                }
+                remaining.put(branch, countUnpushed(branch));
+            }
+            if (cred == null) {
+                pushCredentials = null;
+                return null;
+            }
+            updateSnapshotIndex();
+            return remaining;
+        } finally {
+            unlockWorkingTree();
         }
-        return new Result<>(snp, change);
     }
 
     /**
@@ -923,6 +1285,19 @@ public class GitManager {
      * @throws GitAPIException if there was an error during push
      */
     private Credentials push(Credentials credentials, boolean pushTags) throws GitAPIException {
+        return push(credentials, pushTags, true);
+    }
+
+    /**
+     * Push the local commits to remote repository.
+     *
+     * @param credentials credentials provider to use for pushing
+     * @param pushTags true if tags should be pushed as well or false if tags can be skipped
+     * @param prompt true if the user should be asked for new credentials, when the given ones are rejected
+     * @return credentials that worked or null if they were rejected and the user was not asked or cancelled
+     * @throws GitAPIException if there was an error during push
+     */
+    private Credentials push(Credentials credentials, boolean pushTags, boolean prompt) throws GitAPIException {
         if (localOnly) {
             return null;
         }
@@ -937,7 +1312,7 @@ public class GitManager {
                     break;
                 } else if (isNotAuthorised(e)) {
                     // if the authorisation failed repeat
-                    cred = getCredentials(Optional.ofNullable(cred));
+                    cred = prompt ? getCredentials(Optional.ofNullable(cred)) : null;
                     if (cred == null) {
                         return null;
                     }
@@ -956,7 +1331,7 @@ public class GitManager {
                 if (isNothingToPush(e)) {
                     break;
                 } else if (isNotAuthorised(e)) {
-                    cred = getCredentials(Optional.ofNullable(cred));
+                    cred = prompt ? getCredentials(Optional.ofNullable(cred)) : null;
                     if (cred == null) {
                         return null;
                     }
@@ -977,6 +1352,19 @@ public class GitManager {
      * @throws GitAPIException if there was an error during pull
      */
     private Object[] pull(Credentials credentials) throws GitAPIException {
+        return pull(credentials, true);
+    }
+
+    /**
+     * Pull the changes from remote repository.
+     *
+     * @param credentials the credentials to use when fetching and pull from remote repository
+     * @param prompt true if the user should be asked for new credentials, when the given ones are rejected
+     * @return an array of size 2: credentials that worked or null if cancelled or rejected and a Boolean describing
+     *         if there were any changes pulled from the remote repository
+     * @throws GitAPIException if there was an error during pull
+     */
+    private Object[] pull(Credentials credentials, boolean prompt) throws GitAPIException {
         if (localOnly) {
             return new Object[] { null, false };
         }
@@ -992,7 +1380,7 @@ public class GitManager {
                 return new Object[] { cred, changed };
             } catch (TransportException e) {
                 if (isNotAuthorised(e)) {
-                    cred = getCredentials(Optional.ofNullable(cred));
+                    cred = prompt ? getCredentials(Optional.ofNullable(cred)) : null;
                     if (cred == null) {
                         return new Object[] { null, false };
                     }
@@ -1020,13 +1408,36 @@ public class GitManager {
     }
 
     /**
-     * @return the head commit.
+     * Returns the ref of the given branch. The local branch is used if it exists, otherwise the remote tracking branch
+     * is used, which is the branch that would be checked out by {@link #setBranch(Branch)}.
      *
+     * @param branch the branch for which the ref is requested
+     * @return the ref of the branch or null if the branch does not exist
+     * @throws IOException if the refs could not be read
+     */
+    private Ref getBranchRef(Branch branch) throws IOException {
+        Ref ref = repository.exactRef(Constants.R_HEADS + branch.getShortName());
+        if (ref == null && branch.getFullName().startsWith(Constants.R_REFS)) {
+            ref = repository.exactRef(branch.getFullName());
+        }
+        return ref;
+    }
+
+    /**
+     * Returns the head commit of the given branch. The commit is read from the object database, the branch does not
+     * need to be checked out.
+     *
+     * @param branch the branch for which the head commit is requested
+     * @return the head commit of the branch or null if the branch does not exist
      * @throws IOException if exception occurs
      */
-    private RevCommit getHeadCommit() throws IOException {
+    private RevCommit getBranchHead(Branch branch) throws IOException {
+        Ref ref = getBranchRef(branch);
+        if (ref == null || ref.getObjectId() == null) {
+            return null;
+        }
         try (RevWalk revWalk = new RevWalk(repository)) {
-            return revWalk.parseCommit(repository.resolve(Constants.HEAD));
+            return revWalk.parseCommit(ref.getObjectId());
         }
     }
 
@@ -1098,7 +1509,7 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTag(String partialTagNameOrMessage, Branch branch,
+    public List<Snapshot> findSnapshotsByTag(String partialTagNameOrMessage, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialTagNameOrMessage.toLowerCase(Locale.UK) + ".*");
         return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
@@ -1125,7 +1536,7 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTagMessage(String partialMessage, Branch branch,
+    public List<Snapshot> findSnapshotsByTagMessage(String partialMessage, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialMessage.toLowerCase(Locale.UK) + ".*");
         return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
@@ -1147,7 +1558,7 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTagName(String partialTagName, Branch branch,
+    public List<Snapshot> findSnapshotsByTagName(String partialTagName, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialTagName.toLowerCase(Locale.UK) + ".*");
         return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
@@ -1170,58 +1581,69 @@ public class GitManager {
      */
     private List<Snapshot> findSnapshotsByTag(Branch branch, Optional<Date> start, Optional<Date> end,
         TriFunction<RevWalk, Ref, String, RevTag> f) throws GitAPIException, IOException {
-        setBranch(branch);
-        List<Snapshot> snapshots = new ArrayList<>();
-        Map<String, Ref> tags = repository.getTags();
-        String branchName = new StringBuilder(branch.getShortName().length() + 2).append('(')
-            .append(branch.getShortName()).append(')').toString();
-        try (RevWalk walk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
-            RevFilter timeFilter = null;
-            if (start.isPresent() && end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
-            } else if (start.isPresent()) {
-                timeFilter = CommitTimeRevFilter.after(start.get());
-            } else if (end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.before(end.get());
+        lock.readLock().lock();
+        try {
+            List<Snapshot> snapshots = new ArrayList<>();
+            RevCommit head = getBranchHead(branch);
+            if (head == null) {
+                return snapshots;
             }
-            for (Map.Entry<String, Ref> r : tags.entrySet()) {
-                String name = r.getKey();
-                // check if the tag branch name is correct
-                if (name.charAt(0) == '(') {
-                    if (name.startsWith(branchName)) {
-                        name = name.substring(name.indexOf(')') + 1);
-                    } else {
-                        continue;
-                    }
+            Map<String, Ref> tags = repository.getTags();
+            String branchName = new StringBuilder(branch.getShortName().length() + 2).append('(')
+                .append(branch.getShortName()).append(')').toString();
+            try (RevWalk walk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
+                RevFilter timeFilter = null;
+                if (start.isPresent() && end.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
+                } else if (start.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.after(start.get());
+                } else if (end.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.before(end.get());
                 }
-                RevTag tag = f.apply(walk, r.getValue(), name);
-                if (tag != null) {
-                    String revision = tag.getObject().getId().getName();
-                    RevCommit commit = getCommitFromRevision(revision);
-                    if (timeFilter != null) {
-                        try {
-                            if (!timeFilter.include(walk, commit)) {
-                                continue;
-                            }
-                        } catch (StopWalkException e) {
-                            // thrown by the filter, because it expects that commit times are ordered. That is generally
-                            // true, but not in this case, because we are not walking through the tree
+                for (Map.Entry<String, Ref> r : tags.entrySet()) {
+                    String name = r.getKey();
+                    // check if the tag branch name is correct
+                    if (name.charAt(0) == '(') {
+                        if (name.startsWith(branchName)) {
+                            name = name.substring(name.indexOf(')') + 1);
+                        } else {
                             continue;
                         }
                     }
-                    getPathFromCommit(commit, walk, objectReader)
-                        .ifPresent(p -> pathToSaveSet(p, repositoryPath, branch, FileType.SNAPSHOT).ifPresent(e -> {
+                    RevTag tag = f.apply(walk, r.getValue(), name);
+                    if (tag != null) {
+                        String revision = tag.getObject().getId().getName();
+                        RevCommit commit = getCommitFromRevision(revision);
+                        if (timeFilter != null) {
+                            try {
+                                if (!timeFilter.include(walk, commit)) {
+                                    continue;
+                                }
+                            } catch (StopWalkException e) {
+                                // thrown by the filter, because it expects that commit times are ordered. That is
+                                // generally true, but not in this case, because we are not walking through the tree
+                                continue;
+                            }
+                        }
+                        Optional<String> path = getPathFromCommit(commit, walk, objectReader);
+                        Optional<SaveSet> set = path.isPresent()
+                            ? pathToSaveSet(path.get(), head, objectReader, branch, FileType.SNAPSHOT)
+                            : Optional.empty();
+                        if (set.isPresent()) {
                             MetaInfo meta = getMetaInfoFromCommit(commit);
                             Map<String, String> parameters = new HashMap<>();
                             insertTagData(tag, parameters, revision, branch.getShortName());
-                            snapshots.add(new Snapshot(e, meta.timestamp.toInstant(), meta.comment, meta.creator,
-                                parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters,
-                                EMPTY_LIST));
-                        }));
+                            snapshots.add(new Snapshot(set.get(), meta.timestamp.toInstant(), meta.comment,
+                                meta.creator, parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE),
+                                parameters, EMPTY_LIST));
+                        }
+                    }
                 }
             }
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
         }
-        return snapshots;
     }
 
     private Optional<String> getPathFromCommit(RevCommit commit, RevWalk walk, ObjectReader objectReader)
@@ -1268,90 +1690,104 @@ public class GitManager {
      * @throws IOException in case of an error
      * @throws GitAPIException in case of branch checkout or tags loading error
      */
-    public synchronized List<Snapshot> findSnapshotsByCommentOrUser(String partialText, final Branch branch,
+    public List<Snapshot> findSnapshotsByCommentOrUser(String partialText, final Branch branch,
         boolean byComment, boolean byUser, Optional<Date> start, Optional<Date> end)
             throws IOException, GitAPIException {
-        List<Snapshot> snapshots = new ArrayList<>();
-        setBranch(branch);
-        List<RevCommit> revisions = new ArrayList<>();
-        try (RevWalk revWalk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
-            revWalk.markStart(getHeadCommit());
-            RevFilter userCommentFilter = null;
-            if (byComment && byUser) {
-                userCommentFilter = OrRevFilter.create(MessageRevFilter.create(partialText),
-                    CommitterRevFilter.create(partialText));
-            } else if (byComment) {
-                userCommentFilter = MessageRevFilter.create(partialText);
-            } else if (byUser) {
-                userCommentFilter = CommitterRevFilter.create(partialText);
-            }
-            RevFilter timeFilter = null;
-            if (start.isPresent() && end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
-            } else if (start.isPresent()) {
-                timeFilter = CommitTimeRevFilter.after(start.get());
-            } else if (end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.before(end.get());
-            }
-            if (userCommentFilter == null && timeFilter == null) {
-                throw new IllegalArgumentException("No search parameters provided.");
-            } else if (userCommentFilter != null && timeFilter != null) {
-                revWalk.setRevFilter(AndRevFilter.create(userCommentFilter, timeFilter));
-            } else if (userCommentFilter != null) {
-                revWalk.setRevFilter(userCommentFilter);
-            } else {
-                revWalk.setRevFilter(timeFilter);
+        lock.readLock().lock();
+        try {
+            List<Snapshot> snapshots = new ArrayList<>();
+            RevCommit head = getBranchHead(branch);
+            if (head == null) {
+                return snapshots;
             }
-            for (RevCommit commit : revWalk) {
-                AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
-                if (commit.getParents().length != 0) {
-                    oldTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getParents()[0].getTree());
+            List<RevCommit> revisions = new ArrayList<>();
+            try (RevWalk revWalk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
+                revWalk.markStart(revWalk.parseCommit(head));
+                RevFilter userCommentFilter = null;
+                if (byComment && byUser) {
+                    userCommentFilter = OrRevFilter.create(MessageRevFilter.create(partialText),
+                        CommitterRevFilter.create(partialText));
+                } else if (byComment) {
+                    userCommentFilter = MessageRevFilter.create(partialText);
+                } else if (byUser) {
+                    userCommentFilter = CommitterRevFilter.create(partialText);
                 }
-                AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getTree());
-                try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-                    diffFormatter.setRepository(repository);
-                    diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-                    diffFormatter.setDetectRenames(true);
-                    List<DiffEntry> diffs = diffFormatter.scan(oldTreeIterator, newTreeIterator);
-                    for (DiffEntry diff : diffs) {
-                        if (diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.DELETE
-                            || diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.RENAME
-                            || !diff.getNewPath().endsWith(FileType.SNAPSHOT.suffix)) {
-                            continue;
+                RevFilter timeFilter = null;
+                if (start.isPresent() && end.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
+                } else if (start.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.after(start.get());
+                } else if (end.isPresent()) {
+                    timeFilter = CommitTimeRevFilter.before(end.get());
+                }
+                if (userCommentFilter == null && timeFilter == null) {
+                    throw new IllegalArgumentException("No search parameters provided.");
+                } else if (userCommentFilter != null && timeFilter != null) {
+                    revWalk.setRevFilter(AndRevFilter.create(userCommentFilter, timeFilter));
+                } else if (userCommentFilter != null) {
+                    revWalk.setRevFilter(userCommentFilter);
+                } else {
+                    revWalk.setRevFilter(timeFilter);
+                }
+                for (RevCommit commit : revWalk) {
+                    AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
+                    if (commit.getParents().length != 0) {
+                        oldTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getParents()[0].getTree());
+                    }
+                    AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, objectReader,
+                        commit.getTree());
+                    try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                        diffFormatter.setRepository(repository);
+                        diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+                        diffFormatter.setDetectRenames(true);
+                        List<DiffEntry> diffs = diffFormatter.scan(oldTreeIterator, newTreeIterator);
+                        for (DiffEntry diff : diffs) {
+                            if (diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.DELETE
+                                || diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.RENAME
+                                || !diff.getNewPath().endsWith(FileType.SNAPSHOT.suffix)) {
+                                continue;
+                            }
+                            Optional<SaveSet> set = pathToSaveSet(diff.getNewPath(), head, objectReader, branch,
+                                FileType.SNAPSHOT);
+                            if (set.isPresent()) {
+                                MetaInfo mi = getMetaInfoFromCommit(commit);
+                                Map<String, String> parameters = new HashMap<>();
+                                parameters.put(PARAM_GIT_REVISION, mi.revision);
+                                revisions.add(commit);
+                                snapshots.add(new Snapshot(set.get(), mi.timestamp.toInstant(), mi.comment,
+                                    mi.creator, parameters, new ArrayList<>(0)));
+                            }
                         }
-                        pathToSaveSet(diff.getNewPath(), repositoryPath, branch, FileType.SNAPSHOT).ifPresent(e -> {
-                            MetaInfo mi = getMetaInfoFromCommit(commit);
-                            Map<String, String> parameters = new HashMap<>();
-                            parameters.put(PARAM_GIT_REVISION, mi.revision);
-                            revisions.add(commit);
-                            snapshots.add(new Snapshot(e, mi.timestamp.toInstant(), mi.comment, mi.creator, parameters,
-                                new ArrayList<>(0)));
-                        });
                     }
                 }
             }
+            final Map<String, RevTag> tags = loadTagsForRevisions(revisions);
+            final List<Snapshot> ret = new ArrayList<>();
+            final String branchName = branch.getShortName();
+            snapshots.forEach(s -> {
+                String revision = s.getParameters().get(PARAM_GIT_REVISION);
+                if (tags.get(revision) == null) {
+                    ret.add(s);
+                } else {
+                    Map<String, String> parameters = new HashMap<>(s.getParameters());
+                    insertTagData(tags.get(revision), parameters, revision, branchName);
+                    ret.add(new Snapshot(s.getSaveSet(), s.getDate(), s.getComment(), s.getOwner(),
+                        parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters,
+                        EMPTY_LIST));
+                }
+            });
+            return ret;
+        } finally {
+            lock.readLock().unlock();
         }
-        final Map<String, RevTag> tags = loadTagsForRevisions(revisions);
-        final List<Snapshot> ret = new ArrayList<>();
-        final String branchName = branch.getShortName();
-        snapshots.forEach(s -> {
-            String revision = s.getParameters().get(PARAM_GIT_REVISION);
-            if (tags.get(revision) == null) {
-                ret.add(s);
-            } else {
-                Map<String, String> parameters = new HashMap<>(s.getParameters());
-                insertTagData(tags.get(revision), parameters, revision, branchName);
-                ret.add(new Snapshot(s.getSaveSet(), s.getDate(), s.getComment(), s.getOwner(),
-                    parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters, EMPTY_LIST));
-            }
-        });
-        return ret;
     }
 
     /**
-     * Read the contents of the file.
+     * Read the contents of the file. The file is read from the object database, therefore the branch does not need to
+     * be checked out.
      *
      * @param revision the revision to load
+     * @param branch the branch from which the head revision is loaded if the revision is not given
      * @param path the path to the file (relative to the repository root)
      * @param fileType the type of file that is being loaded
      * @param type the return type
@@ -1361,9 +1797,12 @@ public class GitManager {
      * @throws ParseException if parsing the timestamp data failed (for snapshots only)
      * @throws IOException if reading the data failed
      */
-    private <T> T loadFile(Optional<String> revision, String path, FileType fileType, Class<T> type, Object descriptor)
-        throws ParseException, IOException {
-        RevCommit revCommit = revision.isPresent() ? getCommitFromRevision(revision.get()) : getHeadCommit();
+    private <T> T loadFile(Optional<String> revision, Branch branch, String path, FileType fileType, Class<T> type,
+        Object descriptor) throws ParseException, IOException {
+        RevCommit revCommit = revision.isPresent() ? getCommitFromRevision(revision.get()) : getBranchHead(branch);
+        if (revCommit == null) {
+            throw new FileNotFoundException("Branch '" + branch.getShortName() + "' does not exist.");
+        }
         try (ObjectReader objectReader = repository.newObjectReader(); TreeWalk treeWalk = new TreeWalk(objectReader)) {
             CanonicalTreeParser treeParser = new CanonicalTreeParser();
             treeParser.reset(objectReader, revCommit.getTree());
@@ -1419,7 +1858,9 @@ public class GitManager {
     }
 
     /**
-     * Creates (if not exists) file and writes content.
+     * Creates (if not exists) file and writes content. The content is first written to a temporary file in the same
+     * directory, which then atomically replaces the target file, so that the file is never left truncated or partially
+     * written if the content cannot be generated.
      *
      * @param filePath file path relative to the repository
      * @param repositoryPath the path to the repository root
@@ -1431,15 +1872,22 @@ public class GitManager {
     private static void writeToFile(String filePath, File repositoryPath, FileType fileType, Object dataObject)
         throws IOException {
         Path path = Paths.get(repositoryPath.getAbsolutePath(), filePath);
-        if (!Files.exists(path)) {
-            Path parent = path.getParent();
-            if (parent != null) {
-                Files.createDirectories(parent);
+        Path parent = path.getParent();
+        Files.createDirectories(parent);
+        checkContent(dataObject, fileType);
+        Path temp = Files.createTempFile(parent, "." + path.getFileName(), ".tmp");
+        try {
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temp), WRITE_BUFFER_SIZE)) {
+                writeContent(dataObject, fileType, stream);
             }
-            path = Files.createFile(path);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
         }
-        String content = generateContent(dataObject, fileType);
-        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -1473,19 +1921,20 @@ public class GitManager {
     }
 
     /**
-     * Converts the <code>pathToFile</code> to a save set. The repository is expected to be checkout on the correct
-     * branch. If the path is valid so that the save set can be determined and if the file actually still exists at the
-     * HEAD of the branch, it is returned. If the path is not valid, or the file does not exist, an empty object is
-     * returned.
+     * Converts the <code>pathToFile</code> to a save set. If the path is valid so that the save set can be determined
+     * and if the file actually still exists at the head of the branch, it is returned. If the path is not valid, or the
+     * file does not exist, an empty object is returned.
      *
      * @param pathToFile the path to file
-     * @param repositoryPath the path to the root of the repository
+     * @param head the head commit of the branch
+     * @param reader the reader used to read the tree of the head commit
      * @param branch the branch for the save set
      * @param fromType the type of the file under the given path
      * @return the save set if found or empty if not found
+     * @throws IOException if the tree could not be read
      */
-    private static Optional<SaveSet> pathToSaveSet(String pathToFile, File repositoryPath, Branch branch,
-        FileType fromType) {
+    private static Optional<SaveSet> pathToSaveSet(String pathToFile, RevCommit head, ObjectReader reader,
+        Branch branch, FileType fromType) throws IOException {
         String[] p = pathToFile.split(GIT_PATH_DELIMITER);
         BaseLevel baseLevel = null;
         String[] newPath = null;
@@ -1516,49 +1965,45 @@ public class GitManager {
         }
         SaveSet saveSet = new SaveSet(branch, Optional.ofNullable(baseLevel), newPath, GitDataProvider.ID);
         String path = convertPathToString(saveSet, FileType.SAVE_SET);
-        File fullPath = new File(repositoryPath, path);
-        return fullPath.exists() ? Optional.of(saveSet) : Optional.empty();
+        try (TreeWalk treeWalk = TreeWalk.forPath(reader, path, head.getTree())) {
+            return treeWalk == null ? Optional.empty() : Optional.of(saveSet);
+        }
     }
 
+
     /**
-     * Recursively gathers the save sets that are located in any of the sub folder of the given file. All valid files
-     * are placed into the <code>sets</code> list.
+     * Checks if the data object can be written into a file of the given type.
      *
-     * @param file the parent file to start the search from
-     * @param sets the list containing all found save set files
+     * @param dataObject the object from which content is generated
+     * @param fileType file suffix
+     * @throws IllegalArgumentException if the data object does not match the file type
      */
-    private static void gatherSaveSets(File file, List<File> sets) {
-        if (file != null && file.exists()) {
-            File[] files = file.listFiles();
-            if (files != null) {
-                Arrays.sort(files);
-                for (File f : files) {
-                    if (f.isDirectory()) {
-                        gatherSaveSets(f, sets);
-                    } else if (f.isFile() && f.getName().toLowerCase(Locale.UK).endsWith(FileType.SAVE_SET.suffix)) {
-                        sets.add(f);
-                    }
-                }
-            }
+    private static void checkContent(Object dataObject, FileType fileType) {
+        if (!(fileType == FileType.SAVE_SET && dataObject instanceof SaveSetData)
+            && !((fileType == FileType.SNAPSHOT || fileType == FileType.BINARY_SNAPSHOT)
+                && dataObject instanceof VSnapshot)) {
+            throw new IllegalArgumentException(
+                "The data '" + dataObject + "' does not match the file type '" + fileType + "'.");
         }
     }
 
     /**
-     * Generates file content. File type is determined by file suffix.
+     * Generates file content and writes it to the stream. File type is determined by file suffix.
      *
      * @param dataObject the object from which content is generated
      * @param fileType file suffix
-     *
-     * @return generated file content.
+     * @param stream the destination of the generated content
+     * @throws IOException if writing to the stream failed
      */
-    private static String generateContent(Object dataObject, FileType fileType) {
-        if (fileType == FileType.SAVE_SET && dataObject instanceof SaveSetData) {
-            return FileUtilities.generateSaveSetContent((SaveSetData) dataObject);
-        } else if (fileType == FileType.SNAPSHOT && dataObject instanceof VSnapshot) {
-            return FileUtilities.generateSnapshotFileContent((VSnapshot) dataObject);
+    private static void writeContent(Object dataObject, FileType fileType, OutputStream stream) throws IOException {
+        checkContent(dataObject, fileType);
+        if (fileType == FileType.SAVE_SET) {
+            FileUtilities.writeSaveSetContent((SaveSetData) dataObject, stream);
+        } else if (fileType == FileType.SNAPSHOT) {
+            FileUtilities.writeSnapshotFileContent((VSnapshot) dataObject, stream);
+        } else {
+            FileUtilities.writeBinarySnapshotContent((VSnapshot) dataObject, stream);
         }
-        throw new IllegalArgumentException(
-            "The data '" + dataObject + "' does not match the file type '" + fileType + "'.");
     }
 
     /**
@@ -1692,9 +2137,30 @@ public class GitManager {
      */
     private static boolean insertTagData(RevTag tag, Map<String, String> parameters, String revision,
         String branchName) {
+        if (tag == null) {
+            parameters.put(PARAM_GIT_REVISION, revision);
+            return false;
+        }
+        return insertTagData(tag.getTagName(), tag.getFullMessage(), tag.getTaggerIdent().getName(), parameters,
+            revision, branchName);
+    }
+
+    /**
+     * Fill in the parameters map with the important tag information if the tag belongs to the given branch.
+     *
+     * @param tagName the full git name of the tag
+     * @param tagMessage the tag message
+     * @param tagCreator the name of the person who created the tag
+     * @param parameters the current parameters
+     * @param revision the revision hash
+     * @param branchName the branch name for which the tag should be loaded
+     * @return true if the tag was accepted or false otherwise
+     */
+    private static boolean insertTagData(String tagName, String tagMessage, String tagCreator,
+        Map<String, String> parameters, String revision, String branchName) {
         parameters.put(PARAM_GIT_REVISION, revision);
-        if (tag != null) {
-            String niceTagName = tag.getTagName();
+        if (tagName != null) {
+            String niceTagName = tagName;
             boolean acceptTag = true;
             if (niceTagName.charAt(0) == '(') {
                 String branch = niceTagName.substring(1, niceTagName.indexOf(')'));
@@ -1708,9 +2174,9 @@ public class GitManager {
                     niceTagName = niceTagName.substring(niceTagName.lastIndexOf('(') + 1, niceTagName.length() - 1);
                 }
                 parameters.put(PARAM_TAG_NAME, niceTagName);
-                parameters.put(PARAM_GIT_TAG_NAME, tag.getTagName());
-                parameters.put(PARAM_TAG_MESSAGE, tag.getFullMessage());
-                parameters.put(PARAM_TAG_CREATOR, tag.getTaggerIdent().getName());
+                parameters.put(PARAM_GIT_TAG_NAME, tagName);
+                parameters.put(PARAM_TAG_MESSAGE, tagMessage);
+                parameters.put(PARAM_TAG_CREATOR, tagCreator);
                 return true;
             }
         }
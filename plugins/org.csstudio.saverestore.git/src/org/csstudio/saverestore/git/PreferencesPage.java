@@ -94,6 +94,10 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
         addField(destination);
         addField(new BooleanFieldEditor(Activator.PREF_AUTOMATIC_SYNC,
             "Automatically synchronise repository after every save?", parent));
+        addField(new BooleanFieldEditor(Activator.PREF_BINARY_SNAPSHOTS,
+            "Store snapshots in binary format (faster for large waveforms)?", parent));
+        addField(new BooleanFieldEditor(Activator.PREF_WRITE_BEHIND,
+            "Push saved snapshots to the remote repository in the background?", parent));
     }
 
 }
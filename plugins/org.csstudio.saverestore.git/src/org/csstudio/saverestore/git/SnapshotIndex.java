@@ -0,0 +1,451 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.csstudio.saverestore.SaveRestoreService;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * <code>SnapshotIndex</code> is an on-disk index of the snapshot history stored in the git repository. For every
+ * branch and snapshot file path the index holds the list of commits (revision, timestamp, author and comment) that
+ * changed the file, and for every revision the annotated tag pointing to it. The index is stored in the repository's
+ * git directory and is updated incrementally: only the commits made since the last indexed head of the branch and the
+ * tags that have changed are read from the repository. If the history of the branch was rewritten or the index file
+ * cannot be read, the index of that branch is rebuilt from scratch.
+ * <p>
+ * A commit is indexed for a snapshot file under the same rules as used by {@link GitManager} when walking the history:
+ * the file has to be changed in respect to all parents of the commit and the commit may not delete or rename any
+ * files.
+ */
+final class SnapshotIndex {
+
+    /**
+     * <code>Entry</code> describes a single revision of a snapshot file.
+     */
+    static final class Entry {
+        final String revision;
+        final long timestamp;
+        final String creator;
+        final String comment;
+
+        Entry(String revision, long timestamp, String creator, String comment) {
+            this.revision = revision;
+            this.timestamp = timestamp;
+            this.creator = creator;
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * <code>Tag</code> describes an annotated tag, which points to a snapshot revision.
+     */
+    static final class Tag {
+        final String name;
+        final String message;
+        final String creator;
+        final ObjectId tagId;
+        final String revision;
+
+        Tag(String name, String message, String creator, ObjectId tagId, String revision) {
+            this.name = name;
+            this.message = message;
+            this.creator = creator;
+            this.tagId = tagId;
+            this.revision = revision;
+        }
+    }
+
+    static final String INDEX_FILE = "saverestore-snapshots.idx";
+    private static final int MAGIC = 0x53524958;
+    private static final int VERSION = 1;
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    private final Repository repository;
+    private final File file;
+    private boolean loaded = false;
+    // branch short name -> the last indexed head commit of the branch
+    private final Map<String, ObjectId> heads = new HashMap<>();
+    // branch short name -> snapshot file path -> revisions of the file (newest first)
+    private final Map<String, Map<String, List<Entry>>> entries = new HashMap<>();
+    // full tag ref name -> tag
+    private final Map<String, Tag> tagRefs = new HashMap<>();
+    // revision -> tag
+    private final Map<String, Tag> tags = new HashMap<>();
+
+    /**
+     * Constructs a new index for the given repository. The index is loaded from the disk when first needed.
+     *
+     * @param repository the repository to index
+     */
+    SnapshotIndex(Repository repository) {
+        this.repository = repository;
+        this.file = new File(repository.getDirectory(), INDEX_FILE);
+    }
+
+    /**
+     * Returns the list of all revisions of the snapshot file at the given path on the given branch. The revisions are
+     * ordered from the newest to the oldest. Before the data are returned the index is brought up to date with the
+     * given head of the branch.
+     *
+     * @param branch the short name of the branch
+     * @param head the current head commit of the branch (null if the branch does not exist)
+     * @param path the path to the snapshot file relative to the repository root
+     * @return the list of revisions (never null)
+     * @throws IOException if the repository could not be read
+     */
+    synchronized List<Entry> getEntries(String branch, ObjectId head, String path) throws IOException {
+        update(branch, head);
+        Map<String, List<Entry>> paths = entries.get(branch);
+        List<Entry> list = paths == null ? null : paths.get(path);
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the annotated tag that points to the given revision if such tag exists. The tags are not refreshed by
+     * this method; {@link #getEntries(String, ObjectId, String)} or {@link #update(String, ObjectId)} should be called
+     * first.
+     *
+     * @param revision the revision for which the tag is requested
+     * @return the tag or null if the revision is not tagged
+     */
+    synchronized Tag getTag(String revision) {
+        return tags.get(revision);
+    }
+
+    /**
+     * Update the index of the given branch and the tags to match the current state of the repository. Only the commits
+     * that were made since the last update are read. The index file is rewritten if anything changed.
+     *
+     * @param branch the short name of the branch to update
+     * @param head the current head commit of the branch (null if the branch does not exist)
+     * @throws IOException if the repository could not be read
+     */
+    synchronized void update(String branch, ObjectId head) throws IOException {
+        load();
+        boolean changed = updateBranch(branch, head);
+        changed |= updateTags();
+        if (changed) {
+            store();
+        }
+    }
+
+    private boolean updateBranch(String branch, ObjectId head) throws IOException {
+        ObjectId indexed = heads.get(branch);
+        if (head == null) {
+            heads.remove(branch);
+            return entries.remove(branch) != null;
+        } else if (head.equals(indexed)) {
+            return false;
+        }
+        Map<String, List<Entry>> paths = entries.get(branch);
+        try (RevWalk walk = new RevWalk(repository); ObjectReader reader = repository.newObjectReader()) {
+            RevCommit headCommit = walk.parseCommit(head);
+            RevCommit indexedCommit = null;
+            if (indexed != null && paths != null) {
+                try {
+                    indexedCommit = walk.parseCommit(indexed);
+                    if (!walk.isMergedInto(indexedCommit, headCommit)) {
+                        // the history was rewritten, start over
+                        indexedCommit = null;
+                    }
+                } catch (MissingObjectException e) {
+                    indexedCommit = null;
+                }
+                walk.reset();
+            }
+            if (indexedCommit == null) {
+                paths = new HashMap<>();
+            } else {
+                walk.markUninteresting(indexedCommit);
+            }
+            walk.markStart(headCommit);
+            Map<String, List<Entry>> newEntries = new HashMap<>();
+            for (RevCommit commit : walk) {
+                for (String path : getChangedSnapshots(commit, walk, reader)) {
+                    PersonIdent ident = commit.getCommitterIdent();
+                    newEntries.computeIfAbsent(path, k -> new ArrayList<>()).add(new Entry(commit.getName(),
+                        ident.getWhen().getTime(), ident.getName(), commit.getFullMessage()));
+                }
+            }
+            // new commits are younger than the already indexed ones, so they go to the front
+            for (Map.Entry<String, List<Entry>> e : newEntries.entrySet()) {
+                List<Entry> list = e.getValue();
+                List<Entry> existing = paths.get(e.getKey());
+                if (existing != null) {
+                    list.addAll(existing);
+                }
+                paths.put(e.getKey(), list);
+            }
+        }
+        entries.put(branch, paths);
+        heads.put(branch, head.copy());
+        return true;
+    }
+
+    /**
+     * Returns the list of all snapshot files changed by the given commit, or an empty list if the commit deletes or
+     * renames any of the files.
+     *
+     * @param commit the commit to examine
+     * @param walk the walk that produced the commit
+     * @param reader the reader to use for reading the trees
+     * @return the paths of the changed snapshot files
+     * @throws IOException if the trees could not be read
+     */
+    private static Set<String> getChangedSnapshots(RevCommit commit, RevWalk walk, ObjectReader reader)
+        throws IOException {
+        RevCommit[] parents = commit.getParents();
+        Set<String> paths = new HashSet<>();
+        if (parents.length == 0) {
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.setRecursive(true);
+                treeWalk.addTree(commit.getTree());
+                while (treeWalk.next()) {
+                    addIfSnapshot(treeWalk.getPathString(), paths);
+                }
+            }
+            return paths;
+        }
+        for (int i = 0; i < parents.length; i++) {
+            RevCommit parent = walk.parseCommit(parents[i]);
+            Set<String> changed = new HashSet<>();
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                treeWalk.addTree(parent.getTree());
+                treeWalk.addTree(commit.getTree());
+                while (treeWalk.next()) {
+                    if (treeWalk.getRawMode(1) == FileMode.TYPE_MISSING) {
+                        if (i == 0) {
+                            // a file was deleted or renamed (a rename is a delete and an add)
+                            return Collections.emptySet();
+                        }
+                    } else {
+                        addIfSnapshot(treeWalk.getPathString(), changed);
+                    }
+                }
+            }
+            if (i == 0) {
+                paths = changed;
+            } else {
+                paths.retainAll(changed);
+            }
+            if (paths.isEmpty()) {
+                break;
+            }
+        }
+        return paths;
+    }
+
+    private static void addIfSnapshot(String path, Set<String> paths) {
+        if (path.toLowerCase(Locale.UK).endsWith(FileType.SNAPSHOT.suffix)) {
+            paths.add(path);
+        }
+    }
+
+    private boolean updateTags() throws IOException {
+        Map<String, Ref> refs = repository.getRefDatabase().getRefs(Constants.R_TAGS);
+        boolean changed = false;
+        Iterator<Map.Entry<String, Tag>> it = tagRefs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Tag> e = it.next();
+            Ref ref = refs.get(e.getKey().substring(Constants.R_TAGS.length()));
+            if (ref == null || !e.getValue().tagId.equals(ref.getObjectId())) {
+                it.remove();
+                changed = true;
+            }
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (Ref ref : refs.values()) {
+                if (tagRefs.containsKey(ref.getName())) {
+                    continue;
+                }
+                RevObject obj = walk.parseAny(ref.getObjectId());
+                if (obj instanceof RevTag) {
+                    // only annotated tags are used by the save and restore
+                    RevTag tag = (RevTag) obj;
+                    RevObject target = walk.peel(tag);
+                    if (target instanceof RevCommit) {
+                        PersonIdent tagger = tag.getTaggerIdent();
+                        tagRefs.put(ref.getName(), new Tag(tag.getTagName(), tag.getFullMessage(),
+                            tagger == null ? null : tagger.getName(), ref.getObjectId().copy(), target.getName()));
+                        changed = true;
+                    }
+                }
+            }
+        }
+        if (changed) {
+            tags.clear();
+            tagRefs.values().forEach(t -> tags.put(t.revision, t));
+        }
+        return changed;
+    }
+
+    /**
+     * Load the index from the file if it has not been loaded yet. If the file cannot be read, the index is started
+     * from scratch.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int numBranches = in.readInt();
+            for (int i = 0; i < numBranches; i++) {
+                String branch = readString(in);
+                ObjectId head = readObjectId(in);
+                int numPaths = in.readInt();
+                Map<String, List<Entry>> paths = new HashMap<>(numPaths * 2);
+                for (int j = 0; j < numPaths; j++) {
+                    String path = readString(in);
+                    int numEntries = in.readInt();
+                    List<Entry> list = new ArrayList<>(numEntries);
+                    for (int k = 0; k < numEntries; k++) {
+                        list.add(new Entry(readObjectId(in).getName(), in.readLong(), readString(in),
+                            readString(in)));
+                    }
+                    paths.put(path, list);
+                }
+                heads.put(branch, head);
+                entries.put(branch, paths);
+            }
+            int numTags = in.readInt();
+            for (int i = 0; i < numTags; i++) {
+                String ref = readString(in);
+                Tag tag = new Tag(readString(in), readString(in), readString(in), readObjectId(in),
+                    readObjectId(in).getName());
+                tagRefs.put(ref, tag);
+                tags.put(tag.revision, tag);
+            }
+        } catch (IOException | RuntimeException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, e,
+                () -> "Snapshot index " + file + " could not be read. The index will be rebuilt.");
+            heads.clear();
+            entries.clear();
+            tagRefs.clear();
+            tags.clear();
+        }
+    }
+
+    /**
+     * Store the index to the file. The index is first written to a temporary file, which then replaces the old one.
+     */
+    private void store() {
+        File tmp = new File(file.getParentFile(), INDEX_FILE + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp.toPath()), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Map<String, List<Entry>>> b : entries.entrySet()) {
+                    writeString(out, b.getKey());
+                    heads.get(b.getKey()).copyRawTo(out);
+                    out.writeInt(b.getValue().size());
+                    for (Map.Entry<String, List<Entry>> p : b.getValue().entrySet()) {
+                        writeString(out, p.getKey());
+                        out.writeInt(p.getValue().size());
+                        for (Entry e : p.getValue()) {
+                            ObjectId.fromString(e.revision).copyRawTo(out);
+                            out.writeLong(e.timestamp);
+                            writeString(out, e.creator);
+                            writeString(out, e.comment);
+                        }
+                    }
+                }
+                out.writeInt(tagRefs.size());
+                for (Map.Entry<String, Tag> t : tagRefs.entrySet()) {
+                    Tag tag = t.getValue();
+                    writeString(out, t.getKey());
+                    writeString(out, tag.name);
+                    writeString(out, tag.message);
+                    writeString(out, tag.creator);
+                    tag.tagId.copyRawTo(out);
+                    ObjectId.fromString(tag.revision).copyRawTo(out);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // the index is still valid in memory and will be written again with the next change
+            SaveRestoreService.LOGGER.log(Level.WARNING, e, () -> "Snapshot index " + file + " could not be stored.");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        } else if (length > MAX_STRING_LENGTH) {
+            throw new EOFException("Invalid string length " + length + ".");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ObjectId readObjectId(DataInputStream in) throws IOException {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        in.readFully(raw);
+        return ObjectId.fromRaw(raw);
+    }
+}
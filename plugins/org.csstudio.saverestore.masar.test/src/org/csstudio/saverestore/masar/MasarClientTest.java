@@ -31,6 +31,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.csstudio.saverestore.data.BaseLevel;
 import org.csstudio.saverestore.data.Branch;
@@ -276,6 +278,13 @@ public class MasarClientTest {
             }
         });
 
+        when(requester.requestAsync(any(PVStructure.class))).thenAnswer(new Answer<CompletableFuture<PVStructure>>() {
+            @Override
+            public CompletableFuture<PVStructure> answer(InvocationOnMock invocation) throws Throwable {
+                return CompletableFuture.completedFuture(requester.request((PVStructure) invocation.getArguments()[0]));
+            }
+        });
+
         client = new MasarClient();
         java.lang.reflect.Field f = MasarClient.class.getDeclaredField("channelRPCRequester");
         f.setAccessible(true);
@@ -494,6 +503,33 @@ public class MasarClientTest {
         }
     }
 
+    @Test
+    public void testAsyncRequests() throws Exception {
+        CompletableFuture<List<BaseLevel>> configs = client.getSystemConfigsAsync(service);
+        BaseLevel base = new BaseLevel(service, "all", "all");
+        SaveSet set = new SaveSet(service, Optional.of(base), new String[] { "set" }, MasarDataProvider.ID);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(MasarConstants.PARAM_SNAPSHOT_ID, "42");
+        Snapshot snap = new Snapshot(set, Instant.ofEpochMilli(time), "blabla", "taz-mania", parameters,
+            new ArrayList<>(0));
+        List<VSnapshot> snapshots = client.loadSnapshotData(Arrays.asList(snap, snap));
+        assertEquals(2, snapshots.size());
+        assertNotSame(snapshots.get(0), snapshots.get(1));
+        assertEquals(Arrays.asList("channel1", "channel2", "channel3"), snapshots.get(1).getNames());
+        assertEquals(4, configs.get().size());
+
+        // invalid request fails the future, not the call
+        snap = new Snapshot(set, Instant.now(), "blabla", "taz-mania");
+        CompletableFuture<VSnapshot> future = client.loadSnapshotDataAsync(snap);
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("Exception should occur, because the event id parameter is missing");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MasarException);
+        }
+    }
+
     @Test
     public void testLoadSaveSetData() throws MasarException, ParseException {
         BaseLevel base = new BaseLevel(service, "all", "all");
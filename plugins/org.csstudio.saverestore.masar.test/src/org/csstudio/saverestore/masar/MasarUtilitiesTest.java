@@ -13,6 +13,8 @@ package org.csstudio.saverestore.masar;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -25,16 +27,21 @@ import java.util.Optional;
 
 import org.csstudio.saverestore.data.BaseLevel;
 import org.csstudio.saverestore.data.Branch;
+import org.csstudio.saverestore.data.LazyArrays;
 import org.csstudio.saverestore.data.SaveSet;
 import org.csstudio.saverestore.data.Snapshot;
 import org.csstudio.saverestore.data.VSnapshot;
+import org.diirt.util.array.CollectionNumbers;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VFloatArray;
 import org.diirt.vtype.VLongArray;
+import org.diirt.vtype.VShortArray;
 import org.diirt.vtype.VString;
 import org.diirt.vtype.VType;
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.DoubleArrayData;
 import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.PVBooleanArray;
 import org.epics.pvdata.pv.PVDoubleArray;
@@ -236,6 +243,10 @@ public class MasarUtilitiesTest {
 
         VDoubleArray v1 = (VDoubleArray) values.get(0);
         assertEquals(3, v1.getData().size());
+        // the value is backed by the data of the pv array
+        DoubleArrayData arrayData = new DoubleArrayData();
+        a1.get(0, 3, arrayData);
+        assertSame(arrayData.data, CollectionNumbers.wrappedDoubleArray(v1.getData()));
         assertEquals(1, v1.getData().getDouble(0),0);
         assertEquals(2, v1.getData().getDouble(1),0);
         assertEquals(3, v1.getData().getDouble(2),0);
@@ -261,4 +272,63 @@ public class MasarUtilitiesTest {
         Instant t3 = Instant.ofEpochSecond(3,3);
         assertEquals(t3, v3.getTimestamp());
    }
+
+    @Test
+    public void testResultToVSnapshotLargeArrays() {
+        PVStructure struct = PVDataFactory.getPVDataCreate().createPVStructure(Utilities.STRUCT_VSNAPSHOT);
+        ((PVLongArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_SECONDS, ScalarType.pvLong)).put(0, 2,
+            new long[] { 1, 2 }, 0);
+        ((PVStringArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_ALARM_MESSAGE, ScalarType.pvString))
+            .put(0, 2, new String[] { "ok1", "ok2" }, 0);
+        ((PVStringArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_CHANNEL_NAME, ScalarType.pvString))
+            .put(0, 2, new String[] { "channel1", "channel2" }, 0);
+        ((PVBooleanArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_IS_CONNECTED, ScalarType.pvBoolean))
+            .put(0, 2, new boolean[] { true, true }, 0);
+        // float and short dbr types
+        ((PVIntArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_DBR_TYPE, ScalarType.pvInt)).put(0, 2,
+            new int[] { 2, 1 }, 0);
+        ((PVIntArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_NANOS, ScalarType.pvInt)).put(0, 2,
+            new int[] { 1, 2 }, 0);
+        ((PVIntArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_USER_TAG, ScalarType.pvInt)).put(0, 2,
+            new int[] { 1, 2 }, 0);
+        ((PVIntArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_ALARM_SEVERITY, ScalarType.pvInt)).put(0, 2,
+            new int[] { 1, 2 }, 0);
+        ((PVIntArray) struct.getScalarArrayField(MasarConstants.P_SNAPSHOT_ALARM_STATUS, ScalarType.pvInt)).put(0, 2,
+            new int[] { 1, 2 }, 0);
+        double[] doubles = new double[100];
+        int[] ints = new int[100];
+        for (int i = 0; i < 100; i++) {
+            doubles[i] = i + 0.1;
+            ints[i] = 65536 * i + i;
+        }
+        Union uu1 = FieldFactory.getFieldCreate().createUnion("any", new String[0], new Field[0]);
+        PVUnion u1 = PVDataFactory.getPVDataCreate().createPVUnion(uu1);
+        ScalarArray s1 = FieldFactory.getFieldCreate().createScalarArray(ScalarType.pvDouble);
+        PVDoubleArray a1 = (PVDoubleArray) PVDataFactory.getPVDataCreate().createPVScalarArray(s1);
+        a1.put(0, doubles.length, doubles, 0);
+        u1.set(a1);
+        Union uu2 = FieldFactory.getFieldCreate().createUnion("any", new String[0], new Field[0]);
+        PVUnion u2 = PVDataFactory.getPVDataCreate().createPVUnion(uu2);
+        ScalarArray s2 = FieldFactory.getFieldCreate().createScalarArray(ScalarType.pvInt);
+        PVIntArray a2 = (PVIntArray) PVDataFactory.getPVDataCreate().createPVScalarArray(s2);
+        a2.put(0, ints.length, ints, 0);
+        u2.set(a2);
+        struct.getUnionArrayField(MasarConstants.P_STRUCTURE_VALUE).put(0, 2, new PVUnion[] { u1, u2 }, 0);
+
+        VSnapshot snapshot = MasarUtilities.resultToVSnapshot(struct, new Snapshot(new SaveSet()), Instant.now());
+        VFloatArray v1 = (VFloatArray) snapshot.getValues().get(0);
+        assertEquals(AlarmSeverity.MINOR, v1.getAlarmSeverity());
+        assertEquals(Instant.ofEpochSecond(1, 1), v1.getTimestamp());
+        assertEquals(100, v1.getData().size());
+        assertTrue(LazyArrays.isPending(v1.getData()));
+        for (int i = 0; i < 100; i++) {
+            assertEquals((float) doubles[i], v1.getData().getFloat(i), 0);
+        }
+        assertFalse(LazyArrays.isPending(v1.getData()));
+
+        VShortArray v2 = (VShortArray) snapshot.getValues().get(1);
+        assertEquals(100, v2.getData().size());
+        assertEquals(99, v2.getData().getShort(99));
+        assertEquals(AlarmSeverity.MAJOR, v2.getAlarmSeverity());
+    }
 }
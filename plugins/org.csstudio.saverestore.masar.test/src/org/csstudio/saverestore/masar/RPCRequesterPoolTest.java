@@ -0,0 +1,207 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.masar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.PVStructure;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * <code>RPCRequesterPoolTest</code> tests the {@link RPCRequesterPool}, using in-process requesters, which record the
+ * sent requests and let the test decide when and how each request is answered.
+ */
+public class RPCRequesterPoolTest {
+
+    /**
+     * <code>Sent</code> is a request received by a {@link LocalRequester}, which is waiting for the response.
+     */
+    private static class Sent {
+        private final LocalRequester requester;
+        private final PVStructure data;
+        private final CompletableFuture<PVStructure> response;
+
+        Sent(LocalRequester requester, PVStructure data, CompletableFuture<PVStructure> response) {
+            this.requester = requester;
+            this.data = data;
+            this.response = response;
+        }
+    }
+
+    /**
+     * <code>LocalRequester</code> stands in for a channel rpc. It accepts a single request at a time and records it.
+     */
+    private class LocalRequester implements RPCRequester {
+        private Sent inFlight;
+        private boolean destroyed;
+
+        @Override
+        public boolean waitUntilConnected() {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<PVStructure> requestAsync(PVStructure requestData) {
+            if (inFlight != null && !inFlight.response.isDone()) {
+                fail("Request sent to a requester which is waiting for the response");
+            }
+            inFlight = new Sent(this, requestData, new CompletableFuture<>());
+            sent.add(inFlight);
+            return inFlight.response;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !destroyed;
+        }
+    }
+
+    private List<Sent> sent;
+    private List<LocalRequester> created;
+    private AtomicBoolean channelDestroyed;
+    private RPCRequesterPool pool;
+
+    @Before
+    public void setUp() {
+        sent = new ArrayList<>();
+        created = new ArrayList<>();
+        channelDestroyed = new AtomicBoolean(false);
+        pool = new RPCRequesterPool("service", 2, () -> {
+            LocalRequester requester = new LocalRequester();
+            created.add(requester);
+            return requester;
+        }, () -> channelDestroyed.set(true));
+    }
+
+    private static PVStructure createRequest(String function) {
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_BASE_LEVEL);
+        request.getStringField(MasarConstants.F_FUNCTION).put(function);
+        return request;
+    }
+
+    /**
+     * Tests that the number of requests in flight is bounded by the size of the pool and that every future receives
+     * the response to its own request, regardless of the order in which the responses arrive.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        assertEquals(2, created.size());
+        List<PVStructure> requests = new ArrayList<>();
+        List<CompletableFuture<PVStructure>> responses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PVStructure request = createRequest("f" + i);
+            requests.add(request);
+            responses.add(pool.requestAsync(request));
+        }
+        // two requests in flight, three are waiting
+        assertEquals(2, sent.size());
+        assertSame(requests.get(0), sent.get(0).data);
+        assertSame(requests.get(1), sent.get(1).data);
+        assertTrue(responses.stream().noneMatch(CompletableFuture::isDone));
+
+        // answer the second request first; the freed requester takes the next waiting request
+        PVStructure response1 = createRequest("r1");
+        sent.get(1).response.complete(response1);
+        assertSame(response1, responses.get(1).get());
+        assertFalse(responses.get(0).isDone());
+        assertEquals(3, sent.size());
+        assertSame(requests.get(2), sent.get(2).data);
+        assertSame(sent.get(1).requester, sent.get(2).requester);
+
+        // answer the rest with the function of their own request
+        for (int i = 0; i < sent.size(); i++) {
+            Sent s = sent.get(i);
+            if (!s.response.isDone()) {
+                s.response.complete(createRequest("r" + s.data.getStringField(MasarConstants.F_FUNCTION).get()));
+            }
+        }
+        assertEquals(5, sent.size());
+        for (int i = 0; i < 5; i++) {
+            if (i != 1) {
+                assertEquals("rf" + i, responses.get(i).get().getStringField(MasarConstants.F_FUNCTION).get());
+            }
+        }
+        // no additional requesters were needed
+        assertEquals(2, created.size());
+    }
+
+    /**
+     * Tests that a requester whose request failed is destroyed and replaced, while the failure is forwarded to the
+     * future of the failed request.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void testFailedRequest() throws Exception {
+        CompletableFuture<PVStructure> response = pool.requestAsync(createRequest("f"));
+        sent.get(0).response.completeExceptionally(new MasarException("Timeout"));
+        try {
+            response.get();
+            fail("Exception should occur, because the request failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MasarException);
+            assertEquals("Timeout", e.getCause().getMessage());
+        }
+        assertTrue(sent.get(0).requester.destroyed);
+        assertEquals(3, created.size());
+
+        // the pool still serves two requests at a time
+        pool.requestAsync(createRequest("f1"));
+        pool.requestAsync(createRequest("f2"));
+        pool.requestAsync(createRequest("f3"));
+        assertEquals(3, sent.size());
+        assertTrue(sent.stream().skip(1).noneMatch(s -> s.requester.destroyed));
+    }
+
+    /**
+     * Tests that destroying the pool destroys the requesters and the channel and that the waiting requests are
+     * completed as lost requests.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void testDestroy() throws Exception {
+        assertTrue(pool.isConnected());
+        assertTrue(pool.waitUntilConnected());
+        pool.requestAsync(createRequest("f0"));
+        pool.requestAsync(createRequest("f1"));
+        CompletableFuture<PVStructure> waiting = pool.requestAsync(createRequest("f2"));
+        pool.destroy();
+        assertTrue(channelDestroyed.get());
+        assertTrue(created.stream().allMatch(r -> r.destroyed));
+        assertNull(waiting.get());
+        assertNull(pool.requestAsync(createRequest("f3")).get());
+        assertFalse(pool.isConnected());
+        assertFalse(pool.waitUntilConnected());
+        assertEquals(2, sent.size());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.masar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.epics.pvdata.pv.PVStructure;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * <code>ServiceConnectionsTest</code> tests the {@link ServiceConnections}: keeping the connections to all services
+ * open, the health check and the reconnect backoff.
+ */
+public class ServiceConnectionsTest {
+
+    /**
+     * <code>LocalRequester</code> stands in for the connection to a service; the test sets the connection state.
+     */
+    private static class LocalRequester implements RPCRequester {
+        private final String service;
+        private final boolean reconnect;
+        private boolean connected;
+        private boolean destroyed;
+
+        LocalRequester(String service, boolean reconnect) {
+            this.service = service;
+            this.reconnect = reconnect;
+        }
+
+        @Override
+        public boolean waitUntilConnected() {
+            return connected;
+        }
+
+        @Override
+        public CompletableFuture<PVStructure> requestAsync(PVStructure requestData) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected && !destroyed;
+        }
+    }
+
+    private List<LocalRequester> created;
+    private AtomicLong clock;
+    private ServiceConnections connections;
+
+    @Before
+    public void setUp() {
+        created = new ArrayList<>();
+        clock = new AtomicLong(0);
+        connections = new ServiceConnections((service, reconnect) -> {
+            LocalRequester requester = new LocalRequester(service, reconnect);
+            created.add(requester);
+            return requester;
+        }, clock::get);
+    }
+
+    /**
+     * Tests that the connections to all services are opened upfront and reused when a service is requested.
+     *
+     * @throws MasarException on error
+     */
+    @Test
+    public void testOpenConnections() throws MasarException {
+        connections.setServices(new String[] { "a", "b", "c" });
+        assertEquals(Arrays.asList("a", "b", "c"),
+            created.stream().map(r -> r.service).collect(Collectors.toList()));
+        assertTrue(created.stream().noneMatch(r -> r.reconnect));
+
+        ServiceConnection b = connections.get("b");
+        assertSame(created.get(1), b.getRequester());
+        assertEquals("b", b.getService());
+        assertEquals(3, created.size());
+
+        connections.setServices(new String[] { "a", "c", "d" });
+        assertTrue(created.get(1).destroyed);
+        assertFalse(created.get(0).destroyed);
+        assertEquals(Arrays.asList("a", "c", "d"),
+            connections.getConnections().stream().map(ServiceConnection::getService).collect(Collectors.toList()));
+        assertSame(created.get(3), connections.get("d").getRequester());
+
+        connections.remove("a");
+        assertTrue(created.get(0).destroyed);
+        connections.dispose();
+        assertTrue(created.stream().allMatch(r -> r.destroyed));
+        assertTrue(connections.getConnections().isEmpty());
+    }
+
+    /**
+     * Tests that the health check tracks the state of the connections and recreates the connections that are not
+     * established, doubling the delay between the attempts.
+     *
+     * @throws MasarException on error
+     */
+    @Test
+    public void testHealthCheck() throws MasarException {
+        connections.setServices(new String[] { "a", "b" });
+        created.get(1).connected = true;
+        ServiceConnection a = connections.get("a");
+        ServiceConnection b = connections.get("b");
+
+        connections.checkHealth();
+        assertFalse(a.isConnected());
+        assertTrue(b.isConnected());
+        assertEquals(1, b.getConnectCount());
+        assertEquals(0, a.getReconnectCount());
+
+        // the first attempt after the initial delay, the next one after twice the delay
+        clock.set(ServiceConnections.MIN_BACKOFF);
+        connections.checkHealth();
+        assertEquals(1, a.getReconnectCount());
+        assertTrue(created.get(0).destroyed);
+        assertTrue(created.get(2).reconnect);
+        assertSame(created.get(2), a.getRequester());
+        assertEquals(Instant.ofEpochMilli(3 * ServiceConnections.MIN_BACKOFF), a.getNextAttempt());
+        clock.set(3 * ServiceConnections.MIN_BACKOFF - 1);
+        connections.checkHealth();
+        assertEquals(1, a.getReconnectCount());
+        clock.set(3 * ServiceConnections.MIN_BACKOFF);
+        connections.checkHealth();
+        assertEquals(2, a.getReconnectCount());
+        assertEquals(Instant.ofEpochMilli(7 * ServiceConnections.MIN_BACKOFF), a.getNextAttempt());
+
+        // when connected, the delay is reset
+        created.get(3).connected = true;
+        clock.set(4 * ServiceConnections.MIN_BACKOFF);
+        connections.checkHealth();
+        assertTrue(a.isConnected());
+        assertEquals(1, a.getConnectCount());
+        assertEquals(Instant.ofEpochMilli(4 * ServiceConnections.MIN_BACKOFF), a.getLastStateChange());
+
+        created.get(3).connected = false;
+        clock.set(5 * ServiceConnections.MIN_BACKOFF);
+        connections.checkHealth();
+        assertFalse(a.isConnected());
+        assertEquals(1, a.getDisconnectCount());
+        assertEquals(Instant.ofEpochMilli(6 * ServiceConnections.MIN_BACKOFF), a.getNextAttempt());
+        clock.set(6 * ServiceConnections.MIN_BACKOFF);
+        connections.checkHealth();
+        assertEquals(3, a.getReconnectCount());
+
+        // the connected service was never touched
+        assertEquals(0, b.getReconnectCount());
+        assertSame(created.get(1), b.getRequester());
+        assertEquals(5, created.size());
+    }
+
+    /**
+     * Tests that the connection is recreated on request only if the failed requester was not replaced already.
+     *
+     * @throws MasarException on error
+     */
+    @Test
+    public void testReconnect() throws MasarException {
+        connections.setServices(new String[] { "a" });
+        RPCRequester failed = connections.get("a").getRequester();
+        RPCRequester replacement = connections.reconnect("a", failed);
+        assertNotSame(failed, replacement);
+        assertTrue(created.get(0).destroyed);
+        assertSame(replacement, connections.reconnect("a", failed));
+        assertEquals(2, created.size());
+        assertEquals(1, connections.get("a").getReconnectCount());
+    }
+}
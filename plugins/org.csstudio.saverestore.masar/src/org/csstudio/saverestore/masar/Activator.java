@@ -30,6 +30,8 @@ public class Activator extends AbstractUIPlugin {
     public static final String PREF_TIMEOUT = "timeout";
     /** The preference name for the connection timeout */
     public static final String PREF_CONNECTION_TIMEOUT = "connectionTimeout";
+    /** The preference name for the maximum number of concurrent requests to a masar service */
+    public static final String PREF_MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
 
     private static Activator defaultInstance;
 
@@ -102,4 +104,15 @@ public class Activator extends AbstractUIPlugin {
         int timeout = getPreferenceStore().getInt(PREF_CONNECTION_TIMEOUT);
         return timeout <= 0 ? 3 : timeout;
     }
+
+    /**
+     * Returns the maximum number of requests that can be sent to a masar service concurrently. This is the number of
+     * channel rpc instances created for each service.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    public int getMaxConcurrentRequests() {
+        int max = getPreferenceStore().getInt(PREF_MAX_CONCURRENT_REQUESTS);
+        return max <= 0 ? 4 : max;
+    }
 }
@@ -22,9 +22,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -41,6 +47,7 @@ import org.epics.pvaccess.client.Channel.ConnectionState;
 import org.epics.pvaccess.client.ChannelProvider;
 import org.epics.pvaccess.client.ChannelProviderRegistryFactory;
 import org.epics.pvaccess.client.ChannelRPC;
+import org.epics.pvaccess.client.ChannelRPCRequester;
 import org.epics.pvaccess.client.ChannelRequester;
 import org.epics.pvaccess.util.logging.LoggingUtils;
 import org.epics.pvdata.factory.PVDataFactory;
@@ -55,6 +62,9 @@ import org.epics.pvdata.pv.StringArrayData;
 
 /**
  * <code>MasarClient<code> provide access to the masar features required by the save and restore application.
+ * <p>
+ * The client is thread safe and several requests can be in progress at the same time. Each request returns a future,
+ * which receives the response to that request; the blocking methods wait for the future of their request.
  *
  * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
  */
@@ -112,17 +122,15 @@ public class MasarClient {
         }
     }
 
-    private static class MasarChannelRPCRequester implements RPCRequester {
+    private static class MasarChannelRPCRequester implements RPCRequester, ChannelRPCRequester {
         private final CountDownLatch connectedSignaler = new CountDownLatch(1);
-        private final Semaphore doneSemaphore = new Semaphore(0);
+        // the request that is waiting for the response; channel rpc handles one request at a time
+        private final AtomicReference<CompletableFuture<PVStructure>> pending = new AtomicReference<>();
         private final String service;
-        private final Channel channel;
         private volatile ChannelRPC channelRPC;
-        private volatile PVStructure result;
 
-        MasarChannelRPCRequester(String service, Channel channel) {
+        MasarChannelRPCRequester(String service) {
             this.service = service;
-            this.channel = channel;
         }
 
         @Override
@@ -144,8 +152,7 @@ public class MasarClient {
             connectedSignaler.countDown();
             // in case of reconnect, issued request was lost
             if (reconnect) {
-                this.result = null;
-                doneSemaphore.release();
+                complete(null);
             }
         }
 
@@ -161,26 +168,40 @@ public class MasarClient {
                 SaveRestoreService.LOGGER.log(Level.WARNING, "RequestDone for {0} called with status {1}.",
                     new Object[] { channelRPC.getChannel().getChannelName(), status });
             }
-            this.result = result;
-            doneSemaphore.release();
+            complete(result);
+        }
+
+        private void complete(PVStructure result) {
+            CompletableFuture<PVStructure> response = pending.getAndSet(null);
+            if (response != null) {
+                response.complete(result);
+            }
         }
 
         @Override
-        public PVStructure request(PVStructure requestData) throws InterruptedException, MasarException {
+        public CompletableFuture<PVStructure> requestAsync(PVStructure requestData) {
+            CompletableFuture<PVStructure> response = new CompletableFuture<>();
             ChannelRPC rpc = channelRPC;
             if (rpc == null) {
-                throw new MasarException("Cannot connect to the MASAR service " + service + ".");
+                response.completeExceptionally(new MasarException("Cannot connect to the MASAR service " + service
+                    + "."));
+                return response;
+            } else if (!pending.compareAndSet(null, response)) {
+                response.completeExceptionally(new MasarException("A request to " + service + " is in progress."));
+                return response;
+            }
+            int timeout = Activator.getInstance().getTimeout();
+            if (timeout > 0) {
+                ScheduledFuture<?> timer = TIMER.schedule(() -> {
+                    if (pending.compareAndSet(response, null)) {
+                        response.completeExceptionally(new MasarException("Timeout sending request to " + service
+                            + "."));
+                    }
+                }, timeout, TimeUnit.SECONDS);
+                response.whenComplete((r, e) -> timer.cancel(false));
             }
-            this.result = null;
             rpc.request(requestData);
-            if (Activator.getInstance().getTimeout() > 0) {
-                if (!doneSemaphore.tryAcquire(1, Activator.getInstance().getTimeout(), TimeUnit.SECONDS)) {
-                    throw new MasarException("Timeout sending request to " + service + ".");
-                }
-            } else {
-                doneSemaphore.acquire(1);
-            }
-            return result;
+            return response;
         }
 
         @Override
@@ -188,9 +209,7 @@ public class MasarClient {
             if (channelRPC != null) {
                 channelRPC.destroy();
             }
-            if (channel != null) {
-                channel.destroy();
-            }
+            complete(null);
         }
 
         @Override
@@ -199,6 +218,22 @@ public class MasarClient {
         }
     }
 
+    /**
+     * <code>ResponseParser</code> transforms the response received from the service into the requested object.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(PVStructure response) throws MasarException, ParseException;
+    }
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "MASAR Client Timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private static RPCRequester createChannel(String service, CompletionNotifier notifier,
         boolean neverConnected) throws MasarException {
         if (service == null) {
@@ -212,15 +247,19 @@ public class MasarClient {
         MasarChannelRequester channelRequester = new MasarChannelRequester(notifier, neverConnected);
         Channel channel = channelProvider.createChannel(service, channelRequester, ChannelProvider.PRIORITY_DEFAULT);
 
-        MasarChannelRPCRequester channelRPCRequester = new MasarChannelRPCRequester(service, channel);
-        channel.createChannelRPC(channelRPCRequester, null);
-        return channelRPCRequester;
+        // each channel rpc handles one request at a time, several of them allow concurrent requests on one channel
+        return new RPCRequesterPool(service, Activator.getInstance().getMaxConcurrentRequests(), () -> {
+            MasarChannelRPCRequester channelRPCRequester = new MasarChannelRPCRequester(service);
+            channel.createChannelRPC(channelRPCRequester, null);
+            return channelRPCRequester;
+        }, channel::destroy);
     }
 
     private String[] services;
     private String selectedService;
     private RPCRequester channelRPCRequester;
     private CompletionNotifier connectionNotifier;
+    private ServiceConnections connections;
 
     /**
      * Creates a new client, but does not initialise it. {@link #initialise(String[])} has to be called before anything
@@ -256,12 +295,13 @@ public class MasarClient {
     /**
      * Dispose of all resources allocated by this client (e.g. close the channels).
      */
-    public void dispose() {
+    public synchronized void dispose() {
         try {
-            if (channelRPCRequester != null) {
-                channelRPCRequester.destroy();
-                channelRPCRequester = null;
+            if (connections != null) {
+                connections.dispose();
+                connections = null;
             }
+            channelRPCRequester = null;
         } catch (Exception e) {
             SaveRestoreService.LOGGER.log(Level.SEVERE, "MASAR Client cleanup error.", e);
         }
@@ -269,7 +309,8 @@ public class MasarClient {
 
     /**
      * Initialises this MASAR client by setting up the available services and connecting to either the selected service
-     * or the first available service in the list.
+     * or the first available service in the list. The connections to all other services are opened in the background,
+     * so that switching between services does not need to wait for the connection.
      *
      * @param services the list of available services
      * @param notifier which is notified when the service is connected
@@ -292,14 +333,19 @@ public class MasarClient {
                 }
                 this.selectedService = this.services[0];
             }
-            return connect(true);
         }
-        return false;
+        // only the selected service notifies when it comes online; the others are selected when they are needed
+        connections = new ServiceConnections((service, reconnect) -> createChannel(service,
+            service.equals(selectedService) ? connectionNotifier : null, !reconnect));
+        connections.setServices(this.services);
+        connections.start(TIMER);
+        return this.services.length > 0 && connect();
     }
 
     /**
      * Switch the working service to the given service. If the current service is already the requested service, nothing
-     * happens.
+     * happens. The connection to the service is already open, so the switch only waits if the connection to the
+     * service has not been established yet.
      *
      * @param branch the service to switch to
      * @throws MasarException if there was an exception selecting the service (e.g. service unavailable)
@@ -307,19 +353,24 @@ public class MasarClient {
     public synchronized void setService(Branch service) throws MasarException {
         if (!service.getShortName().equals(selectedService) && (selectedService == null || !service.isDefault())) {
             selectedService = service.getShortName();
-            connect(true);
+            connect();
         }
     }
 
+    /**
+     * Takes the requester of the selected service from the open connections and waits for it to connect, if it is not
+     * connected yet.
+     *
+     * @return true if connected or false otherwise
+     * @throws MasarException in case of an error
+     */
     private boolean connect() throws MasarException {
-        return connect(false);
-    }
-
-    private boolean connect(boolean neverConnected) throws MasarException {
-        dispose();
-        channelRPCRequester = createChannel(selectedService, connectionNotifier, neverConnected);
+        if (connections == null) {
+            throw new MasarException("MASAR client is not initialised.");
+        }
+        channelRPCRequester = connections.get(selectedService).getRequester();
         try {
-            return channelRPCRequester.waitUntilConnected();
+            return channelRPCRequester.isConnected() || channelRPCRequester.waitUntilConnected();
         } catch (InterruptedException e) {
             throw new MasarException("Could not connecto to masar service", e);
         }
@@ -336,8 +387,10 @@ public class MasarClient {
     public synchronized Branch createService(String newService) throws MasarException {
         if (Arrays.asList(services).contains(newService)) {
             throw new MasarException("Service '" + newService + "' already exists.");
+        } else if (connections == null) {
+            throw new MasarException("MASAR client is not initialised.");
         }
-        RPCRequester channel = createChannel(newService, null, true);
+        RPCRequester channel = connections.get(newService).getRequester();
         boolean connected = false;
         try {
             connected = channel.waitUntilConnected();
@@ -345,7 +398,6 @@ public class MasarClient {
             // ignore
         }
         if (connected) {
-            dispose();
             this.channelRPCRequester = channel;
             this.selectedService = newService;
             List<String> newServices = new ArrayList<>(this.services.length + 1);
@@ -357,6 +409,7 @@ public class MasarClient {
             Activator.getInstance().setServices(services);
             return new Branch(newService, newService);
         }
+        connections.remove(newService);
         throw new MasarException("Service '" + newService + "' is unreachable.");
     }
 
@@ -372,6 +425,168 @@ public class MasarClient {
         return branches;
     }
 
+    /**
+     * Returns the connections to all services, which provide the connection state and statistics of each service.
+     *
+     * @return the list of connections
+     */
+    public synchronized List<ServiceConnection> getConnections() {
+        return connections == null ? Collections.emptyList() : connections.getConnections();
+    }
+
+    /**
+     * Switches to the given service and returns the requester for that service.
+     *
+     * @param service the service to switch to
+     * @return the requester connected to the service
+     * @throws MasarException if there was an exception selecting the service (e.g. service unavailable)
+     */
+    private synchronized RPCRequester getRequester(Branch service) throws MasarException {
+        setService(service);
+        if (connections != null) {
+            // the health check might have replaced the requester of the selected service
+            channelRPCRequester = connections.get(selectedService).getRequester();
+        }
+        if (channelRPCRequester == null) {
+            throw new MasarException("Masar service not available.");
+        }
+        return channelRPCRequester;
+    }
+
+    /**
+     * Reconnects the given requester after the request sent through it was lost. If the requester was already
+     * replaced by another request, by the health check, or by switching the service, nothing happens.
+     *
+     * @param failed the requester through which the request was lost
+     * @return true if the request should be sent again or false if the service is not available
+     * @throws MasarException in case of an error while reconnecting
+     */
+    private synchronized boolean reconnect(RPCRequester failed) throws MasarException {
+        if (failed != channelRPCRequester) {
+            return true;
+        } else if (!failed.isConnected()) {
+            return false;
+        } else if (connections != null) {
+            channelRPCRequester = connections.reconnect(selectedService, failed);
+        }
+        try {
+            return channelRPCRequester.waitUntilConnected();
+        } catch (InterruptedException e) {
+            throw new MasarException("Could not connecto to masar service", e);
+        }
+    }
+
+    /**
+     * Sends the request to the given service and transforms the response with the parser. The response is parsed in
+     * the background, so that the thread that received the response is free to receive other responses.
+     *
+     * @param service the service to send the request to
+     * @param request the request
+     * @param parser the parser that transforms the response into the result
+     * @return the future that receives the result
+     */
+    private <T> CompletableFuture<T> request(Branch service, PVStructure request, ResponseParser<T> parser) {
+        return request(service, request, true).thenApplyAsync(response -> {
+            try {
+                return parser.parse(response);
+            } catch (MasarException | ParseException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Sends the request to the given service. If the request was lost (e.g. the channel reconnected while waiting for
+     * the response) and retry is enabled, the channel is reconnected and the request is sent again.
+     *
+     * @param service the service to send the request to
+     * @param request the request
+     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
+     *            request sent again
+     * @return the future that receives the response
+     */
+    private CompletableFuture<PVStructure> request(Branch service, PVStructure request, boolean retryOnError) {
+        RPCRequester requester;
+        try {
+            requester = getRequester(service);
+        } catch (MasarException e) {
+            return failed(e);
+        }
+        return requester.requestAsync(request).thenCompose(response -> {
+            if (response != null) {
+                return CompletableFuture.completedFuture(response);
+            } else if (!retryOnError) {
+                throw new CompletionException(
+                    new MasarException(requester.isConnected() ? "Unknown error." : "Masar service not available."));
+            }
+            // reconnecting blocks, so it should not be done in the thread that received the response
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return reconnect(requester);
+                } catch (MasarException e) {
+                    throw new CompletionException(e);
+                }
+            }).thenCompose(reconnected -> {
+                if (reconnected) {
+                    return request(service, request, false);
+                }
+                throw new CompletionException(new MasarException("Masar service not available."));
+            });
+        });
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable cause) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * Waits for the result of the request and rethrows the exception that caused the request to fail.
+     *
+     * @param future the future of the request
+     * @param operation the description of the operation used in the message when the waiting is interrupted
+     * @return the result of the request
+     * @throws MasarException in case of an error
+     * @throws ParseException if the response could not be parsed
+     */
+    private static <T> T awaitParsed(CompletableFuture<T> future, String operation)
+        throws MasarException, ParseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new MasarException(operation + " aborted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MasarException) {
+                throw (MasarException) cause;
+            } else if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MasarException(cause);
+        }
+    }
+
+    /**
+     * Waits for the result of the request and rethrows the exception that caused the request to fail.
+     *
+     * @param future the future of the request
+     * @param operation the description of the operation used in the message when the waiting is interrupted
+     * @return the result of the request
+     * @throws MasarException in case of an error
+     */
+    private static <T> T await(CompletableFuture<T> future, String operation) throws MasarException {
+        try {
+            return awaitParsed(future, operation);
+        } catch (ParseException e) {
+            throw new MasarException(e);
+        }
+    }
+
     /**
      * Reads and returns the list of all system configs in the given service.
      *
@@ -379,33 +594,20 @@ public class MasarClient {
      * @return the list of system configurations levels
      * @throws MasarException in case of an error
      */
-    public synchronized List<BaseLevel> getSystemConfigs(Branch service) throws MasarException {
-        return getSystemConfigs(service, true);
+    public List<BaseLevel> getSystemConfigs(Branch service) throws MasarException {
+        return await(getSystemConfigsAsync(service), "Loading system configurations");
     }
 
     /**
-     * Reads and returns the list of all system configs (base levels) in the given service.
+     * Reads the list of all system configs (base levels) in the given service without waiting for the response.
      *
      * @param service the service from which to retrieve the system configs
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return the list of system configs
-     * @throws MasarException in case of an error
+     * @return the future that receives the list of system configs
      */
-    private List<BaseLevel> getSystemConfigs(Branch service, boolean retryOnError) throws MasarException {
-        setService(service);
-        try {
-            PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_BASE_LEVEL);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_BASE_LEVELS);
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return getSystemConfigs(service, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<List<BaseLevel>> getSystemConfigsAsync(Branch service) {
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_BASE_LEVEL);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_BASE_LEVELS);
+        return request(service, request, result -> {
             PVStructure value = result.getStructureField(MasarConstants.P_STRUCTURE_VALUE);
             PVStringArray array = (PVStringArray) value.getScalarArrayField(MasarConstants.P_BASE_LEVEL_NAME,
                 ScalarType.pvString);
@@ -419,9 +621,7 @@ public class MasarClient {
             Collections.sort(list);
             list.add(0, new BaseLevel(service, "all", "all"));
             return list;
-        } catch (InterruptedException e) {
-            throw new MasarException("Loading system configurations aborted.", e);
-        }
+        });
     }
 
     /**
@@ -432,43 +632,23 @@ public class MasarClient {
      * @return the list of save sets
      * @throws MasarException in case of an error
      */
-    public synchronized List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch service)
-        throws MasarException {
-        return getSaveSets(baseLevel, service, true);
+    public List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch service) throws MasarException {
+        return await(getSaveSetsAsync(baseLevel, service), "Loading save sets");
     }
 
     /**
-     * Returns the list of all available save sets in the current branch.
+     * Reads the list of all available save sets in the given service without waiting for the response.
      *
      * @param baseLevel the base level for which the save sets are requested (optional, if base levels are not used)
      * @param service the service to switch to
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return the list of save sets
-     * @throws MasarException in case of an error
+     * @return the future that receives the list of save sets
      */
-    private List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch service, boolean retryOnError)
-        throws MasarException {
-        setService(service);
-        try {
-            PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SAVE_SET);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SAVE_SETS);
-            request.getStringField(MasarConstants.F_SYSTEM).put(baseLevel.get().getStorageName());
-            request.getStringField(MasarConstants.F_CONFIGNAME).put("*");
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return getSaveSets(baseLevel, service, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
-
-            return MasarUtilities.createSaveSetsList(result, service, baseLevel);
-        } catch (InterruptedException e) {
-            throw new MasarException("Loading save sets aborted.", e);
-        }
+    public CompletableFuture<List<SaveSet>> getSaveSetsAsync(Optional<BaseLevel> baseLevel, Branch service) {
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SAVE_SET);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SAVE_SETS);
+        request.getStringField(MasarConstants.F_SYSTEM).put(baseLevel.get().getStorageName());
+        request.getStringField(MasarConstants.F_CONFIGNAME).put("*");
+        return request(service, request, result -> MasarUtilities.createSaveSetsList(result, service, baseLevel));
     }
 
     /**
@@ -486,15 +666,15 @@ public class MasarClient {
      * @throws MasarException in case of an error
      * @throws ParseException in case that the returned timestamp could not be parsed
      */
-    public synchronized List<Snapshot> findSnapshots(Branch service, String expression, boolean byUser,
-        boolean byComment, Optional<Date> start, Optional<Date> end) throws MasarException, ParseException {
-        return findSnapshots(service, expression, byUser, byComment, start, end, true);
+    public List<Snapshot> findSnapshots(Branch service, String expression, boolean byUser, boolean byComment,
+        Optional<Date> start, Optional<Date> end) throws MasarException, ParseException {
+        return awaitParsed(findSnapshotsAsync(service, expression, byUser, byComment, start, end),
+            "Searching snapshots");
     }
 
     /**
-     * Search for snapshots that match the given criteria. Snapshot is accepted if the search is performed by user or by
-     * comment and expression is found in either the snapshot comment or creator. The snapshot also has to be created
-     * after start and before end if those two parameters are provided.
+     * Search for snapshots that match the given criteria without waiting for the response. The criteria are the same
+     * as for {@link #findSnapshots(Branch, String, boolean, boolean, Optional, Optional)}.
      *
      * @param service the service on which to search
      * @param expression the expression to search for
@@ -502,51 +682,34 @@ public class MasarClient {
      * @param byComment true if the comment should match the expression
      * @param start the start date of the time range to search
      * @param end the end date of the time range to search
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return list of snapshots that match criteria
-     * @throws MasarException in case of an error
-     * @throws ParseException in case that the returned timestamp could not be parsed
+     * @return the future that receives the list of snapshots that match criteria
      */
-    private List<Snapshot> findSnapshots(Branch service, String expression, boolean byUser, boolean byComment,
-        Optional<Date> start, Optional<Date> end, boolean retryOnError) throws MasarException, ParseException {
-        setService(service);
-        try {
-            PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(
-                MasarConstants.createSearchStructure(true, true, start.isPresent(), end.isPresent()));
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_FIND_SNAPSHOTS);
-            request.getStringField(MasarConstants.F_COMMENT).put("*");
-            request.getStringField(MasarConstants.F_USER).put("*");
-            String newExpression = new StringBuilder(expression.length() + 2).append('*').append(expression).append('*')
-                .toString();
-            if (byComment) {
-                request.getStringField(MasarConstants.F_COMMENT).put(newExpression);
-            }
-            if (byUser) {
-                request.getStringField(MasarConstants.F_USER).put(newExpression);
-            }
-            if (start.isPresent()) {
-                request.getStringField(MasarConstants.F_START)
-                    .put(MasarConstants.DATE_FORMAT.get().format(start.get()));
-            }
-            if (end.isPresent()) {
-                request.getStringField(MasarConstants.F_END).put(MasarConstants.DATE_FORMAT.get().format(end.get()));
-            }
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return findSnapshots(service, expression, byUser, byComment, start, end, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<List<Snapshot>> findSnapshotsAsync(Branch service, String expression, boolean byUser,
+        boolean byComment, Optional<Date> start, Optional<Date> end) {
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(
+            MasarConstants.createSearchStructure(true, true, start.isPresent(), end.isPresent()));
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_FIND_SNAPSHOTS);
+        request.getStringField(MasarConstants.F_COMMENT).put("*");
+        request.getStringField(MasarConstants.F_USER).put("*");
+        String newExpression = new StringBuilder(expression.length() + 2).append('*').append(expression).append('*')
+            .toString();
+        if (byComment) {
+            request.getStringField(MasarConstants.F_COMMENT).put(newExpression);
+        }
+        if (byUser) {
+            request.getStringField(MasarConstants.F_USER).put(newExpression);
+        }
+        if (start.isPresent()) {
+            request.getStringField(MasarConstants.F_START).put(MasarConstants.DATE_FORMAT.get().format(start.get()));
+        }
+        if (end.isPresent()) {
+            request.getStringField(MasarConstants.F_END).put(MasarConstants.DATE_FORMAT.get().format(end.get()));
+        }
+        return request(service, request, result -> {
             PVStructure value = result.getStructureField(MasarConstants.P_STRUCTURE_VALUE);
             return MasarUtilities.createSnapshotsList(value, s -> new SaveSet(service, Optional.empty(),
                 new String[] { "Save Set: " + s }, MasarDataProvider.ID));
-        } catch (InterruptedException e) {
-            throw new MasarException("Searching snapshots aborted.", e);
-        }
+        });
     }
 
     /**
@@ -558,40 +721,24 @@ public class MasarClient {
      * @throws ParseException if the snapshot date could not be parsed
      * @throws MasarException in case of an error
      */
-    public synchronized Optional<Snapshot> findSnapshotById(Branch service, int id)
-        throws MasarException, ParseException {
-        return findSnapshotById(service, id, true);
+    public Optional<Snapshot> findSnapshotById(Branch service, int id) throws MasarException, ParseException {
+        return awaitParsed(findSnapshotByIdAsync(service, id), "Searching snapshots");
     }
 
     /**
-     * Finds the snapshot that has the given id. If the snapshot was not found an empty optional is returned.
+     * Finds the snapshot that has the given id without waiting for the response. If the snapshot was not found the
+     * future receives an empty optional.
      *
      * @param service the service on which to search for the snapshot
      * @param id the snapshot id
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return the snapshot if found
-     * @throws ParseException if the snapshot date could not be parsed
-     * @throws MasarException in case of an error
+     * @return the future that receives the snapshot if found
      */
-    private Optional<Snapshot> findSnapshotById(Branch service, int id, boolean retryOnError)
-        throws MasarException, ParseException {
-        setService(service);
-        try {
-            String index = String.valueOf(id);
-            PVStructure request = PVDataFactory.getPVDataCreate()
-                .createPVStructure(MasarConstants.STRUCT_SNAPSHOT_BY_ID);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_FIND_SNAPSHOTS);
-            request.getStringField(MasarConstants.F_EVENTID).put(index);
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return findSnapshotById(service, id, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<Optional<Snapshot>> findSnapshotByIdAsync(Branch service, int id) {
+        String index = String.valueOf(id);
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT_BY_ID);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_FIND_SNAPSHOTS);
+        request.getStringField(MasarConstants.F_EVENTID).put(index);
+        return request(service, request, result -> {
             PVStructure value = result.getStructureField(MasarConstants.P_STRUCTURE_VALUE);
             List<Snapshot> list = MasarUtilities.createSnapshotsList(value, s -> new SaveSet(service,
                 Optional.empty(), new String[] { "Save Set: " + s }, MasarDataProvider.ID));
@@ -600,9 +747,7 @@ public class MasarClient {
             } else {
                 return Optional.of(list.get(0));
             }
-        } catch (InterruptedException e) {
-            throw new MasarException("Searching snapshots aborted.", e);
-        }
+        });
     }
 
     /**
@@ -613,47 +758,30 @@ public class MasarClient {
      * @throws MasarException in case of an error
      * @throws ParseException if parsing of date failed
      */
-    public synchronized List<Snapshot> getSnapshots(SaveSet saveSet) throws MasarException, ParseException {
-        return getSnapshots(saveSet, true);
+    public List<Snapshot> getSnapshots(SaveSet saveSet) throws MasarException, ParseException {
+        return awaitParsed(getSnapshotsAsync(saveSet), "Loading snapshots");
     }
 
     /**
-     * Returns the list of all snapshots for the given save set.
+     * Reads the list of all snapshots for the given save set without waiting for the response.
      *
      * @param saveSet the save set for which the snapshots are requested
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return the list of all snapshot revisions for this save set
-     * @throws MasarException in case of an error
-     * @throws ParseException if parsing of date failed
+     * @return the future that receives the list of all snapshot revisions for this save set
      */
-    private List<Snapshot> getSnapshots(SaveSet saveSet, boolean retryOnError)
-        throws MasarException, ParseException {
-        setService(saveSet.getBranch());
-        try {
-            PVStructure request;
-            String index = saveSet.getParameters().get(MasarConstants.P_CONFIG_INDEX);
-            if (index == null) {
-                request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_BASE_LEVEL);
-            } else {
-                request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT);
-                request.getStringField(MasarConstants.F_CONFIGID).put(index);
-            }
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SNAPSHOTS);
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return getSnapshots(saveSet, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<List<Snapshot>> getSnapshotsAsync(SaveSet saveSet) {
+        PVStructure request;
+        String index = saveSet.getParameters().get(MasarConstants.P_CONFIG_INDEX);
+        if (index == null) {
+            request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_BASE_LEVEL);
+        } else {
+            request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT);
+            request.getStringField(MasarConstants.F_CONFIGID).put(index);
+        }
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SNAPSHOTS);
+        return request(saveSet.getBranch(), request, result -> {
             PVStructure value = result.getStructureField(MasarConstants.P_STRUCTURE_VALUE);
             return MasarUtilities.createSnapshotsList(value, s -> saveSet);
-        } catch (InterruptedException e) {
-            throw new MasarException("Loading snapshots aborted.", e);
-        }
+        });
     }
 
     /**
@@ -663,46 +791,48 @@ public class MasarClient {
      * @return the content of the snapshot
      * @throws MasarException in case of an error
      */
-    public synchronized VSnapshot loadSnapshotData(Snapshot snapshot) throws MasarException {
-        return loadSnapshotData(snapshot, true);
+    public VSnapshot loadSnapshotData(Snapshot snapshot) throws MasarException {
+        return await(loadSnapshotDataAsync(snapshot), "Loading snapshots data");
     }
 
     /**
-     * Loads the data from the snapshot revision.
+     * Loads the data from several snapshot revisions. The requests are sent to the service concurrently (bounded by
+     * the number of concurrent requests allowed by the preferences) and the transformation of each received result
+     * into a {@link VSnapshot} is done in the background.
      *
-     * @param snapshot the snapshot descriptor to read
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return the content of the snapshot
+     * @param snapshots the snapshot descriptors to read
+     * @return the contents of the snapshots in the same order as the descriptors
      * @throws MasarException in case of an error
      */
-    private VSnapshot loadSnapshotData(Snapshot snapshot, boolean retryOnError) throws MasarException {
-        setService(snapshot.getSaveSet().getBranch());
-        try {
-            String index = snapshot.getParameters().get(MasarConstants.PARAM_SNAPSHOT_ID);
-            if (index == null) {
-                index = snapshot.getParameters().get(MasarConstants.P_EVENT_ID);
-            }
-            if (index == null) {
-                throw new MasarException("Unknown snapshot: " + snapshot);
-            }
-            PVStructure request = PVDataFactory.getPVDataCreate()
-                .createPVStructure(MasarConstants.STRUCT_SNAPSHOT_DATA);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SNAPSHOT_DATA);
-            request.getStringField(MasarConstants.F_EVENTID).put(index);
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return loadSnapshotData(snapshot, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
-            return MasarUtilities.resultToVSnapshot(result, snapshot, snapshot.getDate());
-        } catch (InterruptedException e) {
-            throw new MasarException("Loading snapshots data aborted.", e);
+    public List<VSnapshot> loadSnapshotData(List<Snapshot> snapshots) throws MasarException {
+        List<CompletableFuture<VSnapshot>> futures = snapshots.stream().map(this::loadSnapshotDataAsync)
+            .collect(Collectors.toList());
+        List<VSnapshot> list = new ArrayList<>(futures.size());
+        for (CompletableFuture<VSnapshot> future : futures) {
+            list.add(await(future, "Loading snapshots data"));
         }
+        return list;
+    }
+
+    /**
+     * Loads the data from the snapshot revision without waiting for the response.
+     *
+     * @param snapshot the snapshot descriptor to read
+     * @return the future that receives the content of the snapshot
+     */
+    public CompletableFuture<VSnapshot> loadSnapshotDataAsync(Snapshot snapshot) {
+        String index = snapshot.getParameters().get(MasarConstants.PARAM_SNAPSHOT_ID);
+        if (index == null) {
+            index = snapshot.getParameters().get(MasarConstants.P_EVENT_ID);
+        }
+        if (index == null) {
+            return failed(new MasarException("Unknown snapshot: " + snapshot));
+        }
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT_DATA);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_LOAD_SNAPSHOT_DATA);
+        request.getStringField(MasarConstants.F_EVENTID).put(index);
+        return request(snapshot.getSaveSet().getBranch(), request,
+            result -> MasarUtilities.resultToVSnapshot(result, snapshot, snapshot.getDate()));
     }
 
     /**
@@ -713,49 +843,35 @@ public class MasarClient {
      * @return saved snapshot
      * @throws MasarException in case of an error
      */
-    public synchronized VSnapshot saveSnapshot(VSnapshot snapshot, String comment) throws MasarException {
-        return saveSnapshot(snapshot, comment, true);
+    public VSnapshot saveSnapshot(VSnapshot snapshot, String comment) throws MasarException {
+        return await(saveSnapshotAsync(snapshot, comment), "Saving snapshot");
     }
 
     /**
-     * Signal to the service that this snapshot should be stored permanently.
+     * Signal to the service that this snapshot should be stored permanently, without waiting for the response.
      *
      * @param snapshot the snapshot data
      * @param comment the comment for the commit
-     * @param retryOnError if true and there is an error in communication the channel will be reconnected and the
-     *            request sent again
-     * @return saved snapshot
-     * @throws MasarException in case of an error
+     * @return the future that receives the saved snapshot
      */
-    private VSnapshot saveSnapshot(VSnapshot snapshot, String comment, boolean retryOnError) throws MasarException {
-        setService(snapshot.getSaveSet().getBranch());
-        try {
-            if (!snapshot.getSnapshot().isPresent()) {
-                throw new MasarException("Snapshot " + snapshot + " cannot be saved by MASAR.");
-            }
-            String id = snapshot.getSnapshot().get().getParameters().get(MasarConstants.PARAM_SNAPSHOT_ID);
-            if (id == null) {
-                id = snapshot.getSnapshot().get().getParameters().get(MasarConstants.P_EVENT_ID);
-            }
-            if (id == null) {
-                throw new MasarException("Snapshot " + snapshot + " is not a valid MASAR snapshot.");
-            }
-            String user = MasarUtilities.getUser();
-            PVStructure request = PVDataFactory.getPVDataCreate()
-                .createPVStructure(MasarConstants.STRUCT_SNAPSHOT_SAVE);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_SAVE_SNAPSHOT);
-            request.getStringField(MasarConstants.F_EVENTID).put(id);
-            request.getStringField(MasarConstants.F_USER).put(user);
-            request.getStringField(MasarConstants.F_DESCRIPTION).put(comment);
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return saveSnapshot(snapshot, comment, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<VSnapshot> saveSnapshotAsync(VSnapshot snapshot, String comment) {
+        if (!snapshot.getSnapshot().isPresent()) {
+            return failed(new MasarException("Snapshot " + snapshot + " cannot be saved by MASAR."));
+        }
+        String id = snapshot.getSnapshot().get().getParameters().get(MasarConstants.PARAM_SNAPSHOT_ID);
+        if (id == null) {
+            id = snapshot.getSnapshot().get().getParameters().get(MasarConstants.P_EVENT_ID);
+        }
+        if (id == null) {
+            return failed(new MasarException("Snapshot " + snapshot + " is not a valid MASAR snapshot."));
+        }
+        String user = MasarUtilities.getUser();
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT_SAVE);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_SAVE_SNAPSHOT);
+        request.getStringField(MasarConstants.F_EVENTID).put(id);
+        request.getStringField(MasarConstants.F_USER).put(user);
+        request.getStringField(MasarConstants.F_DESCRIPTION).put(comment);
+        return request(snapshot.getSaveSet().getBranch(), request, result -> {
             PVBoolean status = (PVBoolean) result.getBooleanField(MasarConstants.P_STRUCTURE_VALUE);
             if (!status.get()) {
                 // masar returns status=false, error description is given in the alarm message
@@ -773,9 +889,7 @@ public class MasarClient {
             return new VSnapshot(newSnap, snapshot.getNames(), snapshot.getSelected(), snapshot.getValues(),
                 snapshot.getReadbackNames(), snapshot.getReadbackValues(), snapshot.getDeltas(),
                 snapshot.getTimestamp());
-        } catch (InterruptedException e) {
-            throw new MasarException("Saving snapshot aborted.", e);
-        }
+        });
     }
 
     /**
@@ -785,41 +899,26 @@ public class MasarClient {
      * @return saved snapshot and change type describing what kind of updates were made to the repository
      * @throws MasarException in case of an error
      */
-    public synchronized VSnapshot takeSnapshot(SaveSet set) throws MasarException {
-        return takeSnapshot(set, true);
+    public VSnapshot takeSnapshot(SaveSet set) throws MasarException {
+        return await(takeSnapshotAsync(set), "Taking snapshot");
     }
 
     /**
-     * Take a new snapshot for the given save set and return it.
+     * Take a new snapshot for the given save set without waiting for the response.
      *
      * @param set the save set for which the snapshot will be taken
-     * @param retryOnError if true and there is a communication error the channel will be reconnected and request sent
-     *            again
-     * @return saved snapshot and change type describing what kind of updates were made to the repository
-     * @throws MasarException in case of an error
+     * @return the future that receives the taken snapshot
      */
-    private VSnapshot takeSnapshot(SaveSet set, boolean retryOnError) throws MasarException {
-        setService(set.getBranch());
-        try {
-            String name = set.getParameters().get(MasarConstants.P_CONFIG_NAME);
-            if (name == null) {
-                throw new MasarException("Unknown save set: " + set);
-            }
-            PVStructure request = PVDataFactory.getPVDataCreate()
-                .createPVStructure(MasarConstants.STRUCT_SNAPSHOT_TAKE);
-            request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_TAKE_SNAPSHOT);
-            // request.getStringField(MasarConstants.F_SERVICENAME).put(set.getBranch().getShortName());
-            request.getStringField(MasarConstants.F_CONFIGNAME).put(name);
-
-            PVStructure result = channelRPCRequester.request(request);
-            if (result == null) {
-                if (retryOnError && channelRPCRequester.isConnected()) {
-                    connect();
-                    return takeSnapshot(set, false);
-                }
-                throw new MasarException(
-                    channelRPCRequester.isConnected() ? "Unknown error." : "Masar service not available.");
-            }
+    public CompletableFuture<VSnapshot> takeSnapshotAsync(SaveSet set) {
+        String name = set.getParameters().get(MasarConstants.P_CONFIG_NAME);
+        if (name == null) {
+            return failed(new MasarException("Unknown save set: " + set));
+        }
+        PVStructure request = PVDataFactory.getPVDataCreate().createPVStructure(MasarConstants.STRUCT_SNAPSHOT_TAKE);
+        request.getStringField(MasarConstants.F_FUNCTION).put(MasarConstants.FC_TAKE_SNAPSHOT);
+        // request.getStringField(MasarConstants.F_SERVICENAME).put(set.getBranch().getShortName());
+        request.getStringField(MasarConstants.F_CONFIGNAME).put(name);
+        return request(set.getBranch(), request, result -> {
             if (result.getScalarArrayField(MasarConstants.P_SNAPSHOT_IS_CONNECTED, ScalarType.pvBoolean) == null) {
                 // if there was an error masar does not return anything but the alarm and timestamp,
                 // error description is given in the alarm message
@@ -836,9 +935,7 @@ public class MasarClient {
             Snapshot snapshot = new Snapshot(set, null, null, null, parameters,
                 Arrays.asList(MasarConstants.PARAM_SNAPSHOT_ID));
             return MasarUtilities.resultToVSnapshot(result, snapshot, Instant.ofEpochSecond(sec, nano));
-        } catch (InterruptedException e) {
-            throw new MasarException("Taking snapshot aborted.", e);
-        }
+        });
     }
 
     /**
@@ -850,15 +947,21 @@ public class MasarClient {
      * @throws MasarException in case of an error
      * @throws ParseException if an existing snapshot was being parsed and failed to read the timestamp
      */
-    public synchronized SaveSetData loadSaveSetData(SaveSet set) throws MasarException, ParseException {
-        setService(set.getBranch());
-        List<Snapshot> snapshots = getSnapshots(set);
-        VSnapshot snapshot;
-        if (snapshots.isEmpty()) {
-            snapshot = takeSnapshot(set);
-        } else {
-            snapshot = loadSnapshotData(snapshots.get(0));
-        }
-        return new SaveSetData(set, snapshot.getNames(), null, null, null);
+    public SaveSetData loadSaveSetData(SaveSet set) throws MasarException, ParseException {
+        return awaitParsed(loadSaveSetDataAsync(set), "Loading save set");
+    }
+
+    /**
+     * Loads the save set data without waiting for the responses. The data is loaded in the same way as by
+     * {@link #loadSaveSetData(SaveSet)}.
+     *
+     * @param set the save set for which the content is being loaded
+     * @return the future that receives the save set data
+     */
+    public CompletableFuture<SaveSetData> loadSaveSetDataAsync(SaveSet set) {
+        return getSnapshotsAsync(set)
+            .thenCompose(snapshots -> snapshots.isEmpty() ? takeSnapshotAsync(set)
+                : loadSnapshotDataAsync(snapshots.get(0)))
+            .thenApply(snapshot -> new SaveSetData(set, snapshot.getNames(), null, null, null));
     }
 }
@@ -302,6 +302,31 @@ public class MasarDataProvider implements DataProvider {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotRevision(org.csstudio.saverestore.data.Snapshot)
+     */
+    @Override
+    public Optional<String> getSnapshotRevision(Snapshot snapshot) {
+        String id = snapshot.getParameters().get(MasarConstants.PARAM_SNAPSHOT_ID);
+        return Optional.ofNullable(id == null ? snapshot.getParameters().get(MasarConstants.P_EVENT_ID) : id);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotContents(java.util.List)
+     */
+    @Override
+    public List<VSnapshot> getSnapshotContents(List<Snapshot> snapshots) throws DataProviderException {
+        try {
+            return mc.loadSnapshotData(snapshots);
+        } catch (RuntimeException | MasarException e) {
+            throw new DataProviderException("Error loading the snapshots content.", e);
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
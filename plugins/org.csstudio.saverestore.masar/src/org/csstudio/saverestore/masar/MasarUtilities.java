@@ -10,6 +10,7 @@
  */
 package org.csstudio.saverestore.masar;
 
+import java.lang.reflect.Array;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.time.Instant;
@@ -23,8 +24,10 @@ import java.util.function.Function;
 
 import javax.security.auth.Subject;
 
+import org.csstudio.saverestore.ParallelDecoder;
 import org.csstudio.saverestore.data.BaseLevel;
 import org.csstudio.saverestore.data.Branch;
+import org.csstudio.saverestore.data.LazyArrays;
 import org.csstudio.saverestore.data.SaveSet;
 import org.csstudio.saverestore.data.Snapshot;
 import org.csstudio.saverestore.data.VDisconnectedData;
@@ -37,6 +40,13 @@ import org.diirt.util.array.ArrayFloat;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayLong;
 import org.diirt.util.array.ArrayShort;
+import org.diirt.util.array.ListByte;
+import org.diirt.util.array.ListDouble;
+import org.diirt.util.array.ListFloat;
+import org.diirt.util.array.ListInt;
+import org.diirt.util.array.ListLong;
+import org.diirt.util.array.ListNumber;
+import org.diirt.util.array.ListShort;
 import org.diirt.vtype.Alarm;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
@@ -249,18 +259,19 @@ public final class MasarUtilities {
         array.get(0, array.getLength(), data);
 
         int length = pvName.data.length;
-        List<String> names = new ArrayList<>(length);
-        List<VType> values = new ArrayList<>(length);
-        for (int i = 0; i < length; i++) {
-            names.add(pvName.data[i]);
-            Time time = ValueFactory.newTime(Instant.ofEpochSecond(seconds.data[i], nanos.data[i]));
-            Alarm alarm = ValueFactory.newAlarm(fromEpics(alarmSeverity.data[i]),
-                toStatus(alarmStatus.data[i]));
-            boolean isarray = data.data[i].get() instanceof PVArray;
-            values.add(isarray ? toValue((PVArray) data.data[i].get(), time, alarm, dbrType.data[i] % 7)
-                : toValue(data.data[i].get(), time, alarm, dbrType.data[i] % 7));
-        }
-        return new VSnapshot(snapshot, names, values, snapshotTime, null);
+        VType[] values = new VType[length];
+        // the rows are independent, so they can be transformed in parallel
+        ParallelDecoder.decode(length, () -> (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Time time = ValueFactory.newTime(Instant.ofEpochSecond(seconds.data[i], nanos.data[i]));
+                Alarm alarm = ValueFactory.newAlarm(fromEpics(alarmSeverity.data[i]),
+                    toStatus(alarmStatus.data[i]));
+                boolean isarray = data.data[i].get() instanceof PVArray;
+                values[i] = isarray ? toValue((PVArray) data.data[i].get(), time, alarm, dbrType.data[i] % 7)
+                    : toValue(data.data[i].get(), time, alarm, dbrType.data[i] % 7);
+            }
+        });
+        return new VSnapshot(snapshot, Arrays.asList(pvName.data), Arrays.asList(values), snapshotTime, null);
     }
 
     /**
@@ -300,6 +311,10 @@ public final class MasarUtilities {
     /**
      * Transform the value of the PVArray to a VType. The value is expected to be a {@link PVScalarArray} which means
      * that is is an array of primitive types. The {@link Display} of the value is always <code>none</code>.
+     * <p>
+     * The numeric arrays are not copied: if the type of the array matches the type of the VType, the VType is backed
+     * directly by the array data (see {@link #toListNumber(PVScalarArray, ScalarType)}). If the array has to be
+     * converted to a smaller type, the elements are converted when they are accessed (see {@link LazyArrays}).
      *
      * @param val the value to transform
      * @param time the time to use for the value
@@ -316,137 +331,176 @@ public final class MasarUtilities {
         }
         Display display = ValueFactory.displayNone();
         ScalarType type = ((PVScalarArray) val).getScalarArray().getElementType();
+        if (type == ScalarType.pvBoolean) {
+            BooleanArrayData booval = new BooleanArrayData();
+            ((PVBooleanArray) val).get(0, val.getLength(), booval);
+            return ValueFactory.newVBooleanArray(new ArrayBoolean(exactLength(booval.data, booval.offset,
+                val.getLength())), alarm, time);
+        } else if (type == ScalarType.pvString) {
+            StringArrayData sval = new StringArrayData();
+            ((PVStringArray) val).get(0, val.getLength(), sval);
+            return ValueFactory.newVStringArray(Arrays.asList(exactLength(sval.data, sval.offset, val.getLength())),
+                alarm, time);
+        }
+        ListNumber source = toListNumber((PVScalarArray) val, type);
+        boolean toByte = dbrType == DBR_Byte.TYPE.getValue();
+        boolean toShort = dbrType == DBR_Short.TYPE.getValue();
+        switch (type) {
+            case pvByte:
+            case pvUByte:
+                return ValueFactory.newVNumberArray(source, alarm, time, display);
+            case pvShort:
+            case pvUShort:
+                return toByte ? ValueFactory.newVNumberArray(toBytes(source), alarm, time, display)
+                    : ValueFactory.newVShortArray((ListShort) source, alarm, time, display);
+            case pvInt:
+            case pvUInt:
+                if (toByte) {
+                    return ValueFactory.newVNumberArray(toBytes(source), alarm, time, display);
+                } else if (toShort) {
+                    return ValueFactory.newVShortArray(toShorts(source), alarm, time, display);
+                }
+                return ValueFactory.newVIntArray((ListInt) source, alarm, time, display);
+            case pvLong:
+            case pvULong:
+                if (toByte) {
+                    return ValueFactory.newVNumberArray(toBytes(source), alarm, time, display);
+                } else if (toShort) {
+                    return ValueFactory.newVShortArray(toShorts(source), alarm, time, display);
+                }
+                return ValueFactory.newVLongArray((ListLong) source, alarm, time, display);
+            case pvDouble:
+                return dbrType == DBR_Float.TYPE.getValue()
+                    ? ValueFactory.newVFloatArray(toFloats(source), alarm, time, display)
+                    : ValueFactory.newVDoubleArray((ListDouble) source, alarm, time, display);
+            case pvFloat:
+                return ValueFactory.newVFloatArray((ListFloat) source, alarm, time, display);
+            default:
+                throw new IllegalArgumentException("Cannot transform the " + val + " to vtype.");
+        }
+    }
+
+    /**
+     * Exposes the data of the numeric array as a list of numbers of the same type. The list is backed by the array
+     * data, which is not copied, unless the array holds more data than its length (e.g. the capacity of the array is
+     * larger than its length).
+     *
+     * @param val the array
+     * @param type the type of the array elements
+     * @return the list backed by the array data
+     */
+    private static ListNumber toListNumber(PVScalarArray val, ScalarType type) {
+        int length = val.getLength();
         switch (type) {
-            case pvBoolean:
-                BooleanArrayData booval = new BooleanArrayData();
-                ((PVBooleanArray) val).get(0, val.getLength(), booval);
-                return ValueFactory.newVBooleanArray(new ArrayBoolean(booval.data), alarm, time);
             case pvByte:
                 ByteArrayData bval = new ByteArrayData();
-                ((PVByteArray) val).get(0, val.getLength(), bval);
-                return ValueFactory.newVNumberArray(new ArrayByte(bval.data), alarm, time, display);
+                ((PVByteArray) val).get(0, length, bval);
+                return new ArrayByte(exactLength(bval.data, bval.offset, length), true);
             case pvUByte:
                 ByteArrayData buval = new ByteArrayData();
-                ((PVUByteArray) val).get(0, val.getLength(), buval);
-                return ValueFactory.newVNumberArray(new ArrayByte(buval.data), alarm, time, display);
+                ((PVUByteArray) val).get(0, length, buval);
+                return new ArrayByte(exactLength(buval.data, buval.offset, length), true);
             case pvShort:
                 ShortArrayData shval = new ShortArrayData();
-                ((PVShortArray) val).get(0, val.getLength(), shval);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[shval.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)shval.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVShortArray(new ArrayShort(shval.data), alarm, time, display);
-                }
+                ((PVShortArray) val).get(0, length, shval);
+                return new ArrayShort(exactLength(shval.data, shval.offset, length), true);
             case pvUShort:
                 ShortArrayData shuval = new ShortArrayData();
-                ((PVUShortArray) val).get(0, val.getLength(), shuval);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[shuval.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)shuval.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVShortArray(new ArrayShort(shuval.data), alarm, time, display);
-                }
+                ((PVUShortArray) val).get(0, length, shuval);
+                return new ArrayShort(exactLength(shuval.data, shuval.offset, length), true);
             case pvInt:
                 IntArrayData ival = new IntArrayData();
-                ((PVIntArray) val).get(0, val.getLength(), ival);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[ival.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)ival.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else if (dbrType == DBR_Short.TYPE.getValue()) {
-                    short[] svalue = new short[ival.data.length];
-                    for (int i = 0; i < svalue.length; i++) {
-                        svalue[i] = (short)ival.data[i];
-                    }
-                    return ValueFactory.newVShortArray(new ArrayShort(svalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVIntArray(new ArrayInt(ival.data), alarm, time, display);
-                }
+                ((PVIntArray) val).get(0, length, ival);
+                return new ArrayInt(exactLength(ival.data, ival.offset, length), true);
             case pvUInt:
                 IntArrayData iuval = new IntArrayData();
-                ((PVUIntArray) val).get(0, val.getLength(), iuval);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[iuval.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)iuval.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else if (dbrType == DBR_Short.TYPE.getValue()) {
-                    short[] svalue = new short[iuval.data.length];
-                    for (int i = 0; i < svalue.length; i++) {
-                        svalue[i] = (short)iuval.data[i];
-                    }
-                    return ValueFactory.newVShortArray(new ArrayShort(svalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVIntArray(new ArrayInt(iuval.data), alarm, time, display);
-                }
+                ((PVUIntArray) val).get(0, length, iuval);
+                return new ArrayInt(exactLength(iuval.data, iuval.offset, length), true);
             case pvLong:
                 LongArrayData lval = new LongArrayData();
-                ((PVLongArray) val).get(0, val.getLength(), lval);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[lval.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)lval.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else if (dbrType == DBR_Short.TYPE.getValue()) {
-                    short[] svalue = new short[lval.data.length];
-                    for (int i = 0; i < svalue.length; i++) {
-                        svalue[i] = (short)lval.data[i];
-                    }
-                    return ValueFactory.newVShortArray(new ArrayShort(svalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVLongArray(new ArrayLong(lval.data), alarm, time, display);
-                }
+                ((PVLongArray) val).get(0, length, lval);
+                return new ArrayLong(exactLength(lval.data, lval.offset, length), true);
             case pvULong:
                 LongArrayData luval = new LongArrayData();
-                ((PVULongArray) val).get(0, val.getLength(), luval);
-                if (dbrType == DBR_Byte.TYPE.getValue()) {
-                    byte[] bvalue = new byte[luval.data.length];
-                    for (int i = 0; i < bvalue.length; i++) {
-                        bvalue[i] = (byte)luval.data[i];
-                    }
-                    return ValueFactory.newVNumberArray(new ArrayByte(bvalue), alarm, time, display);
-                } else if (dbrType == DBR_Short.TYPE.getValue()) {
-                    short[] svalue = new short[luval.data.length];
-                    for (int i = 0; i < svalue.length; i++) {
-                        svalue[i] = (short)luval.data[i];
-                    }
-                    return ValueFactory.newVShortArray(new ArrayShort(svalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVLongArray(new ArrayLong(luval.data), alarm, time, display);
-                }
+                ((PVULongArray) val).get(0, length, luval);
+                return new ArrayLong(exactLength(luval.data, luval.offset, length), true);
             case pvDouble:
                 DoubleArrayData dval = new DoubleArrayData();
-                ((PVDoubleArray) val).get(0, val.getLength(), dval);
-                if (dbrType == DBR_Float.TYPE.getValue()) {
-                    float[] fvalue = new float[dval.data.length];
-                    for (int i = 0; i < fvalue.length; i++) {
-                        fvalue[i] = (float)dval.data[i];
-                    }
-                    return ValueFactory.newVFloatArray(new ArrayFloat(fvalue), alarm, time, display);
-                } else {
-                    return ValueFactory.newVDoubleArray(new ArrayDouble(dval.data), alarm, time, display);
-                }
+                ((PVDoubleArray) val).get(0, length, dval);
+                return new ArrayDouble(exactLength(dval.data, dval.offset, length), true);
             case pvFloat:
                 FloatArrayData fval = new FloatArrayData();
-                ((PVFloatArray) val).get(0, val.getLength(), fval);
-                return ValueFactory.newVFloatArray(new ArrayFloat(fval.data), alarm, time, display);
-            case pvString:
-                StringArrayData sval = new StringArrayData();
-                ((PVStringArray) val).get(0, val.getLength(), sval);
-                return ValueFactory.newVStringArray(Arrays.asList(sval.data), alarm, time);
+                ((PVFloatArray) val).get(0, length, fval);
+                return new ArrayFloat(exactLength(fval.data, fval.offset, length), true);
+            default:
+                throw new IllegalArgumentException("Cannot transform the " + val + " to a list of numbers.");
         }
-        throw new IllegalArgumentException("Cannot transform the " + val + " to vtype.");
+    }
+
+    /**
+     * Returns the given array if it contains exactly the requested data, or a copy of the requested part otherwise.
+     *
+     * @param data the array data (a primitive or object array)
+     * @param offset the offset of the first element in the array
+     * @param length the number of elements
+     * @return the array of the requested length
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T exactLength(T data, int offset, int length) {
+        if (offset == 0 && Array.getLength(data) == length) {
+            return data;
+        }
+        T copy = (T) Array.newInstance(data.getClass().getComponentType(), length);
+        System.arraycopy(data, offset, copy, 0, length);
+        return copy;
+    }
+
+    private static ListByte toBytes(ListNumber source) {
+        int length = source.size();
+        if (length <= LazyArrays.EAGER_LIMIT) {
+            byte[] array = new byte[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = source.getByte(i);
+            }
+            return new ArrayByte(array);
+        }
+        return LazyArrays.bytes(length, (array, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = source.getByte(i);
+            }
+        });
+    }
+
+    private static ListShort toShorts(ListNumber source) {
+        int length = source.size();
+        if (length <= LazyArrays.EAGER_LIMIT) {
+            short[] array = new short[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = source.getShort(i);
+            }
+            return new ArrayShort(array);
+        }
+        return LazyArrays.shorts(length, (array, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = source.getShort(i);
+            }
+        });
+    }
+
+    private static ListFloat toFloats(ListNumber source) {
+        int length = source.size();
+        if (length <= LazyArrays.EAGER_LIMIT) {
+            float[] array = new float[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = source.getFloat(i);
+            }
+            return new ArrayFloat(array);
+        }
+        return LazyArrays.floats(length, (array, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = source.getFloat(i);
+            }
+        });
     }
 
     /**
@@ -53,6 +53,8 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
         Composite parent = getFieldEditorParent();
         addField(new ServicesFieldEditor(parent));
         addField(new IntegerFieldEditor(Activator.PREF_TIMEOUT, "Request Timeout in Seconds (0 = forever)", parent));
+        addField(new IntegerFieldEditor(Activator.PREF_MAX_CONCURRENT_REQUESTS, "Maximum Concurrent Requests",
+            parent));
     }
 
 }
@@ -10,19 +10,22 @@
  */
 package org.csstudio.saverestore.masar;
 
-import org.epics.pvaccess.client.ChannelRPCRequester;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import org.epics.pvdata.pv.PVStructure;
 
 /**
  *
- * <code>RPCRequester</code> is a channel roc requester, which provides the methods required by the masar client when
- * communicating to the service. These include waiting for connection to be established, making a request, and
- * destroying the connection.
+ * <code>RPCRequester</code> provides the methods required by the masar client when communicating to the service. These
+ * include waiting for connection to be established, making a request, and destroying the connection. The requests
+ * are sent asynchronously and the response to each request is delivered through the future returned for that
+ * request.
  *
  * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
  *
  */
-public interface RPCRequester extends ChannelRPCRequester {
+public interface RPCRequester {
 
     /**
      * Blocks until connected. The implementor might choose to block only for a specific amount of time and if waiting
@@ -34,16 +37,35 @@ public interface RPCRequester extends ChannelRPCRequester {
     boolean waitUntilConnected() throws InterruptedException;
 
     /**
-     * Makes a request to the service and returns the response the service sent to the given request. Implementation can
-     * be done in a way to wait for the response for a given amount of time and if waiting is interrupted an
-     * {@link InterruptedException} may be thrown.
+     * Makes a request to the service and returns the response the service sent to the given request. The method blocks
+     * until the future returned by {@link #requestAsync(PVStructure)} is completed.
      *
      * @param requestData the request input data
      * @return the response from the server
      * @throws InterruptedException if the waiting was terminated abruptly
      * @throws MasarException in case of an error
      */
-    PVStructure request(PVStructure requestData) throws InterruptedException, MasarException;
+    default PVStructure request(PVStructure requestData) throws InterruptedException, MasarException {
+        try {
+            return requestAsync(requestData).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MasarException) {
+                throw (MasarException) e.getCause();
+            }
+            throw new MasarException(e.getCause());
+        }
+    }
+
+    /**
+     * Sends a request to the service without waiting for the response. The returned future is completed with the
+     * response the service sent to this particular request, or with null if the request was lost (e.g. because the
+     * channel was reconnected or destroyed). If the request could not be sent or no response arrived within the
+     * timeout, the future is completed exceptionally with a {@link MasarException}.
+     *
+     * @param requestData the request input data
+     * @return the future that receives the response from the server
+     */
+    CompletableFuture<PVStructure> requestAsync(PVStructure requestData);
 
     /**
      * Destroys this channel requester.
@@ -0,0 +1,240 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.masar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ *
+ * <code>RPCRequesterPool</code> multiplexes the requests to a single service over a fixed number of requesters (e.g.
+ * one channel rpc each on the same channel). Every requester handles one request at a time, so the response that it
+ * receives always belongs to the request that it sent. Up to the size of the pool requests are in flight at the same
+ * time; the remaining requests wait in order until one of the requesters is free.
+ * <p>
+ * A requester that failed (e.g. the request timed out) is destroyed and replaced by a new one, because a late response
+ * to the failed request could otherwise be taken as the response to the next request.
+ */
+final class RPCRequesterPool implements RPCRequester {
+
+    /**
+     * <code>Request</code> is a request waiting for a free requester, together with the future of its response.
+     */
+    private static final class Request {
+        private final PVStructure data;
+        private final CompletableFuture<PVStructure> response = new CompletableFuture<>();
+
+        Request(PVStructure data) {
+            this.data = data;
+        }
+    }
+
+    private final String service;
+    private final Supplier<RPCRequester> factory;
+    private final Runnable destroyer;
+    private final List<RPCRequester> requesters;
+    private final Deque<RPCRequester> idle;
+    private final Deque<Request> waiting = new ArrayDeque<>();
+    private boolean destroyed;
+
+    /**
+     * Constructs a new pool and creates all requesters.
+     *
+     * @param service the name of the service (for error messages)
+     * @param size the maximum number of requests in flight
+     * @param factory the factory that creates a new requester
+     * @param destroyer the action executed when the pool is destroyed (e.g. destroys the shared channel)
+     */
+    RPCRequesterPool(String service, int size, Supplier<RPCRequester> factory, Runnable destroyer) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool should have at least one requester: " + size);
+        }
+        this.service = service;
+        this.factory = factory;
+        this.destroyer = destroyer;
+        this.requesters = new ArrayList<>(size);
+        this.idle = new ArrayDeque<>(size);
+        for (int i = 0; i < size; i++) {
+            RPCRequester requester = factory.get();
+            requesters.add(requester);
+            idle.add(requester);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.masar.RPCRequester#waitUntilConnected()
+     */
+    @Override
+    public boolean waitUntilConnected() throws InterruptedException {
+        RPCRequester requester;
+        synchronized (this) {
+            if (destroyed) {
+                return false;
+            }
+            // all requesters share the connection to the service, so it is enough to wait for one
+            requester = requesters.get(0);
+        }
+        return requester.waitUntilConnected();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.masar.RPCRequester#requestAsync(org.epics.pvdata.pv.PVStructure)
+     */
+    @Override
+    public CompletableFuture<PVStructure> requestAsync(PVStructure requestData) {
+        Request request = new Request(requestData);
+        RPCRequester requester;
+        synchronized (this) {
+            if (destroyed) {
+                request.response.complete(null);
+                return request.response;
+            }
+            requester = takeIdle();
+            if (requester == null) {
+                waiting.add(request);
+                return request.response;
+            }
+        }
+        send(requester, request);
+        return request.response;
+    }
+
+    /**
+     * Takes an idle requester from the pool. Connected requesters are preferred to the ones that are still connecting.
+     *
+     * @return the requester or null if all requesters are busy
+     */
+    private RPCRequester takeIdle() {
+        for (Iterator<RPCRequester> it = idle.iterator(); it.hasNext();) {
+            RPCRequester requester = it.next();
+            if (requester.isConnected()) {
+                it.remove();
+                return requester;
+            }
+        }
+        return idle.poll();
+    }
+
+    /**
+     * Sends the request using the given requester. When the response arrives, the requester is returned to the pool
+     * and the response is forwarded to the future of the request.
+     *
+     * @param requester the requester that sends the request
+     * @param request the request to send
+     */
+    private void send(RPCRequester requester, Request request) {
+        requester.requestAsync(request.data).whenComplete((result, error) -> {
+            release(requester, error == null);
+            if (error == null) {
+                request.response.complete(result);
+            } else {
+                request.response.completeExceptionally(
+                    error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * Returns the requester to the pool or replaces it with a new one if it failed, and sends the next waiting
+     * request if there is one.
+     *
+     * @param requester the requester that completed a request
+     * @param healthy true if the request completed normally or false if it failed
+     */
+    private void release(RPCRequester requester, boolean healthy) {
+        RPCRequester next = requester;
+        Request request;
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            if (!healthy) {
+                requesters.remove(requester);
+                next = factory.get();
+                requesters.add(next);
+            }
+            request = waiting.poll();
+            if (request == null) {
+                idle.add(next);
+            }
+        }
+        if (!healthy) {
+            requester.destroy();
+        }
+        if (request != null) {
+            send(next, request);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.masar.RPCRequester#destroy()
+     */
+    @Override
+    public void destroy() {
+        List<RPCRequester> toDestroy;
+        List<Request> lost;
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
+            toDestroy = new ArrayList<>(requesters);
+            lost = new ArrayList<>(waiting);
+            requesters.clear();
+            idle.clear();
+            waiting.clear();
+        }
+        toDestroy.forEach(RPCRequester::destroy);
+        if (destroyer != null) {
+            destroyer.run();
+        }
+        lost.forEach(r -> r.response.complete(null));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.masar.RPCRequester#isConnected()
+     */
+    @Override
+    public synchronized boolean isConnected() {
+        for (RPCRequester requester : requesters) {
+            if (requester.isConnected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "RPCRequesterPool [" + service + "]";
+    }
+}
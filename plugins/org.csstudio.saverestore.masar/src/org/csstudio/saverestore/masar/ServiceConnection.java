@@ -0,0 +1,183 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.masar;
+
+import java.time.Instant;
+
+/**
+ *
+ * <code>ServiceConnection</code> is the connection to a single MASAR service, which is kept open while the service is
+ * configured, regardless of whether the service is selected or not. Besides the requester used to communicate with
+ * the service, it provides the state of the connection and the statistics of connects and reconnects.
+ * <p>
+ * The connection is modified only by {@link ServiceConnections}; the state can be read from any thread.
+ */
+public final class ServiceConnection {
+
+    private final String service;
+    private volatile RPCRequester requester;
+    private volatile boolean connected;
+    private volatile Instant lastStateChange;
+    private volatile long connectCount;
+    private volatile long disconnectCount;
+    private volatile long reconnectCount;
+    private volatile long backoff;
+    private volatile long nextAttempt;
+
+    /**
+     * Constructs a new connection.
+     *
+     * @param service the name of the service
+     * @param requester the requester connected to the service
+     * @param now the current time in milliseconds
+     * @param backoff the initial delay in milliseconds before the connection is recreated if it does not connect
+     */
+    ServiceConnection(String service, RPCRequester requester, long now, long backoff) {
+        this.service = service;
+        this.requester = requester;
+        this.lastStateChange = Instant.ofEpochMilli(now);
+        this.backoff = backoff;
+        this.nextAttempt = now + backoff;
+    }
+
+    /**
+     * Returns the name of the service.
+     *
+     * @return the service name
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Returns true if the connection was established at the last health check or false otherwise.
+     *
+     * @return true if connected or false otherwise
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns the time when the connection was last established or lost. If the state never changed, this is the time
+     * when the connection was created.
+     *
+     * @return the time of the last change of the connection state
+     */
+    public Instant getLastStateChange() {
+        return lastStateChange;
+    }
+
+    /**
+     * Returns the number of times the connection was established.
+     *
+     * @return the number of connects
+     */
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    /**
+     * Returns the number of times the established connection was lost.
+     *
+     * @return the number of disconnects
+     */
+    public long getDisconnectCount() {
+        return disconnectCount;
+    }
+
+    /**
+     * Returns the number of times the channel was destroyed and created again.
+     *
+     * @return the number of reconnects
+     */
+    public long getReconnectCount() {
+        return reconnectCount;
+    }
+
+    /**
+     * Returns the time when the connection is going to be recreated if it is not established until then. The value is
+     * only relevant while the connection is not established.
+     *
+     * @return the time of the next reconnect attempt
+     */
+    public Instant getNextAttempt() {
+        return Instant.ofEpochMilli(nextAttempt);
+    }
+
+    RPCRequester getRequester() {
+        return requester;
+    }
+
+    /**
+     * Updates the state of the connection. If the state changed, the statistics are updated and when the connection
+     * is established, the reconnect delay is reset.
+     *
+     * @param now the current time in milliseconds
+     * @param initialBackoff the initial reconnect delay in milliseconds
+     * @return true if the state changed or false otherwise
+     */
+    boolean update(long now, long initialBackoff) {
+        boolean isConnected = requester.isConnected();
+        if (isConnected == connected) {
+            return false;
+        }
+        connected = isConnected;
+        lastStateChange = Instant.ofEpochMilli(now);
+        if (isConnected) {
+            connectCount++;
+            backoff = initialBackoff;
+        } else {
+            disconnectCount++;
+            nextAttempt = now + backoff;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the connection is not established and the reconnect delay has elapsed.
+     *
+     * @param now the current time in milliseconds
+     * @return true if the connection should be recreated
+     */
+    boolean isReconnectDue(long now) {
+        return !connected && now >= nextAttempt;
+    }
+
+    /**
+     * Replaces the requester with a new one and doubles the delay until the next attempt (up to the given maximum).
+     *
+     * @param newRequester the new requester
+     * @param now the current time in milliseconds
+     * @param maxBackoff the maximum reconnect delay in milliseconds
+     * @return the replaced requester
+     */
+    RPCRequester replace(RPCRequester newRequester, long now, long maxBackoff) {
+        RPCRequester old = requester;
+        requester = newRequester;
+        reconnectCount++;
+        backoff = Math.min(backoff << 1, maxBackoff);
+        nextAttempt = now + backoff;
+        return old;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ServiceConnection[" + service + ", connected=" + connected + ", since=" + lastStateChange
+            + ", connects=" + connectCount + ", disconnects=" + disconnectCount + ", reconnects=" + reconnectCount
+            + "]";
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.masar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+import org.csstudio.saverestore.SaveRestoreService;
+
+/**
+ *
+ * <code>ServiceConnections</code> keeps the connections to all configured MASAR services open, so that switching
+ * between the services does not require a new connection to be established. The connections are periodically
+ * checked and the ones that are not established are recreated, with the delay between the attempts doubled after
+ * each attempt (up to a maximum) and reset when the connection is established.
+ */
+final class ServiceConnections {
+
+    /**
+     * <code>Connector</code> creates a new requester for the given service. The requester should not wait for the
+     * connection to be established.
+     */
+    @FunctionalInterface
+    interface Connector {
+
+        /**
+         * Creates a requester connecting to the service.
+         *
+         * @param service the name of the service
+         * @param reconnect true if the requester replaces an existing one or false if this is the first connection
+         * @return the requester
+         * @throws MasarException if the requester could not be created
+         */
+        RPCRequester connect(String service, boolean reconnect) throws MasarException;
+    }
+
+    /** The period of the health check in milliseconds */
+    static final long HEALTH_CHECK_PERIOD = 5000;
+    /** The initial delay before a connection that is not established is recreated in milliseconds */
+    static final long MIN_BACKOFF = 5000;
+    /** The maximum delay before a connection that is not established is recreated in milliseconds */
+    static final long MAX_BACKOFF = 300000;
+
+    private final Connector connector;
+    private final LongSupplier clock;
+    private final Map<String, ServiceConnection> connections = new LinkedHashMap<>();
+    private ScheduledFuture<?> healthCheck;
+
+    /**
+     * Constructs a new set of connections, which uses the system clock.
+     *
+     * @param connector the connector that creates the requesters
+     */
+    ServiceConnections(Connector connector) {
+        this(connector, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a new set of connections.
+     *
+     * @param connector the connector that creates the requesters
+     * @param clock the source of the current time in milliseconds
+     */
+    ServiceConnections(Connector connector, LongSupplier clock) {
+        this.connector = connector;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the periodic health check using the given executor.
+     *
+     * @param executor the executor that runs the health check
+     */
+    synchronized void start(ScheduledExecutorService executor) {
+        if (healthCheck == null) {
+            healthCheck = executor.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_PERIOD, HEALTH_CHECK_PERIOD,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens the connections to the services that are not connected yet and closes the connections to the services
+     * which are not in the list. The new connections are created in the background; this method does not wait for
+     * them to be established.
+     *
+     * @param services the names of the services
+     */
+    synchronized void setServices(String[] services) {
+        List<String> names = Arrays.asList(services);
+        for (Iterator<ServiceConnection> it = connections.values().iterator(); it.hasNext();) {
+            ServiceConnection connection = it.next();
+            if (!names.contains(connection.getService())) {
+                it.remove();
+                connection.getRequester().destroy();
+            }
+        }
+        for (String service : services) {
+            if (!connections.containsKey(service)) {
+                try {
+                    open(service);
+                } catch (MasarException e) {
+                    SaveRestoreService.LOGGER.log(Level.WARNING, "Could not connect to MASAR service " + service + ".",
+                        e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the connection to the given service. If there is no connection to this service, a new one is opened.
+     *
+     * @param service the name of the service
+     * @return the connection
+     * @throws MasarException if the connection could not be opened
+     */
+    synchronized ServiceConnection get(String service) throws MasarException {
+        ServiceConnection connection = connections.get(service);
+        return connection == null ? open(service) : connection;
+    }
+
+    private ServiceConnection open(String service) throws MasarException {
+        ServiceConnection connection = new ServiceConnection(service, connector.connect(service, false),
+            clock.getAsLong(), MIN_BACKOFF);
+        connections.put(service, connection);
+        return connection;
+    }
+
+    /**
+     * Closes the connection to the given service.
+     *
+     * @param service the name of the service
+     */
+    synchronized void remove(String service) {
+        ServiceConnection connection = connections.remove(service);
+        if (connection != null) {
+            connection.getRequester().destroy();
+        }
+    }
+
+    /**
+     * Recreates the connection to the given service, if the failed requester is still the requester of that
+     * connection. If the requester was already replaced, the current requester is returned.
+     *
+     * @param service the name of the service
+     * @param failed the requester that failed
+     * @return the requester for the service
+     * @throws MasarException if the connection could not be recreated
+     */
+    synchronized RPCRequester reconnect(String service, RPCRequester failed) throws MasarException {
+        ServiceConnection connection = get(service);
+        if (connection.getRequester() == failed) {
+            reconnect(connection);
+        }
+        return connection.getRequester();
+    }
+
+    private void reconnect(ServiceConnection connection) throws MasarException {
+        RPCRequester old = connection.replace(connector.connect(connection.getService(), true), clock.getAsLong(),
+            MAX_BACKOFF);
+        old.destroy();
+    }
+
+    /**
+     * Updates the state of all connections and recreates those that are not established and are due for another
+     * attempt.
+     */
+    synchronized void checkHealth() {
+        long now = clock.getAsLong();
+        for (ServiceConnection connection : connections.values()) {
+            if (connection.update(now, MIN_BACKOFF)) {
+                SaveRestoreService.LOGGER.log(Level.INFO, "Connection to MASAR service {0} {1}.", new Object[] {
+                    connection.getService(), connection.isConnected() ? "established" : "lost" });
+            }
+            if (connection.isReconnectDue(now)) {
+                try {
+                    reconnect(connection);
+                } catch (MasarException | RuntimeException e) {
+                    SaveRestoreService.LOGGER.log(Level.WARNING,
+                        "Could not reconnect to MASAR service " + connection.getService() + ".", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the connections to all services in the order in which they were opened.
+     *
+     * @return the list of connections
+     */
+    synchronized List<ServiceConnection> getConnections() {
+        return new ArrayList<>(connections.values());
+    }
+
+    /**
+     * Stops the health check and closes all connections.
+     */
+    synchronized void dispose() {
+        if (healthCheck != null) {
+            healthCheck.cancel(false);
+            healthCheck = null;
+        }
+        connections.values().forEach(c -> c.getRequester().destroy());
+        connections.clear();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.csstudio.saverestore.data.BaseLevel;
+import org.csstudio.saverestore.data.Branch;
+import org.csstudio.saverestore.data.SaveSet;
+import org.csstudio.saverestore.data.SaveSetData;
+import org.csstudio.saverestore.data.Snapshot;
+import org.csstudio.saverestore.data.VSnapshot;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/**
+ *
+ * <code>DataCacheTest</code> tests the {@link DataCache}: hits and misses, copying of the cached snapshots, weighted
+ * eviction and invalidation.
+ */
+public class DataCacheTest {
+
+    private static final String PROVIDER = "provider";
+    private static final Alarm ALARM = ValueFactory.alarmNone();
+    private static final Time TIME = ValueFactory.timeNow();
+    private static final Display DISPLAY = ValueFactory.displayNone();
+
+    private SaveSet saveSet = new SaveSet(new Branch(), Optional.of(new BaseLevel(new Branch(), "base", "base")),
+        new String[] { "first", "set.bms" }, PROVIDER);
+    private SaveSet otherSet = new SaveSet(new Branch(), Optional.of(new BaseLevel(new Branch(), "base", "base")),
+        new String[] { "first", "other.bms" }, PROVIDER);
+
+    private VSnapshot createSnapshot(SaveSet set, String comment, int arrayLength) {
+        Snapshot snapshot = new Snapshot(set, Instant.now(), comment, "owner");
+        return new VSnapshot(snapshot, Arrays.asList("pv1", "pv2"),
+            Arrays.asList(ValueFactory.newVDouble(1d, ALARM, TIME, DISPLAY),
+                ValueFactory.newVDoubleArray(new ArrayDouble(new double[arrayLength]), ALARM, TIME, DISPLAY)),
+            Instant.now(), null);
+    }
+
+    /**
+     * Tests that the cached snapshots are copies and that hits and misses are counted.
+     */
+    @Test
+    public void testSnapshots() {
+        DataCache cache = new DataCache(1000);
+        VSnapshot data = createSnapshot(saveSet, "comment", 10);
+        Snapshot descriptor = data.getSnapshot().get();
+        assertFalse(cache.getSnapshot(PROVIDER, "rev1", descriptor).isPresent());
+        assertEquals(1, cache.getMissCount());
+
+        cache.putSnapshot(PROVIDER, "rev1", data);
+        assertEquals(11, cache.getWeight());
+        // content of the original snapshot can change, but the cache should not be affected
+        data.removePV("pv1");
+        Optional<VSnapshot> cached = cache.getSnapshot(PROVIDER, "rev1", descriptor);
+        assertTrue(cached.isPresent());
+        assertEquals(1, cache.getHitCount());
+        assertNotSame(data, cached.get());
+        assertEquals(Arrays.asList("pv1", "pv2"), cached.get().getNames());
+        assertEquals(descriptor, cached.get().getSnapshot().get());
+
+        // the descriptor of the request should be used in the result
+        Snapshot tagged = new Snapshot(saveSet, descriptor.getDate(), "comment", "owner", "tag", "message");
+        cached = cache.getSnapshot(PROVIDER, "rev1", tagged);
+        assertEquals(tagged, cached.get().getSnapshot().get());
+        assertEquals(Optional.of("tag"), cached.get().getSnapshot().get().getTagName());
+
+        assertFalse(cache.getSnapshot(PROVIDER, "rev2", descriptor).isPresent());
+        assertFalse(cache.getSnapshot("otherProvider", "rev1", descriptor).isPresent());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    /**
+     * Tests that the least recently used items are evicted when the weight is exceeded.
+     */
+    @Test
+    public void testEviction() {
+        DataCache cache = new DataCache(100);
+        VSnapshot s1 = createSnapshot(saveSet, "s1", 39);
+        VSnapshot s2 = createSnapshot(saveSet, "s2", 39);
+        VSnapshot s3 = createSnapshot(saveSet, "s3", 39);
+        cache.putSnapshot(PROVIDER, "rev1", s1);
+        cache.putSnapshot(PROVIDER, "rev2", s2);
+        assertEquals(80, cache.getWeight());
+        // touch the first one, so that the second one is evicted
+        assertTrue(cache.getSnapshot(PROVIDER, "rev1", s1.getSnapshot().get()).isPresent());
+        cache.putSnapshot(PROVIDER, "rev3", s3);
+        assertEquals(2, cache.getSize());
+        assertEquals(80, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getSnapshot(PROVIDER, "rev1", s1.getSnapshot().get()).isPresent());
+        assertFalse(cache.getSnapshot(PROVIDER, "rev2", s2.getSnapshot().get()).isPresent());
+        assertTrue(cache.getSnapshot(PROVIDER, "rev3", s3.getSnapshot().get()).isPresent());
+
+        // an item larger than the cache is never cached
+        cache.putSnapshot(PROVIDER, "rev4", createSnapshot(saveSet, "s4", 200));
+        assertEquals(2, cache.getSize());
+
+        cache.setMaxWeight(50);
+        assertEquals(1, cache.getSize());
+        assertEquals(40, cache.getWeight());
+
+        cache.setMaxWeight(0);
+        assertEquals(0, cache.getSize());
+        cache.putSnapshot(PROVIDER, "rev1", s1);
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Tests invalidation of save sets and snapshots.
+     */
+    @Test
+    public void testInvalidation() {
+        DataCache cache = new DataCache(1000);
+        VSnapshot s1 = createSnapshot(saveSet, "s1", 1);
+        VSnapshot s2 = createSnapshot(otherSet, "s2", 1);
+        SaveSetData data = new SaveSetData(saveSet, Arrays.asList("pv1", "pv2"), null, null, "description");
+        SaveSetData otherData = new SaveSetData(otherSet, Arrays.asList("pv1"), null, null, "description");
+        cache.putSnapshot(PROVIDER, "rev1", s1);
+        cache.putSnapshot(PROVIDER, "rev2", s2);
+        cache.putSaveSetData(PROVIDER, data);
+        cache.putSaveSetData(PROVIDER, otherData);
+        assertEquals(4, cache.getSize());
+        assertEquals(data, cache.getSaveSetData(PROVIDER, saveSet).get());
+
+        cache.invalidateSaveSets(PROVIDER);
+        assertEquals(2, cache.getSize());
+        assertFalse(cache.getSaveSetData(PROVIDER, saveSet).isPresent());
+        assertTrue(cache.getSnapshot(PROVIDER, "rev1", s1.getSnapshot().get()).isPresent());
+
+        cache.putSaveSetData(PROVIDER, otherData);
+        cache.invalidate(PROVIDER, otherSet);
+        assertEquals(1, cache.getSize());
+        assertFalse(cache.getSnapshot(PROVIDER, "rev2", s2.getSnapshot().get()).isPresent());
+        assertTrue(cache.getSnapshot(PROVIDER, "rev1", s1.getSnapshot().get()).isPresent());
+
+        cache.invalidate("otherProvider");
+        assertEquals(1, cache.getSize());
+        cache.invalidate(PROVIDER);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getWeight());
+    }
+}
@@ -10,15 +10,20 @@
  */
 package org.csstudio.saverestore;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import org.csstudio.saverestore.data.BaseLevel;
@@ -189,6 +194,50 @@ public class EntitiesTest {
         }
     }
 
+    /**
+     * Tests the lookup of pvs in the {@link VSnapshot} after pvs have been added and removed.
+     */
+    @Test
+    public void testVSnapshotIndex() {
+        SaveSet set = new SaveSet(new Branch(), Optional.empty(), new String[] { "first" }, "someId");
+        List<String> names = new ArrayList<>();
+        List<String> deltas = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            names.add("pv" + i);
+            deltas.add(i % 2 == 0 ? "" : String.valueOf(i));
+        }
+        VSnapshot vs = new VSnapshot(set, names, names, deltas);
+        assertEquals(42, vs.indexOf("pv42"));
+        assertEquals(-1, vs.indexOf("pv100"));
+        assertEquals("13", vs.getDelta("pv13"));
+        assertNull(vs.getThreshold("pv12"));
+        assertArrayEquals(new int[] { 99, -1, 0 }, vs.indexesOf(Arrays.asList("pv99", "foo", "pv0")));
+        assertEquals(Arrays.asList("3", null, ""), vs.getDeltas(Arrays.asList("pv3", "foo", "pv4")));
+        assertNull(vs.getThresholds(Arrays.asList("pv3", "pv4")).get(1));
+
+        for (int i = 0; i < 100; i += 3) {
+            assertTrue(vs.removePV("pv" + i));
+        }
+        assertFalse(vs.removePV("pv3"));
+        assertTrue(vs.addOrSetPV("pv3", true, VDisconnectedData.INSTANCE));
+        assertFalse(vs.addOrSetPV("pv5", true, VDisconnectedData.INSTANCE));
+        assertTrue(vs.addOrSetPV("pv100", true, VDisconnectedData.INSTANCE));
+        List<String> current = vs.getNames();
+        for (int i = 0; i < current.size(); i++) {
+            assertEquals(i, vs.indexOf(current.get(i)));
+            assertEquals(vs.getDeltas().get(i), vs.getDelta(current.get(i)));
+        }
+        assertEquals(current.size() - 1, vs.indexOf("pv100"));
+        assertEquals(-1, vs.indexOf("pv6"));
+
+        vs = new VSnapshot(set, Arrays.asList("a", "b", "a", "c"), Collections.emptyList(), Collections.emptyList());
+        assertEquals(0, vs.indexOf("a"));
+        assertNull(vs.getDelta("a"));
+        assertTrue(vs.removePV("a"));
+        assertEquals(1, vs.indexOf("a"));
+        assertEquals(2, vs.indexOf("c"));
+    }
+
     /**
      * Tests the {@link Threshold}.
      */
@@ -198,6 +247,15 @@ public class EntitiesTest {
         Threshold<Long> tr = new Threshold<>(50L, -50L);
         assertTrue(tr.isWithinThreshold(20L, 30L));
         assertFalse(tr.isWithinThreshold(20L, 80L));
+        assertTrue(tr.isWithinThreshold(Long.valueOf(20L), Long.valueOf(70L)));
+
+        Threshold<Double> trd = new Threshold<>(2.5d);
+        assertEquals(-2.5d, trd.getNegativeThreshold(), 0);
+        assertTrue(trd.isWithinThreshold(2.5d, 0d));
+        assertTrue(trd.isWithinThreshold(-2.5d, 0d));
+        assertFalse(trd.isWithinThreshold(-2.6d, 0d));
+        assertTrue(trd.isWithinThreshold(3L, 1L));
+        assertFalse(trd.isWithinThreshold(4L, 1L));
 
         Threshold tr2 = new Threshold<>("x * 2");
         assertTrue(tr2.isWithinThreshold(5, 3));
@@ -235,5 +293,25 @@ public class EntitiesTest {
         assertFalse(tr2.test());
         tr2 = new Threshold<>("foobar");
         assertFalse(tr2.test());
+
+        // functions and constants can be used with or without the Math prefix
+        Threshold<Double> trf = new Threshold<>("abs(x) * 0.1 + PI");
+        assertTrue(trf.test());
+        assertTrue(trf.isWithinThreshold(104d, 100d));
+        assertFalse(trf.isWithinThreshold(113.2d, 100d));
+        assertTrue(trf.isWithinThreshold(-113d, -100d));
+        trf = new Threshold<>("Math.max(2, x / 10, Math.sqrt(x))");
+        assertTrue(trf.isWithinThreshold(13.1d, 10d));
+        assertFalse(trf.isWithinThreshold(13.2d, 10d));
+        assertTrue(trf.isWithinThreshold(1009d, 1000d));
+        trf = new Threshold<>("value >= base ? value - base <= 2 : base - value < 1e-1");
+        assertTrue(trf.test());
+        assertTrue(trf.isWithinThreshold(12d, 10d));
+        assertFalse(trf.isWithinThreshold(9.8d, 10d));
+        assertTrue(trf.isWithinThreshold(9.95d, 10d));
+        assertTrue(new Threshold<>("!(value < base) && value != 5 || false").isWithinThreshold(6L, 3L));
+        assertFalse(new Threshold<>("(x + 2").test());
+        assertFalse(new Threshold<>("cos(x, 2)").test());
+        assertFalse(new Threshold<>("x * 2 + value").test());
     }
 }
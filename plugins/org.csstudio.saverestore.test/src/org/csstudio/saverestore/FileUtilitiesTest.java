@@ -12,31 +12,62 @@ package org.csstudio.saverestore;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import org.csstudio.saverestore.data.Branch;
+import org.csstudio.saverestore.data.LazyArrays;
 import org.csstudio.saverestore.data.SaveSet;
 import org.csstudio.saverestore.data.SaveSetData;
 import org.csstudio.saverestore.data.Snapshot;
+import org.csstudio.saverestore.data.VDisconnectedData;
 import org.csstudio.saverestore.data.VSnapshot;
 import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ListByte;
 import org.diirt.util.array.ListDouble;
+import org.diirt.util.array.ListInt;
 import org.diirt.vtype.Alarm;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
 import org.diirt.vtype.Time;
+import org.diirt.vtype.VBoolean;
+import org.diirt.vtype.VBooleanArray;
+import org.diirt.vtype.VByteArray;
 import org.diirt.vtype.VDouble;
 import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VEnumArray;
+import org.diirt.vtype.VFloat;
+import org.diirt.vtype.VFloatArray;
+import org.diirt.vtype.VInt;
+import org.diirt.vtype.VIntArray;
+import org.diirt.vtype.VLong;
+import org.diirt.vtype.VLongArray;
+import org.diirt.vtype.VShortArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
 import org.diirt.vtype.VType;
 import org.diirt.vtype.ValueFactory;
 import org.junit.Test;
@@ -171,4 +202,415 @@ public class FileUtilitiesTest {
             assertEquals(ld1.getDouble(i), ld2.getDouble(i), 0);
         }
     }
+
+    /**
+     * Test {@link FileUtilities#readFromSnapshot(java.io.InputStream)} with all supported value types, reordered and
+     * missing columns, quoted fields and malformed values.
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    @Test
+    public void testReadSnapshotContent() throws IOException, ParseException {
+        String content = "# Some comment\r\n# Date: 2016-02-12 18:08:29.369\r\n"
+            + "PV,SELECTED,TIMESTAMP,STATUS,SEVERITY,VALUE_TYPE,VALUE,READBACK,READBACK_VALUE,DELTA\r\n"
+            + "d,1,1455296909.369000000,HIGH,MINOR,double,\"-5.25\",rb,\"6.0\",\"Math.min(x,3)\"\r\n"
+            + "f,0,1455296909.5,NO_ALARM,NONE,float,\"1.1\",,,\n"
+            + "l,1,5.7,,,long,\"-123456789012\",,,\n"
+            + "i,1,5.7,,,int,\"42\",,,\n"
+            + "b,1,5.7,,,boolean,\"TRUE\",,,\n"
+            + "s, 1 , 5.7 ,,,string,\" some text \",,,\n"
+            + "e,1,5.7,,,enum,\"two~[one;two;three]\",,\"1~[one;two;three]\",\n"
+            + "e2,1,5.7,,,enum,\"4~[one;two]\",,,\n"
+            + "da,1,5.7,,,double_array,\"[1.0;;1.5E-3;NaN]\",,\"[2.0]\",\n"
+            + "fa,1,5.7,,,float_array,\"[1.0;2.5]\",,,\n"
+            + "la,1,5.7,,,long_array,\"[1;-2;3]\",,,\n"
+            + "sa,1,5.7,,,short_array,\"[1;2]\",,,\n"
+            + "ea,1,5.7,,,enum_array,\"[b;a]~[a;b]\",,,\n"
+            + "ta,1,5.7,,,string_array,\"[a;b c;]\",,,\n"
+            + "ba,1,5.7,,,boolean_array,\"[true;false]\",,,\n"
+            + "n,1,5.7,,,na,\"---\",,,\n"
+            + "x,1,5.7,,,double,\"abc\",,\"null\",\n"
+            + "y,foo,a.b,,,int,\"1\",,,\n"
+            + "\n"
+            + "z,1,9,,,long_array,\"[1;x]\"\n";
+        SnapshotContent sc = FileUtilities
+            .readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").parse("2016-02-12 18:08:29.369").toInstant(),
+            sc.getDate());
+        assertEquals(Arrays.asList("d", "f", "l", "i", "b", "s", "e", "e2", "da", "fa", "la", "sa", "ea", "ta", "ba",
+            "n", "x", "y", "z"), sc.getNames());
+        assertEquals(Arrays.asList(true, false, true, true, true, true, true, true, true, true, true, true, true, true,
+            true, true, true, true, true), sc.getSelected());
+        assertEquals("rb", sc.getReadbacks().get(0));
+        assertEquals("", sc.getReadbacks().get(1));
+        assertEquals("", sc.getReadbacks().get(18));
+        assertEquals("Math.min(x,3)", sc.getDeltas().get(0));
+        assertEquals("", sc.getDeltas().get(18));
+
+        List<VType> data = sc.getData();
+        VDouble d = (VDouble) data.get(0);
+        assertEquals(-5.25, d.getValue(), 0);
+        assertEquals(Instant.ofEpochSecond(1455296909L, 369000000), d.getTimestamp());
+        assertEquals(AlarmSeverity.MINOR, d.getAlarmSeverity());
+        assertEquals("HIGH", d.getAlarmName());
+        assertEquals(6d, ((VDouble) sc.getReadbackData().get(0)).getValue(), 0);
+        assertEquals(d.getTimestamp(), ((VDouble) sc.getReadbackData().get(0)).getTimestamp());
+        assertEquals("HIGH", ((VDouble) sc.getReadbackData().get(0)).getAlarmName());
+        VFloat f = (VFloat) data.get(1);
+        assertEquals(1.1f, f.getValue(), 0);
+        assertEquals(Instant.ofEpochSecond(1455296909L, 5), f.getTimestamp());
+        assertEquals(AlarmSeverity.NONE, f.getAlarmSeverity());
+        assertEquals(-123456789012L, ((VLong) data.get(2)).getValue().longValue());
+        assertEquals(Instant.ofEpochSecond(5, 7), ((VLong) data.get(2)).getTimestamp());
+        assertEquals(AlarmSeverity.NONE, ((VLong) data.get(2)).getAlarmSeverity());
+        assertEquals("", ((VLong) data.get(2)).getAlarmName());
+        assertEquals(42, ((VInt) data.get(3)).getValue().intValue());
+        assertTrue(((VBoolean) data.get(4)).getValue());
+        assertEquals("some text", ((VString) data.get(5)).getValue());
+        assertEquals(Instant.ofEpochSecond(5, 7), ((VString) data.get(5)).getTimestamp());
+        VEnum e = (VEnum) data.get(6);
+        assertEquals(1, e.getIndex());
+        assertEquals(Arrays.asList("one", "two", "three"), e.getLabels());
+        assertEquals(1, ((VEnum) sc.getReadbackData().get(6)).getIndex());
+        e = (VEnum) data.get(7);
+        assertEquals(4, e.getIndex());
+        assertEquals(Arrays.asList("one", "two", "2", "3", "4"), e.getLabels());
+        ListDouble da = ((VDoubleArray) data.get(8)).getData();
+        assertEquals(4, da.size());
+        assertEquals(1d, da.getDouble(0), 0);
+        assertEquals(0d, da.getDouble(1), 0);
+        assertEquals(1.5E-3, da.getDouble(2), 0);
+        assertTrue(Double.isNaN(da.getDouble(3)));
+        assertEquals(2d, ((VDoubleArray) sc.getReadbackData().get(8)).getData().getDouble(0), 0);
+        assertEquals(2.5f, ((VFloatArray) data.get(9)).getData().getFloat(1), 0);
+        assertEquals(-2L, ((VLongArray) data.get(10)).getData().getLong(1));
+        assertEquals(2, ((VShortArray) data.get(11)).getData().getShort(1));
+        VEnumArray ea = (VEnumArray) data.get(12);
+        assertEquals(Arrays.asList("b", "a"), ea.getData());
+        assertEquals(Arrays.asList("a", "b"), ea.getLabels());
+        assertEquals(Arrays.asList("a", "b c", ""), ((VStringArray) data.get(13)).getData());
+        VBooleanArray ba = (VBooleanArray) data.get(14);
+        assertTrue(ba.getData().getBoolean(0));
+        assertTrue(!ba.getData().getBoolean(1));
+        assertSame(VDisconnectedData.INSTANCE, data.get(15));
+        assertSame(VDisconnectedData.INSTANCE, data.get(16));
+        assertSame(VDisconnectedData.INSTANCE, sc.getReadbackData().get(16));
+        assertSame(VDisconnectedData.INSTANCE, data.get(17));
+        assertSame(VDisconnectedData.INSTANCE, data.get(18));
+        assertSame(VDisconnectedData.INSTANCE, sc.getReadbackData().get(1));
+        assertSame(VDisconnectedData.INSTANCE, sc.getReadbackData().get(18));
+
+        content = "PV,VALUE,VALUE_TYPE\npv1,\"1.0\",double\n";
+        try {
+            FileUtilities.readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            fail("Snapshot without date should not be parsed");
+        } catch (ParseException e1) {
+            // expected
+        }
+
+        content = "# Date: 2016-02-12 18:08:29.369\nvalue_type,value,pv\ndouble,\"1.0\",pv1\nint,\"3\",pv2\n";
+        sc = FileUtilities.readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList("pv1", "pv2"), sc.getNames());
+        assertEquals(Arrays.asList(true, true), sc.getSelected());
+        assertEquals(Arrays.asList("", ""), sc.getReadbacks());
+        assertEquals(Arrays.asList("", ""), sc.getDeltas());
+        assertEquals(1d, ((VDouble) sc.getData().get(0)).getValue(), 0);
+        assertEquals(Instant.ofEpochSecond(0), ((VDouble) sc.getData().get(0)).getTimestamp());
+        assertEquals(3, ((VInt) sc.getData().get(1)).getValue().intValue());
+        assertSame(VDisconnectedData.INSTANCE, sc.getReadbackData().get(0));
+
+        content = "# Date: 2016-02-12 18:08:29.369\nPV,VALUE\npv1,\"1.0\n";
+        try {
+            FileUtilities.readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+            fail("Snapshot with unbalanced quotes should not be parsed");
+        } catch (IOException e1) {
+            // expected
+        }
+    }
+
+    /**
+     * Test {@link FileUtilities#readFromSnapshot(java.io.InputStream)} with large arrays, which are decoded when the
+     * snapshot is read, because the decoded elements take less memory than the text.
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    @Test
+    public void testReadLargeArrays() throws IOException, ParseException {
+        double[] values = new double[100];
+        StringBuilder doubles = new StringBuilder(1000);
+        StringBuilder ints = new StringBuilder(1000);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 4d - 10;
+            doubles.append(values[i]).append(';');
+            ints.append(i - 50).append(';');
+        }
+        doubles.setLength(doubles.length() - 1);
+        ints.setLength(ints.length() - 1);
+        String content = "# Date: 2016-02-12 18:08:29.369\n"
+            + "PV,TIMESTAMP,STATUS,SEVERITY,VALUE_TYPE,VALUE\n"
+            + "da,5.7,HIGH,MINOR,double_array,\"[" + doubles + "]\"\n"
+            + "ia,5.7,,,int_array,\"[" + ints + "]\"\n"
+            + "ba,5.7,,,byte_array,\"[" + ints.substring(3, ints.length() - 2) + "]\"\n"
+            + "bad,5.7,,,double_array,\"[" + doubles.toString().replace("-9.5;", "-9.5x;") + "]\"\n"
+            + "bai,5.7,,,byte_array,\"[" + ints.toString().replace("-49;", "-149;") + "]\"\n"
+            + "nan,5.7,,,float_array,\"[" + doubles.toString().replace("-9.5;", "NaN;") + "]\"\n";
+        SnapshotContent sc = FileUtilities
+            .readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        VDoubleArray da = (VDoubleArray) sc.getData().get(0);
+        assertEquals(Instant.ofEpochSecond(5, 7), da.getTimestamp());
+        assertEquals(AlarmSeverity.MINOR, da.getAlarmSeverity());
+        assertEquals(100, da.getData().size());
+        assertEquals(100, da.getSizes().getInt(0));
+        assertFalse(LazyArrays.isPending(da.getData()));
+        assertEquals("[-10.0, -9.75, -9.5,...]", Utilities.valueToString(da, 3));
+        VType eager = ValueFactory.newVDoubleArray(new ArrayDouble(values), da, da, da);
+        assertTrue(Utilities.areValuesEqual(da, eager, Optional.empty()));
+        assertEquals(Utilities.toRawStringValue(eager), Utilities.toRawStringValue(da));
+
+        ListInt ia = ((VIntArray) sc.getData().get(1)).getData();
+        assertEquals(-50, ia.getInt(0));
+        assertEquals(49, ia.getInt(99));
+        // empty elements of large arrays are decoded as 0
+        ListByte ba = ((VByteArray) sc.getData().get(2)).getData();
+        assertEquals(100, ba.size());
+        assertEquals(0, ba.getByte(0));
+        assertEquals(-49, ba.getByte(1));
+        assertEquals(0, ba.getByte(99));
+        // a malformed or out of range element turns the whole large array into disconnected data
+        assertTrue(sc.getData().get(3) == VDisconnectedData.INSTANCE);
+        assertTrue(sc.getData().get(4) == VDisconnectedData.INSTANCE);
+        assertTrue(Double.isNaN(((VFloatArray) sc.getData().get(5)).getData().getFloat(2)));
+        try {
+            ba.getByte(100);
+            fail("Index out of bounds expected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that the parallel decoding of the snapshot rows produces the same content as the sequential decoding.
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    @Test
+    public void testParallelDecoding() throws IOException, ParseException {
+        StringBuilder sb = new StringBuilder(200000);
+        sb.append("# Date: 2016-02-12 18:08:29.369\n");
+        sb.append("PV,SELECTED,TIMESTAMP,STATUS,SEVERITY,VALUE_TYPE,VALUE,READBACK,READBACK_VALUE,DELTA\n");
+        for (int i = 0; i < 3000; i++) {
+            sb.append("pv").append(i).append(',').append(i % 2).append(',').append(i).append(".5,");
+            switch (i % 4) {
+                case 0:
+                    sb.append("HIGH,MINOR,double,\"").append(i / 3d).append("\",rb").append(i).append(",\"")
+                        .append(i).append("\",").append(i).append('\n');
+                    break;
+                case 1:
+                    sb.append(",,long_array,\"[").append(i).append(";1;2]\",,,\n");
+                    break;
+                case 2:
+                    sb.append("LOW,MAJOR,enum,\"b~[a;b]\",,,\n");
+                    break;
+                default:
+                    sb.append(",,string,\"text ").append(i).append("\",,,\n");
+                    break;
+            }
+        }
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        SnapshotContent expected = new SnapshotParser(
+            new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)).parse(0, null);
+        assertEquals(3000, expected.getNames().size());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SnapshotContent sc = new SnapshotParser(
+                new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)).parse(1, pool);
+            assertEquals(expected.getDate(), sc.getDate());
+            assertEquals(expected.getNames(), sc.getNames());
+            assertEquals(expected.getSelected(), sc.getSelected());
+            assertEquals(expected.getReadbacks(), sc.getReadbacks());
+            assertEquals(expected.getDeltas(), sc.getDeltas());
+            for (int i = 0; i < 3000; i++) {
+                assertSameValue(expected.getData().get(i), sc.getData().get(i));
+                assertSameValue(expected.getReadbackData().get(i), sc.getReadbackData().get(i));
+            }
+
+            // the first malformed row is reported, regardless of the order in which the rows are decoded
+            String invalid = sb.toString().replace("pv2000,", "\"pv2000,").replace("pv2500,", "\"pv2500,");
+            try {
+                new SnapshotParser(new StringReader(invalid)).parse(1, pool);
+                fail("Snapshot with unbalanced quotes should not be parsed");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid content: \"pv2000,"));
+            }
+            // the rows before the threshold are decoded while reading, the rows after it by the pool
+            invalid = sb.toString().replace("pv0,", "\"pv0,").replace("pv2500,", "\"pv2500,");
+            try {
+                new SnapshotParser(new StringReader(invalid)).parse(100, pool);
+                fail("Snapshot with unbalanced quotes should not be parsed");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid content: \"pv0,"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameValue(VType expected, VType value) {
+        assertEquals(expected.getClass(), value.getClass());
+        assertEquals(Utilities.toRawStringValue(expected), Utilities.toRawStringValue(value));
+        if (expected instanceof Alarm) {
+            assertEquals(((Alarm) expected).getAlarmSeverity(), ((Alarm) value).getAlarmSeverity());
+            assertEquals(((Alarm) expected).getAlarmName(), ((Alarm) value).getAlarmName());
+        }
+        if (expected instanceof Time) {
+            assertEquals(((Time) expected).getTimestamp(), ((Time) value).getTimestamp());
+        }
+    }
+
+    /**
+     * Test {@link FileUtilities#generateBinarySnapshotContent(VSnapshot)} and reading of the binary content by
+     * {@link FileUtilities#readFromSnapshot(java.io.InputStream)}. The binary content has to produce the same csv
+     * content as the original.
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    @Test
+    public void testBinarySnapshotData() throws IOException, ParseException {
+        String content = "# Date: 2016-02-12 18:08:29.369\n"
+            + "PV,SELECTED,TIMESTAMP,STATUS,SEVERITY,VALUE_TYPE,VALUE,READBACK,READBACK_VALUE,DELTA\n"
+            + "d,1,1455296909.369000000,HIGH,MINOR,double,\"-5.25\",rb,\"6.0\",\"Math.min(x,3)\"\n"
+            + "f,0,1455296909.500000000,NO_ALARM,NONE,float,\"1.1\",,\"---\",\n"
+            + "l,1,5.000000007,HIGH,MINOR,long,\"-123456789012\",,\"---\",\n"
+            + "i,1,5.000000007,,NONE,int,\"42\",,\"---\",\n"
+            + "s,1,5.000000007,,NONE,short,\"4\",,\"---\",\n"
+            + "y,1,5.000000007,,NONE,byte,\"-4\",,\"---\",\n"
+            + "b,1,5.000000007,,NONE,boolean,\"true\",,\"---\",\n"
+            + "t,1,5.000000007,,NONE,string,\"some text\",,\"---\",\n"
+            + "e,1,5.000000007,,NONE,enum,\"two~[one;two;three]\",,\"one~[one;two;three]\",\n"
+            + "da,1,5.000000007,,NONE,double_array,\"[1.0;0.0;0.0015;NaN]\",,\"[2.0]\",\n"
+            + "fa,1,5.000000007,,NONE,float_array,\"[1.0;2.5]\",,\"---\",\n"
+            + "la,1,5.000000007,,NONE,long_array,\"[1;-2;3]\",,\"---\",\n"
+            + "ia,1,5.000000007,,NONE,int_array,\"[1;-2;3]\",,\"---\",\n"
+            + "sa,1,5.000000007,,NONE,short_array,\"[1;2]\",,\"---\",\n"
+            + "ba,1,5.000000007,,NONE,byte_array,\"[1;2]\",,\"---\",\n"
+            + "ea,1,5.000000007,,NONE,enum_array,\"[b;a]~[a;b]\",,\"---\",\n"
+            + "ta,1,5.000000007,,NONE,string_array,\"[a;b c;]\",,\"---\",\n"
+            + "oa,1,5.000000007,,NONE,boolean_array,\"[true;false]\",,\"---\",\n"
+            + "n,1,,DISCONNECTED,UNDEFINED,na,\"---\",,\"---\",\n";
+        SaveSet set = new SaveSet(new Branch(), Optional.empty(), new String[] { "first" }, "someId");
+        Snapshot snapshot = new Snapshot(set, Instant.now(), "comment", "owner");
+        SnapshotContent sc = FileUtilities
+            .readFromSnapshot(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        VSnapshot vs = new VSnapshot(snapshot, sc.getNames(), sc.getSelected(), sc.getData(), sc.getReadbacks(),
+            sc.getReadbackData(), sc.getDeltas(), sc.getDate());
+        String csv = FileUtilities.generateSnapshotFileContent(vs);
+        assertEquals(content.substring(content.indexOf('\n')), csv.substring(csv.indexOf('\n')));
+
+        byte[] binary = FileUtilities.generateBinarySnapshotContent(vs);
+        assertArrayEquals(BinarySnapshotFormat.MAGIC, Arrays.copyOf(binary, BinarySnapshotFormat.MAGIC.length));
+        // the stream does not support marking
+        SnapshotContent bsc = FileUtilities.readFromSnapshot(new FilterInputStream(new ByteArrayInputStream(binary)) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        });
+        assertEquals(sc.getDate(), bsc.getDate());
+        assertEquals(sc.getNames(), bsc.getNames());
+        assertEquals(sc.getSelected(), bsc.getSelected());
+        assertEquals(sc.getReadbacks(), bsc.getReadbacks());
+        assertEquals(sc.getDeltas(), bsc.getDeltas());
+        VSnapshot bvs = new VSnapshot(snapshot, bsc.getNames(), bsc.getSelected(), bsc.getData(), bsc.getReadbacks(),
+            bsc.getReadbackData(), bsc.getDeltas(), bsc.getDate());
+        assertEquals(csv, FileUtilities.generateSnapshotFileContent(bvs));
+        assertArrayEquals(binary, FileUtilities.generateBinarySnapshotContent(bvs));
+
+        // snapshot without readbacks and deltas
+        vs = new VSnapshot(snapshot, sc.getNames(), sc.getSelected(), sc.getData(), new ArrayList<>(0),
+            new ArrayList<>(0), new ArrayList<>(0), sc.getDate());
+        bsc = FileUtilities.readFromSnapshot(new ByteArrayInputStream(FileUtilities.generateBinarySnapshotContent(vs)));
+        assertEquals(sc.getNames(), bsc.getNames());
+        assertEquals(sc.getNames().size(), bsc.getReadbacks().size());
+        assertEquals("", bsc.getReadbacks().get(0));
+        assertSame(VDisconnectedData.INSTANCE, bsc.getReadbackData().get(0));
+        assertEquals("", bsc.getDeltas().get(0));
+        assertEquals(-5.25, ((VDouble) bsc.getData().get(0)).getValue(), 0);
+    }
+
+    /**
+     * Test {@link FileUtilities#writeSnapshotFileContent(VSnapshot, java.io.Writer)} and the other streaming methods,
+     * which have to produce the same content as the methods that generate the complete content.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testStreamingContent() throws IOException {
+        SaveSet set = new SaveSet(new Branch(), Optional.empty(), new String[] { "first" }, "someId");
+        Snapshot snapshot = new Snapshot(set, Instant.now(), "comment", "owner");
+        Time time = ValueFactory.newTime(Instant.ofEpochSecond(1455296909L, 369000000));
+        int size = 2000;
+        List<String> names = new ArrayList<>(size);
+        List<Boolean> selected = new ArrayList<>(size);
+        List<VType> values = new ArrayList<>(size);
+        List<String> readbacks = new ArrayList<>(size);
+        List<VType> readbackValues = new ArrayList<>(size);
+        List<String> deltas = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(i == 7 ? "pv\nwith line break" : "pv" + i);
+            selected.add(i % 3 != 0);
+            double[] wf = new double[i % 50];
+            Arrays.fill(wf, i / 7d);
+            values.add(ValueFactory.newVDoubleArray(new ArrayDouble(wf), ValueFactory.alarmNone(), time,
+                ValueFactory.displayNone()));
+            readbacks.add("rb" + i);
+            readbackValues.add(VDisconnectedData.INSTANCE);
+            deltas.add(i % 2 == 0 ? "" : "Math.min(x," + i + ")");
+        }
+        VSnapshot vs = new VSnapshot(snapshot, names, selected, values, readbacks, readbackValues, deltas,
+            time.getTimestamp());
+        String content = FileUtilities.generateSnapshotFileContent(vs);
+        assertTrue(content.contains("\npv with line break,"));
+        assertEquals(size + 2, content.split("\n").length);
+
+        List<Integer> chunks = new ArrayList<>();
+        StringWriter writer = new StringWriter() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                chunks.add(len);
+                super.write(cbuf, off, len);
+            }
+        };
+        FileUtilities.writeSnapshotFileContent(vs, writer);
+        assertEquals(content, writer.toString());
+        assertTrue(chunks.size() > 1);
+        for (int c : chunks) {
+            assertTrue(c < content.length());
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        FileUtilities.writeSnapshotFileContent(vs, stream);
+        assertEquals(content, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+        File file = FileUtilities.writeSnapshotToTemporaryFile(vs);
+        try {
+            assertEquals(content, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file.toPath());
+        }
+
+        stream = new ByteArrayOutputStream();
+        FileUtilities.writeBinarySnapshotContent(vs, stream);
+        assertArrayEquals(FileUtilities.generateBinarySnapshotContent(vs), stream.toByteArray());
+
+        SaveSetData bsd = new SaveSetData(set, names, readbacks, deltas, "some\ndescription");
+        stream = new ByteArrayOutputStream();
+        FileUtilities.writeSaveSetContent(bsd, stream);
+        assertEquals(FileUtilities.generateSaveSetContent(bsd), new String(stream.toByteArray(),
+            StandardCharsets.UTF_8));
+    }
 }
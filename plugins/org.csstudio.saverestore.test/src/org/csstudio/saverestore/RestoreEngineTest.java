@@ -0,0 +1,132 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.csstudio.saverestore.RestoreResult.PVResult;
+import org.csstudio.saverestore.RestoreResult.Status;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * <code>RestoreEngineTest</code> tests the {@link RestoreEngine}: bounded concurrency, ordering of the restore groups,
+ * reporting of failures and timeouts.
+ */
+public class RestoreEngineTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger maxPending = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private RestoreEngine.Request request(String name, long delay, boolean fail) {
+        return new RestoreEngine.Request(name, () -> {
+            int p = pending.incrementAndGet();
+            maxPending.accumulateAndGet(p, Math::max);
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                written.add(name);
+                pending.decrementAndGet();
+                if (fail) {
+                    throw new IllegalStateException("Write rejected");
+                }
+            }, executor);
+        });
+    }
+
+    /**
+     * Tests that the number of pending writes never exceeds the concurrency and that failures are reported.
+     */
+    @Test
+    public void testConcurrency() {
+        List<RestoreEngine.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            requests.add(request("pv" + i, 5, i == 7));
+        }
+        RestoreResult result = new RestoreEngine(4, 2, null, 10000).restore(requests, () -> false);
+        assertTrue(maxPending.get() <= 4);
+        assertEquals(30, written.size());
+        assertFalse(result.isSuccessful());
+        assertFalse(result.isCancelled());
+        assertEquals(29, result.getRestoredCount());
+        List<PVResult> failures = result.getFailures();
+        assertEquals(1, failures.size());
+        assertEquals("pv7", failures.get(0).getPVName());
+        assertEquals(Status.FAILED, failures.get(0).getStatus());
+        assertEquals("pv7: Write rejected", failures.get(0).toString());
+        assertEquals("pv0", result.getResults().get(0).getPVName());
+        assertTrue(result.getResults().get(0).getLatency().toNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    /**
+     * Tests that the PVs of a group are only written after all PVs of the previous group completed.
+     */
+    @Test
+    public void testGroups() {
+        List<Pattern> groups = RestoreEngine.parseGroups("PS:.*; ;Mag:.*");
+        assertEquals(2, groups.size());
+        List<RestoreEngine.Request> requests = Arrays.asList(request("Other", 1, false), request("Mag:1", 1, false),
+            request("PS:1", 20, false), request("Mag:2", 1, false), request("PS:2", 10, false));
+        RestoreResult result = new RestoreEngine(10, 10, groups, 10000).restore(requests, () -> false);
+        assertTrue(result.isSuccessful());
+        assertEquals(Arrays.asList("PS:2", "PS:1"), written.subList(0, 2));
+        assertTrue(written.subList(2, 4).containsAll(Arrays.asList("Mag:1", "Mag:2")));
+        assertEquals("Other", written.get(4));
+        assertEquals(2, result.getResults().get(0).getGroup());
+        assertEquals(0, result.getResults().get(2).getGroup());
+    }
+
+    /**
+     * Tests that writes that do not complete in time are reported as timeouts and the following groups are skipped.
+     */
+    @Test
+    public void testTimeout() {
+        CompletableFuture<Void> hanging = new CompletableFuture<>();
+        List<RestoreEngine.Request> requests = Arrays.asList(request("PS:1", 5, false),
+            new RestoreEngine.Request("PS:2", () -> hanging), request("Mag:1", 1, false));
+        RestoreResult result = new RestoreEngine(10, 10, RestoreEngine.parseGroups("PS:.*"), 200).restore(requests,
+            () -> false);
+        assertEquals(Status.RESTORED, result.getResults().get(0).getStatus());
+        assertEquals(Status.TIMEOUT, result.getResults().get(1).getStatus());
+        assertEquals(Status.SKIPPED, result.getResults().get(2).getStatus());
+        assertEquals(Arrays.asList("PS:1"), written);
+        // the pending write is cancelled, so that the writer can release its resources
+        assertTrue(hanging.isCancelled());
+
+        result = new RestoreEngine(10, 10, null, 200).restore(Arrays.asList(request("PV", 1, false)), () -> true);
+        assertTrue(result.isCancelled());
+        assertEquals(Status.SKIPPED, result.getResults().get(0).getStatus());
+    }
+}
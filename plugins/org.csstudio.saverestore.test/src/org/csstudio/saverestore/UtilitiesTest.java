@@ -26,8 +26,12 @@ import org.csstudio.saverestore.Utilities;
 import org.csstudio.saverestore.Utilities.VTypeComparison;
 import org.csstudio.saverestore.data.Threshold;
 import org.diirt.util.array.ArrayBoolean;
+import org.diirt.util.array.ArrayByte;
 import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayFloat;
+import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayLong;
+import org.diirt.util.array.ArrayShort;
 import org.diirt.util.array.ListBoolean;
 import org.diirt.util.array.ListDouble;
 import org.diirt.util.array.ListLong;
@@ -536,6 +540,98 @@ public class UtilitiesTest {
         assertFalse(result.isWithinThreshold());
     }
 
+    /**
+     * Tests {@link Utilities#areValuesEqual(VType, VType, Optional)} for all supported value types, with and without
+     * threshold, for array backed and other lists.
+     */
+    @Test
+    public void testAreValuesEqual() {
+        Alarm alarm = ValueFactory.alarmNone();
+        Display display = ValueFactory.displayNone();
+        Time time = ValueFactory.timeNow();
+        Optional<Threshold<?>> none = Optional.empty();
+        Optional<Threshold<?>> threshold = Optional.of(new Threshold<>(5d, -5d));
+
+        VType d1 = ValueFactory.newVDouble(5d, alarm, time, display);
+        assertTrue(Utilities.areValuesEqual(d1, ValueFactory.newVDouble(5d, alarm, time, display), none));
+        assertFalse(Utilities.areValuesEqual(d1, ValueFactory.newVDouble(7d, alarm, time, display), none));
+        assertTrue(Utilities.areValuesEqual(d1, ValueFactory.newVDouble(7d, alarm, time, display), threshold));
+        assertFalse(Utilities.areValuesEqual(d1, ValueFactory.newVDouble(10.5d, alarm, time, display), threshold));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVFloat(5f, alarm, time, display),
+            ValueFactory.newVFloat(1f, alarm, time, display), threshold));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVLong(5L, alarm, time, display),
+            ValueFactory.newVLong(10L, alarm, time, display), threshold));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVLong(5L, alarm, time, display),
+            ValueFactory.newVLong(11L, alarm, time, display), threshold));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVInt(5, alarm, time, display),
+            ValueFactory.newVInt(0, alarm, time, display), threshold));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVShort((short) 5, alarm, time, display),
+            ValueFactory.newVShort((short) -1, alarm, time, display), threshold));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVByte((byte) 5, alarm, time, display),
+            ValueFactory.newVByte((byte) 5, alarm, time, display), none));
+        // decimal threshold applies to integer values as well
+        Optional<Threshold<?>> decimal = Optional.of(new Threshold<>(1.5d, -0.5d));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVInt(6, alarm, time, display),
+            ValueFactory.newVInt(5, alarm, time, display), decimal));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVInt(4, alarm, time, display),
+            ValueFactory.newVInt(5, alarm, time, display), decimal));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVLong(7L, alarm, time, display),
+            ValueFactory.newVLong(5L, alarm, time, display), decimal));
+
+        VType a1 = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, Double.NaN), alarm, time, display);
+        VType a2 = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, Double.NaN), alarm, time, display);
+        VType a3 = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, 3), alarm, time, display);
+        VType a4 = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2), alarm, time, display);
+        ListDouble view = new ListDouble() {
+            @Override
+            public int size() {
+                return 3;
+            }
+
+            @Override
+            public double getDouble(int index) {
+                return index == 2 ? Double.NaN : index + 1;
+            }
+        };
+        VType a5 = ValueFactory.newVDoubleArray(view, alarm, time, display);
+        assertTrue(Utilities.areValuesEqual(a1, a2, none));
+        assertFalse(Utilities.areValuesEqual(a1, a3, none));
+        assertFalse(Utilities.areValuesEqual(a1, a4, none));
+        assertTrue(Utilities.areValuesEqual(a1, a5, none));
+        assertTrue(Utilities.areValuesEqual(a5, a2, none));
+        assertFalse(Utilities.areValuesEqual(a5, a3, none));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVDoubleArray(new ArrayDouble(0d), alarm, time, display),
+            ValueFactory.newVDoubleArray(new ArrayDouble(-0d), alarm, time, display), none));
+
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVFloatArray(new ArrayFloat(1, 2), alarm, time, display),
+            ValueFactory.newVFloatArray(new ArrayFloat(1, 2), alarm, time, display), none));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVFloatArray(new ArrayFloat(1, 2), alarm, time, display),
+            ValueFactory.newVFloatArray(new ArrayFloat(1, 3), alarm, time, display), none));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVLongArray(new ArrayLong(1, 2), alarm, time, display),
+            ValueFactory.newVLongArray(new ArrayLong(1, 2), alarm, time, display), none));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVLongArray(new ArrayLong(1, 2), alarm, time, display),
+            ValueFactory.newVLongArray(new ArrayLong(1, 3), alarm, time, display), none));
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVIntArray(new ArrayInt(1, 2), alarm, time, display),
+            ValueFactory.newVIntArray(new ArrayInt(1, 2), alarm, time, display), none));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVIntArray(new ArrayInt(1, 2), alarm, time, display),
+            ValueFactory.newVIntArray(new ArrayInt(1, 3), alarm, time, display), none));
+        assertTrue(Utilities.areValuesEqual(
+            ValueFactory.newVShortArray(new ArrayShort(new short[] { 1, 2 }), alarm, time, display),
+            ValueFactory.newVShortArray(new ArrayShort(new short[] { 1, 2 }), alarm, time, display), none));
+        assertFalse(Utilities.areValuesEqual(
+            ValueFactory.newVByteArray(new ArrayByte(new byte[] { 1, 2 }), alarm, time, display),
+            ValueFactory.newVByteArray(new ArrayByte(new byte[] { 1, 3 }), alarm, time, display), none));
+        // different types of arrays are never equal
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVIntArray(new ArrayInt(1, 2), alarm, time, display),
+            ValueFactory.newVLongArray(new ArrayLong(1, 2), alarm, time, display), none));
+
+        List<String> labels = Arrays.asList("a", "b", "c");
+        assertTrue(Utilities.areValuesEqual(ValueFactory.newVEnumArray(new ArrayInt(0, 2), labels, alarm, time),
+            ValueFactory.newVEnumArray(new ArrayInt(0, 2), labels, alarm, time), none));
+        assertFalse(Utilities.areValuesEqual(ValueFactory.newVEnumArray(new ArrayInt(0, 2), labels, alarm, time),
+            ValueFactory.newVEnumArray(new ArrayInt(0, 1), labels, alarm, time), none));
+    }
+
     /**
      * Tests {@link Utilities#areVTypesIdentical(VType, VType)} method.
      *
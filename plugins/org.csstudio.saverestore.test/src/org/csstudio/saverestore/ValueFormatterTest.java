@@ -0,0 +1,181 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.diirt.util.array.ArrayBoolean;
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayFloat;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/**
+ *
+ * <code>ValueFormatterTest</code> tests the {@link ValueFormatter}. The expected strings are the output of the
+ * formatting based on {@link java.text.NumberFormat}, which was used before, and have to remain unchanged, because
+ * they are stored in the snapshot files.
+ */
+public class ValueFormatterTest {
+
+    private final Alarm alarm = ValueFactory.alarmNone();
+    private final Display display = ValueFactory.displayNone();
+    private final Time time = ValueFactory.timeNow();
+
+    private static final double[] DOUBLES = { 0, -0.0, 0.1, 1e-5, 1e-3, 123456789.123, 1e7, 1e21, Double.NaN,
+        Double.POSITIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, -3.14159 };
+    private static final float[] FLOATS = { 0f, 0.1f, 3.3f, -1e-4f, 1e10f, Float.NaN, 16777217f };
+
+    /**
+     * Tests the presentation and raw format of scalar numbers.
+     */
+    @Test
+    public void testNumbers() {
+        String[] doubles = { "0.0", "-0.0", "0.1", "1.0E-5", "0.001", "1.23456789123E8", "1.0E7", "1.0E21", "NaN",
+            "Infinity", "4.9E-324", "1.7976931348623157E308", "-3.14159" };
+        for (int i = 0; i < DOUBLES.length; i++) {
+            VType val = ValueFactory.newVDouble(DOUBLES[i], alarm, time, display);
+            assertEquals(doubles[i], Utilities.valueToString(val));
+            assertEquals(doubles[i], Utilities.toRawStringValue(val));
+        }
+        // floats are presented as doubles, but stored exactly
+        String[] floats = { "0.0", "0.10000000149011612", "3.299999952316284", "-9.999999747378752E-5", "1.0E10",
+            "NaN", "1.6777216E7" };
+        String[] rawFloats = { "0.0", "0.1", "3.3", "-1.0E-4", "1.0E10", "NaN", "1.6777216E7" };
+        for (int i = 0; i < FLOATS.length; i++) {
+            VType val = ValueFactory.newVFloat(FLOATS[i], alarm, time, display);
+            assertEquals(floats[i], Utilities.valueToString(val));
+            assertEquals(rawFloats[i], Utilities.toRawStringValue(val));
+        }
+        VType val = ValueFactory.newVLong(Long.MIN_VALUE, alarm, time, display);
+        assertEquals("-9223372036854775808", Utilities.valueToString(val));
+        assertEquals("-9223372036854775808", Utilities.toRawStringValue(val));
+        val = ValueFactory.newVByte((byte) -8, alarm, time, display);
+        assertEquals("-8", Utilities.valueToString(val));
+        assertEquals("-8", Utilities.toRawStringValue(val));
+    }
+
+    /**
+     * Tests the presentation and raw format of arrays, including the truncation of arrays.
+     */
+    @Test
+    public void testArrays() {
+        VType val = ValueFactory.newVDoubleArray(new ArrayDouble(DOUBLES), alarm, time, display);
+        assertEquals("[0.0, -0.0, 0.1, 1.0E-5, 0.001,...]", Utilities.valueToString(val, 5));
+        assertEquals("[0.0;-0.0;0.1;1.0E-5;0.001;1.23456789123E8;1.0E7;1.0E21;NaN;Infinity;4.9E-324;"
+            + "1.7976931348623157E308;-3.14159]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVFloatArray(new ArrayFloat(FLOATS), alarm, time, display);
+        assertEquals("[0.0, 0.10000000149011612, 3.299999952316284, -9.999999747378752E-5, 1.0E10, NaN, 1.6777216E7]",
+            Utilities.valueToString(val, 100));
+        assertEquals("[0.0;0.1;3.3;-1.0E-4;1.0E10;NaN;1.6777216E7]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVDoubleArray(new ArrayDouble(), alarm, time, display);
+        assertEquals("[]", Utilities.valueToString(val));
+        assertEquals("[]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVIntArray(new ArrayInt(1, 2, 3, 4), alarm, time, display);
+        assertEquals("[]", Utilities.valueToString(val, 0));
+        assertEquals("[1,...]", Utilities.valueToString(val, 1));
+        assertEquals("[1, 2, 3, 4]", Utilities.valueToString(val, 4));
+        assertEquals("[1;2;3;4]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVShortArray(new ArrayShort((short) 1, (short) -2), alarm, time, display);
+        assertEquals("[1, -2]", Utilities.valueToString(val));
+        val = ValueFactory.newVNumberArray(new ArrayByte((byte) 1, (byte) -2, (byte) 3), alarm, time, display);
+        assertEquals("[1, -2, 3]", Utilities.valueToString(val));
+        assertEquals("[1;-2;3]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVStringArray(Arrays.asList("a ", " b", "c,d"), alarm, time);
+        assertEquals("[a ,  b, c,d]", Utilities.valueToString(val));
+        assertEquals("[a ; b;c,d]", Utilities.toRawStringValue(val));
+        val = ValueFactory.newVStringArray(Collections.emptyList(), alarm, time);
+        assertEquals("[]", Utilities.valueToString(val));
+
+        val = ValueFactory.newVBooleanArray(new ArrayBoolean(true, false, true), alarm, time);
+        assertEquals("[true, false, true]", Utilities.valueToString(val));
+        assertEquals("...]", Utilities.valueToString(val, 0));
+        assertEquals("[true;false;true]", Utilities.toRawStringValue(val));
+
+        val = ValueFactory.newVEnumArray(new ArrayInt(1, 0), Arrays.asList("x", "y"), alarm, time);
+        assertEquals("[y,...]", Utilities.valueToString(val, 1));
+        assertEquals("[y;x]~[x;y]", Utilities.toRawStringValue(val));
+    }
+
+    /**
+     * Tests the formatting of enums, strings, booleans and unsupported types.
+     */
+    @Test
+    public void testOtherTypes() {
+        VType val = ValueFactory.newVEnum(1, Arrays.asList("", ""), alarm, time);
+        assertEquals("1", Utilities.valueToString(val));
+        assertEquals("1~[0;1]", Utilities.toRawStringValue(val));
+        val = ValueFactory.newVEnum(1, Arrays.asList("x", "y"), alarm, time);
+        assertEquals("y", Utilities.valueToString(val));
+        assertEquals("y~[x;y]", Utilities.toRawStringValue(val));
+        val = ValueFactory.newVBoolean(true, alarm, time);
+        assertEquals("true", Utilities.valueToString(val));
+        assertEquals("true", Utilities.toRawStringValue(val));
+        assertNull(Utilities.valueToString(null));
+        val = ValueFactory.newVStatistics(1, 2, 0, 3, 4, alarm, time, display);
+        assertNull(Utilities.valueToString(val));
+        assertFalse(ValueFormatter.appendValue(val, 10, new StringBuilder()));
+    }
+
+    /**
+     * Tests that the values are appended to the existing content and written to the writer without changes.
+     *
+     * @throws IOException on failure
+     */
+    @Test
+    public void testAppendAndWrite() throws IOException {
+        VType val = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, 3), alarm, time, display);
+        StringBuilder sb = new StringBuilder("value: ");
+        assertTrue(ValueFormatter.appendValue(val, 2, sb));
+        sb.append(' ');
+        assertTrue(ValueFormatter.appendValue(val, 3, sb));
+        sb.append(' ');
+        ValueFormatter.appendRawValue(val, sb);
+        assertEquals("value: [1.0, 2.0,...] [1.0, 2.0, 3.0] [1.0;2.0;3.0]", sb.toString());
+
+        StringWriter writer = new StringWriter();
+        assertTrue(ValueFormatter.writeValue(val, 15, writer));
+        writer.write(',');
+        ValueFormatter.writeRawValue(val, writer);
+        assertFalse(ValueFormatter.writeValue(null, 15, writer));
+        double[] large = new double[100000];
+        Arrays.fill(large, 0.5);
+        val = ValueFactory.newVDoubleArray(new ArrayDouble(large), alarm, time, display);
+        writer.write(',');
+        ValueFormatter.writeRawValue(val, writer);
+        String result = writer.toString();
+        assertTrue(result.startsWith("[1.0, 2.0, 3.0],[1.0;2.0;3.0],[0.5;0.5;"));
+        assertEquals(15 + 1 + 13 + 1 + 1 + 100000 * 4, result.length());
+        // the thread buffers are still usable after a large value was formatted
+        assertEquals("[1;2;3]", ValueFormatter.formatRaw(ValueFactory.newVIntArray(new ArrayInt(1, 2, 3), alarm,
+            time, display)));
+    }
+}
@@ -72,7 +72,8 @@ public class BrowserActionManager extends ActionManager {
         if (source == null) {
             throw new IllegalArgumentException("The source location cannot be null.");
         }
-        final DataProvider provider = SaveRestoreService.getInstance().getSelectedDataProvider().getProvider();
+        final DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        final DataProvider provider = wrapper.getProvider();
         if (!provider.isImportSupported()) {
             return;
         }
@@ -96,7 +97,8 @@ public class BrowserActionManager extends ActionManager {
         }
         final ImportType type = ans == 0 ? ImportType.SAVE_SET
             : ans == 1 ? ImportType.LAST_SNAPSHOT : ImportType.ALL_SNAPSHOTS;
-        SaveRestoreService.getInstance().execute("Import Data", () -> {
+        final Object lane = SaveRestoreService.getProviderLane(wrapper.getId());
+        SaveRestoreService.getInstance().execute("Import Data", lane, () -> {
             try {
                 if (provider.importData(source, currentBranch, Optional.ofNullable(baseLevel), type)) {
                     SaveRestoreService.LOGGER.log(Level.FINE, "Successfully imported data from {0}.",
@@ -129,7 +131,9 @@ public class BrowserActionManager extends ActionManager {
         if (!provider.isTaggingSupported()) {
             return;
         }
-        SaveRestoreService.getInstance().execute("Tag Snapshot", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(snapshot.getSaveSet().getDataProviderId(),
+            snapshot.getSaveSet().getBranch());
+        SaveRestoreService.getInstance().execute("Tag Snapshot", lane, () -> {
             try {
                 provider.tagSnapshot(snapshot, Optional.of(tagName), Optional.of(tagMessage));
                 SaveRestoreService.LOGGER.log(Level.FINE, "Successfully tagged snapshot {0}: {1}.",
@@ -151,7 +155,8 @@ public class BrowserActionManager extends ActionManager {
         final Branch branch = selector.selectedBranchProperty().get();
         final BaseLevel base = selector.selectedBaseLevelProperty().get();
         final String dataProvider = wrapper.getId();
-        SaveRestoreService.getInstance().execute("Load save set data", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(dataProvider, branch);
+        SaveRestoreService.getInstance().execute("Load save set data", lane, () -> {
             SaveSet set = new SaveSet(branch, Optional.ofNullable(base), new String[] { "SaveSet" },
                 dataProvider);
             SaveSetData data = new SaveSetData(set, new ArrayList<>(0), new ArrayList<>(0), new ArrayList<>(0),
@@ -181,7 +186,8 @@ public class BrowserActionManager extends ActionManager {
         if (!provider.isSaveSetSavingSupported()) {
             return;
         }
-        SaveRestoreService.getInstance().execute("Delete save set", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(set.getDataProviderId(), set.getBranch());
+        SaveRestoreService.getInstance().execute("Delete save set", lane, () -> {
             try {
                 Optional<String> comment = FXTextAreaInputDialog.get(owner.getSite().getShell(), "Delete Comment",
                     "Provide a short comment why the set '" + set.getPathAsString() + "' is being deleted", "",
@@ -218,7 +224,9 @@ public class BrowserActionManager extends ActionManager {
         if (!provider.isTaggingSupported()) {
             return;
         }
-        SaveRestoreService.getInstance().execute("Remove tag", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(snapshot.getSaveSet().getDataProviderId(),
+            snapshot.getSaveSet().getBranch());
+        SaveRestoreService.getInstance().execute("Remove tag", lane, () -> {
             try {
                 provider.tagSnapshot(snapshot, Optional.empty(), Optional.empty());
                 SaveRestoreService.LOGGER.log(Level.FINE, "Successfully deleted the tag from {0}: {1}.",
@@ -238,12 +246,14 @@ public class BrowserActionManager extends ActionManager {
         if (branchName == null || branchName.trim().isEmpty()) {
             throw new IllegalArgumentException("Branch name cannot be null or empty.");
         }
-        final DataProvider provider = SaveRestoreService.getInstance().getSelectedDataProvider().getProvider();
+        final DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        final DataProvider provider = wrapper.getProvider();
         if (!provider.areBranchesSupported()) {
             return;
         }
         final Branch orgBranch = selector.selectedBranchProperty().get();
-        SaveRestoreService.getInstance().execute("Create new branch", () -> {
+        final Object lane = SaveRestoreService.getProviderLane(wrapper.getId());
+        SaveRestoreService.getInstance().execute("Create new branch", lane, () -> {
             try {
                 provider.createNewBranch(orgBranch, branchName);
                 SaveRestoreService.LOGGER.log(Level.FINE, "Successfully created branch {0}.",
@@ -258,8 +268,10 @@ public class BrowserActionManager extends ActionManager {
      * Synchronise the local repository with the remote one.
      */
     public void synchronise() {
-        final DataProvider provider = SaveRestoreService.getInstance().getSelectedDataProvider().getProvider();
-        SaveRestoreService.getInstance().execute("Synchronise repository", () -> {
+        final DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        final DataProvider provider = wrapper.getProvider();
+        final Object lane = SaveRestoreService.getProviderLane(wrapper.getId());
+        SaveRestoreService.getInstance().execute("Synchronise repository", lane, () -> {
             try {
                 if (provider.synchronise()) {
                     SaveRestoreService.LOGGER.log(Level.FINE, "Repository synchronised.");
@@ -276,11 +288,13 @@ public class BrowserActionManager extends ActionManager {
      * Reset repository to the state of the central repository.
      */
     public void resetRepository() {
-        final DataProvider provider = SaveRestoreService.getInstance().getSelectedDataProvider().getProvider();
+        final DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        final DataProvider provider = wrapper.getProvider();
         if (!provider.isReinitSupported()) {
             return;
         }
-        SaveRestoreService.getInstance().execute("Reset repository", () -> {
+        final Object lane = SaveRestoreService.getProviderLane(wrapper.getId());
+        SaveRestoreService.getInstance().execute("Reset repository", lane, () -> {
             try {
                 if (provider.reinitialise()) {
                     SaveRestoreService.LOGGER.log(Level.FINE, "Repository reinitialised.");
@@ -305,12 +319,14 @@ public class BrowserActionManager extends ActionManager {
      */
     public void searchForSnapshots(final String expression, final List<SearchCriterion> criteria,
         final Optional<Date> start, final Optional<Date> end, final Consumer<List<Snapshot>> consumer) {
-        final DataProvider provider = SaveRestoreService.getInstance().getSelectedDataProvider().getProvider();
+        final DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        final DataProvider provider = wrapper.getProvider();
         if (!provider.isSearchSupported()) {
             return;
         }
         final Branch branch = selector.selectedBranchProperty().get();
-        SaveRestoreService.getInstance().execute("Search for snapshots", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(wrapper.getId(), branch);
+        SaveRestoreService.getInstance().execute("Search for snapshots", lane, () -> {
             try {
                 Snapshot[] searchResult = provider.findSnapshots(expression, branch, criteria, start, end);
                 Platform.runLater(() -> consumer.accept(Arrays.asList(searchResult)));
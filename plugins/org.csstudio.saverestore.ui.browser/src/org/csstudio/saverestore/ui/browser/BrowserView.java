@@ -13,6 +13,7 @@ package org.csstudio.saverestore.ui.browser;
 import static org.csstudio.ui.fx.util.FXUtilities.setGridConstraints;
 
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +65,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TitledPane;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.Tooltip;
@@ -483,6 +485,7 @@ public class BrowserView extends FXViewPart implements ISelectionProvider, IShel
             }
         });
         snapshotsList.getStylesheets().add(BrowserView.class.getResource("taggedCell.css").toExternalForm());
+        snapshotsList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         snapshotsList.setOnDragDetected(e -> {
             Dragboard db = snapshotsList.startDragAndDrop(TransferMode.ANY);
@@ -536,11 +539,11 @@ public class BrowserView extends FXViewPart implements ISelectionProvider, IShel
         openButton.setOnAction(e -> actionManager.openSnapshot(snapshotsList.getSelectionModel().getSelectedItem()));
 
         Button compareButton = new UnfocusableButton("Compare");
-        compareButton.setTooltip(new Tooltip("Open selected snapshot the active Snapshot Viewer"));
+        compareButton.setTooltip(new Tooltip("Open selected snapshots in the active Snapshot Viewer"));
         compareButton.disableProperty().bind(snapshotsList.selectionModelProperty().get().selectedItemProperty()
             .isNull().or(snapshotsPane.expandedProperty().not()));
-        compareButton
-            .setOnAction(e -> actionManager.compareSnapshot(snapshotsList.getSelectionModel().getSelectedItem()));
+        compareButton.setOnAction(e -> actionManager
+            .compareSnapshots(new ArrayList<>(snapshotsList.getSelectionModel().getSelectedItems())));
 
         setUpTitlePaneNode(titleText, true);
         setUpTitlePaneNode(tagButton, false);
@@ -609,6 +612,22 @@ public class BrowserView extends FXViewPart implements ISelectionProvider, IShel
         }
     }
 
+    private void setUpSnapshotsPaneTitle() {
+        SaveSet set = selector.selectedSaveSetProperty().get();
+        StringBuilder title = new StringBuilder(50);
+        if (set == null) {
+            title.append("Snapshots");
+        } else {
+            title.append("Snapshots of ").append(set.getName());
+        }
+        int pending = selector.pendingChangesProperty().get();
+        if (pending > 0) {
+            title.append(" (").append(pending).append(pending == 1 ? " change" : " changes")
+                .append(" waiting to be stored centrally)");
+        }
+        snapshotsPane.setText(title.toString());
+    }
+
     private void init() {
         selector.selectedBranchProperty().addListener((a, o, n) -> {
             if (selector.isDefaultBranch()) {
@@ -657,11 +676,10 @@ public class BrowserView extends FXViewPart implements ISelectionProvider, IShel
             }
         });
         selector.selectedBranchProperty().addListener((a, o, n) -> setUpElementsPaneTitle());
-        selector.selectedSaveSetProperty().addListener((a, o, n) -> {
-            if (n == null) {
-                snapshotsPane.setText("Snapshots");
-            } else {
-                snapshotsPane.setText("Snapshots of " + n.getName());
+        selector.selectedSaveSetProperty().addListener((a, o, n) -> setUpSnapshotsPaneTitle());
+        selector.pendingChangesProperty().addListener((a, o, n) -> {
+            if (!searchMode) {
+                setUpSnapshotsPaneTitle();
             }
         });
         selector.saveSetsProperty().addListener((a, o, saveSets) -> {
@@ -0,0 +1,161 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.csstudio.saverestore.data.Threshold;
+import org.csstudio.saverestore.data.VDisconnectedData;
+import org.csstudio.saverestore.ui.util.VTypePair;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VDouble;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import javafx.beans.property.ObjectProperty;
+
+/**
+ * <code>TableEntryTest</code> tests that the lazily created properties of the {@link TableEntry} are in sync with the
+ * values of the entry. It also contains a measurement of the memory used by the entries of a large snapshot, which has
+ * to be run manually.
+ */
+public class TableEntryTest {
+
+    private static final int NUMBER_OF_PVS = 100000;
+    private static final int NUMBER_OF_SNAPSHOTS = 5;
+
+    private static VType value(double value) {
+        return ValueFactory.newVDouble(value, ValueFactory.newAlarm(AlarmSeverity.MINOR, "HIGH"),
+            ValueFactory.newTime(Instant.ofEpochSecond(1000)), ValueFactory.displayNone());
+    }
+
+    /**
+     * Tests that the values set before and after the properties were requested are reflected by the properties and
+     * by the getters.
+     */
+    @Test
+    public void testLazyProperties() {
+        TableEntry entry = new TableEntry();
+        entry.setPvName("pv1");
+        entry.setSnapshotValue(value(5), 0);
+        entry.setSnapshotValue(value(6), 1);
+        assertEquals("pv1", entry.pvNameProperty().get());
+        assertEquals(AlarmSeverity.MINOR, entry.severityProperty().get());
+        assertEquals("HIGH", entry.statusProperty().get());
+        assertEquals(Instant.ofEpochSecond(1000), entry.timestampProperty().get());
+        assertTrue(entry.valueProperty().get().base == VDisconnectedData.INSTANCE);
+        assertEquals(5., ((VDouble) entry.valueProperty().get().value).getValue(), 0);
+        assertEquals(6., ((VDouble) entry.compareValueProperty(1).get().value).getValue(), 0);
+
+        ObjectProperty<VTypePair> compare = entry.compareValueProperty(1);
+        VType live = value(5);
+        entry.setLiveValue(live);
+        entry.setSnapshotValue(value(7), 0);
+        assertTrue(entry.liveValueProperty().get() == live);
+        assertTrue(entry.valueProperty().get().base == live);
+        assertTrue(compare.get().base == entry.getValue().value);
+        assertFalse(entry.liveStoredEqualProperty().get());
+
+        // the value edited in the table is written back to the entry
+        VType edited = value(8);
+        compare.set(new VTypePair(compare.get().base, edited, compare.get().threshold));
+        assertTrue(entry.getCompareValue(1).value == edited);
+        entry.pvNameProperty().set("pv2");
+        assertEquals("pv2", entry.getPvName());
+    }
+
+    /**
+     * Tests that the threshold is applied to all pairs, regardless of whether their properties already exist.
+     */
+    @Test
+    public void testThreshold() {
+        TableEntry entry = new TableEntry();
+        entry.setSnapshotValue(value(5), 0);
+        entry.setSnapshotValue(value(6), 1);
+        entry.setLiveValue(value(5.5));
+        assertFalse(entry.liveStoredEqualProperty().get());
+        ObjectProperty<VTypePair> value = entry.valueProperty();
+
+        Optional<Threshold<?>> threshold = Optional.of(new Threshold<>(1.));
+        entry.setThreshold(threshold);
+        assertTrue(entry.liveStoredEqualProperty().get());
+        assertTrue(value.get().threshold == threshold);
+        assertTrue(entry.getCompareValue(1).threshold == threshold);
+        assertTrue(entry.compareStoredReadbackProperty(1).get().threshold == threshold);
+    }
+
+    /**
+     * Measures the memory used by the entries of a synthetic snapshot, before and after the properties of all entries
+     * were requested, and prints the results. The heap usage depends on the garbage collector and the heap settings,
+     * so the results are only reported and not asserted. Run manually, preferably in a fresh VM.
+     */
+    @Ignore("Memory measurement, which is run manually")
+    @Test
+    public void testMemoryFootprint() {
+        VType[] values = new VType[NUMBER_OF_SNAPSHOTS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(i);
+        }
+        long before = usedMemory();
+        List<TableEntry> entries = new ArrayList<>(NUMBER_OF_PVS);
+        for (int i = 0; i < NUMBER_OF_PVS; i++) {
+            TableEntry entry = new TableEntry();
+            entry.setId(i + 1);
+            entry.setPvName("pv" + i);
+            for (int j = 0; j < NUMBER_OF_SNAPSHOTS; j++) {
+                entry.setSnapshotValue(values[j], j);
+                entry.setStoredReadbackValue(values[j], j);
+            }
+            entry.setLiveValue(values[0]);
+            entry.setReadbackValue(values[0]);
+            entries.add(entry);
+        }
+        long compact = usedMemory() - before;
+
+        for (TableEntry entry : entries) {
+            entry.idProperty();
+            entry.pvNameProperty();
+            entry.readbackNameProperty();
+            entry.timestampProperty();
+            entry.statusProperty();
+            entry.severityProperty();
+            entry.liveValueProperty();
+            entry.valueProperty();
+            entry.readbackProperty();
+            entry.storedReadbackProperty();
+            for (int j = 1; j < NUMBER_OF_SNAPSHOTS; j++) {
+                entry.compareValueProperty(j);
+                entry.compareStoredReadbackProperty(j);
+            }
+        }
+        long materialized = usedMemory() - before;
+        assertEquals(NUMBER_OF_PVS, entries.size());
+        System.out.println(NUMBER_OF_PVS + " entries, " + NUMBER_OF_SNAPSHOTS + " snapshots: compact "
+            + (compact >> 20) + " MB, with all properties " + (materialized >> 20) + " MB");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
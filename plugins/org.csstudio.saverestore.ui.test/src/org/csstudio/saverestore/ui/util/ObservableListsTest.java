@@ -0,0 +1,151 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.ui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.saverestore.ui.TableEntry;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.transformation.FilteredList;
+
+/**
+ * <code>ObservableListsTest</code> tests the incremental update of the lists, which back the tables, and the updates of
+ * individual rows in the filtered view of such list.
+ */
+public class ObservableListsTest {
+
+    private List<TableEntry> all;
+    private UpdatableObservableList<TableEntry> list;
+    private List<String> changes;
+
+    @Before
+    public void setUp() {
+        all = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TableEntry entry = new TableEntry();
+            entry.pvNameProperty().set("pv" + i);
+            all.add(entry);
+        }
+        list = new UpdatableObservableList<>();
+        changes = new ArrayList<>();
+        list.addListener((ListChangeListener<TableEntry>) c -> {
+            while (c.next()) {
+                if (c.wasReplaced()) {
+                    changes.add("replaced");
+                } else if (c.wasAdded()) {
+                    changes.add("added " + c.getAddedSize() + " at " + c.getFrom());
+                } else if (c.wasRemoved()) {
+                    changes.add("removed " + c.getRemovedSize() + " at " + c.getFrom());
+                } else if (c.wasUpdated()) {
+                    changes.add("updated " + c.getFrom());
+                }
+            }
+        });
+    }
+
+    /**
+     * Tests that the same content does not change the list and that only the differences are applied otherwise.
+     */
+    @Test
+    public void testSetContent() {
+        ObservableLists.setContent(list, all);
+        assertEquals(all, list);
+        assertEquals(Arrays.asList("added 10 at 0"), changes);
+        changes.clear();
+
+        ObservableLists.setContent(list, new ArrayList<>(all));
+        assertTrue(changes.isEmpty());
+
+        // filter out some entries and then add them back
+        List<TableEntry> filtered = Arrays.asList(all.get(1), all.get(2), all.get(5), all.get(9));
+        ObservableLists.setContent(list, filtered);
+        assertEquals(filtered, list);
+        assertTrue(changes.stream().allMatch(c -> c.startsWith("removed")));
+        changes.clear();
+
+        ObservableLists.setContent(list, all);
+        assertEquals(all, list);
+        assertEquals(Arrays.asList("added 3 at 3", "added 2 at 2", "added 1 at 0"), changes);
+        changes.clear();
+
+        // the order changed, the content is replaced
+        List<TableEntry> reversed = new ArrayList<>(all);
+        Collections.reverse(reversed);
+        ObservableLists.setContent(list, reversed);
+        assertEquals(reversed, list);
+        assertEquals(Arrays.asList("replaced"), changes);
+    }
+
+    /**
+     * Tests that a single row appears in or disappears from the filtered view when its equality changes, without
+     * re-evaluating the other rows.
+     */
+    @Test
+    public void testHideEqual() {
+        ObservableLists.setContent(list, all);
+        AtomicInteger evaluations = new AtomicInteger();
+        FilteredList<TableEntry> visible = new FilteredList<>(list, e -> {
+            evaluations.incrementAndGet();
+            return !e.liveStoredEqualProperty().get();
+        });
+        // all entries are equal by default
+        assertTrue(visible.isEmpty());
+        List<String> visibleChanges = new ArrayList<>();
+        visible.addListener((ListChangeListener<TableEntry>) c -> {
+            while (c.next()) {
+                visibleChanges.add((c.wasAdded() ? "added " : "removed ") + c.getFrom());
+            }
+        });
+        changes.clear();
+        evaluations.set(0);
+
+        all.get(3).setLiveValue(ValueFactory.newVDouble(5.));
+        assertTrue("The equality change alone does not change the list", changes.isEmpty());
+        list.update(Arrays.asList(all.get(3)));
+        assertEquals(Arrays.asList("updated 3"), changes);
+        assertEquals(Arrays.asList(all.get(3)), visible);
+        assertEquals(Arrays.asList("added 0"), visibleChanges);
+        assertEquals(1, evaluations.get());
+        changes.clear();
+        visibleChanges.clear();
+        evaluations.set(0);
+
+        // the positions are looked up again after a structural change
+        list.remove(all.get(0));
+        all.get(7).setLiveValue(ValueFactory.newVDouble(5.));
+        list.update(Arrays.asList(all.get(7), all.get(0)));
+        assertEquals(Arrays.asList("removed 1 at 0", "updated 6"), changes);
+        assertEquals(Arrays.asList(all.get(3), all.get(7)), visible);
+        assertEquals(Arrays.asList("added 1"), visibleChanges);
+        assertEquals(1, evaluations.get());
+        changes.clear();
+        visibleChanges.clear();
+        evaluations.set(0);
+
+        all.get(3).setSnapshotValue(all.get(3).getLiveValue(), 0);
+        list.update(Arrays.asList(all.get(3)));
+        assertEquals(Arrays.asList("updated 2"), changes);
+        assertEquals(Arrays.asList(all.get(7)), visible);
+        assertEquals(Arrays.asList("removed 0"), visibleChanges);
+        assertEquals(1, evaluations.get());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.ui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.csstudio.saverestore.Utilities;
+import org.csstudio.saverestore.Utilities.VTypeComparison;
+import org.csstudio.saverestore.data.Threshold;
+import org.csstudio.saverestore.ui.TableEntry;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/**
+ * <code>VTypePairTest</code> tests that the comparison results of the {@link VTypePair} are calculated once and
+ * recalculated when the threshold of a table entry changes.
+ */
+public class VTypePairTest {
+
+    /**
+     * Tests that the comparison results match the results of {@link Utilities} and are reused.
+     */
+    @Test
+    public void testComparison() {
+        VType base = ValueFactory.newVDouble(5.);
+        VType value = ValueFactory.newVDouble(5.5);
+        VTypePair pair = new VTypePair(base, value, Optional.empty());
+        VTypeComparison comparison = pair.getComparison();
+        VTypeComparison expected = Utilities.valueToCompareString(value, base, Optional.empty());
+        assertEquals(expected.getString(), comparison.getString());
+        assertEquals(expected.getValuesEqual(), comparison.getValuesEqual());
+        assertEquals(expected.isWithinThreshold(), comparison.isWithinThreshold());
+        assertTrue(comparison == pair.getComparison());
+        assertFalse(pair.isEqual());
+
+        pair = new VTypePair(base, value, Optional.of(new Threshold<>(1.)));
+        assertTrue(pair.getComparison().isWithinThreshold());
+        assertTrue(pair.isEqual());
+    }
+
+    /**
+     * Tests that the results are recalculated when the threshold is set on the table entry.
+     */
+    @Test
+    public void testThresholdChange() {
+        TableEntry entry = new TableEntry();
+        entry.setSnapshotValue(ValueFactory.newVDouble(5.), 0);
+        entry.setLiveValue(ValueFactory.newVDouble(5.5));
+        VTypePair pair = entry.valueProperty().get();
+        assertFalse(pair.getComparison().isWithinThreshold());
+        assertFalse(entry.liveStoredEqualProperty().get());
+
+        entry.setThreshold(Optional.of(new Threshold<>(1.)));
+        pair = entry.valueProperty().get();
+        assertTrue(pair.getComparison().isWithinThreshold());
+        assertTrue(pair.isEqual());
+        assertTrue(entry.liveStoredEqualProperty().get());
+    }
+}
@@ -10,6 +10,11 @@
  */
 package org.csstudio.saverestore.ui;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -55,7 +60,7 @@ public class ActionManager {
      * @param snapshot the snapshot to open
      */
     public void openSnapshot(Snapshot snapshot) {
-        openSnapshotInternal(snapshot, true, this::loadSnapshot);
+        openSnapshotInternal(snapshot, this::loadSnapshot);
     }
 
     /**
@@ -64,7 +69,30 @@ public class ActionManager {
      * @param snapshot the snapshot to open in comparison viewer
      */
     public void compareSnapshot(Snapshot snapshot) {
-        openSnapshotInternal(snapshot, false, this::loadSnapshot);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Snapshot not provided.");
+        }
+        compareSnapshots(Collections.singletonList(snapshot));
+    }
+
+    /**
+     * Load the data of all given snapshots and add them to the currently active snapshot viewer editor. The snapshots
+     * belonging to the same data provider are loaded with a single batch request.
+     *
+     * @param snapshots the snapshots to open in comparison viewer
+     */
+    public void compareSnapshots(final List<Snapshot> snapshots) {
+        if (snapshots == null || snapshots.isEmpty()) {
+            throw new IllegalArgumentException("Snapshot not provided.");
+        }
+        final SaveSet set = snapshots.get(0).getSaveSet();
+        final Object lane = SaveRestoreService.getBranchLane(set.getDataProviderId(), set.getBranch());
+        SaveRestoreService.getInstance().execute("Load snapshot data", lane, () -> {
+            final List<VSnapshot> data = loadSnapshots(snapshots);
+            if (!data.isEmpty()) {
+                owner.getSite().getShell().getDisplay().asyncExec(() -> compareSnapshotsInEditor(data));
+            }
+        });
     }
 
     /**
@@ -74,7 +102,7 @@ public class ActionManager {
      * @param snapshot the snapshot to open
      */
     public void openSnapshot(final VSnapshot snapshot) {
-        openSnapshotInternal(snapshot.getSnapshot().orElse(null), true, e -> Optional.of(snapshot));
+        openSnapshotInternal(snapshot.getSnapshot().orElse(null), e -> Optional.of(snapshot));
     }
 
     private Optional<VSnapshot> loadSnapshot(final Snapshot descriptor) {
@@ -91,35 +119,63 @@ public class ActionManager {
         return Optional.empty();
     }
 
-    private void openSnapshotInternal(final Snapshot snapshot, final boolean newEditor,
+    private List<VSnapshot> loadSnapshots(final List<Snapshot> descriptors) {
+        final Map<String, List<Snapshot>> byProvider = new LinkedHashMap<>();
+        for (Snapshot s : descriptors) {
+            byProvider.computeIfAbsent(s.getSaveSet().getDataProviderId(), k -> new ArrayList<>()).add(s);
+        }
+        final List<VSnapshot> data = new ArrayList<>(descriptors.size());
+        try {
+            for (Map.Entry<String, List<Snapshot>> e : byProvider.entrySet()) {
+                DataProvider provider = SaveRestoreService.getInstance().getDataProvider(e.getKey()).getProvider();
+                data.addAll(provider.getSnapshotContents(e.getValue()));
+            }
+        } catch (DataProviderException e) {
+            reportException(e, owner.getSite().getShell());
+            return Collections.emptyList();
+        }
+        return data;
+    }
+
+    private void openSnapshotInternal(final Snapshot snapshot,
         final Function<Snapshot, Optional<VSnapshot>> snapshotProvider) {
         if (snapshot == null) {
             throw new IllegalArgumentException("Snapshot not provided.");
         }
-        SaveRestoreService.getInstance().execute("Load snapshot data", () -> snapshotProvider.apply(snapshot)
-            .ifPresent(s -> owner.getSite().getShell().getDisplay().asyncExec(() -> openSnapshotEditor(s, newEditor))));
+        final SaveSet set = snapshot.getSaveSet();
+        final Object lane = SaveRestoreService.getBranchLane(set.getDataProviderId(), set.getBranch());
+        SaveRestoreService.getInstance().execute("Load snapshot data", lane, () -> snapshotProvider.apply(snapshot)
+            .ifPresent(s -> owner.getSite().getShell().getDisplay().asyncExec(() -> openSnapshotEditor(s))));
+    }
+
+    private void openSnapshotEditor(VSnapshot s) {
+        try {
+            owner.getSite().getPage().openEditor(new SnapshotEditorInput(s), SnapshotViewerEditor.ID);
+        } catch (PartInitException e) {
+            SaveRestoreService.LOGGER.log(Level.SEVERE, "Could not find or instantiate a new snapshot editor.", e);
+        }
     }
 
-    private void openSnapshotEditor(VSnapshot s, boolean newEditor) {
+    private void compareSnapshotsInEditor(List<VSnapshot> data) {
         try {
-            if (newEditor) {
-                owner.getSite().getPage().openEditor(new SnapshotEditorInput(s), SnapshotViewerEditor.ID);
-            } else {
-                IEditorPart part = owner.getSite().getPage().getActiveEditor();
-                if (!(part instanceof SnapshotViewerEditor)) {
-                    IEditorReference[] parts = owner.getSite().getPage().getEditorReferences();
-                    for (IEditorReference e : parts) {
-                        if (SnapshotViewerEditor.ID.equals(e.getId())) {
-                            part = e.getEditor(true);
-                            break;
-                        }
+            IEditorPart part = owner.getSite().getPage().getActiveEditor();
+            if (!(part instanceof SnapshotViewerEditor)) {
+                IEditorReference[] parts = owner.getSite().getPage().getEditorReferences();
+                for (IEditorReference e : parts) {
+                    if (SnapshotViewerEditor.ID.equals(e.getId())) {
+                        part = e.getEditor(true);
+                        break;
                     }
                 }
-                if (part instanceof SnapshotViewerEditor) {
-                    ((SnapshotViewerEditor) part).addSnapshot(s, true);
-                } else {
-                    owner.getSite().getPage().openEditor(new SnapshotEditorInput(s), SnapshotViewerEditor.ID);
-                }
+            }
+            List<VSnapshot> toAdd = data;
+            if (!(part instanceof SnapshotViewerEditor)) {
+                part = owner.getSite().getPage().openEditor(new SnapshotEditorInput(data.get(0)),
+                    SnapshotViewerEditor.ID);
+                toAdd = data.subList(1, data.size());
+            }
+            if (part instanceof SnapshotViewerEditor) {
+                ((SnapshotViewerEditor) part).addSnapshots(toAdd, true);
             }
         } catch (PartInitException e) {
             SaveRestoreService.LOGGER.log(Level.SEVERE, "Could not find or instantiate a new snapshot editor.", e);
@@ -140,7 +196,8 @@ public class ActionManager {
         if (!provider.isSaveSetSavingSupported()) {
             return;
         }
-        SaveRestoreService.getInstance().execute("Load save set data", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(set.getDataProviderId(), set.getBranch());
+        SaveRestoreService.getInstance().execute("Load save set data", lane, () -> {
             try {
                 SaveSetData data = provider.getSaveSetContent(set);
                 owner.getSite().getShell().getDisplay().asyncExec(() -> {
@@ -168,7 +225,8 @@ public class ActionManager {
         }
         final DataProvider provider = SaveRestoreService.getInstance()
             .getDataProvider(set.getDataProviderId()).getProvider();
-        SaveRestoreService.getInstance().execute("Open save set", () -> {
+        final Object lane = SaveRestoreService.getBranchLane(set.getDataProviderId(), set.getBranch());
+        SaveRestoreService.getInstance().execute("Open save set", lane, () -> {
             try {
                 SaveSetData data = provider.getSaveSetContent(set);
                 final VSnapshot s = new VSnapshot(set, data.getPVList(), data.getReadbackList(), data.getDeltaList());
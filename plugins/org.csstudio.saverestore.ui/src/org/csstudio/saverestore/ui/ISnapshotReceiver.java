@@ -10,6 +10,8 @@
  */
 package org.csstudio.saverestore.ui;
 
+import java.util.List;
+
 import org.csstudio.saverestore.data.VSnapshot;
 import org.eclipse.jface.window.IShellProvider;
 import org.eclipse.swt.widgets.Shell;
@@ -36,6 +38,15 @@ public interface ISnapshotReceiver extends IWorkbenchPart, IShellProvider {
      */
     void addSnapshot(VSnapshot snapshot, boolean useBackgroundThread);
 
+    /**
+     * Adds several snapshots to this receiver at once. The snapshots are compared to the base snapshot if it exists.
+     *
+     * @param snapshots the snapshots data
+     * @param useBackgroundThread true to add the snapshots in background or false to add them in the same thread
+     *          this method is invoked from
+     */
+    void addSnapshots(List<VSnapshot> snapshots, boolean useBackgroundThread);
+
     /**
      * Checks if the receiver is dirty and properly marks it.
      */
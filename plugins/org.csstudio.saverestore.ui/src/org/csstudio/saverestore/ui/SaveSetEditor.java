@@ -138,7 +138,7 @@ public class SaveSetEditor extends FXEditorPart implements IShellProvider {
                 return;
             }
 
-            SaveRestoreService.getInstance().execute("Save Save Set", () -> {
+            SaveRestoreService.getInstance().execute("Save Save Set", this, () -> {
                 final Optional<SaveSetData> ds = controller.save(data);
                 getSite().getShell().getDisplay().asyncExec(() -> {
                     monitor.done();
@@ -215,7 +215,7 @@ public class SaveSetEditor extends FXEditorPart implements IShellProvider {
                 return;
             }
             new RepositoryTreeBrowser(this, data.getDescriptor()).openAndWait()
-                .ifPresent(saveSet -> SaveRestoreService.getInstance().execute("Save Save Set",
+                .ifPresent(saveSet -> SaveRestoreService.getInstance().execute("Save Save Set", this,
                     () -> controller
                         .save(new SaveSetData(saveSet, data.getPVList(), data.getReadbackList(),
                             data.getDeltaList(), data.getDescription()))
@@ -269,7 +269,7 @@ public class SaveSetEditor extends FXEditorPart implements IShellProvider {
         IEditorInput input = getEditorInput();
         SaveSetData data = input.getAdapter(SaveSetData.class);
         if (data != null) {
-            SaveRestoreService.getInstance().execute("Open save set", () -> setSaveSet(data));
+            SaveRestoreService.getInstance().execute("Open save set", this, () -> setSaveSet(data));
         }
         firePropertyChange(PROP_TITLE);
     }
@@ -35,10 +35,13 @@ import org.eclipse.jface.window.IShellProvider;
 
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 /**
@@ -54,7 +57,11 @@ public class Selector implements CompletionNotifier {
     private static final Branch DEFAULT_BRANCH = new Branch();
     // these two are not final for testing purposes
     private static Executor UI_EXECUTOR = Platform::runLater;
-    private static BiConsumer<String, Runnable> SERVICE_EXECUTOR = SaveRestoreService.getInstance()::execute;
+    private static BiConsumer<String, Runnable> SERVICE_EXECUTOR = (name, task) -> {
+        DataProviderWrapper wrapper = SaveRestoreService.getInstance().getSelectedDataProvider();
+        SaveRestoreService.getInstance().execute(name,
+            SaveRestoreService.getProviderLane(wrapper == null ? null : wrapper.getId()), task);
+    };
 
     private Branch firstTimeBranch;
 
@@ -70,6 +77,7 @@ public class Selector implements CompletionNotifier {
     private final ObjectProperty<List<Snapshot>> snapshots = new SimpleObjectProperty<>(
         Collections.unmodifiableList(new ArrayList<>(0)));
     private final BooleanProperty allSnapshotsLoaded = new SimpleBooleanProperty(false);
+    private final IntegerProperty pendingChanges = new SimpleIntegerProperty(0);
     private Snapshot lastSnapshot;
     private final IShellProvider shellProvider;
 
@@ -108,6 +116,7 @@ public class Selector implements CompletionNotifier {
         ((ObjectProperty<List<SaveSet>>) saveSetsProperty())
             .set(Collections.unmodifiableList(new ArrayList<>(0)));
         ((ObjectProperty<List<Snapshot>>) snapshotsProperty()).set(Collections.unmodifiableList(new ArrayList<>(0)));
+        pendingChanges.set(0);
         if (wrapper != null) {
             allSnapshotsLoaded.set(false);
             if (firstTimeBranch == null) {
@@ -343,6 +352,14 @@ public class Selector implements CompletionNotifier {
         return allSnapshotsLoaded;
     }
 
+    /**
+     * @return the property providing the number of changes that were saved locally, but were not transferred to the
+     *         central repository yet
+     */
+    public ReadOnlyIntegerProperty pendingChangesProperty() {
+        return pendingChanges;
+    }
+
     /**
      * @return property containing all available snapshots for the selected branch, base level, and save set
      */
@@ -491,4 +508,14 @@ public class Selector implements CompletionNotifier {
         }
         // if branches are different, do nothing
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.CompletionNotifier#pendingChangesUpdated(int)
+     */
+    @Override
+    public void pendingChangesUpdated(int pending) {
+        UI_EXECUTOR.execute(() -> pendingChanges.set(pending));
+    }
 }
@@ -10,10 +10,13 @@
  */
 package org.csstudio.saverestore.ui;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 
 import org.csstudio.logbook.Attachment;
@@ -105,10 +108,28 @@ public class SendToELogAction extends Action {
 
             @Override
             public InputStream getInputStream() {
-                String data = FileUtilities.generateSnapshotFileContent(snapshot);
+                // the content is streamed from a temporary file, so that a large snapshot is not held in memory by the
+                // log entry; the file is deleted as soon as the stream has been consumed and closed, or at the latest
+                // when the application exits, if the log client never closes the stream
                 try {
-                    return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8.name()));
-                } catch (UnsupportedEncodingException e) {
+                    File file = FileUtilities.writeSnapshotToTemporaryFile(snapshot);
+                    file.deleteOnExit();
+                    try {
+                        return new FilterInputStream(new BufferedInputStream(new FileInputStream(file))) {
+                            @Override
+                            public void close() throws IOException {
+                                try {
+                                    super.close();
+                                } finally {
+                                    Files.deleteIfExists(file.toPath());
+                                }
+                            }
+                        };
+                    } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(file.toPath());
+                        throw e;
+                    }
+                } catch (IOException e) {
                     return null;
                 }
             }
@@ -13,14 +13,13 @@ package org.csstudio.saverestore.ui;
 import static org.diirt.datasource.ExpressionLanguage.channel;
 
 import java.beans.PropertyChangeListener;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Duration;
@@ -29,11 +28,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -45,10 +50,13 @@ import org.csstudio.saverestore.DataProvider;
 import org.csstudio.saverestore.DataProviderException;
 import org.csstudio.saverestore.DataProviderWrapper;
 import org.csstudio.saverestore.FileUtilities;
+import org.csstudio.saverestore.RestoreEngine;
+import org.csstudio.saverestore.RestoreResult;
 import org.csstudio.saverestore.SaveRestoreService;
 import org.csstudio.saverestore.SnapshotContent;
 import org.csstudio.saverestore.UnsupportedActionException;
 import org.csstudio.saverestore.Utilities;
+import org.csstudio.saverestore.ValueFormatter;
 import org.csstudio.saverestore.data.Branch;
 import org.csstudio.saverestore.data.SaveSet;
 import org.csstudio.saverestore.data.Snapshot;
@@ -62,7 +70,6 @@ import org.csstudio.ui.fx.util.FXMessageDialog;
 import org.diirt.datasource.PVManager;
 import org.diirt.datasource.PVReader;
 import org.diirt.datasource.PVWriter;
-import org.diirt.datasource.PVWriterEvent;
 import org.diirt.datasource.PVWriterListener;
 import org.diirt.vtype.Alarm;
 import org.diirt.vtype.AlarmSeverity;
@@ -101,16 +108,22 @@ public class SnapshotViewerController {
     private static Executor UI_EXECUTOR = Platform::runLater;
 
     private static final String EMPTY_STRING = "";
+    // the maximum number of array elements written to the exported file (same as on the screen)
+    private static final int EXPORT_ARRAY_LIMIT = 15;
 
     private class PV {
         final String pvName;
         final PVReader<VType> reader;
         final PVWriter<Object> writer;
+        final AtomicBoolean dirty = new AtomicBoolean(false);
         PVReader<VType> readback;
-        VType value = VDisconnectedData.INSTANCE;
-        VType readbackValue = VDisconnectedData.INSTANCE;
+        volatile TableEntry entry;
+        volatile VType value = VDisconnectedData.INSTANCE;
+        volatile VType readbackValue = VDisconnectedData.INSTANCE;
 
-        PV(String pvName, PVReader<VType> reader, PVWriter<Object> writer, PVReader<VType> readback) {
+        PV(TableEntry entry, String pvName, PVReader<VType> reader, PVWriter<Object> writer,
+            PVReader<VType> readback) {
+            this.entry = entry;
             this.pvName = pvName;
             this.reader = reader;
             this.writer = writer;
@@ -125,10 +138,31 @@ public class SnapshotViewerController {
                         e.getPvReader().lastException());
                 }
                 value = e.getPvReader().isConnected() ? e.getPvReader().getValue() : VDisconnectedData.INSTANCE;
+                markDirty();
                 throttle.trigger();
             });
             this.value = reader.getValue();
             setReadbackReader(readback);
+            markDirty();
+        }
+
+        /**
+         * Adds this PV to the queue of PVs, whose values have to be transferred to the table entry. The PV is added to
+         * the queue only once until its values are transferred.
+         */
+        void markDirty() {
+            if (dirty.compareAndSet(false, true)) {
+                dirtyPVs.add(this);
+            }
+        }
+
+        void update() {
+            dirty.set(false);
+            TableEntry e = entry;
+            if (e != null) {
+                e.setLiveValue(value);
+                e.setReadbackValue(readbackValue);
+            }
         }
 
         void setReadbackReader(PVReader<VType> readbackReader) {
@@ -140,6 +174,7 @@ public class SnapshotViewerController {
                     }
                     readbackValue = e.getPvReader().isConnected() ? e.getPvReader().getValue()
                         : VDisconnectedData.INSTANCE;
+                    markDirty();
                     if (showReadbacks) {
                         throttle.trigger();
                     }
@@ -153,9 +188,28 @@ public class SnapshotViewerController {
             if (readback != null) {
                 readbackValue = readback.getValue();
             }
+            markDirty();
+        }
+
+        CompletableFuture<Void> write(Object value) {
+            final CompletableFuture<Void> done = new CompletableFuture<>();
+            final PVWriterListener<Object> listener = e -> {
+                if (e.isWriteSucceeded()) {
+                    done.complete(null);
+                } else if (e.isWriteFailed()) {
+                    Exception ex = e.getPvWriter().lastWriteException();
+                    done.completeExceptionally(ex == null ? new Exception("Unknown error") : ex);
+                }
+            };
+            // the listener is removed when the write completes or fails, or when the restore engine cancels the write
+            done.whenComplete((r, t) -> writer.removePVWriterListener(listener));
+            writer.addPVWriterListener(listener);
+            writer.write(value);
+            return done;
         }
 
         void dispose() {
+            entry = null;
             if (!reader.isClosed()) {
                 reader.close();
             }
@@ -178,17 +232,19 @@ public class SnapshotViewerController {
     private final Map<TableEntry, PV> pvs = new HashMap<>();
     private final Map<String, PV> pvsForDisposal = new HashMap<>();
     private List<TableEntry> filteredList = new ArrayList<>(0);
+    private final Queue<PV> dirtyPVs = new ConcurrentLinkedQueue<>();
     private final GUIUpdateThrottle throttle = new GUIUpdateThrottle(20, TABLE_UPDATE_RATE) {
         @Override
         protected void fire() {
             UI_EXECUTOR.execute(() -> {
                 if (suspend.get() > 0) {
+                    // the values are transferred after resume, when all PVs are marked dirty anyway
                     return;
                 }
-                pvs.forEach((k, v) -> {
-                    k.setLiveValue(v.value);
-                    k.setReadbackValue(v.readbackValue);
-                });
+                PV pv;
+                while ((pv = dirtyPVs.poll()) != null) {
+                    pv.update();
+                }
             });
         }
     };
@@ -234,6 +290,7 @@ public class SnapshotViewerController {
      * Dispose of all allocated resources.
      */
     public void dispose() {
+        throttle.dispose();
         dispose(true);
         SaveRestoreService.getInstance().removePropertyChangeListener(SaveRestoreService.BUSY, busyListener);
     }
@@ -255,7 +312,10 @@ public class SnapshotViewerController {
                 pvs.values().forEach(e -> e.dispose());
                 pvs.clear();
             } else {
-                pvs.forEach((e, p) -> pvsForDisposal.put(e.pvNameProperty().get(), p));
+                pvs.forEach((e, p) -> {
+                    p.entry = null;
+                    pvsForDisposal.put(e.getPvName(), p);
+                });
                 pvs.clear();
             }
             items.clear();
@@ -269,26 +329,27 @@ public class SnapshotViewerController {
             items.values().forEach(e -> {
                 PV pv = pvs.get(e);
                 if (pv == null) {
-                    pv = pvsForDisposal.remove(e.pvNameProperty().get());
+                    pv = pvsForDisposal.remove(e.getPvName());
                     if (pv != null) {
+                        pv.entry = e;
                         pvs.put(e, pv);
                     }
                 }
                 if (pv == null) {
-                    String name = e.pvNameProperty().get();
+                    String name = e.getPvName();
                     PVReader<VType> reader = PVManager.read(channel(name, VType.class, VType.class))
                         .maxRate(Duration.ofMillis(100));
                     PVWriter<Object> writer = PVManager.write(channel(name)).timeout(Duration.ofMillis(2000)).async();
-                    String readback = e.readbackNameProperty().get();
+                    String readback = e.getReadbackName();
                     PVReader<VType> readbackReader = null;
                     if (readback != null && !readback.isEmpty()) {
                         readbackReader = PVManager.read(channel(readback, VType.class, VType.class))
                             .maxRate(Duration.ofMillis(100));
                     }
-                    pvs.put(e, new PV(name, reader, writer, readbackReader));
+                    pvs.put(e, new PV(e, name, reader, writer, readbackReader));
                 } else {
                     if (pv.readback == null) {
-                        String readback = e.readbackNameProperty().get();
+                        String readback = e.getReadbackName();
                         if (readback != null && !readback.isEmpty()) {
                             PVReader<VType> readbackReader = PVManager.read(channel(readback, VType.class, VType.class))
                                 .maxRate(Duration.ofMillis(100));
@@ -341,8 +402,8 @@ public class SnapshotViewerController {
         for (int i = 0; i < names.size(); i++) {
             e = new TableEntry();
             name = names.get(i);
-            e.idProperty().setValue(i + 1);
-            e.pvNameProperty().setValue(name);
+            e.setId(i + 1);
+            e.setPvName(name);
             e.selectedProperty().setValue(selected.get(i));
             e.setSnapshotValue(values.get(i), 0);
             if (rbValues.size() > i) {
@@ -352,7 +413,7 @@ public class SnapshotViewerController {
             String s = readbacks.get(name);
             if (rbs.size() > i && (s == null || s.isEmpty())) {
                 readbacks.put(name, rbs.get(i));
-                e.readbackNameProperty().set(rbs.get(i));
+                e.setReadbackName(rbs.get(i));
             }
         }
         connectPVs();
@@ -370,57 +431,89 @@ public class SnapshotViewerController {
      * @return a list of entries to display in the viewer
      */
     public List<TableEntry> addSnapshot(VSnapshot data) {
-        int numberOfSnapshots = getNumberOfSnapshots();
-        if (numberOfSnapshots == 0) {
-            return setSnapshotInternal(data); // do not dispose of anything
-        } else if (numberOfSnapshots == 1 && !getSnapshot(0).isSaveable() && !getSnapshot(0).isSaved()) {
-            return setSnapshot(data);
-        } else {
-            List<String> names = data.getNames();
-            List<VType> values = data.getValues();
-            List<String> rbs = data.getReadbackNames();
-            List<VType> rbValues = data.getReadbackValues();
-            boolean update = false;
-            String n;
-            TableEntry e;
-            List<TableEntry> withoutValue = new ArrayList<>(items.values());
-            for (int i = 0; i < names.size(); i++) {
-                n = names.get(i);
-                e = items.get(n);
-                if (e == null) {
-                    e = new TableEntry();
-                    e.idProperty().setValue(items.size() + i + 1);
-                    e.pvNameProperty().setValue(n);
-                    items.put(n, e);
-                    String s = readbacks.get(n);
-                    if (rbs.size() > i && (s == null || s.isEmpty())) {
-                        readbacks.put(n, rbs.get(i));
-                        e.readbackNameProperty().set(rbs.get(i));
-                    }
-                    update = true;
-                }
-                e.setSnapshotValue(values.get(i), numberOfSnapshots);
-                if (rbValues.size() > i) {
-                    e.setStoredReadbackValue(rbValues.get(i), numberOfSnapshots);
-                }
-                withoutValue.remove(e);
-            }
-            for (TableEntry te : withoutValue) {
-                te.setSnapshotValue(VDisconnectedData.INSTANCE, numberOfSnapshots);
-            }
-            synchronized (snapshots) {
-                snapshots.add(data);
+        return addSnapshots(Collections.singletonList(data));
+    }
+
+    /**
+     * Add several snapshots at once and compare them to the base one. If no base snapshot is set, the first of the
+     * provided snapshots becomes the base one. The pvs are connected and the thresholds updated only once, after all
+     * snapshots have been added. Method returns the list of all entries to be shown in the viewer.
+     *
+     * @param data the snapshots to add
+     * @return a list of entries to display in the viewer
+     */
+    public List<TableEntry> addSnapshots(List<VSnapshot> data) {
+        boolean merged = false;
+        boolean update = false;
+        for (VSnapshot d : data) {
+            int numberOfSnapshots = getNumberOfSnapshots();
+            if (numberOfSnapshots == 0) {
+                setSnapshotInternal(d); // do not dispose of anything
+            } else if (numberOfSnapshots == 1 && !getSnapshot(0).isSaveable() && !getSnapshot(0).isSaved()) {
+                setSnapshot(d);
+            } else {
+                update |= mergeSnapshot(d, numberOfSnapshots);
+                merged = true;
             }
+        }
+        if (merged) {
             connectPVs();
-            if (!snapshotSaveableProperty.get()) {
-                snapshotSaveableProperty.set(data.isSaveable() && !SaveRestoreService.getInstance().isBusy());
-            }
-            snapshotRestorableProperty.set(true);
             if (update) {
                 updateThresholds();
             }
-            return filter(items.values(), filter);
         }
+        return filter(items.values(), filter);
+    }
+
+    /**
+     * Merges the snapshot values into the existing table entries and appends the snapshot to the list of snapshots.
+     * The entries that do not exist yet are created, but the pvs are not connected.
+     *
+     * @param data the snapshot to merge
+     * @param numberOfSnapshots the number of snapshots before this one was added (the index of the new snapshot)
+     * @return true if new entries were created or false otherwise
+     */
+    private boolean mergeSnapshot(VSnapshot data, int numberOfSnapshots) {
+        List<String> names = data.getNames();
+        List<VType> values = data.getValues();
+        List<String> rbs = data.getReadbackNames();
+        List<VType> rbValues = data.getReadbackValues();
+        boolean update = false;
+        String n;
+        TableEntry e;
+        Map<String, TableEntry> withoutValue = new HashMap<>(items);
+        for (int i = 0; i < names.size(); i++) {
+            n = names.get(i);
+            e = items.get(n);
+            if (e == null) {
+                e = new TableEntry();
+                e.setId(items.size() + i + 1);
+                e.setPvName(n);
+                items.put(n, e);
+                String s = readbacks.get(n);
+                if (rbs.size() > i && (s == null || s.isEmpty())) {
+                    readbacks.put(n, rbs.get(i));
+                    e.setReadbackName(rbs.get(i));
+                }
+                update = true;
+            }
+            e.setSnapshotValue(values.get(i), numberOfSnapshots);
+            if (rbValues.size() > i) {
+                e.setStoredReadbackValue(rbValues.get(i), numberOfSnapshots);
+            }
+            withoutValue.remove(n);
+        }
+        for (TableEntry te : withoutValue.values()) {
+            te.setSnapshotValue(VDisconnectedData.INSTANCE, numberOfSnapshots);
+        }
+        synchronized (snapshots) {
+            snapshots.add(data);
+        }
+        if (!snapshotSaveableProperty.get()) {
+            snapshotSaveableProperty.set(data.isSaveable() && !SaveRestoreService.getInstance().isBusy());
+        }
+        snapshotRestorableProperty.set(true);
+        return update;
     }
 
     @SuppressWarnings("rawtypes")
@@ -430,24 +523,31 @@ public class SnapshotViewerController {
             final List<String> pvNames = new ArrayList<>(items.size());
             final List<VType> values = new ArrayList<>(items.size());
             items.values().forEach(i -> {
-                pvNames.add(i.pvNameProperty().get());
-                values.add(i.valueProperty().get().value);
+                pvNames.add(i.getPvName());
+                values.add(i.getValue().value);
             });
             Map<String, Threshold> thresholds = provider.get().getThresholds(pvNames, values,
                 getSnapshot(0).getSaveSet().getBaseLevel());
             items.forEach((k, v) -> v.setThreshold(Optional.ofNullable(thresholds.get(k))));
         } else {
             final Map<String, Threshold> thresholds = new HashMap<>(items.size());
-            items.values().forEach(i -> {
-                String pv = i.pvNameProperty().get();
-                for (VSnapshot s : getAllSnapshots()) {
-                    Threshold d = s.getThreshold(pv);
-                    if (d != null) {
-                        thresholds.put(pv, d);
-                        break;
+            List<String> pvNames = new ArrayList<>(items.keySet());
+            for (VSnapshot s : getAllSnapshots()) {
+                // resolve all pvs at once and only look for those, which did not have a threshold in previous snapshots
+                List<Threshold> t = s.getThresholds(pvNames);
+                List<String> unresolved = new ArrayList<>();
+                for (int i = 0; i < t.size(); i++) {
+                    if (t.get(i) == null) {
+                        unresolved.add(pvNames.get(i));
+                    } else {
+                        thresholds.put(pvNames.get(i), t.get(i));
                     }
                 }
-            });
+                if (unresolved.isEmpty()) {
+                    break;
+                }
+                pvNames = unresolved;
+            }
             items.forEach((k, v) -> v.setThreshold(Optional.ofNullable(thresholds.get(k))));
         }
     }
@@ -517,7 +617,7 @@ public class SnapshotViewerController {
         try {
             List<VSnapshot> newSnapshots = supplier.get();
             dispose(false);
-            newSnapshots.forEach(this::addSnapshot);
+            addSnapshots(newSnapshots);
             pvsForDisposal.values().forEach(p -> p.dispose());
             pvsForDisposal.clear();
             return filter(items.values(), filter);
@@ -622,11 +722,17 @@ public class SnapshotViewerController {
                 List<String> readbackNames = new ArrayList<>(items.size());
                 List<VType> readbackValues = new ArrayList<>(items.size());
                 List<String> deltas = new ArrayList<>(items.size());
+                List<String> pvNames = new ArrayList<>(items.keySet());
+                List<List<String>> snapshotDeltas = new ArrayList<>();
+                for (VSnapshot s : getAllSnapshots()) {
+                    snapshotDeltas.add(s.getDeltas(pvNames));
+                }
                 PV pv;
                 String name;
-                String delta = null;
+                String delta;
+                int row = 0;
                 for (TableEntry t : items.values()) {
-                    name = t.pvNameProperty().get();
+                    name = t.getPvName();
                     names.add(name);
                     pv = pvs.get(t);
                     values.add(pv == null || pv.value == null ? VDisconnectedData.INSTANCE : pv.value);
@@ -635,8 +741,9 @@ public class SnapshotViewerController {
                     readbackNames.add(readback == null ? EMPTY_STRING : readback);
                     readbackValues
                         .add(pv == null || pv.readbackValue == null ? VDisconnectedData.INSTANCE : pv.readbackValue);
-                    for (VSnapshot s : getAllSnapshots()) {
-                        delta = s.getDelta(name);
+                    delta = null;
+                    for (List<String> d : snapshotDeltas) {
+                        delta = d.get(row);
                         if (delta != null) {
                             break;
                         }
@@ -645,6 +752,7 @@ public class SnapshotViewerController {
                         delta = EMPTY_STRING;
                     }
                     deltas.add(delta);
+                    row++;
                 }
                 // taken snapshots always belong to the save set of the master snapshot
                 taken = new VSnapshot(new Snapshot(set), names, selected, values, readbackNames, readbackValues, deltas,
@@ -692,13 +800,16 @@ public class SnapshotViewerController {
      */
     public void exportSingleSnapshotToFile(VSnapshot snapshot, File file, boolean markAsSaved) {
         try (PrintWriter pw = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
-            String contents = FileUtilities.generateSnapshotFileContent(snapshot);
-            pw.println(contents);
+            FileUtilities.writeSnapshotFileContent(snapshot, pw);
+            pw.println();
+            if (pw.checkError()) {
+                throw new IOException("Error writing to file " + file.getAbsolutePath());
+            }
             if (markAsSaved) {
                 snapshot.markNotDirty();
             }
             snapshotSaveableProperty.set(!getSnapshots(true).isEmpty());
-        } catch (FileNotFoundException | UnsupportedEncodingException ex) {
+        } catch (IOException ex) {
             ActionManager.reportException(ex, receiver.getShell());
         }
     }
@@ -731,41 +842,56 @@ public class SnapshotViewerController {
                 header.append(",Readback PV,Live Readback Value,Live Readback Timestamp");
             }
             pw.println(header.toString());
-            items.values().forEach(e -> {
-                StringBuilder sb = new StringBuilder(200);
-                sb.append(e.pvNameProperty().get()).append(',');
-                VTypePair pair = e.valueProperty().get();
-                sb.append('"').append(Utilities.valueToString(pair.value)).append('"').append(',');
+            VTypePair pair;
+            for (TableEntry e : items.values()) {
+                pw.append(e.getPvName()).append(',');
+                pair = e.getValue();
+                writeQuotedValue(pw, pair.value);
+                pw.append(',');
                 for (int i = 1; i < snaps.size(); i++) {
-                    pair = e.compareValueProperty(i).get();
-                    sb.append('"').append(Utilities.valueToString(((VTypePair) pair).value)).append('"').append(',');
+                    pair = e.getCompareValue(i);
+                    writeQuotedValue(pw, pair.value);
+                    pw.append(',');
                 }
-                VType v = e.liveValueProperty().get();
-                sb.append('"').append(Utilities.valueToString(v)).append('"');
-                sb.append(',');
+                VType v = e.getLiveValue();
+                writeQuotedValue(pw, v);
+                pw.append(',');
                 if (v instanceof Time) {
-                    // sb.append(Utilities.timestampToLittleEndianString(((Time) v).getTimestamp(),true));
-                    sb.append(Utilities.timestampToDecimalString(((Time) v).getTimestamp()));
+                    // pw.append(Utilities.timestampToLittleEndianString(((Time) v).getTimestamp(),true));
+                    pw.append(Utilities.timestampToDecimalString(((Time) v).getTimestamp()));
                 }
                 if (showLiveReadback) {
-                    sb.append(',').append(e.readbackNameProperty().get());
-                    pair = e.readbackProperty().get();
-                    sb.append(',').append('"').append(Utilities.valueToString(((VTypePair) pair).value)).append('"')
-                        .append(',');
+                    pw.append(',').append(e.getReadbackName());
+                    pair = e.getReadback();
+                    pw.append(',');
+                    writeQuotedValue(pw, pair.value);
+                    pw.append(',');
                     if (pair.value instanceof Time) {
-                        // sb.append(Utilities.timestampToLittleEndianString(((Time) pair.value).getTimestamp(),true));
-                        sb.append(((Time) pair.value).getTimestamp());
+                        // pw.append(Utilities.timestampToLittleEndianString(((Time) pair.value).getTimestamp(),true));
+                        pw.print(((Time) pair.value).getTimestamp());
                     }
                 }
-                pw.println(sb.toString());
-            });
-        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+                pw.println();
+            }
+            if (pw.checkError()) {
+                throw new IOException("Error writing to file " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
             ActionManager.reportException(e, receiver.getShell());
         } finally {
             resume();
         }
     }
 
+    private static void writeQuotedValue(Writer writer, VType value) throws IOException {
+        writer.write('"');
+        if (!ValueFormatter.writeValue(value, EXPORT_ARRAY_LIMIT, writer)) {
+            // same as appending the result of Utilities.valueToString, which is null for unsupported values
+            writer.write("null");
+        }
+        writer.write('"');
+    }
+
     /**
      * Save the snapshot to the given file.
      *
@@ -775,13 +901,18 @@ public class SnapshotViewerController {
      * @return the saved snapshot if successful or null if not successful
      */
     public VSnapshot saveToFile(IFile file, VSnapshot snapshot, boolean markAsSaved) {
+        File contents = null;
         try {
-            if (!file.exists()) {
-                file.create(null, true, null);
+            // the workspace file can only be written from a stream, so the content is first written to a temporary
+            // file, which avoids holding the complete content in memory
+            contents = FileUtilities.writeSnapshotToTemporaryFile(snapshot);
+            try (InputStream stream = new BufferedInputStream(new FileInputStream(contents))) {
+                if (file.exists()) {
+                    file.setContents(stream, IFile.FORCE, new NullProgressMonitor());
+                } else {
+                    file.create(stream, true, new NullProgressMonitor());
+                }
             }
-            String contents = FileUtilities.generateSnapshotFileContent(snapshot);
-            InputStream stream = new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8.name()));
-            file.setContents(stream, IFile.FORCE, new NullProgressMonitor());
             if (markAsSaved) {
                 snapshot.markNotDirty();
             }
@@ -790,6 +921,10 @@ public class SnapshotViewerController {
         } catch (Exception e) {
             ActionManager.reportException(e, receiver.getShell());
             return null;
+        } finally {
+            if (contents != null && !contents.delete()) {
+                contents.deleteOnExit();
+            }
         }
     }
 
@@ -863,85 +998,43 @@ public class SnapshotViewerController {
      * @param s the snapshot
      */
     public void restoreSnapshot(VSnapshot s) {
-        Map<PV, PVWriterListener<?>> restorablePVs = new HashMap<>();
         try {
             suspend();
             List<String> names = s.getNames();
             List<VType> values = s.getValues();
-            final Map<PV, PVWriterEvent<?>> restoredPVs = new HashMap<>();
+            // only restore the value if the entry is in the filtered list as well
+            final Set<TableEntry> visible = new HashSet<>(filteredList);
+            final List<RestoreEngine.Request> requests = new ArrayList<>(names.size());
             for (int i = 0; i < names.size(); i++) {
                 final TableEntry e = items.get(names.get(i));
-                // only restore the value if the entry is in the filtered list as well
-                if (filteredList.contains(e) && e.selectedProperty().get()) {
+                if (e != null && e.selectedProperty().get() && visible.contains(e)) {
                     final PV pv = pvs.get(e);
-                    PVWriterListener<?> l = w -> {
-                        restoredPVs.put(pv, w);
-                        synchronized (restoredPVs) {
-                            restoredPVs.notifyAll();
-                        }
-                    };
-                    restorablePVs.put(pv, l);
-                    pv.writer.addPVWriterListener(l);
-                    pv.writer.write(Utilities.toRawValue(values.get(i)));
+                    final Object value = Utilities.toRawValue(values.get(i));
+                    requests.add(new RestoreEngine.Request(pv.pvName, () -> pv.write(value)));
                 }
             }
-            try {
-                long time = System.currentTimeMillis();
-                while (System.currentTimeMillis() - time < 30000
-                    && !SaveRestoreService.getInstance().isCurrentJobCancelled()) {
-                    synchronized (restoredPVs) {
-                        if (restoredPVs.size() == restorablePVs.size()) {
-                            break;
-                        } else {
-                            restoredPVs.wait(100);
-                        }
-                    }
-                }
-            } catch (InterruptedException e) {
-                // ignore
-            }
+            RestoreResult result = SaveRestoreService.getInstance().createRestoreEngine().restore(requests,
+                SaveRestoreService.getInstance()::isCurrentJobCancelled);
 
-            List<String> messages = new ArrayList<>();
-            for (Map.Entry<PV, PVWriterEvent<?>> pv : restoredPVs.entrySet()) {
-                if (pv.getValue().isWriteFailed()) {
-                    StringBuilder sb = new StringBuilder(200);
-                    sb.append(pv.getKey().pvName).append(':').append(' ');
-                    Exception e = pv.getValue().getPvWriter().lastWriteException();
-                    if (e == null || e.getMessage() == null || e.getMessage().isEmpty()) {
-                        sb.append("Unknown error");
-                    } else {
-                        sb.append(e.getMessage());
-                    }
-                    messages.add(sb.toString());
-                }
-            }
-
-            if (restoredPVs.size() != restorablePVs.size()) {
-                // not all PVs responded in time
-                for (PV pv : restorablePVs.keySet()) {
-                    if (restoredPVs.containsKey(pv)) {
-                        messages.add(pv.pvName + ": Timeout");
-                    }
-                }
-            }
-            if (messages.isEmpty()) {
-                SaveRestoreService.LOGGER.log(Level.FINE, "Restored snapshot {0}: {1}.",
-                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get() });
+            List<RestoreResult.PVResult> failures = result.getFailures();
+            if (failures.isEmpty()) {
+                SaveRestoreService.LOGGER.log(Level.FINE, "Restored snapshot {0}: {1}. {2}",
+                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get(), result });
             } else {
+                List<String> messages = new ArrayList<>(failures.size());
+                failures.forEach(f -> messages.add(f.toString()));
                 Collections.sort(messages);
                 StringBuilder sb = new StringBuilder(messages.size() * 200);
                 messages.forEach(e -> sb.append(e).append('\n'));
                 SaveRestoreService.LOGGER.log(Level.WARNING,
-                    "Not all PVs could be restored for {0}: {1}. The following errors occured:\n{2}",
-                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get(), sb.toString() });
+                    "Not all PVs could be restored for {0}: {1}. {2} The following errors occured:\n{3}",
+                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get(), result,
+                        sb.toString() });
 
                 FXDetailsDialog.open(getSnapshotReceiver().getShell(), "Restore error",
                     "There were some errors restoring the snapshot\n " + s.getSnapshot().get(), sb.toString());
             }
         } finally {
-            for (Map.Entry<PV, PVWriterListener<?>> e : restorablePVs.entrySet()) {
-                e.getKey().writer.removePVWriterListener(e.getValue());
-            }
             resume();
         }
     }
@@ -993,7 +1086,7 @@ public class SnapshotViewerController {
      */
     public void showStoredReadbacks(boolean show, final Consumer<List<TableEntry>> consumer) {
         this.showStoredReadbacks = show;
-        SaveRestoreService.getInstance().execute("Show stored readbacks", () -> consumer.accept(filteredList));
+        SaveRestoreService.getInstance().execute("Show stored readbacks", this, () -> consumer.accept(filteredList));
     }
 
     /**
@@ -1016,7 +1109,7 @@ public class SnapshotViewerController {
     public void showReadbacks(boolean show, final Consumer<List<TableEntry>> consumer) {
         this.showReadbacks = show;
         final Optional<ParametersProvider> provider = ExtensionPointLoader.getInstance().getParametersProvider();
-        SaveRestoreService.getInstance().execute("Load readback names", () -> {
+        SaveRestoreService.getInstance().execute("Load readback names", this, () -> {
             if (show) {
                 if (provider.isPresent()) {
                     List<String> reads = items.keySet().stream().filter(k -> !readbacks.containsKey(k))
@@ -1028,7 +1121,7 @@ public class SnapshotViewerController {
                         }
                     }
                 }
-                items.values().forEach(t -> t.readbackNameProperty().set(readbacks.get(t.pvNameProperty().get())));
+                items.values().forEach(t -> t.setReadbackName(readbacks.get(t.getPvName())));
                 connectPVs();
             }
             consumer.accept(filter(items.values(), filter));
@@ -1099,8 +1192,8 @@ public class SnapshotViewerController {
             }
 
             final TableEntry entry = new TableEntry();
-            entry.idProperty().set(items.size() + 1);
-            entry.pvNameProperty().setValue(pvName);
+            entry.setId(items.size() + 1);
+            entry.setPvName(pvName);
             entry.selectedProperty().set(false);
 
             // Hard reference is required, otherwise diirt might flush the reader, before the value even arrives.
@@ -1124,8 +1217,8 @@ public class SnapshotViewerController {
                         }
                         handled = true;
                     } else if (x.isExceptionChanged()) {
-                        entry.statusProperty().set(x.getPvReader().lastException().getMessage());
-                        entry.severityProperty().set(AlarmSeverity.INVALID);
+                        entry.setStatus(x.getPvReader().lastException().getMessage());
+                        entry.setSeverity(AlarmSeverity.INVALID);
                         handled = true;
                     }
                     if (handled) {
@@ -1162,9 +1255,9 @@ public class SnapshotViewerController {
             }
             items.put(pvName, entry);
             PVReader<VType> reader = PVManager.read(channel(pvName, VType.class, VType.class))
-                .readListener(x -> throttle.trigger()).maxRate(Duration.ofMillis(100));
+                .maxRate(Duration.ofMillis(100));
             PVWriter<Object> writer = PVManager.write(channel(pvName)).timeout(Duration.ofMillis(1000)).async();
-            pvs.put(entry, new PV(pvName, reader, writer, null));
+            pvs.put(entry, new PV(entry, pvName, reader, writer, null));
             UI_EXECUTOR.execute(() -> consumer.accept(entry));
         } catch (RuntimeException e) {
             ActionManager.reportException(e, receiver.getShell());
@@ -1176,7 +1269,7 @@ public class SnapshotViewerController {
             return;
         }
         try {
-            String pvName = entry.pvNameProperty().get();
+            String pvName = entry.getPvName();
             TableEntry e = items.get(pvName);
             if (e == entry) {
                 items.remove(pvName);
@@ -1215,7 +1308,7 @@ public class SnapshotViewerController {
             entries = new ArrayList<>(allEntries);
         } else {
             final Pattern pattern = Pattern.compile(".*" + filter + ".*");
-            entries = allEntries.stream().filter(t -> pattern.matcher(t.pvNameProperty().get()).matches())
+            entries = allEntries.stream().filter(t -> pattern.matcher(t.getPvName()).matches())
                 .collect(Collectors.toList());
         }
         filteredList = entries;
@@ -1231,16 +1324,16 @@ public class SnapshotViewerController {
      */
     public void updateSnapshot(int index, TableEntry entry) {
         VType value;
-        String name = entry.pvNameProperty().get();
+        String name = entry.getPvName();
         boolean selected = entry.selectedProperty().get();
         if (index == 0) {
-            value = entry.valueProperty().get().value;
+            value = entry.getValue().value;
             if (value instanceof Alarm) {
-                entry.statusProperty().set(((Alarm) value).getAlarmName());
-                entry.severityProperty().set(((Alarm) value).getAlarmSeverity());
+                entry.setStatus(((Alarm) value).getAlarmName());
+                entry.setSeverity(((Alarm) value).getAlarmSeverity());
             }
         } else {
-            value = entry.compareValueProperty(index).get().value;
+            value = entry.getCompareValue(index).value;
         }
         VSnapshot snapshot = getSnapshot(index);
         snapshot.addOrSetPV(name, selected, value);
@@ -1263,7 +1356,7 @@ public class SnapshotViewerController {
         }
         TableEntry entry = null;
         for (TableEntry e : items.values()) {
-            if (pvName.equals(e.pvNameProperty().get())) {
+            if (pvName.equals(e.getPvName())) {
                 entry = e;
                 break;
             }
@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -164,7 +165,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                 if (type != null) {
                     if (FXMessageDialog.openConfirm(getShell(), "Remove PV",
                         "Are you sure you want to remove PV " + type.entry.pvNameProperty().get() + "?")) {
-                        SaveRestoreService.getInstance().execute("Remove PV",
+                        SaveRestoreService.getInstance().execute("Remove PV", controller,
                             () -> controller.removePV(type.entry, table::removeItem));
                     }
                 }
@@ -271,7 +272,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
         if (getEditorInput() instanceof IFileEditorInput || getEditorInput() instanceof IURIEditorInput) {
             save(monitor, false);
         } else {
-            SaveRestoreService.getInstance().execute("Save Snapshot", () -> save(monitor, false));
+            SaveRestoreService.getInstance().execute("Save Snapshot", controller, () -> save(monitor, false));
         }
     }
 
@@ -374,12 +375,13 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                 final File file = new File(uri);
                 if (saveAs) {
                     selectFile(true, Optional.of(file))
-                        .ifPresent(f -> SaveRestoreService.getInstance().execute("Save snapshot file", () -> {
-                            controller.exportSingleSnapshotToFile(snapshot, f, true);
-                            Platform.runLater(() -> checkDirty());
-                        }));
+                        .ifPresent(f -> SaveRestoreService.getInstance().execute("Save snapshot file", controller,
+                            () -> {
+                                controller.exportSingleSnapshotToFile(snapshot, f, true);
+                                Platform.runLater(() -> checkDirty());
+                            }));
                 } else {
-                    SaveRestoreService.getInstance().execute("Save snapshot file", () -> {
+                    SaveRestoreService.getInstance().execute("Save snapshot file", controller, () -> {
                         controller.exportSingleSnapshotToFile(snapshot, file, true);
                         Platform.runLater(() -> checkDirty());
                     });
@@ -465,7 +467,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
             .get(getSite().getShell(), "Add Archived PV",
                 "Enter the name of the PV from the archiving system that you wish to add.", "",
                 i -> i == null || i.isEmpty() ? "The PV name cannot be empty" : null)
-            .ifPresent(pv -> SaveRestoreService.getInstance().execute("Add PV from Archive",
+            .ifPresent(pv -> SaveRestoreService.getInstance().execute("Add PV from Archive", controller,
                 () -> controller.addPVFromArchive(pv, table::addItem))));
         Button importButton = new UnfocusableButton("",
             new ImageView(new Image(SnapshotViewerEditor.class.getResourceAsStream("/icons/import_wiz.png"))));
@@ -479,7 +481,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
             FXComboInputDialog
                 .pick(getSite().getShell(), "Select Value Importer",
                     "Select the value importer from which you wish to import the values", importers.get(0), importers)
-                .ifPresent(imp -> SaveRestoreService.getInstance().execute("Import Values",
+                .ifPresent(imp -> SaveRestoreService.getInstance().execute("Import Values", controller,
                     () -> controller.importValues(imp, SnapshotViewerEditor.this::addSnapshot)));
         });
         ToggleButton addReadbacksButton = new UnfocusableToggleButton("",
@@ -507,7 +509,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
             dialog.setFilterNames(new String[] { "Single Snapshot (*.snp)" });
             String ans = dialog.open();
             if (ans != null) {
-                SaveRestoreService.getInstance().execute("Open file",
+                SaveRestoreService.getInstance().execute("Open file", controller,
                     () -> controller.openFromFile(new File(ans)).ifPresent(SnapshotViewerEditor.this::addSnapshot));
             }
         });
@@ -517,13 +519,13 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
         saveSnapshotToFileButton.setOnAction(e -> selectFile(true, Optional.empty()).ifPresent(f -> {
             final List<VSnapshot> snapshots = controller.getAllSnapshots();
             if (snapshots.size() == 1) {
-                SaveRestoreService.getInstance().execute("Export to snp file",
+                SaveRestoreService.getInstance().execute("Export to snp file", controller,
                     () -> controller.exportSingleSnapshotToFile(snapshots.get(0), f, false));
             } else {
                 FXComboInputDialog
                     .pick(getSite().getShell(), "Select Snapshot", "Select the snapshot that you wish to save",
                         snapshots.get(0), snapshots)
-                    .ifPresent(s -> SaveRestoreService.getInstance().execute("Export to snp file",
+                    .ifPresent(s -> SaveRestoreService.getInstance().execute("Export to snp file", controller,
                         () -> controller.exportSingleSnapshotToFile(s, f, false)));
             }
         }));
@@ -532,7 +534,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
         exportButton.setTooltip(new Tooltip("Export editor contents to file"));
         exportButton.setOnAction(e -> selectFile(false, Optional.empty()).ifPresent(f -> {
             final boolean includeReadback = controller.isShowReadbacks();
-            SaveRestoreService.getInstance().execute("Export to csv file",
+            SaveRestoreService.getInstance().execute("Export to csv file", controller,
                 () -> controller.exportToFile(f, includeReadback));
         }));
         Separator separator1 = new Separator(Orientation.VERTICAL);
@@ -603,7 +605,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                     suppressUpdate = false;
                 });
 
-                SaveRestoreService.getInstance().execute("Filter items", () -> {
+                SaveRestoreService.getInstance().execute("Filter items", controller, () -> {
                     final List<TableEntry> entries = controller
                         .setFilter(ALL_ITEMS.equals(selectedFilter) ? null : selectedFilter);
                     Platform.runLater(() -> table.updateTable(entries));
@@ -615,7 +617,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
             new ImageView(new Image(SnapshotViewerEditor.class.getResourceAsStream("/icons/filter_ps.png"))));
         hideEqualItemsButton.setTooltip(new Tooltip("Hide/Show items where snapshot value equals current value"));
         hideEqualItemsButton.selectedProperty()
-            .addListener((a, o, n) -> SaveRestoreService.getInstance().execute("Filter items", () -> {
+            .addListener((a, o, n) -> SaveRestoreService.getInstance().execute("Filter items", controller, () -> {
                 final List<TableEntry> entries = controller.setHideEqualItems(n);
                 Platform.runLater(() -> table.updateTable(entries));
             }));
@@ -720,7 +722,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
         takeSnapshotButton.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
         takeSnapshotButton.setTooltip(new Tooltip("Take a new snapshot (locally store the live values)"));
         takeSnapshotButton.setOnAction(
-            e -> SaveRestoreService.getInstance().execute("Take Snapshot", () -> controller.takeSnapshot()));
+            e -> SaveRestoreService.getInstance().execute("Take Snapshot", controller, controller::takeSnapshot));
 
         saveSnapshotButton = new Button();
         box = new VBox();
@@ -737,7 +739,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                 checkDirty();
             } else {
                 final List<VSnapshot> snapshots = controller.getSnapshots(true);
-                SaveRestoreService.getInstance().execute("Save Snapshot", () -> {
+                SaveRestoreService.getInstance().execute("Save Snapshot", controller, () -> {
                     save(snapshots, false, false);
                     Platform.runLater(() -> checkDirty());
                 });
@@ -747,19 +749,20 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
 
         Button restoreSnapshotButton = new Button("Restore");
         restoreSnapshotButton.setTooltip(new Tooltip("Set the stored values to PVs"));
-        restoreSnapshotButton.setOnAction(e -> SaveRestoreService.getInstance().execute("Restore Snapshot", () -> {
-            // allow to restore non saved snapshots as well
-            List<VSnapshot> snapshots = controller.getAllSnapshots();
-            if (snapshots.isEmpty()) {
-                return;
-            } else if (snapshots.size() == 1) {
-                controller.restoreSnapshot(snapshots.get(0));
-            } else {
-                FXComboInputDialog.pick(getSite().getShell(), "Select Snapshot",
-                    "Select the snapshot that you wish to restore", snapshots.get(0), snapshots)
-                    .ifPresent(controller::restoreSnapshot);
-            }
-        }));
+        restoreSnapshotButton.setOnAction(
+            e -> SaveRestoreService.getInstance().execute("Restore Snapshot", controller, () -> {
+                // allow to restore non saved snapshots as well
+                List<VSnapshot> snapshots = controller.getAllSnapshots();
+                if (snapshots.isEmpty()) {
+                    return;
+                } else if (snapshots.size() == 1) {
+                    controller.restoreSnapshot(snapshots.get(0));
+                } else {
+                    FXComboInputDialog.pick(getSite().getShell(), "Select Snapshot",
+                        "Select the snapshot that you wish to restore", snapshots.get(0), snapshots)
+                        .ifPresent(controller::restoreSnapshot);
+                }
+            }));
         restoreSnapshotButton.disableProperty().bind(controller.snapshotRestorableProperty().not());
 
         restoreSnapshotButton.setMaxHeight(Integer.MAX_VALUE);
@@ -789,7 +792,7 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                 if (s != null) {
                     final DataProvider provider = SaveRestoreService.getInstance()
                         .getDataProvider(s.getSaveSet().getDataProviderId()).getProvider();
-                    SaveRestoreService.getInstance().execute("Load snapshot data", () -> {
+                    SaveRestoreService.getInstance().execute("Load snapshot data", controller, () -> {
                         try {
                             addSnapshot(provider.getSnapshotContent(s));
                         } catch (DataProviderException ex) {
@@ -801,8 +804,11 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
                 @SuppressWarnings("unchecked")
                 final List<File> files = (List<File>) e.getDragboard().getContent(DataFormat.FILES);
                 if (!files.isEmpty()) {
-                    SaveRestoreService.getInstance().execute("Open file", () -> files
-                        .forEach(c -> controller.openFromFile(c).ifPresent(SnapshotViewerEditor.this::addSnapshot)));
+                    SaveRestoreService.getInstance().execute("Open file", controller, () -> {
+                        List<VSnapshot> snapshots = new ArrayList<>(files.size());
+                        files.forEach(c -> controller.openFromFile(c).ifPresent(snapshots::add));
+                        addSnapshots(snapshots, false);
+                    });
                 }
             }
         });
@@ -825,19 +831,34 @@ public class SnapshotViewerEditor extends FXEditorPart implements ISnapshotRecei
         addOrSetSnapshot(data, true, useBackgroundThread);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.ui.ISnapshotReceiver#addSnapshots(java.util.List, boolean)
+     */
+    @Override
+    public void addSnapshots(List<VSnapshot> data, boolean useBackgroundThread) {
+        if (!data.isEmpty()) {
+            updateSnapshots(() -> controller.addSnapshots(data), useBackgroundThread);
+        }
+    }
+
     private void addOrSetSnapshot(final VSnapshot data, final boolean add, final boolean useBackgroundThread) {
+        updateSnapshots(() -> add ? controller.addSnapshot(data) : controller.setSnapshot(data), useBackgroundThread);
+    }
+
+    private void updateSnapshots(final Supplier<List<TableEntry>> action, final boolean useBackgroundThread) {
         Runnable r = () -> {
-            final List<TableEntry> entries = add ? controller.addSnapshot(data) : controller.setSnapshot(data);
+            final List<TableEntry> entries = action.get();
             final List<VSnapshot> snapshots = controller.getAllSnapshots();
             Platform.runLater(() -> table.updateTable(entries, snapshots, controller.isShowReadbacks(),
                 controller.isShowStoredReadbacks()));
         };
         if (useBackgroundThread) {
-            SaveRestoreService.getInstance().execute("Open Snapshot", r);
+            SaveRestoreService.getInstance().execute("Open Snapshot", controller, r);
         } else {
             r.run();
         }
-
     }
 
     /*
@@ -15,8 +15,14 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.csstudio.csdata.ProcessVariable;
@@ -28,6 +34,8 @@ import org.csstudio.saverestore.data.VDisconnectedData;
 import org.csstudio.saverestore.data.VNoData;
 import org.csstudio.saverestore.data.VSnapshot;
 import org.csstudio.saverestore.ui.util.MultitypeTableCell;
+import org.csstudio.saverestore.ui.util.ObservableLists;
+import org.csstudio.saverestore.ui.util.UpdatableObservableList;
 import org.csstudio.saverestore.ui.util.VTypeNamePair;
 import org.csstudio.saverestore.ui.util.VTypePair;
 import org.csstudio.ui.fx.util.FXMessageDialog;
@@ -45,7 +53,10 @@ import org.eclipse.jface.viewers.StructuredSelection;
 
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
-import javafx.collections.ObservableList;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
@@ -70,12 +81,19 @@ import javafx.util.StringConverter;
  * <code>Table</code> is an extension of the JavaFX table, tailored for the presentation of the {@link VSnapshot}s. The
  * table also implements {@link ISelectionProvider} interface and provides the selected items as {@link ProcessVariable}
  * s or {@link TimestampedPV}s. This table is used in combination with the {@link SnapshotViewerEditor}.
+ * <p>
+ * The rows of the table are kept in a stable backing list, which is only changed where the new content differs from
+ * the old one. The rows with equal live and stored values are hidden by a filtered view of the backing list. The
+ * equality of an entry can change on any thread, therefore the changed entries are collected and reported to the
+ * backing list as updates on the UI thread, and only if the equal rows are hidden. The filtered view then only
+ * re-evaluates the changed rows.
  *
  * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
  *
  */
 class Table extends TableView<TableEntry> implements ISelectionProvider {
 
+    private static final Predicate<TableEntry> NOT_EQUAL = e -> !e.liveStoredEqualProperty().get();
     private static boolean resizePolicyNotInitialized = true;
     private static PrivilegedAction<Object> resizePolicyAction = () -> {
         try {
@@ -261,7 +279,7 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
                     } else if (pair.value == VNoData.INSTANCE) {
                         setText(pair.value.toString());
                     } else {
-                        VTypeComparison vtc = Utilities.valueToCompareString(pair.value, pair.base, pair.threshold);
+                        VTypeComparison vtc = pair.getComparison();
                         setText(vtc.getString());
                         if (!vtc.isWithinThreshold()) {
                             getStyleClass().add("diff-cell");
@@ -345,8 +363,10 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
             setSortable(false);
             selectAllCheckBox = new UnfocusableCheckBox();
             selectAllCheckBox.setSelected(false);
-            selectAllCheckBox.setOnAction(
-                e -> getItems().forEach(te -> te.selectedProperty().setValue(selectAllCheckBox.isSelected())));
+            selectAllCheckBox.setOnAction(e -> {
+                boolean selected = selectAllCheckBox.isSelected();
+                getItems().forEach(te -> te.selectedProperty().setValue(selected));
+            });
             setGraphic(selectAllCheckBox);
             MenuItem inverseMI = new MenuItem("Inverse Selection");
             inverseMI.setOnAction(
@@ -371,6 +391,19 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
     private int clickedColumn = -1;
     private int clickedRow = -1;
     private final List<ISelectionChangedListener> selectionChangedListener = new CopyOnWriteArrayList<>();
+    private final UpdatableObservableList<TableEntry> entries = new UpdatableObservableList<>();
+    private final FilteredList<TableEntry> visibleEntries = new FilteredList<>(entries);
+    // the same listener instance is added to every entry, which makes repeated registrations harmless
+    private final ChangeListener<Boolean> selectionListener = (a, o, n) -> {
+        if (!n) {
+            selectAllCheckBox.setSelected(false);
+        }
+    };
+    private final Set<TableEntry> changedEntries = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+    // the equality is updated by the jobs as well, so the updates are always reported on the UI thread
+    private final ChangeListener<Boolean> equalityListener = (a, o, n) -> equalityChanged(
+        (TableEntry) ((ReadOnlyProperty<?>) a).getBean());
 
     /**
      * Constructs a new table.
@@ -387,6 +420,9 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
         setMaxWidth(Double.MAX_VALUE);
         setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         getStylesheets().add(Table.class.getResource(SnapshotViewerEditor.STYLE).toExternalForm());
+        SortedList<TableEntry> sortedEntries = new SortedList<>(visibleEntries);
+        sortedEntries.comparatorProperty().bind(comparatorProperty());
+        setItems(sortedEntries);
 
         setOnMouseClicked(e -> {
             if (getSelectionModel().getSelectedCells() != null && !getSelectionModel().getSelectedCells().isEmpty()) {
@@ -616,13 +652,13 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
 
     private ContextMenu createContextMenu(final int snapshotIndex) {
         MenuItem removeItem = new MenuItem("Remove");
-        removeItem.setOnAction(ev -> SaveRestoreService.getInstance().execute("Remove Snapshot",
+        removeItem.setOnAction(ev -> SaveRestoreService.getInstance().execute("Remove Snapshot", controller,
             () -> update(controller.removeSnapshot(snapshotIndex))));
         MenuItem setAsBaseItem = new MenuItem("Set As Base");
-        setAsBaseItem.setOnAction(ev -> SaveRestoreService.getInstance().execute("Set new base Snapshot",
+        setAsBaseItem.setOnAction(ev -> SaveRestoreService.getInstance().execute("Set new base Snapshot", controller,
             () -> update(controller.setAsBase(snapshotIndex))));
         MenuItem moveToNewEditor = new MenuItem("Move To New Editor");
-        moveToNewEditor.setOnAction(ev -> SaveRestoreService.getInstance().execute("Open Snapshot",
+        moveToNewEditor.setOnAction(ev -> SaveRestoreService.getInstance().execute("Open Snapshot", controller,
             () -> update(controller.moveSnapshotToNewEditor(snapshotIndex))));
         return new ContextMenu(removeItem, setAsBaseItem, new SeparatorMenuItem(), moveToNewEditor);
     }
@@ -636,9 +672,9 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
     }
 
     /**
-     * Updates the table by setting new content, including the structure. The table is always recreated, even if the new
-     * structure is identical to the old one. This is slightly more expensive; however, this method is only invoked per
-     * user request (button click).
+     * Updates the table by setting new content, including the structure. The columns are always recreated, even if the
+     * new structure is identical to the old one. This is slightly more expensive; however, this method is only invoked
+     * per user request (button click). The rows are only updated where the new entries differ from the current ones.
      *
      * @param entries the table entries (rows) to set on the table
      * @param snapshots the snapshots which are currently displayed
@@ -663,32 +699,62 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
     }
 
     /**
-     * Sets new table entries for this table, but do not change the structure of the table.
+     * Sets new table entries for this table, but do not change the structure of the table. Only the differences between
+     * the current and the new entries are applied to the table.
      *
      * @param entries the entries to set
      */
     void updateTable(List<TableEntry> entries) {
-        final ObservableList<TableEntry> items = getItems();
-        final boolean notHide = !controller.isHideEqualItems();
-        items.clear();
+        // there is no harm if this is executed more than once, because only one listener is allowed for these
+        // properties (see SingleListenerBooleanProperty for more details)
         entries.forEach(e -> {
-            // there is no harm if this is executed more than once, because only one listener is allowed for these
-            // two properties (see SingleListenerBooleanProperty for more details)
-            e.selectedProperty()
-                .addListener((a, o, n) -> selectAllCheckBox.setSelected(n ? selectAllCheckBox.isSelected() : false));
-            e.liveStoredEqualProperty().addListener((a, o, n) -> {
-                if (controller.isHideEqualItems()) {
-                    if (n) {
-                        getItems().remove(e);
-                    } else {
-                        getItems().add(e);
-                    }
-                }
-            });
-            if (notHide || !e.liveStoredEqualProperty().get()) {
-                items.add(e);
-            }
+            e.selectedProperty().addListener(selectionListener);
+            e.liveStoredEqualProperty().addListener(equalityListener);
         });
+        ObservableLists.setContent(this.entries, entries);
+        updateFilter();
+    }
+
+    /**
+     * Hides or shows the entries with equal live and stored values according to the current setting of the controller.
+     * The predicate is only replaced if the setting changed, because replacing it re-evaluates all entries.
+     */
+    private void updateFilter() {
+        boolean hide = controller.isHideEqualItems();
+        if (hide != (visibleEntries.getPredicate() != null)) {
+            visibleEntries.setPredicate(hide ? NOT_EQUAL : null);
+        }
+    }
+
+    /**
+     * Remembers the entry, whose equality changed, and schedules the update of the changed entries on the UI thread, if
+     * the equal entries are hidden and the update is not scheduled yet.
+     *
+     * @param entry the entry which changed
+     */
+    private void equalityChanged(TableEntry entry) {
+        if (controller.isHideEqualItems()) {
+            changedEntries.add(entry);
+            if (updateScheduled.compareAndSet(false, true)) {
+                Platform.runLater(this::fireUpdates);
+            }
+        }
+    }
+
+    /**
+     * Reports all entries, whose equality changed since the last call, as updated to the backing list. The filtered
+     * view re-evaluates the visibility of those entries only.
+     */
+    private void fireUpdates() {
+        updateScheduled.set(false);
+        List<TableEntry> changed = new ArrayList<>(changedEntries.size());
+        for (Iterator<TableEntry> it = changedEntries.iterator(); it.hasNext();) {
+            changed.add(it.next());
+            it.remove();
+        }
+        if (controller.isHideEqualItems()) {
+            entries.update(changed);
+        }
     }
 
     /**
@@ -697,20 +763,9 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
      * @param entry the item to add
      */
     void addItem(TableEntry entry) {
-        entry.selectedProperty()
-            .addListener((a, o, n) -> selectAllCheckBox.setSelected(n ? selectAllCheckBox.isSelected() : false));
-        entry.liveStoredEqualProperty().addListener((a, o, n) -> {
-            if (controller.isHideEqualItems()) {
-                if (n) {
-                    getItems().remove(entry);
-                } else {
-                    getItems().add(entry);
-                }
-            }
-        });
-        if (!controller.isHideEqualItems() || !entry.liveStoredEqualProperty().get()) {
-            getItems().add(entry);
-        }
+        entry.selectedProperty().addListener(selectionListener);
+        entry.liveStoredEqualProperty().addListener(equalityListener);
+        entries.add(entry);
     }
 
     /**
@@ -719,7 +774,7 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
      * @param entry the entry to remove
      */
     void removeItem(TableEntry entry) {
-        getItems().remove(entry);
+        entries.remove(entry);
     }
 
     /**
@@ -805,11 +860,11 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
         Instant timestamp = snapshot.getTimestamp();
         if (timestamp == null) {
             return new StructuredSelection(selectionModelProperty().get().getSelectedItems().stream()
-                .map(e -> new ProcessVariable(e.pvNameProperty().get())).collect(Collectors.toList()));
+                .map(e -> new ProcessVariable(e.getPvName())).collect(Collectors.toList()));
         } else {
             long time = timestamp.toEpochMilli();
             return new StructuredSelection(selectionModelProperty().get().getSelectedItems().stream()
-                .map(e -> new TimestampedPV(e.pvNameProperty().get(), time)).collect(Collectors.toList()));
+                .map(e -> new TimestampedPV(e.getPvName(), time)).collect(Collectors.toList()));
         }
     }
 
@@ -914,7 +969,7 @@ class Table extends TableView<TableEntry> implements ISelectionProvider {
         if (getItems().size() > clickedRow) {
             TableEntry entry = getItems().get(clickedRow);
             VSnapshot snapshot = snapshotIndex > -1 ? uiSnapshots.get(snapshotIndex) : null;
-            String name = (readback ? entry.readbackNameProperty() : entry.pvNameProperty()).get();
+            String name = readback ? entry.getReadbackName() : entry.getPvName();
             return new VTypeNamePair(value, name, snapshot, readback, entry);
         } else {
             return null;
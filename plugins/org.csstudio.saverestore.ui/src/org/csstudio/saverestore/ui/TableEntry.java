@@ -12,10 +12,11 @@ package org.csstudio.saverestore.ui;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-import org.csstudio.saverestore.Utilities;
 import org.csstudio.saverestore.data.Threshold;
 import org.csstudio.saverestore.data.VDisconnectedData;
 import org.csstudio.saverestore.ui.util.SingleListenerBooleanProperty;
@@ -38,31 +39,46 @@ import javafx.beans.property.StringProperty;
  *
  * <code>TableEntry</code> represents a single line in the snapshot viewer table. It provides values for all columns in
  * the table, be it a single snapshot table or a multi snapthos table.
+ * <p>
+ * The values are stored in plain fields; the stored values and stored readbacks of all snapshots are kept in two
+ * parallel arrays indexed by the snapshot index. The JavaFX properties, which are only needed by the table cells that
+ * are actually displayed, are created on first request and kept in sync with the fields from then on. Until a
+ * property is requested, the plain getters and setters do not create any properties.
  *
  * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
  *
  */
 public class TableEntry {
 
-    private final IntegerProperty id = new SimpleIntegerProperty(this, "id");
     private final BooleanProperty selected = new SingleListenerBooleanProperty(this, "selected", true);
-    private final StringProperty pvName = new SimpleStringProperty(this, "pvName");
-    private final ObjectProperty<Instant> timestamp = new SimpleObjectProperty<>(this, "timestamp");
-    private final StringProperty status = new SimpleStringProperty(this, "status", "OK");
-    private final ObjectProperty<AlarmSeverity> severity = new SimpleObjectProperty<>(this, "severity", AlarmSeverity.NONE);
-    private final ObjectProperty<VTypePair> value = new SimpleObjectProperty<>(this, "value",
-        new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, Optional.empty()));
-    private final ObjectProperty<VType> liveValue = new SimpleObjectProperty<>(this, "liveValue", VDisconnectedData.INSTANCE);
-    private final List<ObjectProperty<VTypePair>> compareValues = new ArrayList<>();
-    private final ObjectProperty<VTypePair> readback = new SimpleObjectProperty<>(this, "readback",
-        new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, Optional.empty()));
-    private final StringProperty readbackName = new SimpleStringProperty(this, "readbackName");
     private final BooleanProperty liveStoredEqual = new SingleListenerBooleanProperty(this, "liveStoredEqual", true);
-    private final ObjectProperty<VTypePair> storedReadback = new SimpleObjectProperty<>(this, "storedReadback",
-        new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, Optional.empty()));
-    private final List<ObjectProperty<VTypePair>> compareStoredReadbacks = new ArrayList<>();
+    private int id;
+    private String pvName;
+    private String readbackName;
+    private Instant timestamp;
+    private String status = "OK";
+    private AlarmSeverity severity = AlarmSeverity.NONE;
+    private VType liveValue = VDisconnectedData.INSTANCE;
+    private VType readbackValue = VDisconnectedData.INSTANCE;
+    // index 0 belongs to the primary snapshot, all others to the snapshots compared to the primary one
+    private VType[] storedValues = { VDisconnectedData.INSTANCE };
+    private VType[] storedReadbacks = { VDisconnectedData.INSTANCE };
     private Optional<Threshold<?>> threshold = Optional.empty();
 
+    // the properties are created on request only
+    private IntegerProperty idProperty;
+    private StringProperty pvNameProperty;
+    private StringProperty readbackNameProperty;
+    private ObjectProperty<Instant> timestampProperty;
+    private StringProperty statusProperty;
+    private ObjectProperty<AlarmSeverity> severityProperty;
+    private ObjectProperty<VType> liveValueProperty;
+    private ObjectProperty<VTypePair> valueProperty;
+    private ObjectProperty<VTypePair> readbackProperty;
+    private ObjectProperty<VTypePair> storedReadbackProperty;
+    private List<ObjectProperty<VTypePair>> compareValueProperties;
+    private List<ObjectProperty<VTypePair>> compareStoredReadbackProperties;
+
     /**
      * Returns the property that describes whether the live and stored values are identical. This property can only have
      * one listener.
@@ -87,27 +103,90 @@ public class TableEntry {
      * @return the property providing the pv name
      */
     public StringProperty pvNameProperty() {
+        if (pvNameProperty == null) {
+            pvNameProperty = new SimpleStringProperty(this, "pvName", pvName);
+            pvNameProperty.addListener((a, o, n) -> pvName = n);
+        }
+        return pvNameProperty;
+    }
+
+    /**
+     * @return the setpoint pv name
+     */
+    public String getPvName() {
         return pvName;
     }
 
+    /**
+     * @param pvName the setpoint pv name
+     */
+    public void setPvName(String pvName) {
+        this.pvName = pvName;
+        if (pvNameProperty != null) {
+            pvNameProperty.set(pvName);
+        }
+    }
+
     /**
      * @return the property providing the readback pv name
      */
     public StringProperty readbackNameProperty() {
+        if (readbackNameProperty == null) {
+            readbackNameProperty = new SimpleStringProperty(this, "readbackName", readbackName);
+            readbackNameProperty.addListener((a, o, n) -> readbackName = n);
+        }
+        return readbackNameProperty;
+    }
+
+    /**
+     * @return the readback pv name
+     */
+    public String getReadbackName() {
         return readbackName;
     }
 
+    /**
+     * @param readbackName the readback pv name
+     */
+    public void setReadbackName(String readbackName) {
+        this.readbackName = readbackName;
+        if (readbackNameProperty != null) {
+            readbackNameProperty.set(readbackName);
+        }
+    }
+
     /**
      * @return the property providing the readback value
      */
     public ObjectProperty<VTypePair> readbackProperty() {
-        return readback;
+        if (readbackProperty == null) {
+            readbackProperty = createPairProperty("readback", getReadback(), v -> readbackValue = v);
+        }
+        return readbackProperty;
+    }
+
+    /**
+     * @return the live setpoint value paired with the live readback value
+     */
+    public VTypePair getReadback() {
+        return new VTypePair(liveValue, readbackValue, threshold);
     }
 
     /**
      * @return the property providing the timestamp of the primary snapshot value
      */
     public ObjectProperty<Instant> timestampProperty() {
+        if (timestampProperty == null) {
+            timestampProperty = new SimpleObjectProperty<>(this, "timestamp", timestamp);
+            timestampProperty.addListener((a, o, n) -> timestamp = n);
+        }
+        return timestampProperty;
+    }
+
+    /**
+     * @return the timestamp of the primary snapshot value
+     */
+    public Instant getTimestamp() {
         return timestamp;
     }
 
@@ -115,34 +194,118 @@ public class TableEntry {
      * @return the property providing the alarm severity of the primary snapshot value
      */
     public ObjectProperty<AlarmSeverity> severityProperty() {
+        if (severityProperty == null) {
+            severityProperty = new SimpleObjectProperty<>(this, "severity", severity);
+            severityProperty.addListener((a, o, n) -> severity = n);
+        }
+        return severityProperty;
+    }
+
+    /**
+     * @return the alarm severity of the primary snapshot value
+     */
+    public AlarmSeverity getSeverity() {
         return severity;
     }
 
+    /**
+     * @param severity the alarm severity of the primary snapshot value
+     */
+    public void setSeverity(AlarmSeverity severity) {
+        this.severity = severity;
+        if (severityProperty != null) {
+            severityProperty.set(severity);
+        }
+    }
+
     /**
      * @return the property providing the alarm status of the primary snapshot value
      */
     public StringProperty statusProperty() {
+        if (statusProperty == null) {
+            statusProperty = new SimpleStringProperty(this, "status", status);
+            statusProperty.addListener((a, o, n) -> status = n);
+        }
+        return statusProperty;
+    }
+
+    /**
+     * @return the alarm status of the primary snapshot value
+     */
+    public String getStatus() {
         return status;
     }
 
+    /**
+     * @param status the alarm status of the primary snapshot value
+     */
+    public void setStatus(String status) {
+        this.status = status;
+        if (statusProperty != null) {
+            statusProperty.set(status);
+        }
+    }
+
     /**
      * @return the property providing the value of the primary snapshot value
      */
     public ObjectProperty<VTypePair> valueProperty() {
-        return value;
+        if (valueProperty == null) {
+            valueProperty = createPairProperty("value", getValue(), v -> storedValues[0] = v);
+        }
+        return valueProperty;
+    }
+
+    /**
+     * @return the live value paired with the value of the primary snapshot
+     */
+    public VTypePair getValue() {
+        return new VTypePair(liveValue, storedValues[0], threshold);
     }
 
     /**
      * @return the property providing the unique (incremental id) used for sorting the entries
      */
     public IntegerProperty idProperty() {
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, "id", id);
+            idProperty.addListener((a, o, n) -> id = n.intValue());
+        }
+        return idProperty;
+    }
+
+    /**
+     * @return the unique (incremental) id used for sorting the entries
+     */
+    public int getId() {
         return id;
     }
 
+    /**
+     * @param id the unique (incremental) id used for sorting the entries
+     */
+    public void setId(int id) {
+        this.id = id;
+        if (idProperty != null) {
+            idProperty.set(id);
+        }
+    }
+
     /**
      * @return the property providing the live PV value
      */
     public ObjectProperty<VType> liveValueProperty() {
+        if (liveValueProperty == null) {
+            liveValueProperty = new SimpleObjectProperty<>(this, "liveValue", liveValue);
+            liveValueProperty.addListener((a, o, n) -> liveValue = n);
+        }
+        return liveValueProperty;
+    }
+
+    /**
+     * @return the live PV value
+     */
+    public VType getLiveValue() {
         return liveValue;
     }
 
@@ -150,7 +313,21 @@ public class TableEntry {
      * @return the property providing the stored readback vs stored setpoint value
      */
     public ObjectProperty<VTypePair> storedReadbackProperty() {
-        return storedReadback;
+        if (storedReadbackProperty == null) {
+            storedReadbackProperty = createPairProperty("storedReadback", getStoredReadback(0),
+                v -> storedReadbacks[0] = v);
+        }
+        return storedReadbackProperty;
+    }
+
+    /**
+     * @param index the index of the snapshot (0 for the primary snapshot)
+     * @return the stored setpoint value paired with the stored readback value of the given snapshot
+     */
+    public VTypePair getStoredReadback(int index) {
+        return index < storedReadbacks.length
+            ? new VTypePair(storedValues[index], storedReadbacks[index], threshold)
+            : new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, threshold);
     }
 
     /**
@@ -160,9 +337,29 @@ public class TableEntry {
     public ObjectProperty<VTypePair> compareValueProperty(int index) {
         if (index == 0) {
             throw new IndexOutOfBoundsException("Index has to be larger than 0.");
-        } else {
-            return compareValues.get(index - 1);
+        } else if (index >= storedValues.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (storedValues.length - 1));
+        }
+        if (compareValueProperties == null) {
+            compareValueProperties = new ArrayList<>(storedValues.length - 1);
+        }
+        for (int i = compareValueProperties.size(); i < index; i++) {
+            final int n = i + 1;
+            compareValueProperties.add(
+                createPairProperty("CompareValue" + i, getCompareValue(n), v -> storedValues[n] = v));
+        }
+        return compareValueProperties.get(index - 1);
+    }
+
+    /**
+     * @param index the index of the compared value (starts with 1)
+     * @return the value of the primary snapshot paired with the value of the compared snapshot
+     */
+    public VTypePair getCompareValue(int index) {
+        if (index == 0) {
+            throw new IndexOutOfBoundsException("Index has to be larger than 0.");
         }
+        return new VTypePair(storedValues[0], storedValues[index], threshold);
     }
 
     /**
@@ -172,9 +369,18 @@ public class TableEntry {
     public ObjectProperty<VTypePair> compareStoredReadbackProperty(int index) {
         if (index == 0) {
             throw new IndexOutOfBoundsException("Index has to be larger than 0.");
-        } else {
-            return compareStoredReadbacks.get(index - 1);
+        } else if (index >= storedReadbacks.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (storedReadbacks.length - 1));
         }
+        if (compareStoredReadbackProperties == null) {
+            compareStoredReadbackProperties = new ArrayList<>(storedReadbacks.length - 1);
+        }
+        for (int i = compareStoredReadbackProperties.size(); i < index; i++) {
+            final int n = i + 1;
+            compareStoredReadbackProperties.add(createPairProperty("CompareStoredReadback" + i,
+                getStoredReadback(n), v -> storedReadbacks[n] = v));
+        }
+        return compareStoredReadbackProperties.get(index - 1);
     }
 
     /**
@@ -186,33 +392,36 @@ public class TableEntry {
      */
     public void setSnapshotValue(VType snapshotValue, int index) {
         final VType val = snapshotValue == null ? VDisconnectedData.INSTANCE : snapshotValue;
+        ensureCapacity(index + 1);
+        storedValues[index] = val;
         if (index == 0) {
             if (val instanceof Alarm) {
-                severity.set(((Alarm) val).getAlarmSeverity());
-                status.set(((Alarm) val).getAlarmName());
+                setSeverity(((Alarm) val).getAlarmSeverity());
+                setStatus(((Alarm) val).getAlarmName());
             } else {
-                severity.set(AlarmSeverity.NONE);
-                status.set("OK");
+                setSeverity(AlarmSeverity.NONE);
+                setStatus("OK");
             }
-            if (val instanceof Time) {
-                timestamp.set(((Time) val).getTimestamp());
-            } else {
-                timestamp.set(null);
+            timestamp = val instanceof Time ? ((Time) val).getTimestamp() : null;
+            if (timestampProperty != null) {
+                timestampProperty.set(timestamp);
             }
-            value.set(new VTypePair(liveValue.get(), val, threshold));
-            compareValues.forEach(o -> o.set(new VTypePair(val, o.get().value, threshold)));
-            liveStoredEqual.set(Utilities.areValuesEqual(liveValue.get(), val, threshold));
-            storedReadback.set(new VTypePair(val, storedReadback.get().value, threshold));
+            VTypePair pair = getValue();
+            update(valueProperty, pair);
+            if (compareValueProperties != null) {
+                for (int i = 0; i < compareValueProperties.size(); i++) {
+                    update(compareValueProperties.get(i), getCompareValue(i + 1));
+                }
+            }
+            liveStoredEqual.set(pair.isEqual());
+            update(storedReadbackProperty, getStoredReadback(0));
         } else {
-            for (int i = compareValues.size(); i < index; i++) {
-                compareValues.add(new SimpleObjectProperty<>(this, "CompareValue" + i,
-                    new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, threshold)));
-                compareStoredReadbacks.add(new SimpleObjectProperty<>(this, "CompareStoredReadback" + i,
-                    new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, threshold)));
+            if (compareValueProperties != null && index <= compareValueProperties.size()) {
+                update(compareValueProperties.get(index - 1), getCompareValue(index));
+            }
+            if (compareStoredReadbackProperties != null && index <= compareStoredReadbackProperties.size()) {
+                update(compareStoredReadbackProperties.get(index - 1), getStoredReadback(index));
             }
-            compareValues.get(index - 1).set(new VTypePair(valueProperty().get().value, val, threshold));
-            compareStoredReadbacks.get(index - 1)
-                .set(new VTypePair(val, compareStoredReadbacks.get(index - 1).get().value, threshold));
         }
     }
 
@@ -226,15 +435,12 @@ public class TableEntry {
         if (val == null) {
             val = VDisconnectedData.INSTANCE;
         }
+        ensureCapacity(index + 1);
+        storedReadbacks[index] = val;
         if (index == 0) {
-            storedReadback.set(new VTypePair(storedReadback.get().base, val, threshold));
-        } else {
-            for (int i = compareValues.size(); i < index; i++) {
-                compareStoredReadbacks.add(new SimpleObjectProperty<>(this, "CompareStoredReadback" + i,
-                    new VTypePair(VDisconnectedData.INSTANCE, VDisconnectedData.INSTANCE, threshold)));
-            }
-            compareStoredReadbacks.get(index - 1)
-                .set(new VTypePair(compareStoredReadbacks.get(index - 1).get().base, val, threshold));
+            update(storedReadbackProperty, getStoredReadback(0));
+        } else if (compareStoredReadbackProperties != null && index <= compareStoredReadbackProperties.size()) {
+            update(compareStoredReadbackProperties.get(index - 1), getStoredReadback(index));
         }
     }
 
@@ -247,8 +453,9 @@ public class TableEntry {
         if (val == null) {
             val = VDisconnectedData.INSTANCE;
         }
-        if (readback.get().value != val) {
-            readback.set(new VTypePair(liveValueProperty().get(), val, threshold));
+        if (readbackValue != val) {
+            readbackValue = val;
+            update(readbackProperty, getReadback());
         }
     }
 
@@ -261,11 +468,14 @@ public class TableEntry {
         if (val == null) {
             val = VDisconnectedData.INSTANCE;
         }
-        liveValue.set(val);
-        readback.set(new VTypePair(val, readback.get().value, threshold));
-        VType stored = value.get().value;
-        value.set(new VTypePair(val, stored, threshold));
-        liveStoredEqual.set(Utilities.areValuesEqual(val, stored, threshold));
+        liveValue = val;
+        if (liveValueProperty != null) {
+            liveValueProperty.set(val);
+        }
+        update(readbackProperty, getReadback());
+        VTypePair pair = getValue();
+        update(valueProperty, pair);
+        liveStoredEqual.set(pair.isEqual());
     }
 
     /**
@@ -276,15 +486,60 @@ public class TableEntry {
      */
     public void setThreshold(Optional<Threshold<?>> threshold) {
         if (threshold.isPresent()) {
+            // the pairs are replaced, which discards the comparison results calculated with the old threshold
             this.threshold = threshold;
-            VType val = this.value.get().value;
-            this.value.set(new VTypePair(this.value.get().base, val, threshold));
-            this.liveStoredEqual.set(Utilities.areValuesEqual(liveValue.get(), val, threshold));
-            this.compareValues.forEach(e -> e.set(new VTypePair(val, e.get().value, threshold)));
-            this.readback.set(new VTypePair(this.readback.get().base, this.readback.get().value, threshold));
-            this.storedReadback
-                .set(new VTypePair(this.storedReadback.get().base, this.storedReadback.get().value, threshold));
-            this.compareStoredReadbacks.forEach(e -> e.set(new VTypePair(e.get().base, e.get().value, threshold)));
+            VTypePair pair = getValue();
+            update(valueProperty, pair);
+            liveStoredEqual.set(pair.isEqual());
+            if (compareValueProperties != null) {
+                for (int i = 0; i < compareValueProperties.size(); i++) {
+                    update(compareValueProperties.get(i), getCompareValue(i + 1));
+                }
+            }
+            update(readbackProperty, getReadback());
+            update(storedReadbackProperty, getStoredReadback(0));
+            if (compareStoredReadbackProperties != null) {
+                for (int i = 0; i < compareStoredReadbackProperties.size(); i++) {
+                    update(compareStoredReadbackProperties.get(i), getStoredReadback(i + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Grows the stored values and stored readbacks arrays, so that they can hold the given number of snapshots. The
+     * new slots are filled with {@link VDisconnectedData}.
+     *
+     * @param size the required number of snapshots
+     */
+    private void ensureCapacity(int size) {
+        if (storedValues.length < size) {
+            int length = storedValues.length;
+            storedValues = Arrays.copyOf(storedValues, size);
+            storedReadbacks = Arrays.copyOf(storedReadbacks, size);
+            Arrays.fill(storedValues, length, size, VDisconnectedData.INSTANCE);
+            Arrays.fill(storedReadbacks, length, size, VDisconnectedData.INSTANCE);
+        }
+    }
+
+    /**
+     * Creates a property for a pair of values. The values set directly on the property (e.g. by editing a table
+     * cell) are written back to the field, which holds the compared value of the pair.
+     *
+     * @param name the name of the property
+     * @param pair the initial value of the property
+     * @param writeBack receives the compared value whenever the property value changes
+     * @return the property
+     */
+    private ObjectProperty<VTypePair> createPairProperty(String name, VTypePair pair, Consumer<VType> writeBack) {
+        ObjectProperty<VTypePair> property = new SimpleObjectProperty<>(this, name, pair);
+        property.addListener((a, o, n) -> writeBack.accept(n.value));
+        return property;
+    }
+
+    private static void update(ObjectProperty<VTypePair> property, VTypePair pair) {
+        if (property != null) {
+            property.set(pair);
         }
     }
 }
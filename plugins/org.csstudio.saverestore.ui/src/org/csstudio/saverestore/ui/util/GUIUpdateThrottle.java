@@ -1,5 +1,9 @@
 package org.csstudio.saverestore.ui.util;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.csstudio.saverestore.SaveRestoreService;
@@ -13,23 +17,39 @@ import org.csstudio.saverestore.SaveRestoreService;
  * <p>
  * This class delays the first update a little bit, so in case it's a burst, those updates accumulate. Then it updates,
  * and suppresses further updates for a while to limit flicker. Finally, it starts over.
+ * <p>
+ * All throttles share a single scheduler thread, so the <code>fire</code> implementations should return quickly (e.g.
+ * by handing the actual work over to the UI thread).
  *
  * @author Kay Kasemir
  */
-public abstract class GUIUpdateThrottle extends Thread {
-    /** Delay in milliseconds for the initial update after trigger */
-    private final long initialMillis;
+public abstract class GUIUpdateThrottle {
 
-    /** Delay in milliseconds for the suppression of a burst of events */
-    private final long suppressionMillis;
+    /** The scheduler shared by all throttles */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Save Restore GUI Update"); //$NON-NLS-1$
+        t.setDaemon(true);
+        return t;
+    });
 
-    /** Counter for trigger events that arrived */
-    private int triggers;
+    /** Delay in nanoseconds for the initial update after trigger */
+    private final long initialNanos;
 
-    /** Flag that tells thread to run or exit */
-    private volatile boolean run = true;
+    /** Delay in nanoseconds for the suppression of a burst of events */
+    private final long suppressionNanos;
+
+    /** Flag indicating that triggers arrived, which have not been handled yet */
+    private final AtomicBoolean triggered = new AtomicBoolean(false);
 
-    private final Object mutex = new Object();
+    /** Flag indicating that an update is scheduled or being executed */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /** The earliest time (nano time) of the next update */
+    private volatile long nextUpdate = System.nanoTime();
+
+    /** Flags that tell if the throttle has been started and is not disposed yet */
+    private volatile boolean started = false;
+    private volatile boolean run = true;
 
     /**
      * Initialise
@@ -38,49 +58,49 @@ public abstract class GUIUpdateThrottle extends Thread {
      * @param suppressionMillis Delay [ms] for the suppression of a burst of events
      */
     public GUIUpdateThrottle(final long initialMillis, final long suppressionMillis) {
-        super("Save Restore GUI Update"); //$NON-NLS-1$
-        this.initialMillis = initialMillis;
-        this.suppressionMillis = suppressionMillis;
-        setDaemon(true);
+        this.initialNanos = TimeUnit.MILLISECONDS.toNanos(initialMillis);
+        this.suppressionNanos = TimeUnit.MILLISECONDS.toNanos(suppressionMillis);
+    }
+
+    /**
+     * Start handling the triggers. Triggers that arrived before the throttle was started are handled right away.
+     */
+    public void start() {
+        started = true;
+        schedule();
     }
 
     /**
      * Register an event trigger. Will result in throttled call to <code>fire</code>
      */
     public void trigger() {
-        synchronized (mutex) { // Count suppressed events
-            ++triggers;
-            mutex.notifyAll();
+        triggered.set(true);
+        schedule();
+    }
+
+    private void schedule() {
+        if (run && started && triggered.get() && scheduled.compareAndSet(false, true)) {
+            // Wait a little longer, so in case of a burst, we update after already receiving more than just the
+            // start of the burst, but never earlier than the suppression period allows
+            long delay = Math.max(initialNanos, nextUpdate - System.nanoTime());
+            SCHEDULER.schedule(this::update, delay, TimeUnit.NANOSECONDS);
         }
     }
 
-    /** Thread Runnable that handles received triggers */
-    @SuppressWarnings("nls")
-    @Override
-    public void run() {
+    private void update() {
+        triggered.set(false);
         try {
-            while (run) {
-                // Wait for a trigger
-                synchronized (mutex) {
-                    while (triggers <= 0) {
-                        mutex.wait();
-                    }
-                }
-                // Wait a little longer, so in case of a burst, we update
-                // after already receiving more than just the start of the
-                // burst
-                Thread.sleep(initialMillis);
-                synchronized (mutex) {
-                    triggers = 0;
-                }
-                if (run) {
-                    fire();
-                }
-                // Suppress further updates a little to prevent flicker
-                Thread.sleep(suppressionMillis);
+            if (run) {
+                fire();
             }
-        } catch (InterruptedException ex) {
-            SaveRestoreService.LOGGER.log(Level.SEVERE, "GUI Update failed", ex);
+        } catch (RuntimeException ex) {
+            SaveRestoreService.LOGGER.log(Level.SEVERE, "GUI Update failed", ex); //$NON-NLS-1$
+        } finally {
+            // Suppress further updates a little to prevent flicker
+            nextUpdate = System.nanoTime() + suppressionNanos;
+            scheduled.set(false);
+            // triggers that arrived during the update have to be handled as well
+            schedule();
         }
     }
 
@@ -89,9 +109,8 @@ public abstract class GUIUpdateThrottle extends Thread {
      */
     protected abstract void fire();
 
-    /** Tell thread to quit, but don't wait for that to happen */
+    /** Tell the throttle to quit; an update that is already in progress is not interrupted */
     public void dispose() {
         run = false;
-        trigger();
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.ui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javafx.collections.ObservableList;
+
+/**
+ *
+ * <code>ObservableLists</code> provides utility methods for updating the observable lists, which back the tables, with
+ * as few change events as possible.
+ */
+public final class ObservableLists {
+
+    /** The maximum number of separate insertions, after which the content is replaced instead */
+    static final int MAX_INCREMENTAL_INSERTS = 64;
+
+    private ObservableLists() {
+    }
+
+    /**
+     * Transforms the list into the given content, by removing the elements that are not part of the content and
+     * inserting the missing ones. The elements are compared by identity. If the elements that are already in the list
+     * appear in a different order in the content or if there are too many separate insertions, the content of the
+     * list is replaced instead.
+     *
+     * @param list the list to update
+     * @param content the new content of the list
+     * @param <T> the type of elements
+     */
+    public static <T> void setContent(ObservableList<T> list, List<T> content) {
+        if (list.isEmpty() || content.isEmpty()) {
+            list.setAll(content);
+            return;
+        }
+        Set<T> newElements = Collections.newSetFromMap(new IdentityHashMap<>(content.size()));
+        newElements.addAll(content);
+        // a single change, which contains all removed elements
+        list.retainAll(newElements);
+        Set<T> oldElements = Collections.newSetFromMap(new IdentityHashMap<>(list.size()));
+        oldElements.addAll(list);
+        // find the positions where the new elements have to be inserted (in the list after the removal)
+        List<Integer> positions = new ArrayList<>();
+        List<List<T>> inserts = new ArrayList<>();
+        List<T> run = null;
+        int i = 0;
+        for (T element : content) {
+            if (oldElements.contains(element)) {
+                if (i == list.size() || list.get(i) != element) {
+                    // the order changed
+                    list.setAll(content);
+                    return;
+                }
+                i++;
+                run = null;
+            } else {
+                if (run == null) {
+                    if (inserts.size() == MAX_INCREMENTAL_INSERTS) {
+                        list.setAll(content);
+                        return;
+                    }
+                    run = new ArrayList<>();
+                    positions.add(i);
+                    inserts.add(run);
+                }
+                run.add(element);
+            }
+        }
+        // insert from the back, so that the positions of the remaining insertions do not change
+        for (int j = inserts.size() - 1; j > -1; j--) {
+            list.addAll(positions.get(j), inserts.get(j));
+        }
+    }
+}
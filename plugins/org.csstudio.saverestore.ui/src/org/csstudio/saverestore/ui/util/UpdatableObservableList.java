@@ -0,0 +1,245 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.ui.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.collections.ModifiableObservableListBase;
+
+/**
+ *
+ * <code>UpdatableObservableList</code> is an observable list backed by an array list, which can notify its listeners
+ * that some of its elements changed, without an extractor. The update is fired by the owner of the list, which
+ * can choose the thread and collect several changes into a single event. Only the updated positions are part of the
+ * event, so a filtered or sorted view of the list only re-evaluates the updated elements.
+ * <p>
+ * The positions of the elements are looked up by identity through an index, which is built when first needed after a
+ * structural change of the list. The list is not thread safe.
+ *
+ * @param <T> the type of elements
+ */
+public class UpdatableObservableList<T> extends ModifiableObservableListBase<T> {
+
+    private final List<T> elements = new ArrayList<>();
+    private Map<T, Integer> positions;
+
+    /**
+     * Notifies the listeners of this list that the given elements were updated. The elements which are not in this
+     * list are ignored. All updates are fired as a single change.
+     *
+     * @param updated the updated elements
+     */
+    public void update(Collection<? extends T> updated) {
+        if (updated.isEmpty() || elements.isEmpty()) {
+            return;
+        }
+        if (positions == null) {
+            positions = new IdentityHashMap<>(elements.size());
+            for (int i = elements.size() - 1; i > -1; i--) {
+                positions.put(elements.get(i), i);
+            }
+        }
+        int[] indices = new int[updated.size()];
+        int n = 0;
+        for (T element : updated) {
+            Integer position = positions.get(element);
+            if (position != null) {
+                indices[n++] = position;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+        Arrays.sort(indices, 0, n);
+        beginChange();
+        try {
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || indices[i] != indices[i - 1]) {
+                    nextUpdate(indices[i]);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public T get(int index) {
+        return elements.get(index);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#doAdd(int, java.lang.Object)
+     */
+    @Override
+    protected void doAdd(int index, T element) {
+        positions = null;
+        elements.add(index, element);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#doSet(int, java.lang.Object)
+     */
+    @Override
+    protected T doSet(int index, T element) {
+        positions = null;
+        return elements.set(index, element);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#doRemove(int)
+     */
+    @Override
+    protected T doRemove(int index) {
+        positions = null;
+        return elements.remove(index);
+    }
+
+    // The bulk operations below are implemented on the backing list directly. The default implementations add or
+    // remove one element at a time, which is quadratic for a large table.
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#addAll(java.util.Collection)
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        return addAll(elements.size(), c);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#addAll(int, java.util.Collection)
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends T> c) {
+        if (index < 0 || index > elements.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+        }
+        if (c.isEmpty()) {
+            return false;
+        }
+        beginChange();
+        try {
+            positions = null;
+            int size = elements.size();
+            elements.addAll(index, c);
+            modCount++;
+            nextAdd(index, index + elements.size() - size);
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#removeRange(int, int)
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        beginChange();
+        try {
+            positions = null;
+            List<T> range = elements.subList(fromIndex, toIndex);
+            nextRemove(fromIndex, new ArrayList<>(range));
+            range.clear();
+            modCount++;
+        } finally {
+            endChange();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#removeAll(java.util.Collection)
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return removeMatching(c, false);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.collections.ModifiableObservableListBase#retainAll(java.util.Collection)
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeMatching(c, true);
+    }
+
+    private boolean removeMatching(Collection<?> c, boolean retain) {
+        boolean[] remove = new boolean[elements.size()];
+        boolean any = false;
+        for (int i = 0; i < remove.length; i++) {
+            remove[i] = c.contains(elements.get(i)) != retain;
+            any |= remove[i];
+        }
+        if (!any) {
+            return false;
+        }
+        beginChange();
+        try {
+            positions = null;
+            // the removals are reported from the back, so that the reported indices are valid at the time of removal
+            for (int i = remove.length - 1; i > -1; i--) {
+                if (remove[i]) {
+                    nextRemove(i, elements.get(i));
+                }
+            }
+            int n = 0;
+            for (int i = 0; i < remove.length; i++) {
+                if (!remove[i]) {
+                    elements.set(n++, elements.get(i));
+                }
+            }
+            elements.subList(n, elements.size()).clear();
+            modCount++;
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+}
@@ -12,12 +12,16 @@ package org.csstudio.saverestore.ui.util;
 
 import java.util.Optional;
 
+import org.csstudio.saverestore.Utilities;
+import org.csstudio.saverestore.Utilities.VTypeComparison;
 import org.csstudio.saverestore.data.Threshold;
 import org.diirt.vtype.VType;
 
 /**
  *
  * <code>VTypePair</code> is an object that combines two VType objects, which can later be compared one to another.
+ * The pair is immutable, therefore the results of the comparison are calculated on first request and reused
+ * afterwards. Whenever the threshold changes a new pair has to be created.
  *
  * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
  *
@@ -27,6 +31,8 @@ public class VTypePair {
     public final VType base;
     public final VType value;
     public final Optional<Threshold<?>> threshold;
+    private VTypeComparison comparison;
+    private Boolean equal;
 
     /**
      * Constructs a new pair.
@@ -41,6 +47,33 @@ public class VTypePair {
         this.threshold = threshold;
     }
 
+    /**
+     * Returns the result of the comparison of the value to the base value, which provides the value string including
+     * the difference to the base and the comparison flags. See
+     * {@link Utilities#valueToCompareString(VType, VType, Optional)}.
+     *
+     * @return the comparison of the value to the base value
+     */
+    public VTypeComparison getComparison() {
+        if (comparison == null) {
+            comparison = Utilities.valueToCompareString(value, base, threshold);
+        }
+        return comparison;
+    }
+
+    /**
+     * Returns true if the base and the value are equal within the threshold or false otherwise. See
+     * {@link Utilities#areValuesEqual(VType, VType, Optional)}.
+     *
+     * @return true if the values are equal or false otherwise
+     */
+    public boolean isEqual() {
+        if (equal == null) {
+            equal = Utilities.areValuesEqual(base, value, threshold);
+        }
+        return equal;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -0,0 +1,640 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.saverestore.data.VDisconnectedData;
+import org.csstudio.saverestore.data.VSnapshot;
+import org.diirt.util.array.ArrayBoolean;
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayFloat;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.util.array.ArrayLong;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.util.array.ListBoolean;
+import org.diirt.util.array.ListInt;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VBoolean;
+import org.diirt.vtype.VBooleanArray;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VEnumArray;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/**
+ *
+ * <code>BinarySnapshotFormat</code> reads and writes the binary columnar snapshot format. The file starts with the
+ * {@link #MAGIC} header followed by the format version, the snapshot date and the number of entries. The rest of the
+ * file is composed of blocks, each prefixed by its length in bytes. Every per entry property (names, selected flags,
+ * timestamps, alarms etc.) is stored in its own block and the values are stored in typed blocks, so that the
+ * primitive arrays can be written and read in bulk.
+ * <p>
+ * The format stores exactly the data that are stored in the CSV snapshot file (the value and readback value, where
+ * the readback value shares the timestamp and alarm with the value), therefore a snapshot read from a binary file
+ * produces the same CSV content as the snapshot from which the binary file was generated.
+ * <p>
+ * The value types and alarm severities are stored by their ordinals; new constants of {@link ValueType} or
+ * {@link AlarmSeverity} have to be appended in order to keep the existing files readable.
+ */
+final class BinarySnapshotFormat {
+
+    /** The header that identifies the binary snapshot files. The first byte is never valid in UTF-8 text. */
+    static final byte[] MAGIC = { (byte) 0x89, 'S', 'N', 'P' };
+    private static final int VERSION = 1;
+    private static final int FLAG_READBACKS = 1;
+    private static final int FLAG_DELTAS = 2;
+    private static final int NULL_STRING = -1;
+    private static final int INITIAL_BLOCK_SIZE = 1024;
+    private static final ValueType[] VALUE_TYPES = ValueType.values();
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    /**
+     * <code>Block</code> is a growable byte buffer, which holds the content of a single block.
+     */
+    private static final class Block {
+        private ByteBuffer buffer;
+
+        Block(int capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, INITIAL_BLOCK_SIZE));
+        }
+
+        ByteBuffer reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + bytes));
+                buffer.flip();
+                buffer = newBuffer.put(buffer);
+            }
+            return buffer;
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                reserve(4).putInt(NULL_STRING);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                reserve(4 + bytes.length).putInt(bytes.length).put(bytes);
+            }
+        }
+
+        void writeTo(DataOutputStream destination) throws IOException {
+            destination.writeInt(buffer.position());
+            destination.write(buffer.array(), 0, buffer.position());
+        }
+    }
+
+    /**
+     * <code>Writer</code> collects the snapshot entries into blocks.
+     */
+    private static final class Writer {
+        final Block names;
+        final Block selected;
+        final Block readbacks;
+        final Block deltas;
+        final Block types;
+        final Block seconds;
+        final Block nanos;
+        final Block statuses;
+        final Block statusNames = new Block(INITIAL_BLOCK_SIZE);
+        final Block severities;
+        final Block doubles = new Block(INITIAL_BLOCK_SIZE);
+        final Block floats = new Block(INITIAL_BLOCK_SIZE);
+        final Block longs = new Block(INITIAL_BLOCK_SIZE);
+        final Block ints = new Block(INITIAL_BLOCK_SIZE);
+        final Block shorts = new Block(INITIAL_BLOCK_SIZE);
+        final Block bytes = new Block(INITIAL_BLOCK_SIZE);
+        final Block strings = new Block(INITIAL_BLOCK_SIZE);
+        final Block lengths = new Block(INITIAL_BLOCK_SIZE);
+        final Map<String, Integer> statusIndex = new HashMap<>();
+
+        Writer(int size) {
+            names = new Block(size * 30);
+            selected = new Block(size);
+            readbacks = new Block(size * 30);
+            deltas = new Block(size * 8);
+            types = new Block(size * 2);
+            seconds = new Block(size * 8);
+            nanos = new Block(size * 4);
+            statuses = new Block(size * 4);
+            severities = new Block(size);
+        }
+
+        Block[] blocks() {
+            return new Block[] { names, selected, readbacks, deltas, types, seconds, nanos, statusNames, statuses,
+                severities, doubles, floats, longs, ints, shorts, bytes, strings, lengths };
+        }
+    }
+
+    /**
+     * <code>Reader</code> provides access to the blocks of a binary snapshot.
+     */
+    private static final class Reader {
+        final ByteBuffer names;
+        final ByteBuffer selected;
+        final ByteBuffer readbacks;
+        final ByteBuffer deltas;
+        final ByteBuffer types;
+        final LongBuffer seconds;
+        final IntBuffer nanos;
+        final ByteBuffer statusNames;
+        final IntBuffer statuses;
+        final ByteBuffer severities;
+        final DoubleBuffer doubles;
+        final FloatBuffer floats;
+        final LongBuffer longs;
+        final IntBuffer ints;
+        final ShortBuffer shorts;
+        final ByteBuffer bytes;
+        final ByteBuffer strings;
+        final IntBuffer lengths;
+
+        Reader(DataInputStream stream) throws IOException {
+            names = readBlock(stream);
+            selected = readBlock(stream);
+            readbacks = readBlock(stream);
+            deltas = readBlock(stream);
+            types = readBlock(stream);
+            seconds = readBlock(stream).asLongBuffer();
+            nanos = readBlock(stream).asIntBuffer();
+            statusNames = readBlock(stream);
+            statuses = readBlock(stream).asIntBuffer();
+            severities = readBlock(stream);
+            doubles = readBlock(stream).asDoubleBuffer();
+            floats = readBlock(stream).asFloatBuffer();
+            longs = readBlock(stream).asLongBuffer();
+            ints = readBlock(stream).asIntBuffer();
+            shorts = readBlock(stream).asShortBuffer();
+            bytes = readBlock(stream);
+            strings = readBlock(stream);
+            lengths = readBlock(stream).asIntBuffer();
+        }
+
+        private static ByteBuffer readBlock(DataInputStream stream) throws IOException {
+            int length = stream.readInt();
+            if (length < 0) {
+                throw new IOException("The binary snapshot content is invalid.");
+            }
+            byte[] data = new byte[length];
+            stream.readFully(data);
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    private BinarySnapshotFormat() {
+    }
+
+    /**
+     * Checks if the stream contains a binary snapshot. The stream has to support marking. The position of the stream
+     * is not changed by this method.
+     *
+     * @param stream the stream to check
+     * @return true if the stream starts with the binary snapshot header or false otherwise
+     * @throws IOException if reading the stream failed
+     */
+    static boolean isBinary(InputStream stream) throws IOException {
+        stream.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (stream.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    /**
+     * Generates the binary content of the snapshot.
+     *
+     * @param data the snapshot data
+     * @return the binary content
+     */
+    static byte[] generate(VSnapshot data) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(INITIAL_BLOCK_SIZE);
+        try {
+            write(data, stream);
+        } catch (IOException e) {
+            // byte array stream does not throw exceptions
+            throw new UncheckedIOException(e);
+        }
+        return stream.toByteArray();
+    }
+
+    /**
+     * Writes the binary content of the snapshot to the stream. The blocks are written to the stream one by one, without
+     * copying them into a single buffer first. The stream is flushed, but not closed.
+     *
+     * @param data the snapshot data
+     * @param stream the destination stream
+     * @throws IOException if writing to the stream failed
+     */
+    static void write(VSnapshot data, OutputStream stream) throws IOException {
+        List<VType> values = data.getValues();
+        List<String> names = data.getNames();
+        List<Boolean> selected = data.getSelected();
+        List<String> readbacks = data.getReadbackNames();
+        List<VType> readbackValues = data.getReadbackValues();
+        List<String> deltas = data.getDeltas();
+        Instant timestamp = data.getTimestamp();
+        if (timestamp == null) {
+            timestamp = Instant.now();
+        }
+        int size = names.size();
+        boolean noReadbacks = readbacks.isEmpty();
+        boolean noDeltas = deltas.isEmpty();
+        Writer writer = new Writer(size);
+        ValueType[] types = new ValueType[size];
+        for (int i = 0; i < size; i++) {
+            VType value = values.get(i);
+            writer.names.putString(names.get(i));
+            writer.selected.reserve(1).put((byte) (selected.get(i) ? 1 : 0));
+            if (!noReadbacks) {
+                writer.readbacks.putString(readbacks.get(i));
+            }
+            if (!noDeltas) {
+                writer.deltas.putString(deltas.get(i));
+            }
+            types[i] = ValueType.forName(ValueType.vtypeToStringType(value));
+            writer.types.reserve(1).put((byte) types[i].ordinal());
+            Instant time = value instanceof Time ? ((Time) value).getTimestamp() : null;
+            writer.seconds.reserve(8).putLong(time == null ? 0 : time.getEpochSecond());
+            writer.nanos.reserve(4).putInt(time == null ? 0 : time.getNano());
+            String status = value instanceof Alarm ? ((Alarm) value).getAlarmName() : "";
+            AlarmSeverity severity = value instanceof Alarm ? ((Alarm) value).getAlarmSeverity() : AlarmSeverity.NONE;
+            Integer statusIndex = writer.statusIndex.get(status);
+            if (statusIndex == null) {
+                statusIndex = writer.statusIndex.size();
+                writer.statusIndex.put(status, statusIndex);
+                writer.statusNames.putString(status);
+            }
+            writer.statuses.reserve(4).putInt(statusIndex);
+            writer.severities.reserve(1).put((byte) severity.ordinal());
+            writeValue(writer, value, types[i]);
+        }
+        if (!noReadbacks) {
+            for (int i = 0; i < size; i++) {
+                VType value = readbackValues.get(i);
+                ValueType type = value == null ? ValueType.NODATA
+                    : ValueType.forName(ValueType.vtypeToStringType(value));
+                writer.types.reserve(1).put((byte) type.ordinal());
+                writeValue(writer, value, type);
+            }
+        }
+        DataOutputStream out = new DataOutputStream(stream);
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(timestamp.getEpochSecond());
+        out.writeInt(timestamp.getNano());
+        out.writeInt(size);
+        out.writeInt((noReadbacks ? 0 : FLAG_READBACKS) | (noDeltas ? 0 : FLAG_DELTAS));
+        for (Block b : writer.blocks()) {
+            b.writeTo(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the value into the typed blocks.
+     *
+     * @param writer the writer that holds the blocks
+     * @param value the value to write
+     * @param type the type of the value
+     */
+    private static void writeValue(Writer writer, VType value, ValueType type) {
+        switch (type) {
+            case DOUBLE_ARRAY:
+            case NUMBER_ARRAY:
+                ListNumber ld = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(ld.size());
+                ByteBuffer bd = writer.doubles.reserve(ld.size() * 8);
+                for (int i = 0; i < ld.size(); i++) {
+                    bd.putDouble(ld.getDouble(i));
+                }
+                break;
+            case FLOAT_ARRAY:
+                ListNumber lf = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(lf.size());
+                ByteBuffer bf = writer.floats.reserve(lf.size() * 4);
+                for (int i = 0; i < lf.size(); i++) {
+                    bf.putFloat(lf.getFloat(i));
+                }
+                break;
+            case LONG_ARRAY:
+                ListNumber ll = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(ll.size());
+                ByteBuffer bl = writer.longs.reserve(ll.size() * 8);
+                for (int i = 0; i < ll.size(); i++) {
+                    bl.putLong(ll.getLong(i));
+                }
+                break;
+            case INT_ARRAY:
+                ListNumber li = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(li.size());
+                ByteBuffer bi = writer.ints.reserve(li.size() * 4);
+                for (int i = 0; i < li.size(); i++) {
+                    bi.putInt(li.getInt(i));
+                }
+                break;
+            case SHORT_ARRAY:
+                ListNumber ls = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(ls.size());
+                ByteBuffer bs = writer.shorts.reserve(ls.size() * 2);
+                for (int i = 0; i < ls.size(); i++) {
+                    bs.putShort(ls.getShort(i));
+                }
+                break;
+            case BYTE_ARRAY:
+                ListNumber lb = ((VNumberArray) value).getData();
+                writer.lengths.reserve(4).putInt(lb.size());
+                ByteBuffer bb = writer.bytes.reserve(lb.size());
+                for (int i = 0; i < lb.size(); i++) {
+                    bb.put(lb.getByte(i));
+                }
+                break;
+            case ENUM_ARRAY:
+                ListInt le = ((VEnumArray) value).getIndexes();
+                writer.lengths.reserve(4).putInt(le.size());
+                ByteBuffer be = writer.ints.reserve(le.size() * 4);
+                for (int i = 0; i < le.size(); i++) {
+                    be.putInt(le.getInt(i));
+                }
+                writeLabels(writer, ((VEnumArray) value).getLabels());
+                break;
+            case STRING_ARRAY:
+                List<String> lstr = ((VStringArray) value).getData();
+                writer.lengths.reserve(4).putInt(lstr.size());
+                lstr.forEach(writer.strings::putString);
+                break;
+            case BOOLEAN_ARRAY:
+                ListBoolean lbo = ((VBooleanArray) value).getData();
+                writer.lengths.reserve(4).putInt(lbo.size());
+                ByteBuffer bbo = writer.bytes.reserve(lbo.size());
+                for (int i = 0; i < lbo.size(); i++) {
+                    bbo.put((byte) (lbo.getBoolean(i) ? 1 : 0));
+                }
+                break;
+            case DOUBLE:
+            case NUMBER:
+                writer.doubles.reserve(8).putDouble(((VNumber) value).getValue().doubleValue());
+                break;
+            case FLOAT:
+                writer.floats.reserve(4).putFloat(((VNumber) value).getValue().floatValue());
+                break;
+            case LONG:
+                writer.longs.reserve(8).putLong(((VNumber) value).getValue().longValue());
+                break;
+            case INT:
+                writer.ints.reserve(4).putInt(((VNumber) value).getValue().intValue());
+                break;
+            case SHORT:
+                writer.shorts.reserve(2).putShort(((VNumber) value).getValue().shortValue());
+                break;
+            case BYTE:
+                writer.bytes.reserve(1).put(((VNumber) value).getValue().byteValue());
+                break;
+            case BOOLEAN:
+                writer.bytes.reserve(1).put((byte) (((VBoolean) value).getValue() ? 1 : 0));
+                break;
+            case STRING:
+                writer.strings.putString(((VString) value).getValue());
+                break;
+            case ENUM:
+                writer.ints.reserve(4).putInt(((VEnum) value).getIndex());
+                writeLabels(writer, ((VEnum) value).getLabels());
+                break;
+            case NODATA:
+                break;
+        }
+    }
+
+    /**
+     * Writes the enum labels into the lengths and strings blocks.
+     *
+     * @param writer the writer that holds the blocks
+     * @param labels the labels to write
+     */
+    private static void writeLabels(Writer writer, List<String> labels) {
+        writer.lengths.reserve(4).putInt(labels.size());
+        labels.forEach(writer.strings::putString);
+    }
+
+    /**
+     * Reads the binary snapshot from the stream. The stream is expected to be positioned at the start of the
+     * {@link #MAGIC} header.
+     *
+     * @param stream the source of data
+     * @return the snapshot content
+     * @throws IOException if reading failed or if the content is not a valid binary snapshot
+     */
+    static SnapshotContent read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("The content is not a binary snapshot.");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary snapshot version " + version + ".");
+        }
+        Instant date = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        int size = in.readInt();
+        int flags = in.readInt();
+        if (size < 0) {
+            throw new IOException("The binary snapshot content is invalid.");
+        }
+        Reader reader = new Reader(in);
+        try {
+            Display display = ValueFactory.newDisplay(0d, 0d, 0d, null, null, 0d, 0d, 0d, 0d, 0d);
+            Time zeroTime = ValueFactory.newTime(Instant.ofEpochSecond(0, 0));
+            List<String> statusNames = new ArrayList<>();
+            while (reader.statusNames.hasRemaining()) {
+                statusNames.add(readString(reader.statusNames));
+            }
+            Alarm[] alarms = new Alarm[statusNames.size() * SEVERITIES.length];
+            List<String> names = new ArrayList<>(size);
+            List<Boolean> selected = new ArrayList<>(size);
+            List<String> readbacks = new ArrayList<>(size);
+            List<String> deltas = new ArrayList<>(size);
+            List<VType> data = new ArrayList<>(size);
+            List<VType> readbackData = new ArrayList<>(size);
+            Time[] times = new Time[size];
+            Alarm[] entryAlarms = new Alarm[size];
+            for (int i = 0; i < size; i++) {
+                names.add(readString(reader.names));
+                selected.add(reader.selected.get() != 0);
+                readbacks.add((flags & FLAG_READBACKS) == 0 ? "" : readString(reader.readbacks));
+                deltas.add((flags & FLAG_DELTAS) == 0 ? "" : readString(reader.deltas));
+                long seconds = reader.seconds.get();
+                int nanos = reader.nanos.get();
+                times[i] = seconds == 0 && nanos == 0 ? zeroTime
+                    : ValueFactory.newTime(Instant.ofEpochSecond(seconds, nanos));
+                int alarmIndex = reader.statuses.get() * SEVERITIES.length + reader.severities.get();
+                if (alarms[alarmIndex] == null) {
+                    alarms[alarmIndex] = ValueFactory.newAlarm(SEVERITIES[alarmIndex % SEVERITIES.length],
+                        statusNames.get(alarmIndex / SEVERITIES.length));
+                }
+                entryAlarms[i] = alarms[alarmIndex];
+                data.add(readValue(reader, VALUE_TYPES[reader.types.get()], times[i], entryAlarms[i], display));
+            }
+            for (int i = 0; i < size; i++) {
+                readbackData.add((flags & FLAG_READBACKS) == 0 ? VDisconnectedData.INSTANCE
+                    : readValue(reader, VALUE_TYPES[reader.types.get()], times[i], entryAlarms[i], display));
+            }
+            return new SnapshotContent(date, names, selected, data, readbacks, readbackData, deltas);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("The binary snapshot content is invalid.", e);
+        }
+    }
+
+    /**
+     * Reads the next value from the typed blocks.
+     *
+     * @param reader the reader that holds the blocks
+     * @param type the type of the value
+     * @param time the time of the value
+     * @param alarm the alarm of the value
+     * @param display the display of the value
+     * @return the value
+     */
+    private static VType readValue(Reader reader, ValueType type, Time time, Alarm alarm, Display display) {
+        switch (type) {
+            case DOUBLE_ARRAY:
+            case NUMBER_ARRAY:
+                double[] dd = new double[reader.lengths.get()];
+                reader.doubles.get(dd);
+                return ValueFactory.newVDoubleArray(new ArrayDouble(dd), alarm, time, display);
+            case FLOAT_ARRAY:
+                float[] df = new float[reader.lengths.get()];
+                reader.floats.get(df);
+                return ValueFactory.newVFloatArray(new ArrayFloat(df), alarm, time, display);
+            case LONG_ARRAY:
+                long[] dl = new long[reader.lengths.get()];
+                reader.longs.get(dl);
+                return ValueFactory.newVLongArray(new ArrayLong(dl), alarm, time, display);
+            case INT_ARRAY:
+                int[] di = new int[reader.lengths.get()];
+                reader.ints.get(di);
+                return ValueFactory.newVIntArray(new ArrayInt(di), alarm, time, display);
+            case SHORT_ARRAY:
+                short[] ds = new short[reader.lengths.get()];
+                reader.shorts.get(ds);
+                return ValueFactory.newVShortArray(new ArrayShort(ds), alarm, time, display);
+            case BYTE_ARRAY:
+                byte[] db = new byte[reader.lengths.get()];
+                reader.bytes.get(db);
+                return ValueFactory.newVNumberArray(new ArrayByte(db), alarm, time, display);
+            case ENUM_ARRAY:
+                int[] de = new int[reader.lengths.get()];
+                reader.ints.get(de);
+                return ValueFactory.newVEnumArray(new ArrayInt(de), readLabels(reader), alarm, time);
+            case STRING_ARRAY:
+                int n = reader.lengths.get();
+                List<String> str = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    str.add(readString(reader.strings));
+                }
+                return ValueFactory.newVStringArray(str, alarm, time);
+            case BOOLEAN_ARRAY:
+                boolean[] dbo = new boolean[reader.lengths.get()];
+                for (int i = 0; i < dbo.length; i++) {
+                    dbo[i] = reader.bytes.get() != 0;
+                }
+                return ValueFactory.newVBooleanArray(new ArrayBoolean(dbo), alarm, time);
+            case DOUBLE:
+            case NUMBER:
+                return ValueFactory.newVDouble(reader.doubles.get(), alarm, time, display);
+            case FLOAT:
+                return ValueFactory.newVFloat(reader.floats.get(), alarm, time, display);
+            case LONG:
+                return ValueFactory.newVLong(reader.longs.get(), alarm, time, display);
+            case INT:
+                return ValueFactory.newVInt(reader.ints.get(), alarm, time, display);
+            case SHORT:
+                return ValueFactory.newVShort(reader.shorts.get(), alarm, time, display);
+            case BYTE:
+                return ValueFactory.newVByte(reader.bytes.get(), alarm, time, display);
+            case BOOLEAN:
+                return ValueFactory.newVBoolean(reader.bytes.get() != 0, alarm, time);
+            case STRING:
+                return ValueFactory.newVString(readString(reader.strings), alarm, time);
+            case ENUM:
+                int idx = reader.ints.get();
+                return ValueFactory.newVEnum(idx, readLabels(reader), alarm, time);
+            case NODATA:
+                return VDisconnectedData.INSTANCE;
+        }
+        throw new IllegalArgumentException("Unknown data type " + type + ".");
+    }
+
+    /**
+     * Reads the enum labels from the lengths and strings blocks.
+     *
+     * @param reader the reader that holds the blocks
+     * @return the labels
+     */
+    private static List<String> readLabels(Reader reader) {
+        int n = reader.lengths.get();
+        List<String> labels = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            labels.add(readString(reader.strings));
+        }
+        return labels;
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string from the buffer.
+     *
+     * @param buffer the source buffer
+     * @return the string
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.csstudio.saverestore.data.BaseLevel;
+import org.csstudio.saverestore.data.Branch;
+import org.csstudio.saverestore.data.SaveSet;
+import org.csstudio.saverestore.data.SaveSetData;
+import org.csstudio.saverestore.data.Snapshot;
+import org.csstudio.saverestore.data.VSnapshot;
+
+/**
+ *
+ * <code>CachingDataProvider</code> is a {@link DataProvider} which serves the snapshot and save set contents from the
+ * {@link DataCache} and delegates all other calls to the actual data provider. Only the snapshots for which the
+ * provider reports a revision are cached. The cached items are removed when the provider reports that the content of
+ * the repository might have changed.
+ */
+final class CachingDataProvider implements DataProvider {
+
+    private final String id;
+    private final DataProvider provider;
+    private final DataCache cache;
+
+    /**
+     * Constructs a new caching provider.
+     *
+     * @param id the id of the data provider
+     * @param provider the actual data provider
+     * @param cache the cache to use
+     */
+    CachingDataProvider(String id, DataProvider provider, DataCache cache) {
+        this.id = id;
+        this.provider = provider;
+        this.cache = cache;
+        provider.addCompletionNotifier(new CompletionNotifier() {
+            @Override
+            public void synchronised() {
+                cache.invalidateSaveSets(id);
+            }
+
+            @Override
+            public void saveSetSaved(SaveSetData set) {
+                cache.invalidateSaveSets(id);
+            }
+
+            @Override
+            public void saveSetDeleted(SaveSet set) {
+                cache.invalidate(id, set);
+                cache.invalidateSaveSets(id);
+            }
+
+            @Override
+            public void dataImported(SaveSet source, Branch toBranch, Optional<BaseLevel> toBase) {
+                cache.invalidateSaveSets(id);
+            }
+        });
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#initialise()
+     */
+    @Override
+    public void initialise() throws DataProviderException {
+        cache.invalidate(id);
+        provider.initialise();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#addCompletionNotifier(org.csstudio.saverestore.CompletionNotifier)
+     */
+    @Override
+    public void addCompletionNotifier(CompletionNotifier notifier) {
+        provider.addCompletionNotifier(notifier);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#removeCompletionNotifier(org.csstudio.saverestore.CompletionNotifier)
+     */
+    @Override
+    public void removeCompletionNotifier(CompletionNotifier notifier) {
+        provider.removeCompletionNotifier(notifier);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#areBranchesSupported()
+     */
+    @Override
+    public boolean areBranchesSupported() {
+        return provider.areBranchesSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#areBaseLevelsSupported()
+     */
+    @Override
+    public boolean areBaseLevelsSupported() {
+        return provider.areBaseLevelsSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isReinitSupported()
+     */
+    @Override
+    public boolean isReinitSupported() {
+        return provider.isReinitSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isImportSupported()
+     */
+    @Override
+    public boolean isImportSupported() {
+        return provider.isImportSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isSaveSetSavingSupported()
+     */
+    @Override
+    public boolean isSaveSetSavingSupported() {
+        return provider.isSaveSetSavingSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isTaggingSupported()
+     */
+    @Override
+    public boolean isTaggingSupported() {
+        return provider.isTaggingSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isSearchSupported()
+     */
+    @Override
+    public boolean isSearchSupported() {
+        return provider.isSearchSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#isTakingSnapshotsSupported()
+     */
+    @Override
+    public boolean isTakingSnapshotsSupported() {
+        return provider.isTakingSnapshotsSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getBranches()
+     */
+    @Override
+    public Branch[] getBranches() throws DataProviderException {
+        return provider.getBranches();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getBaseLevels(org.csstudio.saverestore.data.Branch)
+     */
+    @Override
+    public BaseLevel[] getBaseLevels(Branch branch) throws DataProviderException {
+        return provider.getBaseLevels(branch);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSaveSets(java.util.Optional,
+     * org.csstudio.saverestore.data.Branch)
+     */
+    @Override
+    public SaveSet[] getSaveSets(Optional<BaseLevel> baseLevel, Branch branch) throws DataProviderException {
+        return provider.getSaveSets(baseLevel, branch);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshots(org.csstudio.saverestore.data.SaveSet, boolean,
+     * java.util.Optional)
+     */
+    @Override
+    public Snapshot[] getSnapshots(SaveSet set, boolean all, Optional<Snapshot> fromThisOneBack)
+        throws DataProviderException {
+        return provider.getSnapshots(set, all, fromThisOneBack);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#findSnapshots(java.lang.String, org.csstudio.saverestore.data.Branch,
+     * java.util.List, java.util.Optional, java.util.Optional)
+     */
+    @Override
+    public Snapshot[] findSnapshots(String expression, Branch branch, List<SearchCriterion> criteria,
+        Optional<Date> start, Optional<Date> end) throws DataProviderException, UnsupportedActionException {
+        return provider.findSnapshots(expression, branch, criteria, start, end);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotContent(org.csstudio.saverestore.data.Snapshot)
+     */
+    @Override
+    public VSnapshot getSnapshotContent(Snapshot snapshot) throws DataProviderException {
+        Optional<String> revision = provider.getSnapshotRevision(snapshot);
+        if (revision.isPresent()) {
+            Optional<VSnapshot> cached = cache.getSnapshot(id, revision.get(), snapshot);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        VSnapshot data = provider.getSnapshotContent(snapshot);
+        if (revision.isPresent() && data != null) {
+            cache.putSnapshot(id, revision.get(), data);
+        }
+        return data;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotContents(java.util.List)
+     */
+    @Override
+    public List<VSnapshot> getSnapshotContents(List<Snapshot> snapshots) throws DataProviderException {
+        int size = snapshots.size();
+        List<VSnapshot> contents = new ArrayList<>(size);
+        List<Snapshot> missing = new ArrayList<>(size);
+        List<Integer> missingIndices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Snapshot snapshot = snapshots.get(i);
+            Optional<String> revision = provider.getSnapshotRevision(snapshot);
+            Optional<VSnapshot> cached = revision.isPresent() ? cache.getSnapshot(id, revision.get(), snapshot)
+                : Optional.empty();
+            contents.add(cached.orElse(null));
+            if (!cached.isPresent()) {
+                missing.add(snapshot);
+                missingIndices.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<VSnapshot> loaded = provider.getSnapshotContents(missing);
+            for (int i = 0; i < loaded.size(); i++) {
+                VSnapshot data = loaded.get(i);
+                contents.set(missingIndices.get(i), data);
+                Optional<String> revision = provider.getSnapshotRevision(missing.get(i));
+                if (revision.isPresent() && data != null) {
+                    cache.putSnapshot(id, revision.get(), data);
+                }
+            }
+        }
+        return contents;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSnapshotRevision(org.csstudio.saverestore.data.Snapshot)
+     */
+    @Override
+    public Optional<String> getSnapshotRevision(Snapshot snapshot) {
+        return provider.getSnapshotRevision(snapshot);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSaveSetContent(org.csstudio.saverestore.data.SaveSet)
+     */
+    @Override
+    public SaveSetData getSaveSetContent(SaveSet set) throws DataProviderException {
+        Optional<SaveSetData> cached = cache.getSaveSetData(id, set);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        SaveSetData data = provider.getSaveSetContent(set);
+        if (data != null) {
+            cache.putSaveSetData(id, data);
+        }
+        return data;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#reinitialise()
+     */
+    @Override
+    public boolean reinitialise() throws DataProviderException {
+        cache.invalidate(id);
+        try {
+            return provider.reinitialise();
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#synchronise()
+     */
+    @Override
+    public boolean synchronise() throws DataProviderException {
+        return provider.synchronise();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#createNewBranch(org.csstudio.saverestore.data.Branch,
+     * java.lang.String)
+     */
+    @Override
+    public Branch createNewBranch(Branch originalBranch, String newBranchName)
+        throws DataProviderException, UnsupportedActionException {
+        return provider.createNewBranch(originalBranch, newBranchName);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#saveSaveSet(org.csstudio.saverestore.data.SaveSetData,
+     * java.lang.String)
+     */
+    @Override
+    public SaveSetData saveSaveSet(SaveSetData set, String comment)
+        throws DataProviderException, UnsupportedActionException {
+        try {
+            return provider.saveSaveSet(set, comment);
+        } finally {
+            cache.invalidateSaveSets(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#deleteSaveSet(org.csstudio.saverestore.data.SaveSet,
+     * java.lang.String)
+     */
+    @Override
+    public boolean deleteSaveSet(SaveSet set, String comment)
+        throws DataProviderException, UnsupportedActionException {
+        try {
+            return provider.deleteSaveSet(set, comment);
+        } finally {
+            cache.invalidate(id, set);
+            cache.invalidateSaveSets(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#saveSnapshot(org.csstudio.saverestore.data.VSnapshot,
+     * java.lang.String)
+     */
+    @Override
+    public VSnapshot saveSnapshot(VSnapshot data, String comment) throws DataProviderException {
+        return provider.saveSnapshot(data, comment);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#tagSnapshot(org.csstudio.saverestore.data.Snapshot,
+     * java.util.Optional, java.util.Optional)
+     */
+    @Override
+    public Snapshot tagSnapshot(Snapshot snapshot, Optional<String> tagName, Optional<String> tagMessage)
+        throws DataProviderException, UnsupportedActionException {
+        return provider.tagSnapshot(snapshot, tagName, tagMessage);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#importData(org.csstudio.saverestore.data.SaveSet,
+     * org.csstudio.saverestore.data.Branch, java.util.Optional, org.csstudio.saverestore.DataProvider.ImportType)
+     */
+    @Override
+    public boolean importData(SaveSet source, Branch toBranch, Optional<BaseLevel> toBaseLevel, ImportType type)
+        throws DataProviderException, UnsupportedActionException {
+        try {
+            return provider.importData(source, toBranch, toBaseLevel, type);
+        } finally {
+            cache.invalidateSaveSets(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#takeSnapshot(org.csstudio.saverestore.data.SaveSet)
+     */
+    @Override
+    public VSnapshot takeSnapshot(SaveSet saveSet) throws DataProviderException, UnsupportedActionException {
+        return provider.takeSnapshot(saveSet);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.csstudio.saverestore.DataProvider#getSupportedSearchCriteria()
+     */
+    @Override
+    public List<SearchCriterion> getSupportedSearchCriteria() {
+        return provider.getSupportedSearchCriteria();
+    }
+}
@@ -93,4 +93,13 @@ public interface CompletionNotifier {
      */
     default void dataImported(SaveSet source, Branch toBranch, Optional<BaseLevel> toBase) {
     }
+
+    /**
+     * Called whenever the number of changes, which were stored locally, but were not transferred to the central
+     * repository yet, changes. Those changes are transferred by the data provider in the background.
+     *
+     * @param pending the number of changes waiting to be transferred
+     */
+    default void pendingChangesUpdated(int pending) {
+    }
 }
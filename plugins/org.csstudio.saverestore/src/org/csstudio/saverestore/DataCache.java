@@ -0,0 +1,330 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.csstudio.saverestore.data.SaveSet;
+import org.csstudio.saverestore.data.SaveSetData;
+import org.csstudio.saverestore.data.Snapshot;
+import org.csstudio.saverestore.data.VSnapshot;
+import org.diirt.util.array.ListInt;
+import org.diirt.vtype.Array;
+import org.diirt.vtype.VType;
+
+/**
+ *
+ * <code>DataCache</code> is a memory bounded least recently used cache of the snapshots and save sets loaded by the
+ * data providers. Snapshots are cached per data provider, save set and revision; since the content of a stored
+ * snapshot revision never changes, the snapshot entries only need to be removed when the save set is deleted or the
+ * repository is reinitialised. Save sets are cached per data provider and save set and are removed whenever the
+ * content of the repository may have changed.
+ * <p>
+ * The size of the cache is measured in values: each snapshot weighs as much as the total number of array elements of
+ * all its values and each save set weighs as much as the number of its PVs. When the total weight exceeds the
+ * maximum, the least recently used entries are evicted. Because {@link VSnapshot} is mutable, the cache keeps a
+ * private copy of each snapshot and returns a new copy on every hit.
+ */
+public final class DataCache {
+
+    /**
+     * <code>Key</code> identifies a cached snapshot (if revision is non null) or save set (if revision is null).
+     */
+    private static final class Key {
+        private final String providerId;
+        private final SaveSet saveSet;
+        private final String revision;
+        private final int hash;
+
+        Key(String providerId, SaveSet saveSet, String revision) {
+            this.providerId = providerId;
+            this.saveSet = saveSet;
+            this.revision = revision;
+            this.hash = Objects.hash(providerId, saveSet, revision);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(providerId, other.providerId) && Objects.equals(revision, other.revision)
+                && Objects.equals(saveSet, other.saveSet);
+        }
+    }
+
+    private static final class Item {
+        private final Object data;
+        private final long weight;
+
+        Item(Object data, long weight) {
+            this.data = data;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<Key, Item> items = new LinkedHashMap<>(64, 0.75f, true);
+    private long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxWeight the maximum total weight (number of values) of all cached items; if 0 or less nothing is cached
+     */
+    public DataCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns a copy of the cached snapshot data for the given snapshot revision. The returned copy uses the provided
+     * descriptor, so that any changes of the descriptor that do not affect the content (e.g. tags) are preserved.
+     *
+     * @param providerId the id of the data provider that owns the snapshot
+     * @param revision the revision of the snapshot
+     * @param descriptor the snapshot descriptor
+     * @return the snapshot data if cached
+     */
+    public Optional<VSnapshot> getSnapshot(String providerId, String revision, Snapshot descriptor) {
+        Object data = get(new Key(providerId, descriptor.getSaveSet(), revision));
+        return data instanceof VSnapshot ? Optional.of(copy((VSnapshot) data, descriptor)) : Optional.empty();
+    }
+
+    /**
+     * Stores a copy of the snapshot data under the given revision.
+     *
+     * @param providerId the id of the data provider that owns the snapshot
+     * @param revision the revision of the snapshot
+     * @param data the snapshot data
+     */
+    public void putSnapshot(String providerId, String revision, VSnapshot data) {
+        Optional<Snapshot> descriptor = data.getSnapshot();
+        if (descriptor.isPresent()) {
+            long w = 0;
+            for (VType v : data.getValues()) {
+                w += weight(v);
+            }
+            for (VType v : data.getReadbackValues()) {
+                w += weight(v);
+            }
+            put(new Key(providerId, data.getSaveSet(), revision), copy(data, descriptor.get()), w);
+        }
+    }
+
+    /**
+     * Returns the cached save set data for the given save set.
+     *
+     * @param providerId the id of the data provider that owns the save set
+     * @param saveSet the save set descriptor
+     * @return the save set data if cached
+     */
+    public Optional<SaveSetData> getSaveSetData(String providerId, SaveSet saveSet) {
+        Object data = get(new Key(providerId, saveSet, null));
+        return data instanceof SaveSetData ? Optional.of((SaveSetData) data) : Optional.empty();
+    }
+
+    /**
+     * Stores the save set data. Save set data is immutable and is therefore stored and returned as it is.
+     *
+     * @param providerId the id of the data provider that owns the save set
+     * @param data the save set data
+     */
+    public void putSaveSetData(String providerId, SaveSetData data) {
+        put(new Key(providerId, data.getDescriptor(), null), data, Math.max(1, data.getPVList().size()));
+    }
+
+    /**
+     * Removes all items belonging to the given data provider.
+     *
+     * @param providerId the id of the data provider
+     */
+    public synchronized void invalidate(String providerId) {
+        removeIf(k -> Objects.equals(providerId, k.providerId));
+    }
+
+    /**
+     * Removes the save set and all its snapshots belonging to the given data provider.
+     *
+     * @param providerId the id of the data provider
+     * @param saveSet the save set to remove
+     */
+    public synchronized void invalidate(String providerId, SaveSet saveSet) {
+        removeIf(k -> Objects.equals(providerId, k.providerId) && Objects.equals(saveSet, k.saveSet));
+    }
+
+    /**
+     * Removes all save sets (but not snapshots) belonging to the given data provider.
+     *
+     * @param providerId the id of the data provider
+     */
+    public synchronized void invalidateSaveSets(String providerId) {
+        removeIf(k -> Objects.equals(providerId, k.providerId) && k.revision == null);
+    }
+
+    /**
+     * Removes all items from the cache. The statistics are not reset.
+     */
+    public synchronized void clear() {
+        items.clear();
+        weight = 0;
+    }
+
+    /**
+     * Sets the maximum total weight of the cached items. If the current weight exceeds the new maximum, the least
+     * recently used items are evicted.
+     *
+     * @param maxWeight the new maximum weight (number of values)
+     */
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * Returns the maximum total weight of the cached items.
+     *
+     * @return the maximum weight (number of values)
+     */
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the current total weight of all cached items.
+     *
+     * @return the current weight (number of values)
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of currently cached items.
+     *
+     * @return the number of items
+     */
+    public synchronized int getSize() {
+        return items.size();
+    }
+
+    /**
+     * Returns the number of requests that were served from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that could not be served from the cache.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of items that were evicted because the cache exceeded its maximum weight.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "DataCache[items=" + items.size() + ", weight=" + weight + "/" + maxWeight + ", hits=" + hits
+            + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private synchronized Object get(Key key) {
+        Item item = items.get(key);
+        if (item == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return item.data;
+    }
+
+    private synchronized void put(Key key, Object data, long w) {
+        if (maxWeight <= 0 || w > maxWeight) {
+            return;
+        }
+        Item old = items.put(key, new Item(data, w));
+        if (old != null) {
+            weight -= old.weight;
+        }
+        weight += w;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Item> it = items.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        Iterator<Map.Entry<Key, Item>> it = items.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Item> e = it.next();
+            if (predicate.test(e.getKey())) {
+                weight -= e.getValue().weight;
+                it.remove();
+            }
+        }
+    }
+
+    private static VSnapshot copy(VSnapshot data, Snapshot descriptor) {
+        return new VSnapshot(descriptor, data.getNames(), data.getSelected(), data.getValues(),
+            data.getReadbackNames(), data.getReadbackValues(), data.getDeltas(), data.getTimestamp());
+    }
+
+    private static long weight(VType value) {
+        if (value instanceof Array) {
+            ListInt sizes = ((Array) value).getSizes();
+            long n = 1;
+            for (int i = 0; i < sizes.size(); i++) {
+                n *= sizes.getInt(i);
+            }
+            return Math.max(1, n);
+        }
+        return 1;
+    }
+}
@@ -10,6 +10,7 @@
  */
 package org.csstudio.saverestore;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -242,6 +243,37 @@ public interface DataProvider {
      */
     VSnapshot getSnapshotContent(Snapshot snapshot) throws DataProviderException;
 
+    /**
+     * Returns the contents of several snapshot revisions at once. The returned list contains the snapshot data in the
+     * same order as the given descriptors. The default implementation loads the snapshots one after another;
+     * providers that are able to load several snapshots concurrently or within a single request should override this
+     * method.
+     *
+     * @param snapshots the snapshot revision descriptors
+     * @return the snapshots data in the same order as the descriptors
+     *
+     * @throws DataProviderException if there is an error during content reading of any of the snapshots
+     */
+    default List<VSnapshot> getSnapshotContents(List<Snapshot> snapshots) throws DataProviderException {
+        List<VSnapshot> contents = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            contents.add(getSnapshotContent(snapshot));
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the identifier of the revision (e.g. commit id or event id) in which the snapshot was stored. The
+     * content of a snapshot revision with a known identifier must never change, which allows the snapshot data to be
+     * cached. If the provider cannot identify the revision, the snapshot content is never cached.
+     *
+     * @param snapshot the snapshot revision descriptor
+     * @return the revision identifier if known
+     */
+    default Optional<String> getSnapshotRevision(Snapshot snapshot) {
+        return Optional.empty();
+    }
+
     /**
      * Returns the content of one specific save set.
      *
@@ -10,11 +10,21 @@
  */
 package org.csstudio.saverestore;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -22,35 +32,13 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.csstudio.saverestore.data.SaveSetData;
-import org.csstudio.saverestore.data.VDisconnectedData;
 import org.csstudio.saverestore.data.VSnapshot;
-import org.diirt.util.array.ArrayBoolean;
-import org.diirt.util.array.ArrayByte;
-import org.diirt.util.array.ArrayDouble;
-import org.diirt.util.array.ArrayFloat;
-import org.diirt.util.array.ArrayInt;
-import org.diirt.util.array.ArrayLong;
-import org.diirt.util.array.ArrayShort;
-import org.diirt.util.array.ListBoolean;
-import org.diirt.util.array.ListByte;
-import org.diirt.util.array.ListDouble;
-import org.diirt.util.array.ListFloat;
-import org.diirt.util.array.ListInt;
-import org.diirt.util.array.ListLong;
-import org.diirt.util.array.ListShort;
 import org.diirt.vtype.Alarm;
-import org.diirt.vtype.AlarmSeverity;
-import org.diirt.vtype.Display;
 import org.diirt.vtype.Time;
 import org.diirt.vtype.VType;
-import org.diirt.vtype.ValueFactory;
 
 /**
  *
@@ -63,7 +51,7 @@ import org.diirt.vtype.ValueFactory;
 public final class FileUtilities {
 
     // the date tag for the snapshot files
-    private static final String DATE_TAG = "Date:";
+    static final String DATE_TAG = "Date:";
     // the description tag for the save set files
     private static final String DESCRIPTION_TAG = "Description:";
     // the names of the headers in the csv files
@@ -82,18 +70,52 @@ public final class FileUtilities {
         + "," + H_SEVERITY + "," + H_VALUE_TYPE + "," + H_VALUE + "," + H_READBACK + "," + H_READBACK_VALUE + ","
         + H_DELTA;
     public static final String SAVE_SET_HEADER = H_PV_NAME + "," + H_READBACK + "," + H_DELTA;
-    // delimiter of array values
-    private static final String ARRAY_SPLITTER = "\\;";
-    // delimiter of enum value and enum constants
-    private static final String ENUM_VALUE_SPLITTER = "\\~";
     // proposed length of snapshot file data line entry (pv name only)
     private static final int SNP_ENTRY_LENGTH = 700;
     // proposed length of save set data line entry (pv name only)
     private static final int BSD_ENTRY_LENGTH = 250;
     // the format used to store the timestamp of when the snapshot was taken
-    private static final ThreadLocal<DateFormat> TIMESTAMP_FORMATTER = ThreadLocal
+    static final ThreadLocal<DateFormat> TIMESTAMP_FORMATTER = ThreadLocal
         .withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS"));
-    private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\\n");
+    // the number of characters collected before they are written to the destination
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * <code>EntryBuffer</code> collects the file entries and writes them to the destination when enough characters
+     * have been collected, which keeps the memory use bounded regardless of the size of the file.
+     */
+    private static final class EntryBuffer {
+        final StringBuilder builder = new StringBuilder(WRITE_BUFFER_SIZE + SNP_ENTRY_LENGTH);
+        private final Writer writer;
+        private char[] chars = new char[WRITE_BUFFER_SIZE];
+
+        EntryBuffer(Writer writer) {
+            this.writer = writer;
+        }
+
+        void flushIfFull() throws IOException {
+            if (builder.length() >= WRITE_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            int length = builder.length();
+            if (chars.length < length) {
+                // a single entry may be larger than the buffer (e.g. a large waveform)
+                chars = new char[length];
+            }
+            builder.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+            builder.setLength(0);
+            if (builder.capacity() > WRITE_BUFFER_SIZE << 2) {
+                builder.trimToSize();
+                builder.ensureCapacity(WRITE_BUFFER_SIZE + SNP_ENTRY_LENGTH);
+                chars = new char[WRITE_BUFFER_SIZE];
+            }
+        }
+    }
+
     /**
      * Private constructor to prevent instantiation of this class.
      */
@@ -101,7 +123,8 @@ public final class FileUtilities {
     }
 
     /**
-     * Read the contents of the snapshot file from the given input stream.
+     * Read the contents of the snapshot file from the given input stream. The stream may contain the CSV or the binary
+     * snapshot content (see {@link #generateBinarySnapshotContent(VSnapshot)}), which is recognised by its header.
      *
      * @param stream the source of data
      * @return the data, where the description contains the timestamp of the snapshot, names contain the pv names, and
@@ -109,91 +132,11 @@ public final class FileUtilities {
      * @throws IOException if reading the file failed
      */
     public static SnapshotContent readFromSnapshot(InputStream stream) throws IOException, ParseException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
-        String date = null;
-        List<String> names = new ArrayList<>();
-        List<VType> data = new ArrayList<>();
-        List<Boolean> selected = new ArrayList<>();
-        List<String> readbacks = new ArrayList<>();
-        List<VType> readbackData = new ArrayList<>();
-        List<String> deltas = new ArrayList<>();
-        String line;
-        String[] header = null;
-        Map<String, Integer> headerMap = new HashMap<>();
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.isEmpty()) {
-                continue;
-            } else if (header == null && line.charAt(0) == '#') {
-                int idx = line.indexOf(DATE_TAG);
-                if (idx > -1) {
-                    date = line.substring(idx + DATE_TAG.length()).trim();
-                }
-            } else if (header == null) {
-                header = line.split("\\,");
-                for (int i = 0; i < header.length; i++) {
-                    headerMap.put(header[i].toUpperCase(Locale.UK), Integer.valueOf(i));
-                }
-            } else {
-                if (headerMap.isEmpty()) {
-                    throw new IOException("The Snapshot content is invalid. No CSV header is defined.");
-                }
-                // there are no fields in here that may contain a comma
-                String[] split = split(line);
-                if (split == null) {
-                    throw new IOException("Invalid content: " + line);
-                }
-                int length = split.length - 1;
-                Integer idx = headerMap.get(H_PV_NAME);
-                String name = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_SELECTED);
-                String sel = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_TIMESTAMP);
-                String timestamp = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_STATUS);
-                String status = idx == null || idx > length ? "" : trim(split[idx]);
-                idx = headerMap.get(H_SEVERITY);
-                String severity = idx == null || idx > length ? "" : trim(split[idx]);
-                idx = headerMap.get(H_VALUE_TYPE);
-                String valueType = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_VALUE);
-                String value = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_READBACK);
-                String readback = idx == null || idx > length ? "" : trim(split[idx]);
-                idx = headerMap.get(H_READBACK_VALUE);
-                String readbackValue = idx == null || idx > length ? null : trim(split[idx]);
-                idx = headerMap.get(H_DELTA);
-                String delta = idx == null || idx > length ? "" : trim(split[idx]);
-
-                try {
-                    data.add(piecesToVType(timestamp, status, severity, value, valueType));
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                    // number format covers errors in parsing to VNumber, index out of bounds covers the enum parsing
-                    // errors
-                    data.add(VDisconnectedData.INSTANCE);
-                }
-                readbacks.add(readback);
-                deltas.add(delta);
-                try {
-                    readbackData.add(piecesToVType(timestamp, status, severity, readbackValue, valueType));
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                    readbackData.add(VDisconnectedData.INSTANCE);
-                }
-                names.add(name);
-                boolean s = true;
-                try {
-                    s = Integer.parseInt(sel) != 0;
-                } catch (NumberFormatException e) {
-                    // ignore
-                }
-                selected.add(s);
-            }
-        }
-        if (date == null || date.isEmpty()) {
-            throw new ParseException("Snapshot does not have a date set.", 0);
+        InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream);
+        if (BinarySnapshotFormat.isBinary(in)) {
+            return BinarySnapshotFormat.read(in);
         }
-        Instant d = TIMESTAMP_FORMATTER.get().parse(date).toInstant();
-        return new SnapshotContent(d, names, selected, data, readbacks, readbackData, deltas);
+        return new SnapshotParser(new InputStreamReader(in, StandardCharsets.UTF_8)).parse();
     }
 
     /**
@@ -211,229 +154,138 @@ public final class FileUtilities {
     }
 
     /**
-     * Converts a single entry to the VType.
+     * Generates snapshot file content and returns it. For large snapshots use
+     * {@link #writeSnapshotFileContent(VSnapshot, Writer)}, which does not hold the whole content in memory.
      *
-     * @param timestamp the timestamp of the entry, given in sec.nano format
-     * @param status the alarm status
-     * @param severity the alarm severity
-     * @param value the raw value
-     * @param valueType the value type
-     * @return VType that contains all parameters and matches the type provided by <code>valueType</code>
+     * @param data snapshot file data
+     *
+     * @return generated snapshot file content
      */
-    private static VType piecesToVType(String timestamp, String status, String severity, String value,
-        String valueType) {
-        if (value == null || value.isEmpty() || "null".equalsIgnoreCase(value)
-            || VDisconnectedData.INSTANCE.toString().equals(value)) {
-            return VDisconnectedData.INSTANCE;
-        }
-        String[] t = timestamp != null && timestamp.indexOf('.') > 0 ? timestamp.split("\\.")
-            : new String[] { "0", "0" };
-        Time time = ValueFactory.newTime(Instant.ofEpochSecond(Long.parseLong(t[0]), Integer.parseInt(t[1])));
-        Alarm alarm = ValueFactory.newAlarm(
-            severity.isEmpty() ? AlarmSeverity.NONE : AlarmSeverity.valueOf(severity.toUpperCase(Locale.UK)), status);
-        Display display = ValueFactory.newDisplay(0d, 0d, 0d, null, null, 0d, 0d, 0d, 0d, 0d);
-        ValueType vtype = ValueType.forName(valueType);
-
-        String[] valueAndLabels = value.split(ENUM_VALUE_SPLITTER);
-        if (valueAndLabels.length > 0) {
-            if (valueAndLabels[0].charAt(0) == '[') {
-                valueAndLabels[0] = valueAndLabels[0].substring(1, valueAndLabels[0].length() - 1);
-            }
-            if (valueAndLabels.length > 1) {
-                valueAndLabels[1] = valueAndLabels[1].substring(1, valueAndLabels[1].length() - 1);
-            }
-        }
-        String theValue = valueAndLabels[0];
-        switch (vtype) {
-            case DOUBLE_ARRAY:
-                String[] sd = theValue.split(ARRAY_SPLITTER,-1);
-                double[] dd = new double[sd.length];
-                for (int i = 0; i < sd.length; i++) {
-                    if (sd[i].isEmpty()) {
-                        dd[i] = 0;
-                    } else {
-                        dd[i] = Double.parseDouble(sd[i]);
-                    }
-                }
-                ListDouble datad = new ArrayDouble(dd);
-                return ValueFactory.newVDoubleArray(datad, alarm, time, display);
-            case FLOAT_ARRAY:
-                String[] sf = theValue.split(ARRAY_SPLITTER,-1);
-                float[] df = new float[sf.length];
-                for (int i = 0; i < sf.length; i++) {
-                    if (sf[i].isEmpty()) {
-                        df[i] = 0f;
-                    } else {
-                        df[i] = Float.parseFloat(sf[i]);
-                    }
-                }
-                ListFloat dataf = new ArrayFloat(df);
-                return ValueFactory.newVFloatArray(dataf, alarm, time, display);
-            case LONG_ARRAY:
-                String[] sl = theValue.split(ARRAY_SPLITTER,-1);
-                long[] dl = new long[sl.length];
-                for (int i = 0; i < sl.length; i++) {
-                    if (sl[i].isEmpty()) {
-                        dl[i] = 0L;
-                    } else {
-                        dl[i] = Long.parseLong(sl[i]);
-                    }
-                }
-                ListLong datal = new ArrayLong(dl);
-                return ValueFactory.newVLongArray(datal, alarm, time, display);
-            case INT_ARRAY:
-                String[] si = theValue.split(ARRAY_SPLITTER,-1);
-                int[] di = new int[si.length];
-                for (int i = 0; i < si.length; i++) {
-                    if (si[i].isEmpty()) {
-                        di[i] = 0;
-                    } else {
-                        di[i] = Integer.parseInt(si[i]);
-                    }
-                }
-                ListInt datai = new ArrayInt(di);
-                return ValueFactory.newVIntArray(datai, alarm, time, display);
-            case SHORT_ARRAY:
-                String[] ss = theValue.split(ARRAY_SPLITTER,-1);
-                short[] ds = new short[ss.length];
-                for (int i = 0; i < ss.length; i++) {
-                    if (ss[i].isEmpty()) {
-                        ds[i] = (short)0;
-                    } else {
-                        ds[i] = Short.parseShort(ss[i]);
-                    }
-                }
-                ListShort datas = new ArrayShort(ds);
-                return ValueFactory.newVShortArray(datas, alarm, time, display);
-            case BYTE_ARRAY:
-                String[] sb = theValue.split(ARRAY_SPLITTER,-1);
-                byte[] db = new byte[sb.length];
-                for (int i = 0; i < sb.length; i++) {
-                    if (sb[i].isEmpty()) {
-                        db[i] = (byte)0;
-                    } else {
-                        db[i] = Byte.parseByte(sb[i]);
-                    }
-                }
-                ListByte datab = new ArrayByte(db);
-                return ValueFactory.newVNumberArray(datab, alarm, time, display);
-            case ENUM_ARRAY:
-                String[] se = theValue.split(ARRAY_SPLITTER,-1);
-                List<String> labels = Arrays.asList(valueAndLabels[1].split(ARRAY_SPLITTER));
-                int[] de = new int[se.length];
-                for (int i = 0; i < se.length; i++) {
-                    de[i] = labels.indexOf(se[i]);
-                }
-                ListInt datae = new ArrayInt(de);
-                return ValueFactory.newVEnumArray(datae, labels, alarm, time);
-            case STRING_ARRAY:
-                String[] str = theValue.split(ARRAY_SPLITTER,-1);
-                return ValueFactory.newVStringArray(Arrays.asList(str), alarm, time);
-            case BOOLEAN_ARRAY:
-                String[] sbo = theValue.split(ARRAY_SPLITTER,-1);
-                boolean[] dbo = new boolean[sbo.length];
-                for (int i = 0; i < sbo.length; i++) {
-                    dbo[i] = Boolean.parseBoolean(sbo[i]);
-                }
-                ListBoolean databo = new ArrayBoolean(dbo);
-                return ValueFactory.newVBooleanArray(databo, alarm, time);
-            case NUMBER_ARRAY:
-                String[] nd = theValue.split(ARRAY_SPLITTER,-1);
-                double[] ndd = new double[nd.length];
-                for (int i = 0; i < nd.length; i++) {
-                    if (nd[i].isEmpty()) {
-                        ndd[i] = 0;
-                    } else {
-                        ndd[i] = Double.parseDouble(nd[i]);
-                    }
-                }
-                ListDouble datand = new ArrayDouble(ndd);
-                return ValueFactory.newVDoubleArray(datand, alarm, time, display);
-            case DOUBLE:
-            case NUMBER:
-                return ValueFactory.newVDouble(Double.parseDouble(theValue), alarm, time, display);
-            case FLOAT:
-                return ValueFactory.newVFloat(Float.parseFloat(theValue), alarm, time, display);
-            case LONG:
-                return ValueFactory.newVLong(Long.parseLong(theValue), alarm, time, display);
-            case INT:
-                return ValueFactory.newVInt(Integer.parseInt(theValue), alarm, time, display);
-            case SHORT:
-                return ValueFactory.newVShort(Short.parseShort(theValue), alarm, time, display);
-            case BYTE:
-                return ValueFactory.newVByte(Byte.parseByte(theValue), alarm, time, display);
-            case BOOLEAN:
-                return ValueFactory.newVBoolean(Boolean.parseBoolean(theValue), alarm, time);
-            case STRING:
-                return ValueFactory.newVString(theValue, alarm, time);
-            case ENUM:
-                List<String> lbls = new ArrayList<>(Arrays.asList(valueAndLabels[1].split("\\;",-1)));
-                int idx = lbls.indexOf(theValue);
-                if (idx < 0) {
-                    try {
-                        idx = Integer.parseInt(theValue);
-                    } catch (NumberFormatException e) {
-                        idx = 0;
-                    }
-                    if (lbls.size() <= idx) {
-                        for (int i = lbls.size(); i <= idx; i++) {
-                            lbls.add(String.valueOf(i));
-                        }
-                    }
-                }
-                return ValueFactory.newVEnum(idx, lbls, alarm, time);
-            case NODATA:
-                return VDisconnectedData.INSTANCE;
+    public static String generateSnapshotFileContent(VSnapshot data) {
+        StringWriter writer = new StringWriter(SNP_ENTRY_LENGTH * data.getNames().size());
+        try {
+            writeSnapshotFileContent(data, writer);
+        } catch (IOException e) {
+            // string writer does not throw exceptions
+            throw new UncheckedIOException(e);
         }
-
-        throw new IllegalArgumentException("Unknown data type " + valueType + ".");
+        return writer.toString();
     }
 
     /**
-     * Generates snapshot file content and returns it.
+     * Writes the snapshot file content to the given stream using the UTF-8 encoding. The stream is flushed, but not
+     * closed.
      *
      * @param data snapshot file data
+     * @param stream the destination stream
+     * @throws IOException if writing to the stream failed
+     */
+    public static void writeSnapshotFileContent(VSnapshot data, OutputStream stream) throws IOException {
+        Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        writeSnapshotFileContent(data, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the snapshot file content to the given writer. The entries are written one by one through a buffer of
+     * bounded size, so the content of the whole file is never held in memory. The writer is not flushed or closed.
      *
-     * @return generated snapshot file content
+     * @param data snapshot file data
+     * @param writer the destination
+     * @throws IOException if writing failed
      */
-    public static String generateSnapshotFileContent(VSnapshot data) {
+    public static void writeSnapshotFileContent(VSnapshot data, Writer writer) throws IOException {
         List<VType> values = data.getValues();
         List<String> names = data.getNames();
         List<Boolean> selected = data.getSelected();
         List<String> readbacks = data.getReadbackNames();
         List<VType> readbackValues = data.getReadbackValues();
         List<String> deltas = data.getDeltas();
-        StringBuilder sb = new StringBuilder(SNP_ENTRY_LENGTH * names.size());
+        EntryBuffer buffer = new EntryBuffer(writer);
         Instant timestamp = data.getTimestamp();
         if (timestamp == null) {
             timestamp = Instant.now();
         }
+        StringBuilder sb = buffer.builder;
         sb.append("# Date: ").append(TIMESTAMP_FORMATTER.get().format(Date.from(timestamp))).append('\n');
         sb.append(SNAPSHOT_FILE_HEADER).append('\n');
         boolean deltaEmpty = deltas.isEmpty();
         boolean noReadbacks = readbacks.isEmpty();
         for (int i = 0; i < names.size(); i++) {
-            sb.append(createSnapshotFileEntry(names.get(i), selected.get(i), values.get(i),
+            int start = sb.length();
+            appendSnapshotFileEntry(sb, names.get(i), selected.get(i), values.get(i),
                 noReadbacks ? null : readbacks.get(i), noReadbacks ? null : readbackValues.get(i),
-                deltaEmpty ? null : deltas.get(i))).append('\n');
+                deltaEmpty ? null : deltas.get(i));
+            // the entry has to be in a single line
+            for (int j = start; j < sb.length(); j++) {
+                if (sb.charAt(j) == '\n') {
+                    sb.setCharAt(j, ' ');
+                }
+            }
+            sb.append('\n');
+            buffer.flushIfFull();
+        }
+        buffer.flush();
+    }
+
+    /**
+     * Generates the binary snapshot file content and returns it. The binary content stores the same data as the
+     * content generated by {@link #generateSnapshotFileContent(VSnapshot)}, but the values are stored in typed blocks,
+     * which makes it more compact and faster to read and write, in particular for large waveforms. The binary content
+     * is recognised by {@link #readFromSnapshot(InputStream)}.
+     *
+     * @param data snapshot file data
+     *
+     * @return generated binary snapshot file content
+     */
+    public static byte[] generateBinarySnapshotContent(VSnapshot data) {
+        return BinarySnapshotFormat.generate(data);
+    }
+
+    /**
+     * Writes the binary snapshot file content (see {@link #generateBinarySnapshotContent(VSnapshot)}) to the given
+     * stream. The stream is flushed, but not closed.
+     *
+     * @param data snapshot file data
+     * @param stream the destination stream
+     * @throws IOException if writing to the stream failed
+     */
+    public static void writeBinarySnapshotContent(VSnapshot data, OutputStream stream) throws IOException {
+        BinarySnapshotFormat.write(data, stream);
+    }
+
+    /**
+     * Writes the snapshot file content into a new temporary file and returns the file. The caller is responsible for
+     * deleting the file as soon as it is no longer needed.
+     *
+     * @param data snapshot file data
+     * @return the temporary file containing the snapshot file content
+     * @throws IOException if the file could not be created or written
+     */
+    public static File writeSnapshotToTemporaryFile(VSnapshot data) throws IOException {
+        File file = File.createTempFile("snapshot", ".snp");
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE)) {
+            writeSnapshotFileContent(data, stream);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
         }
-        return sb.toString();
+        return file;
     }
 
     /**
-     * Converts given name and data into a string formatted for the snapshot file and returns that string
+     * Appends the given name and data formatted for the snapshot file to the builder.
      *
+     * @param sb the destination
      * @param name the name of the pv
      * @param selected the selected flag of the pv
      * @param data stored pv value
      * @param readbackName the name of the readback pv
      * @param readbackValue the readback pv value
      * @param delta the threshold value or function
-     * @return into string converted given snapshot entry data.
      */
-    private static String createSnapshotFileEntry(String name, boolean selected, VType data, String readbackName,
-        VType readbackValue, String delta) {
-        StringBuilder sb = new StringBuilder(SNP_ENTRY_LENGTH);
+    private static void appendSnapshotFileEntry(StringBuilder sb, String name, boolean selected, VType data,
+        String readbackName, VType readbackValue, String delta) {
         sb.append(name).append(',');
         sb.append(selected ? 1 : 0).append(',');
         if (data instanceof Time) {
@@ -447,14 +299,18 @@ public final class FileUtilities {
             sb.append(",,");
         }
         sb.append(ValueType.vtypeToStringType(data)).append(',');
-        sb.append('\"').append(Utilities.toRawStringValue(data)).append('\"');
+        sb.append('\"');
+        ValueFormatter.appendRawValue(data, sb);
+        sb.append('\"');
         sb.append(',');
         if (readbackName != null) {
             sb.append(readbackName);
         }
         sb.append(',');
         if (readbackValue != null) {
-            sb.append('\"').append(Utilities.toRawStringValue(readbackValue)).append('\"');
+            sb.append('\"');
+            ValueFormatter.appendRawValue(readbackValue, sb);
+            sb.append('\"');
         }
         sb.append(',');
         if (delta != null) {
@@ -464,11 +320,6 @@ public final class FileUtilities {
                 sb.append(delta);
             }
         }
-        String s = sb.toString();
-        if (s.indexOf('\n') > -1) {
-            s = LINE_BREAK_PATTERN.matcher(s).replaceAll(" ");
-        }
-        return s;
     }
 
     /**
@@ -546,26 +397,65 @@ public final class FileUtilities {
      * @return generated save set file content
      */
     public static String generateSaveSetContent(SaveSetData data) {
+        StringWriter writer = new StringWriter(BSD_ENTRY_LENGTH * data.getPVList().size());
+        try {
+            writeSaveSetContent(data, writer);
+        } catch (IOException e) {
+            // string writer does not throw exceptions
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the save set file content to the given stream using the UTF-8 encoding. The stream is flushed, but not
+     * closed.
+     *
+     * @param data save set data to write
+     * @param stream the destination stream
+     * @throws IOException if writing to the stream failed
+     */
+    public static void writeSaveSetContent(SaveSetData data, OutputStream stream) throws IOException {
+        Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        writeSaveSetContent(data, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the save set file content to the given writer through a buffer of bounded size. The writer is not flushed
+     * or closed.
+     *
+     * @param data save set data to write
+     * @param writer the destination
+     * @throws IOException if writing failed
+     */
+    public static void writeSaveSetContent(SaveSetData data, Writer writer) throws IOException {
         String description = data.getDescription();
         description = description.replaceAll("\n", "# ");
         List<String> pvs = data.getPVList();
         List<String> readbacks = data.getReadbackList();
         List<String> deltas = data.getDeltaList();
-        final StringBuilder sb = new StringBuilder(BSD_ENTRY_LENGTH * pvs.size());
+        EntryBuffer buffer = new EntryBuffer(writer);
+        StringBuilder sb = buffer.builder;
         sb.append('#').append(' ').append(DESCRIPTION_TAG).append("\n# ");
         sb.append(description).append("\n#\n");
         if (readbacks.isEmpty() && deltas.isEmpty()) {
             sb.append(H_PV_NAME).append('\n');
-            pvs.forEach(e -> sb.append(e).append('\n'));
+            for (String pv : pvs) {
+                sb.append(pv).append('\n');
+                buffer.flushIfFull();
+            }
         } else if (readbacks.isEmpty()) {
             sb.append(H_PV_NAME).append(',').append(H_DELTA).append('\n');
             for (int i = 0; i < pvs.size(); i++) {
                 sb.append(pvs.get(i)).append(',').append(deltas.get(i)).append('\n');
+                buffer.flushIfFull();
             }
         } else if (deltas.isEmpty()) {
             sb.append(H_PV_NAME).append(',').append(H_READBACK).append('\n');
             for (int i = 0; i < pvs.size(); i++) {
                 sb.append(pvs.get(i)).append(',').append(readbacks.get(i)).append('\n');
+                buffer.flushIfFull();
             }
         } else {
             sb.append(H_PV_NAME).append(',').append(H_READBACK).append(',').append(H_DELTA).append('\n');
@@ -578,9 +468,10 @@ public final class FileUtilities {
                     sb.append(delta);
                 }
                 sb.append('\n');
+                buffer.flushIfFull();
             }
         }
-        return sb.toString();
+        buffer.flush();
     }
 
     /**
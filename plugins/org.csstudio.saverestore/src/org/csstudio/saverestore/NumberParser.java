@@ -0,0 +1,158 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+/**
+ *
+ * <code>NumberParser</code> parses numbers directly from a part of a character array, without creating intermediate
+ * strings for plain decimal numbers. Only the numbers that cannot be converted exactly are passed to the parse
+ * methods of the number classes.
+ * <p>
+ * The parser is not thread safe, because it keeps the state of the last scanned number.
+ */
+final class NumberParser {
+
+    // maximum number of digits of a double value that can be converted exactly without the help of Double.parseDouble
+    private static final int MAX_DOUBLE_DIGITS = 15;
+    // maximum mantissa of a float value that can be converted exactly without the help of Float.parseFloat
+    private static final long MAX_FLOAT_MANTISSA = 1L << 24;
+    private static final double[] DOUBLE_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15 };
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+        1e10f };
+
+    // the result of the last decimal number scan
+    private boolean negative;
+    private long mantissa;
+    private int digits;
+    private int fractionDigits;
+
+    /**
+     * Parses an integer number from the given part of the array. The number is parsed directly from the array,
+     * unless it is not a plain decimal number, in which case {@link Long#parseLong(String)} is used.
+     *
+     * @param chars the characters
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param min the minimum allowed value
+     * @param max the maximum allowed value
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number or it is out of range
+     */
+    long parseLong(char[] chars, int start, int end, long min, long max) {
+        long value = 0;
+        int p = start;
+        boolean neg = false;
+        if (p < end && (chars[p] == '-' || chars[p] == '+')) {
+            neg = chars[p] == '-';
+            p++;
+        }
+        int digitsStart = p;
+        // up to 18 digits can never overflow
+        if (end - p < 19) {
+            for (; p < end; p++) {
+                int digit = chars[p] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+        }
+        if (p == end && p > digitsStart) {
+            value = neg ? -value : value;
+        } else {
+            value = Long.parseLong(new String(chars, start, end - start));
+        }
+        if (value < min || value > max) {
+            throw new NumberFormatException(
+                "Value out of range. Value:\"" + new String(chars, start, end - start) + "\"");
+        }
+        return value;
+    }
+
+    /**
+     * Parses a double from the given part of the array. Plain decimal numbers with at most 15 digits are converted
+     * directly (the mantissa and the power of ten are both exact, so the division is correctly rounded). All other
+     * values are parsed by {@link Double#parseDouble(String)}.
+     *
+     * @param chars the characters
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number
+     */
+    double parseDouble(char[] chars, int start, int end) {
+        if (scanDecimal(chars, start, end) && digits <= MAX_DOUBLE_DIGITS) {
+            double value = mantissa / DOUBLE_POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+
+    /**
+     * Parses a float from the given part of the array. Plain decimal numbers with a mantissa that fits into a float
+     * and with at most 10 fraction digits are converted directly. All other values are parsed by
+     * {@link Float#parseFloat(String)}.
+     *
+     * @param chars the characters
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number
+     */
+    float parseFloat(char[] chars, int start, int end) {
+        if (scanDecimal(chars, start, end) && digits <= MAX_DOUBLE_DIGITS && mantissa <= MAX_FLOAT_MANTISSA
+            && fractionDigits < FLOAT_POWERS_OF_TEN.length) {
+            float value = mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return Float.parseFloat(new String(chars, start, end - start));
+    }
+
+    /**
+     * Scans the given part of the array for a plain decimal number (optional sign, digits and an optional decimal
+     * point) and stores the sign, mantissa, number of digits and number of fraction digits.
+     *
+     * @param chars the characters
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return true if the part is a plain decimal number or false otherwise
+     */
+    private boolean scanDecimal(char[] chars, int start, int end) {
+        int p = start;
+        negative = false;
+        mantissa = 0;
+        digits = 0;
+        fractionDigits = 0;
+        if (p < end && (chars[p] == '-' || chars[p] == '+')) {
+            negative = chars[p] == '-';
+            p++;
+        }
+        boolean fraction = false;
+        for (; p < end; p++) {
+            char c = chars[p];
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DOUBLE_DIGITS) {
+                    return false;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+}
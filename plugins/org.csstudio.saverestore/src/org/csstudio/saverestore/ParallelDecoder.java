@@ -0,0 +1,204 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ *
+ * <code>ParallelDecoder</code> decodes the rows of a snapshot (e.g. the lines of a snapshot file or the entries of a
+ * service result) in parallel. The rows are independent of each other, so the range of rows is split into chunks,
+ * which are decoded by the fork/join pool. Each chunk is decoded by its own {@link RowDecoder}, which writes the
+ * results into preallocated arrays at the row indexes, so that the order of the rows is preserved without any merging.
+ * <p>
+ * Snapshots that have fewer rows than the threshold are decoded sequentially in the calling thread, because the
+ * coordination would cost more than the parallel decoding saves.
+ * <p>
+ * If the rows are read from a stream and their number is not known in advance, the reader hands the rows to a
+ * {@link ChunkPipeline} in chunks, as soon as they are read.
+ */
+public final class ParallelDecoder {
+
+    /**
+     * <code>RowDecoder</code> decodes a range of rows. A decoder is only used by a single thread at a time, so it may
+     * keep state (e.g. reusable buffers) between the rows.
+     */
+    @FunctionalInterface
+    public interface RowDecoder {
+
+        /**
+         * Decodes the rows from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+         *
+         * @param from the index of the first row
+         * @param to the index after the last row
+         */
+        void decode(int from, int to);
+    }
+
+    // the minimum number of rows decoded by a single task
+    private static final int MIN_CHUNK_SIZE = 256;
+    // the number of chunks per thread, which allows the idle threads to steal the work of the busy ones
+    private static final int CHUNKS_PER_THREAD = 4;
+    // the number of chunks per thread that are submitted to the pipeline, but not decoded yet
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    /**
+     * <code>DecodeTask</code> splits the range of rows in halves, until the range is small enough to be decoded.
+     */
+    private static final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 4187163253622390117L;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final transient Supplier<RowDecoder> decoders;
+
+        DecodeTask(int from, int to, int chunkSize, Supplier<RowDecoder> decoders) {
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.decoders = decoders;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                decoders.get().decode(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask(from, middle, chunkSize, decoders),
+                    new DecodeTask(middle, to, chunkSize, decoders));
+            }
+        }
+    }
+
+    /**
+     * <code>ChunkPipeline</code> decodes chunks of rows in the fork/join pool, while the following rows are still being
+     * read by a single producer thread. The number of chunks that were submitted, but are not decoded yet, is bounded:
+     * if the pool cannot keep up with the producer, the producer waits for the oldest chunk to be decoded. The memory
+     * held by the chunks that are not decoded yet is therefore bounded as well.
+     * <p>
+     * The pipeline is not thread safe. It has to be used by the producer thread only.
+     */
+    public static final class ChunkPipeline {
+        private final int threshold;
+        private final ForkJoinPool pool;
+        private final int maxPending;
+        private final Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+
+        private ChunkPipeline(int threshold, ForkJoinPool pool) {
+            this.threshold = threshold;
+            this.pool = pool;
+            this.maxPending = threshold <= 0 ? 0 : pool.getParallelism() * CHUNKS_IN_FLIGHT_PER_THREAD;
+        }
+
+        /**
+         * Returns true if the rows that follow the given number of already read rows should be decoded in the pool or
+         * false if they should be decoded sequentially by the producer.
+         *
+         * @param numberOfRows the number of rows read so far
+         * @return true if the following rows should be submitted to the pool
+         */
+        public boolean isParallel(int numberOfRows) {
+            return threshold > 0 && numberOfRows >= threshold && pool.getParallelism() > 1;
+        }
+
+        /**
+         * Submits the decoding of a chunk to the pool. If the maximum number of chunks is already pending, the method
+         * waits until the oldest chunk is decoded.
+         *
+         * @param chunk the task that decodes the chunk
+         */
+        public void submit(Runnable chunk) {
+            if (pending.size() >= maxPending) {
+                pending.removeFirst().join();
+            }
+            pending.addLast(pool.submit(chunk));
+        }
+
+        /**
+         * Waits until all submitted chunks are decoded. Any runtime exception thrown by the decoding of a chunk is
+         * rethrown by this method.
+         */
+        public void finish() {
+            while (!pending.isEmpty()) {
+                pending.removeFirst().join();
+            }
+        }
+    }
+
+    private ParallelDecoder() {
+    }
+
+    /**
+     * Creates a new pipeline, which decodes the chunks of rows using the common fork/join pool. The number of rows,
+     * after which the pipeline accepts the chunks, is defined by the preferences (see
+     * {@link SaveRestoreService#getParallelDecodingThreshold()}).
+     *
+     * @return a new pipeline
+     */
+    public static ChunkPipeline pipeline() {
+        return pipeline(SaveRestoreService.getInstance().getParallelDecodingThreshold(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new pipeline, which decodes the chunks of rows in the given pool. The rows are decoded in the pool
+     * only after at least <code>threshold</code> rows have been read. If the threshold is 0 or less, or if the pool
+     * has a single thread, all rows are decoded sequentially by the producer.
+     *
+     * @param threshold the minimum number of rows, after which the following rows are decoded in parallel
+     * @param pool the pool that decodes the rows (may be null if the threshold is 0 or less)
+     * @return a new pipeline
+     */
+    public static ChunkPipeline pipeline(int threshold, ForkJoinPool pool) {
+        return new ChunkPipeline(threshold, pool);
+    }
+
+    /**
+     * Decodes the given number of rows using the common fork/join pool. The threshold, below which the rows are
+     * decoded sequentially, is defined by the preferences (see
+     * {@link SaveRestoreService#getParallelDecodingThreshold()}).
+     *
+     * @param numberOfRows the number of rows to decode
+     * @param decoders the supplier of row decoders, which is called once for every decoded chunk of rows
+     */
+    public static void decode(int numberOfRows, Supplier<RowDecoder> decoders) {
+        decode(numberOfRows, SaveRestoreService.getInstance().getParallelDecodingThreshold(),
+            ForkJoinPool.commonPool(), decoders);
+    }
+
+    /**
+     * Decodes the given number of rows. If the number of rows is smaller than the threshold, if the threshold is 0 or
+     * less, or if the pool has a single thread, the rows are decoded sequentially in the calling thread. Otherwise,
+     * the rows are split into chunks, which are decoded in the given pool. Any runtime exception thrown by the
+     * decoders is rethrown by this method.
+     *
+     * @param numberOfRows the number of rows to decode
+     * @param threshold the minimum number of rows that are decoded in parallel
+     * @param pool the pool that decodes the rows
+     * @param decoders the supplier of row decoders, which is called once for every decoded chunk of rows
+     */
+    public static void decode(int numberOfRows, int threshold, ForkJoinPool pool, Supplier<RowDecoder> decoders) {
+        if (threshold <= 0 || numberOfRows < threshold || pool.getParallelism() < 2) {
+            if (numberOfRows > 0) {
+                decoders.get().decode(0, numberOfRows);
+            }
+            return;
+        }
+        int chunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (numberOfRows + chunks - 1) / chunks);
+        pool.invoke(new DecodeTask(0, numberOfRows, chunkSize, decoders));
+    }
+}
@@ -13,6 +13,7 @@ package org.csstudio.saverestore;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -68,6 +69,41 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
                           + "they can be opened in a new editor or added as\n"
                           + "compared snapshots to the current editor");
         addField(newSnapshots);
+        IntegerFieldEditor cacheSize = new IntegerFieldEditor(SaveRestoreService.PREF_CACHE_SIZE,
+            "Snapshot cache size (number of values)", parent);
+        cacheSize.getLabelControl(parent)
+            .setToolTipText("Set the maximum number of values kept in memory by the\n"
+                          + "snapshot and save set cache. Each element of an array\n"
+                          + "value counts as one value. Setting this value to 0\n"
+                          + "disables the cache.");
+        addField(cacheSize);
+        IntegerFieldEditor restoreConcurrency = new IntegerFieldEditor(SaveRestoreService.PREF_RESTORE_CONCURRENCY,
+            "Maximum number of pending writes during restore", parent);
+        restoreConcurrency.getLabelControl(parent)
+            .setToolTipText("Set the maximum number of PV writes that may be\n"
+                          + "pending at the same time when restoring a snapshot.");
+        addField(restoreConcurrency);
+        IntegerFieldEditor restoreBatchSize = new IntegerFieldEditor(SaveRestoreService.PREF_RESTORE_BATCH_SIZE,
+            "Number of writes issued together during restore", parent);
+        addField(restoreBatchSize);
+        IntegerFieldEditor restoreTimeout = new IntegerFieldEditor(SaveRestoreService.PREF_RESTORE_TIMEOUT,
+            "Restore timeout (ms)", parent);
+        addField(restoreTimeout);
+        StringFieldEditor restoreGroups = new StringFieldEditor(SaveRestoreService.PREF_RESTORE_GROUPS,
+            "Restore groups", parent);
+        restoreGroups.getLabelControl(parent)
+            .setToolTipText("Semicolon separated regular expressions matching the PV names.\n"
+                          + "The PVs of each group are restored after all PVs of the previous\n"
+                          + "group have been restored. PVs that do not match any expression\n"
+                          + "are restored last.");
+        addField(restoreGroups);
+        IntegerFieldEditor decodingThreshold = new IntegerFieldEditor(
+            SaveRestoreService.PREF_PARALLEL_DECODING_THRESHOLD, "Minimum number of PVs decoded in parallel", parent);
+        decodingThreshold.getLabelControl(parent)
+            .setToolTipText("Snapshots with at least this many PVs are decoded\n"
+                          + "in parallel on all available processors. Setting\n"
+                          + "this value to 0 disables the parallel decoding.");
+        addField(decodingThreshold);
 
     }
 
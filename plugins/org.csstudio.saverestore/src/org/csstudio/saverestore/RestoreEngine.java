@@ -0,0 +1,264 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.csstudio.saverestore.RestoreResult.PVResult;
+import org.csstudio.saverestore.RestoreResult.Status;
+
+/**
+ *
+ * <code>RestoreEngine</code> writes a set of values to their PVs. The writes are issued in batches, while the number
+ * of writes that may be pending at the same time is limited by the concurrency of the engine. PVs can be divided into
+ * ordered restore groups, which are defined by regular expressions on the PV names: the PVs of a group are only
+ * written after all writes of the previous group have completed (e.g. the power supplies before the magnets). PVs
+ * that do not match any of the expressions belong to the last group.
+ * <p>
+ * Each write is represented by a future, which completes when the write completes. The engine does not poll; it waits
+ * for the completion of the futures until the whole restore times out or the calling thread is interrupted. The
+ * outcome and latency of every write is reported in the {@link RestoreResult}.
+ */
+public final class RestoreEngine {
+
+    /**
+     * <code>Request</code> is a request to write a value to a single PV. The write supplier should issue the write and
+     * return a stage that completes when the write completes, or completes exceptionally if the write fails. If the
+     * write is still pending when the restore finishes (timeout or cancel), the engine cancels the stage, so the writer
+     * should release any resources (e.g. listeners) whenever the stage completes, regardless of how.
+     */
+    public static final class Request {
+        private final String pvName;
+        private final Supplier<? extends CompletionStage<?>> write;
+
+        /**
+         * Constructs a new write request.
+         *
+         * @param pvName the name of the PV
+         * @param write issues the write and returns the stage that completes when the write completes
+         */
+        public Request(String pvName, Supplier<? extends CompletionStage<?>> write) {
+            this.pvName = pvName;
+            this.write = write;
+        }
+
+        /**
+         * @return the name of the PV
+         */
+        public String getPVName() {
+            return pvName;
+        }
+    }
+
+    /**
+     * <code>Slot</code> tracks the progress of a single request. It is completed either by the write (from any thread)
+     * or by the engine when the restore is finished.
+     */
+    private static final class Slot {
+        private final Request request;
+        private final int group;
+        private boolean issued;
+        private CompletableFuture<?> write;
+        private long start;
+        private Status status;
+        private Duration latency = Duration.ZERO;
+        private String message;
+
+        Slot(Request request, int group) {
+            this.request = request;
+            this.group = group;
+        }
+
+        synchronized void complete(Throwable t) {
+            if (status == null) {
+                latency = Duration.ofNanos(System.nanoTime() - start);
+                if (t == null) {
+                    status = Status.RESTORED;
+                } else {
+                    Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    status = Status.FAILED;
+                    message = cause.getMessage() == null || cause.getMessage().isEmpty() ? "Unknown error"
+                        : cause.getMessage();
+                }
+            }
+        }
+
+        synchronized PVResult finish(Status unfinished, String unfinishedMessage) {
+            if (status == null) {
+                status = unfinished;
+                message = unfinishedMessage;
+            }
+            return new PVResult(request.pvName, group, status, latency, message);
+        }
+    }
+
+    private final int concurrency;
+    private final int batchSize;
+    private final List<Pattern> groups;
+    private final long timeout;
+
+    /**
+     * Constructs a new restore engine.
+     *
+     * @param concurrency the maximum number of writes that may be pending at the same time
+     * @param batchSize the number of writes that are issued together (bounded by concurrency)
+     * @param groups the expressions defining the ordered restore groups (can be empty)
+     * @param timeout the maximum time in milliseconds that the whole restore may take
+     */
+    public RestoreEngine(int concurrency, int batchSize, List<Pattern> groups, long timeout) {
+        this.concurrency = Math.max(1, concurrency);
+        this.batchSize = Math.max(1, Math.min(batchSize, this.concurrency));
+        this.groups = groups == null ? Collections.emptyList() : new ArrayList<>(groups);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Parses the restore groups definition. The groups are separated by semicolons and each group is a regular
+     * expression, which has to match the full PV name. Invalid expressions are logged and ignored.
+     *
+     * @param definition the groups definition
+     * @return the list of group patterns in the order of restore
+     */
+    public static List<Pattern> parseGroups(String definition) {
+        List<Pattern> patterns = new ArrayList<>();
+        if (definition == null) {
+            return patterns;
+        }
+        for (String s : definition.split(";")) {
+            s = s.trim();
+            if (!s.isEmpty()) {
+                try {
+                    patterns.add(Pattern.compile(s));
+                } catch (PatternSyntaxException e) {
+                    SaveRestoreService.LOGGER.log(Level.WARNING, "Invalid restore group expression ''{0}''.", s);
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Executes the writes and waits until they complete, the restore times out, or it is cancelled. Cancellation is
+     * checked before every batch is issued; an interrupt of the calling thread cancels the restore as well (the
+     * interrupt flag is preserved). The method blocks and should not be called from the UI thread.
+     *
+     * @param requests the write requests
+     * @param cancelled returns true if the restore has been cancelled
+     * @return the result describing the outcome of every write
+     */
+    public RestoreResult restore(List<Request> requests, BooleanSupplier cancelled) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeout);
+        List<Slot> slots = new ArrayList<>(requests.size());
+        List<List<Slot>> grouped = new ArrayList<>(groups.size() + 1);
+        for (int i = 0; i <= groups.size(); i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (Request r : requests) {
+            int group = groupOf(r.pvName);
+            Slot slot = new Slot(r, group);
+            slots.add(slot);
+            grouped.get(group).add(slot);
+        }
+
+        Semaphore permits = new Semaphore(concurrency);
+        Status unfinished = null;
+        try {
+            for (List<Slot> group : grouped) {
+                List<CompletableFuture<?>> pending = new ArrayList<>(group.size());
+                for (int i = 0; i < group.size() && unfinished == null; i += batchSize) {
+                    List<Slot> batch = group.subList(i, Math.min(i + batchSize, group.size()));
+                    if (cancelled.getAsBoolean()) {
+                        unfinished = Status.CANCELLED;
+                    } else if (!permits.tryAcquire(batch.size(), deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS)) {
+                        unfinished = Status.TIMEOUT;
+                    } else {
+                        for (Slot slot : batch) {
+                            pending.add(write(slot, permits));
+                        }
+                    }
+                }
+                if (unfinished != null) {
+                    break;
+                }
+                try {
+                    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                        .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    // failures are recorded by the individual slots
+                } catch (TimeoutException e) {
+                    unfinished = Status.TIMEOUT;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            unfinished = Status.CANCELLED;
+            Thread.currentThread().interrupt();
+        }
+
+        List<PVResult> results = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            if (!slot.issued) {
+                results.add(slot.finish(Status.SKIPPED,
+                    unfinished == Status.CANCELLED ? "Not restored (cancelled)" : "Not restored (timeout)"));
+            } else {
+                results.add(slot.finish(unfinished, unfinished == Status.CANCELLED ? "Cancelled" : "Timeout"));
+                // the writes that are still pending will never be waited for; let the writers release their resources
+                slot.write.cancel(false);
+            }
+        }
+        return new RestoreResult(results, Duration.ofNanos(System.nanoTime() - startTime),
+            unfinished == Status.CANCELLED);
+    }
+
+    private int groupOf(String pvName) {
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).matcher(pvName).matches()) {
+                return i;
+            }
+        }
+        return groups.size();
+    }
+
+    private static CompletableFuture<?> write(Slot slot, Semaphore permits) {
+        slot.issued = true;
+        slot.start = System.nanoTime();
+        CompletionStage<?> stage;
+        try {
+            stage = slot.request.write.get();
+        } catch (RuntimeException e) {
+            CompletableFuture<?> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            stage = failed;
+        }
+        slot.write = stage.toCompletableFuture();
+        return stage.whenComplete((r, t) -> {
+            slot.complete(t);
+            permits.release();
+        }).toCompletableFuture();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * <code>RestoreResult</code> is the outcome of a restore executed by the {@link RestoreEngine}. It contains the result
+ * of every individual PV write in the order in which the writes were requested.
+ */
+public final class RestoreResult {
+
+    /**
+     * <code>Status</code> describes the outcome of a single PV write.
+     */
+    public enum Status {
+        /** The value was successfully written */
+        RESTORED,
+        /** The write was rejected or failed */
+        FAILED,
+        /** The write did not complete in time */
+        TIMEOUT,
+        /** The write was not completed, because the restore was cancelled */
+        CANCELLED,
+        /** The write was never issued, because the restore was cancelled or timed out in one of the previous groups */
+        SKIPPED
+    }
+
+    /**
+     * <code>PVResult</code> is the outcome of a single PV write.
+     */
+    public static final class PVResult {
+        private final String pvName;
+        private final int group;
+        private final Status status;
+        private final Duration latency;
+        private final String message;
+
+        /**
+         * Constructs a new PV result.
+         *
+         * @param pvName the name of the PV
+         * @param group the index of the restore group that the PV belongs to
+         * @param status the status of the write
+         * @param latency the time between the write request and its completion (zero if not completed)
+         * @param message the error message (null if the write succeeded)
+         */
+        public PVResult(String pvName, int group, Status status, Duration latency, String message) {
+            this.pvName = pvName;
+            this.group = group;
+            this.status = status;
+            this.latency = latency;
+            this.message = message;
+        }
+
+        /**
+         * @return the name of the PV
+         */
+        public String getPVName() {
+            return pvName;
+        }
+
+        /**
+         * @return the index of the restore group that the PV belongs to
+         */
+        public int getGroup() {
+            return group;
+        }
+
+        /**
+         * @return the status of the write
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the time between the write request and its completion (zero if the write did not complete)
+         */
+        public Duration getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the error message describing the failure or null if the value was restored
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return true if the value was successfully restored
+         */
+        public boolean isRestored() {
+            return status == Status.RESTORED;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return pvName + ": " + (message == null ? status.name() : message);
+        }
+    }
+
+    private final List<PVResult> results;
+    private final Duration duration;
+    private final boolean cancelled;
+
+    /**
+     * Constructs a new result.
+     *
+     * @param results the results of individual writes
+     * @param duration the total duration of the restore
+     * @param cancelled true if the restore was cancelled before all writes completed
+     */
+    public RestoreResult(List<PVResult> results, Duration duration, boolean cancelled) {
+        this.results = Collections.unmodifiableList(results);
+        this.duration = duration;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return the results of all writes in the order in which they were requested
+     */
+    public List<PVResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the results of all writes that did not restore the value
+     */
+    public List<PVResult> getFailures() {
+        return results.stream().filter(r -> !r.isRestored()).collect(Collectors.toList());
+    }
+
+    /**
+     * @return true if all values were successfully restored
+     */
+    public boolean isSuccessful() {
+        return results.stream().allMatch(PVResult::isRestored);
+    }
+
+    /**
+     * @return true if the restore was cancelled before all writes completed
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the total duration of the restore
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the number of values that were successfully restored
+     */
+    public int getRestoredCount() {
+        return (int) results.stream().filter(PVResult::isRestored).count();
+    }
+
+    /**
+     * @return the longest latency of all completed writes
+     */
+    public Duration getMaxLatency() {
+        return results.stream().map(PVResult::getLatency).max(Duration::compareTo).orElse(Duration.ZERO);
+    }
+
+    /**
+     * @return the average latency of all successfully completed writes
+     */
+    public Duration getAverageLatency() {
+        long n = 0;
+        long sum = 0;
+        for (PVResult r : results) {
+            if (r.isRestored()) {
+                sum += r.latency.toNanos();
+                n++;
+            }
+        }
+        return n == 0 ? Duration.ZERO : Duration.ofNanos(sum / n);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "RestoreResult[restored=" + getRestoredCount() + "/" + results.size() + ", duration="
+            + duration.toMillis() + " ms, maxLatency=" + getMaxLatency().toMillis() + " ms, cancelled=" + cancelled
+            + "]";
+    }
+}
@@ -16,6 +16,7 @@ import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -24,9 +25,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.csstudio.saverestore.data.Branch;
 import org.csstudio.ui.fx.util.FXMessageDialog;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -57,6 +61,18 @@ public class SaveRestoreService {
     public static final String PREF_NUMBER_OF_SNAPSHOTS = "maxNumberOfSnapshotsInBatch";
     /** Property that defines if new snapshots should be open in compare mode or in a separate editor */
     public static final String PREF_OPEN_NEW_SNAPSHOTS_IN_COMPARE_VIEW = "openNewSnapshotsInCompareView";
+    /** Property that defines the maximum size of the snapshot cache in number of values */
+    public static final String PREF_CACHE_SIZE = "snapshotCacheSize";
+    /** Property that defines the maximum number of PV writes that may be pending at the same time during restore */
+    public static final String PREF_RESTORE_CONCURRENCY = "restoreConcurrency";
+    /** Property that defines the number of PV writes issued together during restore */
+    public static final String PREF_RESTORE_BATCH_SIZE = "restoreBatchSize";
+    /** Property that defines the maximum duration of the restore in milliseconds */
+    public static final String PREF_RESTORE_TIMEOUT = "restoreTimeout";
+    /** Property that defines the ordered restore groups (semicolon separated regular expressions) */
+    public static final String PREF_RESTORE_GROUPS = "restoreGroups";
+    /** Property that defines the minimum number of snapshot rows that are decoded in parallel */
+    public static final String PREF_PARALLEL_DECODING_THRESHOLD = "parallelDecodingThreshold";
     /** Plug-in ID */
     public static final String PLUGIN_ID = "org.csstudio.saverestore";
     /** The common logger */
@@ -66,18 +82,80 @@ public class SaveRestoreService {
     /** The name of the is engine busy property */
     public static final String BUSY = "busy";
 
-    /** Mutex rule takes care that no two save and restore jobs can be executed at the same time */
-    private static final ISchedulingRule MUTEX_RULE = new ISchedulingRule() {
+    /** The number of worker threads that execute the save and restore tasks */
+    private static final int NUMBER_OF_WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * <code>ProviderLane</code> is a lane of tasks that access a specific data provider. If the branch is null, the
+     * lane covers all branches of the provider.
+     */
+    private static final class ProviderLane {
+        private final String providerId;
+        private final Branch branch;
+
+        ProviderLane(String providerId, Branch branch) {
+            this.providerId = providerId == null ? "" : providerId;
+            this.branch = branch;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(providerId, branch);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            ProviderLane other = (ProviderLane) obj;
+            return providerId.equals(other.providerId) && Objects.equals(branch, other.branch);
+        }
+    }
+
+    /**
+     * <code>LaneRule</code> is a scheduling rule, which takes care that no two save and restore jobs that belong to
+     * the same lane are executed at the same time. Jobs belonging to different lanes can run in parallel.
+     */
+    private static final class LaneRule implements ISchedulingRule {
+        private final Object lane;
+
+        LaneRule(Object lane) {
+            this.lane = lane;
+        }
+
         @Override
         public boolean isConflicting(ISchedulingRule rule) {
-            return rule == this;
+            if (!(rule instanceof LaneRule)) {
+                return false;
+            }
+            Object other = ((LaneRule) rule).lane;
+            if (lane instanceof ProviderLane && other instanceof ProviderLane) {
+                ProviderLane a = (ProviderLane) lane;
+                ProviderLane b = (ProviderLane) other;
+                // the provider lane conflicts with all branch lanes of the same provider
+                return a.providerId.equals(b.providerId)
+                    && (a.branch == null || b.branch == null || a.branch.equals(b.branch));
+            }
+            return Objects.equals(lane, other);
         }
 
         @Override
         public boolean contains(ISchedulingRule rule) {
-            return rule == this;
+            return isConflicting(rule);
         }
-    };
+    }
+
+    /** The default maximum size of the data cache (number of values) */
+    private static final long DEFAULT_CACHE_SIZE = 2000000;
+    /** The default restore settings */
+    private static final int DEFAULT_RESTORE_CONCURRENCY = 200;
+    private static final int DEFAULT_RESTORE_BATCH_SIZE = 50;
+    private static final long DEFAULT_RESTORE_TIMEOUT = 30000;
+    /** The default minimum number of snapshot rows decoded in parallel */
+    private static final int DEFAULT_PARALLEL_DECODING_THRESHOLD = 2000;
 
     /** The wait period for checking the results of the task execution */
     private static final int WAIT_PERIOD = 100;
@@ -91,18 +169,25 @@ public class SaveRestoreService {
      */
     private static class RunnableWrapper implements Runnable {
         private final Runnable task;
+        private final SaveRestoreJob job;
         private boolean completed = false;
 
-        RunnableWrapper(Runnable task) {
+        RunnableWrapper(Runnable task, SaveRestoreJob job) {
             this.task = task;
+            this.job = job;
         }
 
         @Override
         public void run() {
-            task.run();
-            synchronized (this) {
-                completed = false;
-                this.notifyAll();
+            CURRENT_JOB.set(job);
+            try {
+                task.run();
+            } finally {
+                CURRENT_JOB.remove();
+                synchronized (this) {
+                    completed = true;
+                    this.notifyAll();
+                }
             }
         }
     }
@@ -123,23 +208,26 @@ public class SaveRestoreService {
 
         private final String taskName;
         private final Runnable task;
+        private final long scheduledTime;
         private volatile boolean cancelled = false;
 
-        SaveRestoreJob(String taskName, Runnable task) {
+        SaveRestoreJob(String taskName, Object lane, Runnable task) {
             super("Save and Restore: " + taskName);
             this.taskName = taskName;
             this.task = task;
-            setRule(MUTEX_RULE);
+            this.scheduledTime = System.nanoTime();
+            setRule(new LaneRule(lane));
         }
 
         @Override
         protected IStatus run(IProgressMonitor monitor) {
             monitor.beginTask(taskName, 1);
-            setCurrentJob(this);
-            setBusy(true);
+            long startTime = System.nanoTime();
+            taskStarted(startTime - scheduledTime);
+            Future<?> done = null;
             try {
-                RunnableWrapper wrapper = new RunnableWrapper(task);
-                Future<?> done = getExecutor().submit(wrapper);
+                RunnableWrapper wrapper = new RunnableWrapper(task, this);
+                done = getExecutor().submit(wrapper);
                 while (!done.isDone()) {
                     synchronized (wrapper) {
                         // could be synchronised on done, but is is not recommended to lock on an object from
@@ -152,18 +240,25 @@ public class SaveRestoreService {
                     }
                     if (monitor.isCanceled()) {
                         cancelled = true;
-                        getExecutor().shutdownNow();
-                        executor = null;
+                        // interrupt only the thread that executes this task, other tasks continue to run
+                        done.cancel(true);
                     }
                 }
                 return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
             } catch (InterruptedException e) {
+                cancelled = true;
+                if (done != null) {
+                    done.cancel(true);
+                }
                 monitor.setCanceled(true);
                 return Status.CANCEL_STATUS;
             } finally {
-                SaveRestoreService.getInstance().setCurrentJob(null);
                 monitor.done();
-                SaveRestoreService.getInstance().setBusy(false);
+                long duration = System.nanoTime() - startTime;
+                taskCompleted(duration);
+                LOGGER.log(Level.FINE, "Task ''{0}'' waited {1} ms and executed in {2} ms.",
+                    new Object[] { taskName, TimeUnit.NANOSECONDS.toMillis(startTime - scheduledTime),
+                        TimeUnit.NANOSECONDS.toMillis(duration) });
             }
         }
 
@@ -173,6 +268,7 @@ public class SaveRestoreService {
     }
 
     private static final SaveRestoreService INSTANCE = new SaveRestoreService();
+    private static final ThreadLocal<SaveRestoreJob> CURRENT_JOB = new ThreadLocal<>();
 
     /**
      * Returns the singleton instance of this service.
@@ -188,22 +284,28 @@ public class SaveRestoreService {
     private DataProviderWrapper selectedDataProvider;
     private final PropertyChangeSupport support = new PropertyChangeSupport(this);
     private IPreferenceStore preferences;
-    private SaveRestoreJob currentJob;
     private ExecutorService executor;
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong totalExecutionTime = new AtomicLong();
+    private DataCache dataCache;
 
     private SaveRestoreService() {
     }
 
     /**
-     * Creates and returns the single thread executor used for job scheduling. The method is only called from the
-     * {@link SaveRestoreJob}. Because two jobs can never run simultaneously, two threads never access the executor
-     * simultaneously. Therefore, no synchronisation is need.
+     * Creates and returns the executor used for job scheduling. The method is only called from the
+     * {@link SaveRestoreJob}. The executor has a fixed number of worker threads, while the ordering of the tasks is
+     * taken care of by the scheduling rules of the jobs.
      *
      * @return the executor
      */
-    private ExecutorService getExecutor() {
+    private synchronized ExecutorService getExecutor() {
         if (executor == null) {
-            executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<>()){
+            executor = new ThreadPoolExecutor(NUMBER_OF_WORKERS, NUMBER_OF_WORKERS, 0L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>()) {
                 @Override
                 protected void afterExecute(Runnable r, Throwable t) {
                     if (r instanceof Future<?>) {
@@ -251,7 +353,8 @@ public class SaveRestoreService {
                     String id = element.getAttribute("id");
                     String description = element.getAttribute("description");
                     DataProvider provider = (DataProvider) element.createExecutableExtension("dataprovider");
-                    dpw.add(new DataProviderWrapper(id, name, description, provider));
+                    dpw.add(new DataProviderWrapper(id, name, description,
+                        new CachingDataProvider(id, provider, getDataCache())));
                 } catch (CoreException e) {
                     SaveRestoreService.LOGGER.log(Level.SEVERE, e,
                         () -> "Save and restore data provider '" + name + "' could not be loaded.");
@@ -279,7 +382,7 @@ public class SaveRestoreService {
         this.selectedDataProvider = selectedDataProvider;
         if (this.selectedDataProvider != null) {
             final DataProviderWrapper provider = this.selectedDataProvider;
-            execute("Data Provider Initialise", () -> {
+            execute("Data Provider Initialise", getProviderLane(provider.getId()), () -> {
                 try {
                     provider.getProvider().initialise();
                 } catch (DataProviderException e) {
@@ -396,6 +499,76 @@ public class SaveRestoreService {
         }
     }
 
+    /**
+     * Returns the maximum size of the snapshot cache expressed as the total number of values of all cached snapshots
+     * (an array value counts as many values as it has elements).
+     *
+     * @return the maximum number of cached values
+     */
+    public long getCacheSize() {
+        try {
+            return getPreferences().getLong(PREF_CACHE_SIZE);
+        } catch (RuntimeException e) {
+            return DEFAULT_CACHE_SIZE;
+        }
+    }
+
+    /**
+     * Returns the minimum number of rows that a snapshot needs to have, in order to be decoded in parallel. Smaller
+     * snapshots are decoded sequentially. If 0 or less, the snapshots are always decoded sequentially.
+     *
+     * @return the minimum number of rows decoded in parallel
+     */
+    public int getParallelDecodingThreshold() {
+        try {
+            return getPreferences().getInt(PREF_PARALLEL_DECODING_THRESHOLD);
+        } catch (RuntimeException e) {
+            return DEFAULT_PARALLEL_DECODING_THRESHOLD;
+        }
+    }
+
+    /**
+     * Creates a new restore engine configured according to the current preferences: the write concurrency and batch
+     * size, the restore timeout and the ordered restore groups.
+     *
+     * @return a new restore engine
+     */
+    public RestoreEngine createRestoreEngine() {
+        int concurrency = DEFAULT_RESTORE_CONCURRENCY;
+        int batchSize = DEFAULT_RESTORE_BATCH_SIZE;
+        long timeout = DEFAULT_RESTORE_TIMEOUT;
+        String groups = null;
+        try {
+            IPreferenceStore store = getPreferences();
+            concurrency = store.getInt(PREF_RESTORE_CONCURRENCY);
+            batchSize = store.getInt(PREF_RESTORE_BATCH_SIZE);
+            timeout = store.getLong(PREF_RESTORE_TIMEOUT);
+            groups = store.getString(PREF_RESTORE_GROUPS);
+        } catch (RuntimeException e) {
+            // use the defaults
+        }
+        return new RestoreEngine(concurrency > 0 ? concurrency : DEFAULT_RESTORE_CONCURRENCY,
+            batchSize > 0 ? batchSize : DEFAULT_RESTORE_BATCH_SIZE, RestoreEngine.parseGroups(groups),
+            timeout > 0 ? timeout : DEFAULT_RESTORE_TIMEOUT);
+    }
+
+    /**
+     * Returns the cache, which holds the recently loaded snapshots and save sets of all data providers.
+     *
+     * @return the data cache
+     */
+    public synchronized DataCache getDataCache() {
+        if (dataCache == null) {
+            dataCache = new DataCache(getCacheSize());
+            getPreferences().addPropertyChangeListener(e -> {
+                if (PREF_CACHE_SIZE.equals(e.getProperty())) {
+                    dataCache.setMaxWeight(getCacheSize());
+                }
+            });
+        }
+        return dataCache;
+    }
+
     /**
      * Returns the preference store for this plugin.
      *
@@ -409,41 +582,124 @@ public class SaveRestoreService {
     }
 
     /**
-     * Execute the runnable task on the background task executor. It is guaranteed that the tasks will be executed in
-     * the order as they have been submitted and not two tasks will ever run simultaneously.
+     * Execute the runnable task on the background task executor. The task belongs to the default lane. It is
+     * guaranteed that the tasks of the default lane will be executed in the order as they have been submitted and not
+     * two of them will ever run simultaneously. Tasks of other lanes may run in parallel with this task.
      *
+     * @param taskName the name of the task (displayed in the progress view)
      * @param task the task to execute
      */
     public void execute(String taskName, Runnable task) {
-        new SaveRestoreJob(taskName, task).schedule();
+        execute(taskName, null, task);
+    }
+
+    /**
+     * Execute the runnable task on the background task executor in the given lane. It is guaranteed that the tasks
+     * belonging to the same lane will be executed in the order as they have been submitted and not two tasks of the
+     * same lane will ever run simultaneously. Tasks belonging to different lanes are executed in parallel. Lanes are
+     * compared by equality; tasks that access the same data provider should use the provider id as the lane, tasks
+     * that only access the state of an editor may use the editor as the lane.
+     *
+     * @param taskName the name of the task (displayed in the progress view)
+     * @param lane the lane that defines the ordering of the tasks (null for the default lane)
+     * @param task the task to execute
+     */
+    public void execute(String taskName, Object lane, Runnable task) {
+        queuedTasks.incrementAndGet();
+        new SaveRestoreJob(taskName, lane, task).schedule();
+    }
+
+    /**
+     * Returns the lane for the tasks that may affect the data provider as a whole (e.g. initialisation,
+     * synchronisation, loading of branches). A task in this lane never runs in parallel with any other task of the
+     * same provider, including the tasks of the provider's branch lanes.
+     *
+     * @param providerId the id of the data provider
+     * @return the lane of the provider
+     */
+    public static Object getProviderLane(String providerId) {
+        return new ProviderLane(providerId, null);
+    }
+
+    /**
+     * Returns the lane for the tasks that only access a single branch of the data provider. Tasks for different
+     * branches of the same provider may run in parallel.
+     *
+     * @param providerId the id of the data provider
+     * @param branch the branch accessed by the task (if null, the provider lane is returned)
+     * @return the lane of the provider's branch
+     */
+    public static Object getBranchLane(String providerId, Branch branch) {
+        return new ProviderLane(providerId, branch);
     }
 
     /**
-     * Sets the progress monitor of the job that is currently being executed. The jobs are defined in a way that at any
-     * given time only one job is being executed, so there can always be only one progress monitor.
+     * Returns the number of tasks that have been submitted but are not being executed yet.
      *
-     * @param job the job that is currently being executed (can be null)
+     * @return the number of waiting tasks
      */
-    private void setCurrentJob(SaveRestoreJob job) {
+    public int getQueueDepth() {
+        return queuedTasks.get();
+    }
+
+    /**
+     * Returns the number of tasks that are currently being executed.
+     *
+     * @return the number of running tasks
+     */
+    public int getActiveTaskCount() {
+        return activeTasks.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds that the completed tasks spent waiting to be executed.
+     *
+     * @return the average waiting time in milliseconds
+     */
+    public double getAverageTaskWaitTime() {
+        long n = completedTasks.get();
+        return n == 0 ? 0 : totalWaitTime.get() / 1e6 / n;
+    }
+
+    /**
+     * Returns the average time in milliseconds that the completed tasks took to execute.
+     *
+     * @return the average execution time in milliseconds
+     */
+    public double getAverageTaskExecutionTime() {
+        long n = completedTasks.get();
+        return n == 0 ? 0 : totalExecutionTime.get() / 1e6 / n;
+    }
+
+    private void taskStarted(long waitTime) {
+        queuedTasks.decrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        synchronized (this) {
+            activeTasks.incrementAndGet();
+            setBusy(true);
+        }
+    }
+
+    private void taskCompleted(long executionTime) {
+        totalExecutionTime.addAndGet(executionTime);
+        completedTasks.incrementAndGet();
         synchronized (this) {
-            this.currentJob = job;
-            setBusy(job != null);
+            setBusy(activeTasks.decrementAndGet() > 0);
         }
     }
 
     /**
-     * Checks if the job that is currently being executed has been cancelled or not. If the job has been cancelled,
-     * method returns true, if the job is still running, method returns false. If there is no job currently running,
-     * method also returns true. Tasks that usually take a long time to execute, should periodically check this value to
-     * see if the task has been requested to cancel. If the method returns true, the executed task should terminate
-     * gracefully.
+     * Checks if the job that is being executed by the calling thread has been cancelled or not. If the job has been
+     * cancelled, method returns true, if the job is still running, method returns false. If the method is not called
+     * from a thread that executes a job, method also returns true. Tasks that usually take a long time to execute,
+     * should periodically check this value to see if the task has been requested to cancel. If the method returns
+     * true, the executed task should terminate gracefully.
      *
-     * @return true if the current job has been cancelled, or there is no job currently running, or false if the current
-     *         job is still running
+     * @return true if the current job has been cancelled, or there is no job currently running in this thread, or
+     *         false if the current job is still running
      */
     public boolean isCurrentJobCancelled() {
-        synchronized (this) {
-            return this.currentJob == null ? true : this.currentJob.isCancelled();
-        }
+        SaveRestoreJob job = CURRENT_JOB.get();
+        return job == null ? true : job.isCancelled();
     }
 }
@@ -0,0 +1,1034 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.csstudio.saverestore.ParallelDecoder.ChunkPipeline;
+import org.csstudio.saverestore.data.VDisconnectedData;
+import org.diirt.util.array.ArrayBoolean;
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayFloat;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.util.array.ArrayLong;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/**
+ *
+ * <code>SnapshotParser</code> is a single pass parser of the snapshot files. The characters are read from the stream
+ * into a reusable line buffer, where each line is tokenized in place. The column indexes are resolved from the header
+ * only once and the timestamps, numbers and array elements are parsed directly from the line buffer, so that no
+ * intermediate strings are created, except those that end up in the snapshot content (names, labels etc.). Numeric
+ * arrays are decoded immediately, because the decoded elements take less memory than their text.
+ * <p>
+ * The lines are read sequentially. Each row is decoded directly from the line buffer as soon as it is read, until the
+ * number of rows reaches the parallel decoding threshold. The following rows are copied into chunks of bounded size,
+ * which are decoded in parallel while the next lines are being read (see {@link ChunkPipeline}). Every chunk is
+ * decoded by its own parser instance, which shares the column indexes with the parser that reads the lines, and the
+ * text of the chunk is released as soon as the chunk is decoded.
+ * <p>
+ * The parser is not thread safe. A new instance should be used for every stream.
+ */
+final class SnapshotParser {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_LINE_LENGTH = 1024;
+    private static final int INITIAL_NUMBER_OF_FIELDS = 16;
+    private static final int INITIAL_NUMBER_OF_ROWS = 256;
+    // the maximum number of rows and the number of characters, after which a chunk is handed to the pool
+    private static final int CHUNK_ROWS = 512;
+    private static final int CHUNK_LENGTH = 1 << 16;
+    private static final String NULL = "null";
+    private static final String DISCONNECTED = VDisconnectedData.INSTANCE.toString();
+    private static final String TRUE = "true";
+    private static final ValueType[] VALUE_TYPES = ValueType.values();
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    // the current line and the bounds of the trimmed content within the line
+    private char[] line = new char[INITIAL_LINE_LENGTH];
+    private int lineStart;
+    private int lineEnd;
+    // the bounds of the fields of the current line
+    private int[] fieldStart = new int[INITIAL_NUMBER_OF_FIELDS];
+    private int[] fieldEnd = new int[INITIAL_NUMBER_OF_FIELDS];
+    private int numberOfFields;
+
+    // the column indexes as defined by the header
+    private int nameColumn = -1;
+    private int selectedColumn = -1;
+    private int timestampColumn = -1;
+    private int statusColumn = -1;
+    private int severityColumn = -1;
+    private int valueTypeColumn = -1;
+    private int valueColumn = -1;
+    private int readbackColumn = -1;
+    private int readbackValueColumn = -1;
+    private int deltaColumn = -1;
+
+    private final NumberParser numbers = new NumberParser();
+
+    // the time of the current line, shared by the value and the readback value
+    private Time time;
+    // the last alarm and its textual pieces; consecutive entries usually have the same alarm
+    private Alarm alarm;
+    private String status;
+    private String severity;
+    private final Time zeroTime = ValueFactory.newTime(Instant.ofEpochSecond(0, 0));
+    private final Display display = ValueFactory.newDisplay(0d, 0d, 0d, null, null, 0d, 0d, 0d, 0d, 0d);
+
+    /**
+     * Constructs a new parser, which reads the snapshot data from the given reader.
+     *
+     * @param reader the source of data
+     */
+    SnapshotParser(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Constructs a new parser, which decodes the rows of a chunk read by the given parser.
+     *
+     * @param master the parser that read the rows and resolved the columns
+     * @param text the text of the chunk
+     */
+    private SnapshotParser(SnapshotParser master, char[] text) {
+        this.reader = null;
+        this.buffer = null;
+        this.line = text;
+        this.nameColumn = master.nameColumn;
+        this.selectedColumn = master.selectedColumn;
+        this.timestampColumn = master.timestampColumn;
+        this.statusColumn = master.statusColumn;
+        this.severityColumn = master.severityColumn;
+        this.valueTypeColumn = master.valueTypeColumn;
+        this.valueColumn = master.valueColumn;
+        this.readbackColumn = master.readbackColumn;
+        this.readbackValueColumn = master.readbackValueColumn;
+        this.deltaColumn = master.deltaColumn;
+    }
+
+    /**
+     * Reads the snapshot data from the reader and returns the content. The lines are read sequentially, while the
+     * rows are decoded in parallel if there are enough of them (see {@link ParallelDecoder}).
+     *
+     * @return the content of the snapshot
+     * @throws IOException if reading the data failed or if the data are not valid
+     * @throws ParseException if the snapshot date is not set or cannot be parsed
+     */
+    SnapshotContent parse() throws IOException, ParseException {
+        return parse(ParallelDecoder.pipeline());
+    }
+
+    /**
+     * Reads the snapshot data from the reader and returns the content. The rows that follow the first
+     * <code>threshold</code> rows are decoded in the given pool.
+     *
+     * @param threshold the minimum number of rows, after which the following rows are decoded in parallel
+     * @param pool the pool that decodes the rows
+     * @return the content of the snapshot
+     * @throws IOException if reading the data failed or if the data are not valid
+     * @throws ParseException if the snapshot date is not set or cannot be parsed
+     */
+    SnapshotContent parse(int threshold, ForkJoinPool pool) throws IOException, ParseException {
+        return parse(ParallelDecoder.pipeline(threshold, pool));
+    }
+
+    private SnapshotContent parse(ChunkPipeline pipeline) throws IOException, ParseException {
+        String date = null;
+        boolean headerRead = false;
+        Chunk first = new Chunk(INITIAL_NUMBER_OF_ROWS);
+        List<Chunk> chunks = new ArrayList<>();
+        chunks.add(first);
+        // the chunk that collects the rows for the pool, once there are enough rows
+        Chunk chunk = null;
+        while (readLine()) {
+            if (lineStart == lineEnd) {
+                continue;
+            } else if (!headerRead && line[lineStart] == '#') {
+                String comment = new String(line, lineStart, lineEnd - lineStart);
+                int idx = comment.indexOf(FileUtilities.DATE_TAG);
+                if (idx > -1) {
+                    date = comment.substring(idx + FileUtilities.DATE_TAG.length()).trim();
+                }
+            } else if (!headerRead) {
+                readHeader();
+                headerRead = true;
+            } else if (chunk == null) {
+                if (first.size == first.names.length) {
+                    first.allocate(first.size << 1);
+                }
+                if (!decodeRow(first, first.size)) {
+                    throw new IOException("Invalid content: " + new String(line, lineStart, lineEnd - lineStart));
+                }
+                first.size++;
+                if (pipeline.isParallel(first.size)) {
+                    chunk = new Chunk();
+                }
+            } else {
+                chunk.add(line, lineStart, lineEnd);
+                if (chunk.isFull()) {
+                    submit(chunk, pipeline);
+                    chunks.add(chunk);
+                    chunk = new Chunk();
+                }
+            }
+        }
+        if (chunk != null && chunk.size > 0) {
+            submit(chunk, pipeline);
+            chunks.add(chunk);
+        }
+        pipeline.finish();
+        int numberOfRows = 0;
+        for (Chunk c : chunks) {
+            if (c.invalidRow != null) {
+                throw new IOException("Invalid content: " + c.invalidRow);
+            }
+            numberOfRows += c.size;
+        }
+        if (date == null || date.isEmpty()) {
+            throw new ParseException("Snapshot does not have a date set.", 0);
+        }
+        Instant d = FileUtilities.TIMESTAMP_FORMATTER.get().parse(date).toInstant();
+        return new SnapshotContent(d, merge(chunks, new String[numberOfRows], c -> c.names),
+            merge(chunks, new Boolean[numberOfRows], c -> c.selected),
+            merge(chunks, new VType[numberOfRows], c -> c.data),
+            merge(chunks, new String[numberOfRows], c -> c.readbacks),
+            merge(chunks, new VType[numberOfRows], c -> c.readbackData),
+            merge(chunks, new String[numberOfRows], c -> c.deltas));
+    }
+
+    /**
+     * Copies the decoded rows of all chunks into the given array in the order of chunks.
+     *
+     * @param chunks the decoded chunks
+     * @param result the destination array, which is large enough to hold the rows of all chunks
+     * @param part the function that provides the part of the rows of a chunk that is copied
+     * @param <T> the type of the copied elements
+     * @return the list backed by the destination array
+     */
+    private static <T> List<T> merge(List<Chunk> chunks, T[] result, Function<Chunk, T[]> part) {
+        int position = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(part.apply(chunk), 0, result, position, chunk.size);
+            position += chunk.size;
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Submits the decoding of the chunk to the pipeline. The chunk is decoded by a new parser instance, which uses the
+     * columns resolved by this parser.
+     *
+     * @param chunk the chunk to decode
+     * @param pipeline the pipeline that decodes the chunks
+     */
+    private void submit(Chunk chunk, ChunkPipeline pipeline) {
+        SnapshotParser decoder = new SnapshotParser(this, chunk.text);
+        pipeline.submit(() -> decoder.decodeChunk(chunk));
+    }
+
+    /**
+     * Decodes all rows of the given chunk, which has to be the chunk whose text is the line buffer of this parser. If a
+     * row is malformed, the decoding stops and the text of the row is stored into the chunk. The text of the chunk is
+     * released when the decoding is finished.
+     *
+     * @param chunk the chunk to decode
+     */
+    private void decodeChunk(Chunk chunk) {
+        chunk.allocate(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            lineStart = chunk.rowStart[i];
+            lineEnd = chunk.rowStart[i + 1];
+            if (!decodeRow(chunk, i)) {
+                chunk.invalidRow = new String(line, lineStart, lineEnd - lineStart);
+                break;
+            }
+        }
+        chunk.text = null;
+        chunk.rowStart = null;
+        line = null;
+    }
+
+    /**
+     * Decodes the current line and stores the results into the given chunk at the given index.
+     *
+     * @param chunk the chunk that receives the decoded row
+     * @param i the index of the row within the chunk
+     * @return true if the row was decoded or false if the row is malformed
+     */
+    private boolean decodeRow(Chunk chunk, int i) {
+        if (!tokenize()) {
+            return false;
+        }
+        time = null;
+        int timestampField = field(timestampColumn);
+        int statusField = field(statusColumn);
+        int severityField = field(severityColumn);
+        ValueType type = toValueType(field(valueTypeColumn));
+        chunk.data[i] = toVType(timestampField, statusField, severityField, field(valueColumn), type);
+        chunk.readbacks[i] = toString(field(readbackColumn), "");
+        chunk.deltas[i] = toString(field(deltaColumn), "");
+        chunk.readbackData[i] = toVType(timestampField, statusField, severityField, field(readbackValueColumn), type);
+        chunk.names[i] = toString(field(nameColumn), null);
+        chunk.selected[i] = isSelected(field(selectedColumn));
+        return true;
+    }
+
+    /**
+     * Reads the next line from the reader into the line buffer and sets the bounds of the trimmed line content. Lines
+     * are terminated by a line feed, a carriage return or a carriage return followed by a line feed.
+     *
+     * @return true if a line was read or false if the end of stream was reached
+     * @throws IOException if reading failed
+     */
+    private boolean readLine() throws IOException {
+        int length = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                position = 0;
+                limit = reader.read(buffer, 0, BUFFER_SIZE);
+                if (limit < 0) {
+                    limit = 0;
+                    if (read) {
+                        break;
+                    }
+                    return false;
+                }
+                continue;
+            }
+            char c = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            read = true;
+            if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                skipLineFeed = true;
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length << 1);
+            }
+            line[length++] = c;
+        }
+        int start = 0;
+        int end = length;
+        while (start < end && line[start] <= ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] <= ' ') {
+            end--;
+        }
+        lineStart = start;
+        lineEnd = end;
+        return true;
+    }
+
+    /**
+     * Parses the current line as the header and resolves the indexes of all known columns.
+     */
+    private void readHeader() {
+        String[] header = new String(line, lineStart, lineEnd - lineStart).split("\\,");
+        for (int i = 0; i < header.length; i++) {
+            switch (header[i].toUpperCase(Locale.UK)) {
+                case FileUtilities.H_PV_NAME:
+                    nameColumn = i;
+                    break;
+                case FileUtilities.H_SELECTED:
+                    selectedColumn = i;
+                    break;
+                case FileUtilities.H_TIMESTAMP:
+                    timestampColumn = i;
+                    break;
+                case FileUtilities.H_STATUS:
+                    statusColumn = i;
+                    break;
+                case FileUtilities.H_SEVERITY:
+                    severityColumn = i;
+                    break;
+                case FileUtilities.H_VALUE_TYPE:
+                    valueTypeColumn = i;
+                    break;
+                case FileUtilities.H_VALUE:
+                    valueColumn = i;
+                    break;
+                case FileUtilities.H_READBACK:
+                    readbackColumn = i;
+                    break;
+                case FileUtilities.H_READBACK_VALUE:
+                    readbackValueColumn = i;
+                    break;
+                case FileUtilities.H_DELTA:
+                    deltaColumn = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Splits the current line into fields by comma. If a field starts with a quote, it is terminated by the next
+     * quote and may contain commas. All fields are trimmed of leading and trailing white spaces and quotes. The bounds
+     * of the fields are stored into {@link #fieldStart} and {@link #fieldEnd}.
+     *
+     * @return true if the line was successfully tokenized or false if the line is malformed
+     */
+    private boolean tokenize() {
+        numberOfFields = 0;
+        int p = lineStart;
+        while (true) {
+            while (p < lineEnd && line[p] <= ' ') {
+                p++;
+            }
+            int start;
+            int end;
+            if (p < lineEnd && line[p] == '"') {
+                start = p + 1;
+                end = indexOf('"', start, lineEnd);
+                if (end < 0) {
+                    return false;
+                }
+                p = end + 1;
+                while (p < lineEnd && line[p] <= ' ') {
+                    p++;
+                }
+                if (p < lineEnd && line[p] != ',') {
+                    return false;
+                }
+            } else {
+                start = p;
+                p = indexOf(',', p, lineEnd);
+                if (p < 0) {
+                    p = lineEnd;
+                }
+                end = p;
+            }
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            if (numberOfFields == fieldStart.length) {
+                fieldStart = Arrays.copyOf(fieldStart, numberOfFields << 1);
+                fieldEnd = Arrays.copyOf(fieldEnd, numberOfFields << 1);
+            }
+            fieldStart[numberOfFields] = start;
+            fieldEnd[numberOfFields] = end;
+            numberOfFields++;
+            if (p >= lineEnd) {
+                return true;
+            }
+            // skip the comma
+            p++;
+        }
+    }
+
+    /**
+     * Returns the index of the field that belongs to the given column or -1 if the column is not defined or if the
+     * current line does not have that many fields.
+     *
+     * @param column the column index
+     * @return the field index or -1 if the field does not exist
+     */
+    private int field(int column) {
+        return column < 0 || column >= numberOfFields ? -1 : column;
+    }
+
+    /**
+     * Transforms the field to a string.
+     *
+     * @param field the field index
+     * @param defaultValue the value returned if the field does not exist
+     * @return the content of the field
+     */
+    private String toString(int field, String defaultValue) {
+        return field < 0 ? defaultValue : new String(line, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    /**
+     * Parses the selected field. Any integer other than 0 means selected. If the field does not exist or cannot be
+     * parsed the entry is selected.
+     *
+     * @param field the field index
+     * @return true if selected or false otherwise
+     */
+    private boolean isSelected(int field) {
+        if (field > -1) {
+            try {
+                return parseLong(fieldStart[field], fieldEnd[field], Integer.MIN_VALUE, Integer.MAX_VALUE) != 0;
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value type that matches the given field (case insensitive).
+     *
+     * @param field the field index
+     * @return the value type or {@link ValueType#NODATA} if no type matches
+     */
+    private ValueType toValueType(int field) {
+        if (field > -1) {
+            for (ValueType t : VALUE_TYPES) {
+                if (matches(t.getTypeName(), fieldStart[field], fieldEnd[field], true)) {
+                    return t;
+                }
+            }
+        }
+        return ValueType.NODATA;
+    }
+
+    /**
+     * Converts a single entry to the VType.
+     *
+     * @param timestamp the index of the timestamp field, given in sec.nano format
+     * @param status the index of the alarm status field
+     * @param severity the index of the alarm severity field
+     * @param value the index of the value field
+     * @param type the value type
+     * @return VType that contains all parameters and matches the type provided by <code>type</code>
+     */
+    private VType toVType(int timestamp, int status, int severity, int value, ValueType type) {
+        if (value < 0) {
+            return VDisconnectedData.INSTANCE;
+        }
+        int start = fieldStart[value];
+        int end = fieldEnd[value];
+        if (start == end || matches(NULL, start, end, true) || matches(DISCONNECTED, start, end, false)) {
+            return VDisconnectedData.INSTANCE;
+        }
+        try {
+            return toVType(start, end, toTime(timestamp), toAlarm(status, severity), type);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // number format covers errors in parsing to VNumber, index out of bounds covers the enum parsing errors
+            return VDisconnectedData.INSTANCE;
+        }
+    }
+
+    /**
+     * Converts the raw value, which is given by the bounds within the line buffer, to the VType. The value is
+     * composed of the value and an optional list of labels (enums only), delimited by '~'. Arrays and the labels are
+     * surrounded by square brackets and their elements are delimited by ';'.
+     *
+     * @param start the start index of the raw value (inclusive)
+     * @param end the end index of the raw value (exclusive)
+     * @param time the time of the value
+     * @param alarm the alarm of the value
+     * @param type the value type
+     * @return VType that contains all parameters and matches the type provided by <code>type</code>
+     */
+    private VType toVType(int start, int end, Time time, Alarm alarm, ValueType type) {
+        int valueStart = start;
+        int valueEnd = indexOf('~', start, end);
+        int labelsStart = -1;
+        int labelsEnd = -1;
+        if (valueEnd < 0) {
+            valueEnd = end;
+        } else {
+            labelsStart = valueEnd + 1;
+            labelsEnd = indexOf('~', labelsStart, end);
+            if (labelsEnd < 0) {
+                labelsEnd = end;
+            }
+            if (labelsStart == labelsEnd && indexOfOtherThan('~', labelsStart, end) < 0) {
+                // nothing but delimiters follow the value
+                labelsStart = -1;
+            } else if (labelsEnd - labelsStart < 2) {
+                throw new StringIndexOutOfBoundsException("Invalid labels definition.");
+            } else {
+                labelsStart++;
+                labelsEnd--;
+            }
+        }
+        if (valueStart == valueEnd) {
+            throw new StringIndexOutOfBoundsException("The value is not defined.");
+        } else if (line[valueStart] == '[') {
+            if (valueEnd - valueStart < 2) {
+                throw new StringIndexOutOfBoundsException("Invalid array definition.");
+            }
+            valueStart++;
+            valueEnd--;
+        }
+        switch (type) {
+            case DOUBLE_ARRAY:
+            case NUMBER_ARRAY:
+                int nd = numberOfElements(valueStart, valueEnd);
+                double[] dd = new double[nd];
+                for (int i = 0, p = valueStart; i < dd.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    dd[i] = p == e ? 0 : parseDouble(p, e);
+                    p = e + 1;
+                }
+                return ValueFactory.newVDoubleArray(new ArrayDouble(dd), alarm, time, display);
+            case FLOAT_ARRAY:
+                int nf = numberOfElements(valueStart, valueEnd);
+                float[] df = new float[nf];
+                for (int i = 0, p = valueStart; i < df.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    df[i] = p == e ? 0f : parseFloat(p, e);
+                    p = e + 1;
+                }
+                return ValueFactory.newVFloatArray(new ArrayFloat(df), alarm, time, display);
+            case LONG_ARRAY:
+                int nl = numberOfElements(valueStart, valueEnd);
+                long[] dl = new long[nl];
+                for (int i = 0, p = valueStart; i < dl.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    dl[i] = p == e ? 0L : parseLong(p, e, Long.MIN_VALUE, Long.MAX_VALUE);
+                    p = e + 1;
+                }
+                return ValueFactory.newVLongArray(new ArrayLong(dl), alarm, time, display);
+            case INT_ARRAY:
+                int ni = numberOfElements(valueStart, valueEnd);
+                int[] di = new int[ni];
+                for (int i = 0, p = valueStart; i < di.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    di[i] = p == e ? 0 : (int) parseLong(p, e, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    p = e + 1;
+                }
+                return ValueFactory.newVIntArray(new ArrayInt(di), alarm, time, display);
+            case SHORT_ARRAY:
+                int ns = numberOfElements(valueStart, valueEnd);
+                short[] ds = new short[ns];
+                for (int i = 0, p = valueStart; i < ds.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    ds[i] = p == e ? (short) 0 : (short) parseLong(p, e, Short.MIN_VALUE, Short.MAX_VALUE);
+                    p = e + 1;
+                }
+                return ValueFactory.newVShortArray(new ArrayShort(ds), alarm, time, display);
+            case BYTE_ARRAY:
+                int nb = numberOfElements(valueStart, valueEnd);
+                byte[] db = new byte[nb];
+                for (int i = 0, p = valueStart; i < db.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    db[i] = p == e ? (byte) 0 : (byte) parseLong(p, e, Byte.MIN_VALUE, Byte.MAX_VALUE);
+                    p = e + 1;
+                }
+                return ValueFactory.newVNumberArray(new ArrayByte(db), alarm, time, display);
+            case ENUM_ARRAY:
+                if (labelsStart < 0) {
+                    return VDisconnectedData.INSTANCE;
+                }
+                List<String> labels = toList(labelsStart, labelsEnd, false);
+                int[] de = new int[numberOfElements(valueStart, valueEnd)];
+                for (int i = 0, p = valueStart; i < de.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    de[i] = indexOf(labels, p, e);
+                    p = e + 1;
+                }
+                return ValueFactory.newVEnumArray(new ArrayInt(de), labels, alarm, time);
+            case STRING_ARRAY:
+                return ValueFactory.newVStringArray(toList(valueStart, valueEnd, true), alarm, time);
+            case BOOLEAN_ARRAY:
+                boolean[] dbo = new boolean[numberOfElements(valueStart, valueEnd)];
+                for (int i = 0, p = valueStart; i < dbo.length; i++) {
+                    int e = elementEnd(p, valueEnd);
+                    dbo[i] = matches(TRUE, p, e, true);
+                    p = e + 1;
+                }
+                return ValueFactory.newVBooleanArray(new ArrayBoolean(dbo), alarm, time);
+            case DOUBLE:
+            case NUMBER:
+                return ValueFactory.newVDouble(parseDouble(valueStart, valueEnd), alarm, time, display);
+            case FLOAT:
+                return ValueFactory.newVFloat(parseFloat(valueStart, valueEnd), alarm, time, display);
+            case LONG:
+                return ValueFactory.newVLong(parseLong(valueStart, valueEnd, Long.MIN_VALUE, Long.MAX_VALUE), alarm,
+                    time, display);
+            case INT:
+                return ValueFactory.newVInt(
+                    (int) parseLong(valueStart, valueEnd, Integer.MIN_VALUE, Integer.MAX_VALUE), alarm, time, display);
+            case SHORT:
+                return ValueFactory.newVShort(
+                    (short) parseLong(valueStart, valueEnd, Short.MIN_VALUE, Short.MAX_VALUE), alarm, time, display);
+            case BYTE:
+                return ValueFactory.newVByte((byte) parseLong(valueStart, valueEnd, Byte.MIN_VALUE, Byte.MAX_VALUE),
+                    alarm, time, display);
+            case BOOLEAN:
+                return ValueFactory.newVBoolean(matches(TRUE, valueStart, valueEnd, true), alarm, time);
+            case STRING:
+                return ValueFactory.newVString(new String(line, valueStart, valueEnd - valueStart), alarm, time);
+            case ENUM:
+                if (labelsStart < 0) {
+                    return VDisconnectedData.INSTANCE;
+                }
+                List<String> lbls = toList(labelsStart, labelsEnd, true);
+                int idx = indexOf(lbls, valueStart, valueEnd);
+                if (idx < 0) {
+                    try {
+                        idx = (int) parseLong(valueStart, valueEnd, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    } catch (NumberFormatException e) {
+                        idx = 0;
+                    }
+                    for (int i = lbls.size(); i <= idx; i++) {
+                        lbls.add(String.valueOf(i));
+                    }
+                }
+                return ValueFactory.newVEnum(idx, lbls, alarm, time);
+            case NODATA:
+                return VDisconnectedData.INSTANCE;
+        }
+        throw new IllegalArgumentException("Unknown data type " + type + ".");
+    }
+
+    /**
+     * Parses the timestamp field, given in the sec.nano format. The time is parsed only once per line.
+     *
+     * @param field the index of the timestamp field
+     * @return the time
+     */
+    private Time toTime(int field) {
+        if (time == null) {
+            if (field < 0) {
+                time = zeroTime;
+            } else {
+                int start = fieldStart[field];
+                int end = fieldEnd[field];
+                int dot = indexOf('.', start, end);
+                if (dot <= start) {
+                    time = zeroTime;
+                } else {
+                    int nanoEnd = indexOf('.', dot + 1, end);
+                    if (nanoEnd < 0) {
+                        nanoEnd = end;
+                    }
+                    if (nanoEnd == dot + 1) {
+                        throw new NumberFormatException("Nanoseconds are not defined.");
+                    }
+                    long seconds = parseLong(start, dot, Long.MIN_VALUE, Long.MAX_VALUE);
+                    long nanos = parseLong(dot + 1, nanoEnd, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    time = ValueFactory.newTime(Instant.ofEpochSecond(seconds, nanos));
+                }
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Creates the alarm from the status and severity fields. If the fields match the ones of the previous entry, the
+     * previous alarm is returned.
+     *
+     * @param statusField the index of the status field
+     * @param severityField the index of the severity field
+     * @return the alarm
+     */
+    private Alarm toAlarm(int statusField, int severityField) {
+        int statusStart = statusField < 0 ? 0 : fieldStart[statusField];
+        int statusEnd = statusField < 0 ? 0 : fieldEnd[statusField];
+        int severityStart = severityField < 0 ? 0 : fieldStart[severityField];
+        int severityEnd = severityField < 0 ? 0 : fieldEnd[severityField];
+        if (alarm == null || !matches(status, statusStart, statusEnd, false)
+            || !matches(severity, severityStart, severityEnd, false)) {
+            String newStatus = new String(line, statusStart, statusEnd - statusStart);
+            String newSeverity = new String(line, severityStart, severityEnd - severityStart);
+            alarm = ValueFactory.newAlarm(newSeverity.isEmpty() ? AlarmSeverity.NONE
+                : AlarmSeverity.valueOf(newSeverity.toUpperCase(Locale.UK)), newStatus);
+            status = newStatus;
+            severity = newSeverity;
+        }
+        return alarm;
+    }
+
+    /**
+     * Splits the given part of the line by ';' into a list of strings. If the trailing empty strings are not kept,
+     * the behaviour matches the {@link String#split(String)}.
+     *
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param keepTrailing true to keep the trailing empty strings or false to discard them
+     * @return the list of elements
+     */
+    private List<String> toList(int start, int end, boolean keepTrailing) {
+        List<String> list = new ArrayList<>(numberOfElements(start, end));
+        int p = start;
+        while (true) {
+            int e = elementEnd(p, end);
+            list.add(new String(line, p, e - p));
+            if (e == end) {
+                break;
+            }
+            p = e + 1;
+        }
+        if (!keepTrailing && list.size() > 1) {
+            for (int i = list.size() - 1; i > -1 && list.get(i).isEmpty(); i--) {
+                list.remove(i);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns the index of the first label in the list, which is equal to the part of the line between start and end.
+     *
+     * @param labels the labels to search
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the index of the label or -1 if not found
+     */
+    private int indexOf(List<String> labels, int start, int end) {
+        for (int i = 0; i < labels.size(); i++) {
+            if (matches(labels.get(i), start, end, false)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of ';' delimited elements in the given part of the line.
+     *
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the number of elements
+     */
+    private int numberOfElements(int start, int end) {
+        int n = 1;
+        for (int i = start; i < end; i++) {
+            if (line[i] == ';') {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the end index of the ';' delimited element, which starts at the given index.
+     *
+     * @param start the start index of the element
+     * @param end the end index of all elements
+     * @return the index of the delimiter or the end if this is the last element
+     */
+    private int elementEnd(int start, int end) {
+        int e = indexOf(';', start, end);
+        return e < 0 ? end : e;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the character in the given part of the line.
+     *
+     * @param c the character to search for
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the index of the character or -1 if not found
+     */
+    private int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first character in the given part of the line that is different from the given one.
+     *
+     * @param c the character to skip
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the index of the first different character or -1 if all characters are equal to <code>c</code>
+     */
+    private int indexOfOtherThan(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] != c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if the given part of the line is equal to the string.
+     *
+     * @param str the string to compare
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param ignoreCase true if the comparison is case insensitive (same as {@link String#equalsIgnoreCase(String)})
+     * @return true if equal or false otherwise
+     */
+    private boolean matches(String str, int start, int end, boolean ignoreCase) {
+        if (str == null || str.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            char c1 = str.charAt(i);
+            char c2 = line[start + i];
+            if (c1 != c2) {
+                if (!ignoreCase) {
+                    return false;
+                }
+                char u1 = Character.toUpperCase(c1);
+                char u2 = Character.toUpperCase(c2);
+                if (u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an integer number from the given part of the line.
+     *
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param min the minimum allowed value
+     * @param max the maximum allowed value
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number or it is out of range
+     */
+    private long parseLong(int start, int end, long min, long max) {
+        return numbers.parseLong(line, start, end, min, max);
+    }
+
+    /**
+     * Parses a double from the given part of the line.
+     *
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number
+     */
+    private double parseDouble(int start, int end) {
+        return numbers.parseDouble(line, start, end);
+    }
+
+    /**
+     * Parses a float from the given part of the line.
+     *
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a number
+     */
+    private float parseFloat(int start, int end) {
+        return numbers.parseFloat(line, start, end);
+    }
+
+    /**
+     *
+     * <code>Chunk</code> is a block of consecutive rows and their decoded content. The first chunk is decoded by the
+     * parser that reads the lines, directly from the line buffer. The rows of every following chunk are copied into
+     * the text of the chunk, which is decoded in the pool and released when the chunk is decoded.
+     *
+     */
+    private static final class Chunk {
+        private char[] text;
+        private int[] rowStart;
+        private int size;
+        private String[] names;
+        private Boolean[] selected;
+        private VType[] data;
+        private String[] readbacks;
+        private VType[] readbackData;
+        private String[] deltas;
+        // the text of the malformed row, which stopped the decoding of the chunk
+        private String invalidRow;
+
+        /**
+         * Constructs a new chunk, which collects the text of the rows for the pool.
+         */
+        Chunk() {
+            text = new char[CHUNK_LENGTH];
+            rowStart = new int[CHUNK_ROWS + 1];
+        }
+
+        /**
+         * Constructs a new chunk, which receives the rows decoded directly from the line buffer.
+         *
+         * @param capacity the initial number of rows
+         */
+        Chunk(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Resizes the arrays of the decoded content to the given number of rows.
+         *
+         * @param capacity the number of rows
+         */
+        void allocate(int capacity) {
+            if (names == null) {
+                names = new String[capacity];
+                selected = new Boolean[capacity];
+                data = new VType[capacity];
+                readbacks = new String[capacity];
+                readbackData = new VType[capacity];
+                deltas = new String[capacity];
+            } else {
+                names = Arrays.copyOf(names, capacity);
+                selected = Arrays.copyOf(selected, capacity);
+                data = Arrays.copyOf(data, capacity);
+                readbacks = Arrays.copyOf(readbacks, capacity);
+                readbackData = Arrays.copyOf(readbackData, capacity);
+                deltas = Arrays.copyOf(deltas, capacity);
+            }
+        }
+
+        /**
+         * Appends the given part of the line to the text of this chunk.
+         *
+         * @param line the line buffer
+         * @param start the start of the row in the line buffer (inclusive)
+         * @param end the end of the row in the line buffer (exclusive)
+         */
+        void add(char[] line, int start, int end) {
+            int length = end - start;
+            int position = rowStart[size];
+            if (position + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length << 1, position + length));
+            }
+            System.arraycopy(line, start, text, position, length);
+            size++;
+            rowStart[size] = position + length;
+        }
+
+        /**
+         * Returns true if the chunk has the maximum number of rows or characters and should be handed to the pool.
+         *
+         * @return true if the chunk is full
+         */
+        boolean isFull() {
+            return size == CHUNK_ROWS || rowStart[size] >= CHUNK_LENGTH;
+        }
+    }
+}
@@ -12,7 +12,6 @@ package org.csstudio.saverestore;
 
 import java.text.DateFormat;
 import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -21,7 +20,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 import org.csstudio.saverestore.data.Threshold;
 import org.csstudio.saverestore.data.VDisconnectedData;
@@ -33,16 +31,16 @@ import org.diirt.util.array.ArrayFloat;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayLong;
 import org.diirt.util.array.ArrayShort;
-import org.diirt.util.array.IteratorNumber;
+import org.diirt.util.array.CollectionNumbers;
 import org.diirt.util.array.ListBoolean;
+import org.diirt.util.array.ListDouble;
+import org.diirt.util.array.ListFloat;
 import org.diirt.util.array.ListInt;
 import org.diirt.util.array.ListLong;
 import org.diirt.util.array.ListNumber;
-import org.diirt.util.text.NumberFormats;
 import org.diirt.vtype.Alarm;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Array;
-import org.diirt.vtype.SimpleValueFormat;
 import org.diirt.vtype.Time;
 import org.diirt.vtype.VBoolean;
 import org.diirt.vtype.VBooleanArray;
@@ -66,7 +64,6 @@ import org.diirt.vtype.VString;
 import org.diirt.vtype.VStringArray;
 import org.diirt.vtype.VType;
 import org.diirt.vtype.ValueFactory;
-import org.diirt.vtype.ValueFormat;
 
 /**
  *
@@ -129,14 +126,7 @@ public final class Utilities {
 
     /** The character code for the greek delta letter */
     public static final char DELTA_CHAR = '\u0394';
-    private static final char SEMI_COLON = ';';
-    private static final char COMMA = ',';
     // All formats use thread locals, to avoid problems if any of the static methods are invoked concurrently
-    private static final ThreadLocal<ValueFormat> FORMAT = ThreadLocal.withInitial(() -> {
-        ValueFormat vf = new SimpleValueFormat(3);
-        vf.setNumberFormat(NumberFormats.toStringFormat());
-        return vf;
-    });
     private static final ThreadLocal<DateFormat> LE_TIMESTAMP_FORMATTER = ThreadLocal
         .withInitial(() -> new SimpleDateFormat("HH:mm:ss.SSS MMM dd"));
     private static final ThreadLocal<DateFormat> SLE_TIMESTAMP_FORMATTER = ThreadLocal
@@ -145,7 +135,6 @@ public final class Utilities {
         .withInitial(() -> new SimpleDateFormat("MMM dd HH:mm:ss"));
     private static final ThreadLocal<DateFormat> SBE_TIMESTAMP_FORMATTER = ThreadLocal
         .withInitial(() -> new SimpleDateFormat("yyyy MMM dd HH:mm:ss"));
-    private static final Pattern COMMA_PATTERN = Pattern.compile("\\,");
     private static final ThreadLocal<DecimalFormat> NANO_FORMATTER = ThreadLocal
         .withInitial(() -> new DecimalFormat("000000000"));
 
@@ -364,130 +353,7 @@ public final class Utilities {
      * @return the string representing the raw value
      */
     public static String toRawStringValue(VType type) {
-        if (type instanceof VNumberArray) {
-            ListNumber list = ((VNumberArray) type).getData();
-            StringBuilder sb = new StringBuilder(list.size() * 10);
-            sb.append('[');
-            IteratorNumber it = list.iterator();
-            if (type instanceof VDoubleArray) {
-                while (it.hasNext()) {
-                    String str = String.valueOf(it.nextDouble());
-                    sb.append(COMMA_PATTERN.matcher(str).replaceAll("\\.")).append(SEMI_COLON);
-                }
-            } else if (type instanceof VFloatArray) {
-                while (it.hasNext()) {
-                    String str = String.valueOf(it.nextFloat());
-                    sb.append(COMMA_PATTERN.matcher(str).replaceAll("\\.")).append(SEMI_COLON);
-                }
-            } else if (type instanceof VLongArray) {
-                while (it.hasNext()) {
-                    sb.append(it.nextLong()).append(SEMI_COLON);
-                }
-            } else if (type instanceof VIntArray) {
-                while (it.hasNext()) {
-                    sb.append(it.nextInt()).append(SEMI_COLON);
-                }
-            } else if (type instanceof VShortArray) {
-                while (it.hasNext()) {
-                    sb.append(it.nextShort()).append(SEMI_COLON);
-                }
-            } else if (type instanceof VByteArray) {
-                while (it.hasNext()) {
-                    sb.append(it.nextByte()).append(SEMI_COLON);
-                }
-            }
-            if (list.size() == 0) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            return sb.toString();
-        } else if (type instanceof VEnumArray) {
-            List<String> list = ((VEnumArray) type).getData();
-            List<String> labels = ((VEnumArray) type).getLabels();
-            final StringBuilder sb = new StringBuilder((list.size() + labels.size()) * 10);
-            sb.append('[');
-            list.forEach(s -> sb.append(s).append(SEMI_COLON));
-            if (list.isEmpty()) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            sb.append('~').append('[');
-            labels.forEach(s -> sb.append(s).append(SEMI_COLON));
-            if (labels.isEmpty()) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            return sb.toString();
-        } else if (type instanceof VStringArray) {
-            List<String> list = ((VStringArray) type).getData();
-            final StringBuilder sb = new StringBuilder(list.size() * 20);
-            sb.append('[');
-            list.forEach(s -> sb.append(s).append(SEMI_COLON));
-            if (list.isEmpty()) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            return sb.toString();
-        } else if (type instanceof VBooleanArray) {
-            ListBoolean list = ((VBooleanArray) type).getData();
-            final StringBuilder sb = new StringBuilder(list.size() * 6);
-            sb.append('[');
-            int size = list.size();
-            for (int i = 0; i < size; i++) {
-                sb.append(list.getBoolean(i)).append(SEMI_COLON);
-            }
-            if (list.size() == 0) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            return sb.toString();
-        } else if (type instanceof VDouble || type instanceof VFloat) {
-            // for some locales string.valueof might produce
-            String str = String.valueOf(((VNumber) type).getValue());
-            return COMMA_PATTERN.matcher(str).replaceAll("\\.");
-        } else if (type instanceof VNumber) {
-            return String.valueOf(((VNumber) type).getValue());
-        } else if (type instanceof VEnum) {
-            List<String> labels = ((VEnum) type).getLabels();
-            boolean allEmpty = true;
-            for (String s : labels) {
-                if (!s.isEmpty()) {
-                    allEmpty = false;
-                    break;
-                }
-            }
-            String value = ((VEnum) type).getValue();
-            if (allEmpty) {
-                List<String> newLabels = new ArrayList<>(labels.size());
-                for (int i = 0; i < labels.size(); i++) {
-                    newLabels.add(String.valueOf(i));
-                }
-                labels = newLabels;
-                if (value.isEmpty()) {
-                    value = String.valueOf(((VEnum) type).getIndex());
-                }
-            }
-            final StringBuilder sb = new StringBuilder((labels.size() + 1) * 10);
-            sb.append(value);
-            sb.append('~').append('[');
-            labels.forEach(s -> sb.append(s).append(SEMI_COLON));
-            if (labels.isEmpty()) {
-                sb.append(']');
-            } else {
-                sb.setCharAt(sb.length() - 1, ']');
-            }
-            return sb.toString();
-        } else if (type instanceof VString) {
-            return ((VString) type).getValue();
-        } else if (type instanceof VBoolean) {
-            return String.valueOf(((VBoolean) type).getValue());
-        }
-        return type.toString();
+        return ValueFormatter.formatRaw(type);
     }
 
     /**
@@ -512,133 +378,9 @@ public final class Utilities {
      * @return string representation of the data
      */
     public static String valueToString(VType type, int arrayLimit) {
-        if (type == null) {
-            return null;
-        } else if (type instanceof VNumberArray) {
-            ListNumber list = ((VNumberArray) type).getData();
-            int size = Math.min(arrayLimit, list.size());
-            StringBuilder sb = new StringBuilder(size * 15 + 2);
-            sb.append('[');
-            Pattern pattern = Pattern.compile("\\,");
-            NumberFormat formatter = FORMAT.get().getNumberFormat();
-            if (type instanceof VDoubleArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(pattern.matcher(formatter.format(list.getDouble(i))).replaceAll("\\.")).append(COMMA)
-                        .append(' ');
-                }
-            } else if (type instanceof VFloatArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(pattern.matcher(formatter.format(list.getFloat(i))).replaceAll("\\.")).append(COMMA)
-                        .append(' ');
-                }
-            } else if (type instanceof VLongArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(list.getLong(i)).append(COMMA).append(' ');
-                }
-            } else if (type instanceof VIntArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(list.getInt(i)).append(COMMA).append(' ');
-                }
-            } else if (type instanceof VShortArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(list.getShort(i)).append(COMMA).append(' ');
-                }
-            } else if (type instanceof VByteArray) {
-                for (int i = 0; i < size; i++) {
-                    sb.append(list.getByte(i)).append(COMMA).append(' ');
-                }
-            }
-            if (size == 0) {
-                sb.append(']');
-            } else if (size < list.size()) {
-                sb.setCharAt(sb.length() - 1, '.');
-                sb.append("..]");
-            } else {
-                sb.setCharAt(sb.length() - 2, ']');
-            }
-            return sb.toString().trim();
-        } else if (type instanceof VEnumArray) {
-            List<String> list = ((VEnumArray) type).getData();
-            int size = Math.min(arrayLimit, list.size());
-            final StringBuilder sb = new StringBuilder(size * 15 + 2);
-            sb.append('[');
-            for (int i = 0; i < size; i++) {
-                sb.append(list.get(i)).append(COMMA).append(' ');
-            }
-            if (size == 0) {
-                sb.append(']');
-            } else if (size < list.size()) {
-                sb.setCharAt(sb.length() - 1, '.');
-                sb.append("..]");
-            } else {
-                sb.setCharAt(sb.length() - 2, ']');
-            }
-            return sb.toString().trim();
-        } else if (type instanceof VStringArray) {
-            List<String> list = ((VStringArray) type).getData();
-            int size = Math.min(arrayLimit, list.size());
-            final StringBuilder sb = new StringBuilder(size * 20 + 2);
-            sb.append('[');
-            for (int i = 0; i < size; i++) {
-                sb.append(list.get(i)).append(COMMA).append(' ');
-            }
-            if (size == 0) {
-                sb.append(']');
-            } else if (size < list.size()) {
-                sb.setCharAt(sb.length() - 1, '.');
-                sb.append("..]");
-            } else {
-                sb.setCharAt(sb.length() - 2, ']');
-            }
-            return sb.toString().trim();
-        } else if (type instanceof VBooleanArray) {
-            ListBoolean list = ((VBooleanArray) type).getData();
-            int size = Math.min(arrayLimit, list.size());
-            final StringBuilder sb = new StringBuilder(size * 7 + 2);
-            sb.append('[');
-            for (int i = 0; i < size; i++) {
-                sb.append(list.getBoolean(i)).append(COMMA).append(' ');
-            }
-            if (list.size() == 0) {
-                sb.append(']');
-            } else if (size < list.size()) {
-                sb.setCharAt(sb.length() - 1, '.');
-                sb.append("..]");
-            } else {
-                sb.setCharAt(sb.length() - 2, ']');
-            }
-            return sb.toString().trim();
-        } else if (type instanceof VNumber) {
-            if (type instanceof VDouble) {
-                return FORMAT.get().getNumberFormat().format(((VDouble) type).getValue());
-            } else if (type instanceof VFloat) {
-                return FORMAT.get().getNumberFormat().format(((VFloat) type).getValue());
-            } else {
-                return String.valueOf(((VNumber) type).getValue());
-            }
-        } else if (type instanceof VEnum) {
-            VEnum en = (VEnum) type;
-            String val = en.getValue();
-            if (val.isEmpty()) {
-                // if all labels are empty, return the index as a string, otherwise return the label
-                List<String> labels = en.getLabels();
-                for (String s : labels) {
-                    if (!s.isEmpty()) {
-                        return val;
-                    }
-                }
-                return String.valueOf(en.getIndex());
-            } else {
-                return val;
-            }
-        } else if (type instanceof VString) {
-            return ((VString) type).getValue();
-        } else if (type instanceof VBoolean) {
-            return String.valueOf(((VBoolean) type).getValue());
-        }
         // no support for MultiScalars (VMultiDouble, VMultiInt, VMultiString, VMultiEnum), VStatistics, VTable and
         // VImage)
-        return null;
+        return ValueFormatter.format(type, arrayLimit);
     }
 
     /**
@@ -653,7 +395,6 @@ public final class Utilities {
      * @return string representing the value and the difference from the base value together with the flag indicating
      *         the comparison result
      */
-    @SuppressWarnings("unchecked")
     public static VTypeComparison valueToCompareString(VType value, VType baseValue, Optional<Threshold<?>> threshold) {
         if (value == null && baseValue == null
             || value == VDisconnectedData.INSTANCE && baseValue == VDisconnectedData.INSTANCE) {
@@ -670,14 +411,14 @@ public final class Utilities {
             StringBuilder sb = new StringBuilder(20);
             int diff = 0;
             boolean withinThreshold = threshold.isPresent();
-            sb.append(FORMAT.get().format((VNumber) value));
+            ValueFormatter.appendNumber(((VNumber) value).getValue(), sb);
             if (value instanceof VDouble) {
                 double data = ((VDouble) value).getValue();
                 double base = ((VNumber) baseValue).getValue().doubleValue();
                 double newd = data - base;
                 diff = Double.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Double>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -685,14 +426,14 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append(newd);
             } else if (value instanceof VFloat) {
                 float data = ((VFloat) value).getValue();
                 float base = ((VNumber) baseValue).getValue().floatValue();
                 float newd = data - base;
                 diff = Float.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Float>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -700,14 +441,14 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append((double) newd);
             } else if (value instanceof VLong) {
                 long data = ((VLong) value).getValue();
                 long base = ((VNumber) baseValue).getValue().longValue();
                 long newd = data - base;
                 diff = Long.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Long>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -715,14 +456,14 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append(newd);
             } else if (value instanceof VInt) {
                 int data = ((VInt) value).getValue();
                 int base = ((VNumber) baseValue).getValue().intValue();
                 int newd = data - base;
                 diff = Integer.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Integer>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -730,14 +471,14 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append(newd);
             } else if (value instanceof VShort) {
                 short data = ((VShort) value).getValue();
                 short base = ((VNumber) baseValue).getValue().shortValue();
                 short newd = (short) (data - base);
                 diff = Short.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Short>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -745,14 +486,14 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append(newd);
             } else if (value instanceof VByte) {
                 byte data = ((VByte) value).getValue();
                 byte base = ((VNumber) baseValue).getValue().byteValue();
                 byte newd = (byte) (data - base);
                 diff = Byte.compare(data, base);
                 if (threshold.isPresent()) {
-                    withinThreshold = ((Threshold<Byte>) threshold.get()).isWithinThreshold(data, base);
+                    withinThreshold = threshold.get().isWithinThreshold(data, base);
                 } else {
                     withinThreshold = diff == 0;
                 }
@@ -760,7 +501,7 @@ public final class Utilities {
                 if (newd > 0) {
                     sb.append('+');
                 }
-                sb.append(FORMAT.get().getNumberFormat().format(newd));
+                sb.append(newd);
             }
             return new VTypeComparison(sb.toString(), diff, withinThreshold);
         } else if (value instanceof VBoolean && baseValue instanceof VBoolean) {
@@ -851,7 +592,6 @@ public final class Utilities {
      * @param threshold the threshold values which define if the difference is within limits or not
      * @return true if the values are equal or false otherwise
      */
-    @SuppressWarnings("unchecked")
     public static boolean areValuesEqual(VType v1, VType v2, Optional<Threshold<?>> threshold) {
         if (v1 == null && v2 == null) {
             return true;
@@ -867,42 +607,42 @@ public final class Utilities {
                 double data = ((VDouble) v1).getValue();
                 double base = ((VNumber) v2).getValue().doubleValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Double>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Double.compare(data, base) == 0;
             } else if (v1 instanceof VFloat) {
                 float data = ((VFloat) v1).getValue();
                 float base = ((VNumber) v2).getValue().floatValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Float>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Float.compare(data, base) == 0;
             } else if (v1 instanceof VLong) {
                 long data = ((VLong) v1).getValue();
                 long base = ((VNumber) v2).getValue().longValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Long>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Long.compare(data, base) == 0;
             } else if (v1 instanceof VInt) {
                 int data = ((VInt) v1).getValue();
                 int base = ((VNumber) v2).getValue().intValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Integer>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Integer.compare(data, base) == 0;
             } else if (v1 instanceof VShort) {
                 short data = ((VShort) v1).getValue();
                 short base = ((VNumber) v2).getValue().shortValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Short>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Short.compare(data, base) == 0;
             } else if (v1 instanceof VByte) {
                 byte data = ((VByte) v1).getValue();
                 byte base = ((VNumber) v2).getValue().byteValue();
                 if (threshold.isPresent()) {
-                    return ((Threshold<Byte>) threshold.get()).isWithinThreshold(data, base);
+                    return threshold.get().isWithinThreshold(data, base);
                 }
                 return Byte.compare(data, base) == 0;
             }
@@ -922,55 +662,64 @@ public final class Utilities {
             if ((v1 instanceof VByteArray && v2 instanceof VByteArray)
                 || (v1 instanceof VShortArray && v2 instanceof VShortArray)
                 || (v1 instanceof VIntArray && v2 instanceof VIntArray)
+                || (v1 instanceof VLongArray && v2 instanceof VLongArray)
                 || (v1 instanceof VFloatArray && v2 instanceof VFloatArray)
                 || (v1 instanceof VDoubleArray && v2 instanceof VDoubleArray)) {
-                ListNumber b = ((VNumberArray) v1).getData();
-                ListNumber c = ((VNumberArray) v2).getData();
-                int size = b.size();
-                if (size != c.size()) {
-                    return false;
-                }
-                for (int i = 0; i < size; i++) {
-                    if (Double.compare(b.getDouble(i), c.getDouble(i)) != 0) {
-                        return false;
-                    }
-                }
-                return true;
-            } else if (v1 instanceof VLongArray && v2 instanceof VLongArray) {
-                ListLong b = ((VLongArray) v1).getData();
-                ListLong c = ((VLongArray) v2).getData();
-                int size = b.size();
-                if (size != c.size()) {
-                    return false;
-                }
-                for (int i = 0; i < size; i++) {
-                    if (Long.compare(b.getLong(i), c.getLong(i)) != 0) {
-                        return false;
-                    }
-                }
-                return true;
+                return areArraysEqual(((VNumberArray) v1).getData(), ((VNumberArray) v2).getData());
             }
         } else if (v1 instanceof VStringArray && v2 instanceof VStringArray) {
             List<String> b = ((VStringArray) v1).getData();
             List<String> c = ((VStringArray) v2).getData();
             return b.equals(c);
         } else if (v1 instanceof VEnumArray && v2 instanceof VEnumArray) {
-            ListInt b = ((VEnumArray) v1).getIndexes();
-            ListInt c = ((VEnumArray) v2).getIndexes();
-            int size = b.size();
-            if (size != c.size()) {
-                return false;
+            return areArraysEqual(((VEnumArray) v1).getIndexes(), ((VEnumArray) v2).getIndexes());
+        }
+        // no support for MultiScalars (VMultiDouble, VMultiInt, VMultiString, VMultiEnum), VStatistics, VTable and
+        // VImage)
+        return false;
+    }
+
+    /**
+     * Checks if the two lists contain the same numbers. The lists are expected to be of the same type. If both lists
+     * are backed by primitive arrays, the arrays are compared directly, otherwise the elements are compared one by
+     * one. Floating point elements are compared in the same way as {@link Double#compare(double, double)} does.
+     *
+     * @param b the first list
+     * @param c the second list
+     * @return true if the lists have the same size and equal elements or false otherwise
+     */
+    private static boolean areArraysEqual(ListNumber b, ListNumber c) {
+        int size = b.size();
+        if (size != c.size()) {
+            return false;
+        } else if (b == c) {
+            return true;
+        } else if (b instanceof ArrayDouble && c instanceof ArrayDouble) {
+            return Arrays.equals(CollectionNumbers.wrappedDoubleArray(b), CollectionNumbers.wrappedDoubleArray(c));
+        } else if (b instanceof ArrayFloat && c instanceof ArrayFloat) {
+            return Arrays.equals(CollectionNumbers.wrappedFloatArray(b), CollectionNumbers.wrappedFloatArray(c));
+        } else if (b instanceof ArrayLong && c instanceof ArrayLong) {
+            return Arrays.equals(CollectionNumbers.wrappedLongArray(b), CollectionNumbers.wrappedLongArray(c));
+        } else if (b instanceof ArrayInt && c instanceof ArrayInt) {
+            return Arrays.equals(CollectionNumbers.wrappedIntArray(b), CollectionNumbers.wrappedIntArray(c));
+        } else if (b instanceof ArrayShort && c instanceof ArrayShort) {
+            return Arrays.equals(CollectionNumbers.wrappedShortArray(b), CollectionNumbers.wrappedShortArray(c));
+        } else if (b instanceof ArrayByte && c instanceof ArrayByte) {
+            return Arrays.equals(CollectionNumbers.wrappedByteArray(b), CollectionNumbers.wrappedByteArray(c));
+        } else if (b instanceof ListDouble || b instanceof ListFloat) {
+            for (int i = 0; i < size; i++) {
+                if (Double.compare(b.getDouble(i), c.getDouble(i)) != 0) {
+                    return false;
+                }
             }
+        } else {
             for (int i = 0; i < size; i++) {
-                if (Integer.compare(b.getInt(i), c.getInt(i)) != 0) {
+                if (b.getLong(i) != c.getLong(i)) {
                     return false;
                 }
             }
-            return true;
         }
-        // no support for MultiScalars (VMultiDouble, VMultiInt, VMultiString, VMultiEnum), VStatistics, VTable and
-        // VImage)
-        return false;
+        return true;
     }
 
     /**
@@ -0,0 +1,403 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diirt.util.array.ListBoolean;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.VBoolean;
+import org.diirt.vtype.VBooleanArray;
+import org.diirt.vtype.VByteArray;
+import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VEnumArray;
+import org.diirt.vtype.VFloatArray;
+import org.diirt.vtype.VIntArray;
+import org.diirt.vtype.VLongArray;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VShortArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+
+/**
+ *
+ * <code>ValueFormatter</code> formats the values of {@link VType}s into text. The values are appended directly to a
+ * {@link StringBuilder} or written to a {@link Writer} through a buffer that is reused by each thread, so that the
+ * formatting does not create any intermediate objects. Numbers are formatted in a locale independent way, using the
+ * same representation as {@link Double#toString(double)} and {@link Long#toString(long)}; float values are presented
+ * as doubles. There are two formats:
+ * <ul>
+ * <li>the presentation format, which may truncate the arrays and is used to display the values on the screen (see
+ * {@link Utilities#valueToString(VType, int)})</li>
+ * <li>the raw format, which contains the exact value and is used to store the values (see
+ * {@link Utilities#toRawStringValue(VType)})</li>
+ * </ul>
+ * All methods are thread safe.
+ */
+public final class ValueFormatter {
+
+    /**
+     * <code>Buffer</code> holds the reusable builder and characters of a single thread.
+     */
+    private static final class Buffer {
+        private static final int INITIAL_CAPACITY = 256;
+        // buffers larger than this are not kept, so that a single large waveform does not pin the memory
+        private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+        private StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+        private char[] chars = new char[INITIAL_CAPACITY];
+
+        StringBuilder builder() {
+            if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+                builder = new StringBuilder(INITIAL_CAPACITY);
+            } else {
+                builder.setLength(0);
+            }
+            return builder;
+        }
+
+        char[] chars(int length) {
+            if (chars.length < length || chars.length > MAX_RETAINED_CAPACITY) {
+                chars = new char[Math.max(length, INITIAL_CAPACITY)];
+            }
+            return chars;
+        }
+    }
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+    private static final char SEMI_COLON = ';';
+    private static final char COMMA = ',';
+
+    /**
+     * Private constructor to prevent instantiation of this class.
+     */
+    private ValueFormatter() {
+    }
+
+    /**
+     * Formats the value using the presentation format. If the value is an array, at most <code>arrayLimit</code>
+     * elements are included.
+     *
+     * @param type the value to format
+     * @param arrayLimit the maximum number of array elements to include
+     * @return the formatted value or null if the value type is not supported
+     */
+    public static String format(VType type, int arrayLimit) {
+        StringBuilder sb = BUFFER.get().builder();
+        return appendValue(type, arrayLimit, sb) ? sb.toString() : null;
+    }
+
+    /**
+     * Formats the value using the raw format.
+     *
+     * @param type the value to format
+     * @return the formatted value
+     */
+    public static String formatRaw(VType type) {
+        StringBuilder sb = BUFFER.get().builder();
+        appendRawValue(type, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Writes the value in the presentation format to the writer. If the value type is not supported, nothing is
+     * written.
+     *
+     * @param type the value to write
+     * @param arrayLimit the maximum number of array elements to include
+     * @param writer the destination
+     * @return true if the value was written or false if the value type is not supported
+     * @throws IOException if writing failed
+     */
+    public static boolean writeValue(VType type, int arrayLimit, Writer writer) throws IOException {
+        Buffer buffer = BUFFER.get();
+        StringBuilder sb = buffer.builder();
+        if (appendValue(type, arrayLimit, sb)) {
+            write(buffer, sb, writer);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the value in the raw format to the writer.
+     *
+     * @param type the value to write
+     * @param writer the destination
+     * @throws IOException if writing failed
+     */
+    public static void writeRawValue(VType type, Writer writer) throws IOException {
+        Buffer buffer = BUFFER.get();
+        StringBuilder sb = buffer.builder();
+        appendRawValue(type, sb);
+        write(buffer, sb, writer);
+    }
+
+    private static void write(Buffer buffer, StringBuilder sb, Writer writer) throws IOException {
+        int length = sb.length();
+        char[] chars = buffer.chars(length);
+        sb.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    /**
+     * Appends the value in the presentation format to the builder. If the value type is not supported (e.g. multi
+     * scalars, statistics, tables, images), nothing is appended.
+     *
+     * @param type the value to append
+     * @param arrayLimit the maximum number of array elements to include
+     * @param sb the destination
+     * @return true if the value was appended or false if the value type is not supported
+     */
+    public static boolean appendValue(VType type, int arrayLimit, StringBuilder sb) {
+        if (type == null) {
+            return false;
+        } else if (type instanceof VNumberArray) {
+            ListNumber list = ((VNumberArray) type).getData();
+            int size = Math.min(arrayLimit, list.size());
+            int start = sb.length();
+            sb.append('[');
+            if (type instanceof VDoubleArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getDouble(i)).append(COMMA).append(' ');
+                }
+            } else if (type instanceof VFloatArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append((double) list.getFloat(i)).append(COMMA).append(' ');
+                }
+            } else if (type instanceof VLongArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getLong(i)).append(COMMA).append(' ');
+                }
+            } else if (type instanceof VIntArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getInt(i)).append(COMMA).append(' ');
+                }
+            } else if (type instanceof VShortArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getShort(i)).append(COMMA).append(' ');
+                }
+            } else if (type instanceof VByteArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getByte(i)).append(COMMA).append(' ');
+                }
+            }
+            closeArray(sb, start, size, size, list.size());
+        } else if (type instanceof VEnumArray) {
+            appendStrings(((VEnumArray) type).getData(), arrayLimit, sb);
+        } else if (type instanceof VStringArray) {
+            appendStrings(((VStringArray) type).getData(), arrayLimit, sb);
+        } else if (type instanceof VBooleanArray) {
+            ListBoolean list = ((VBooleanArray) type).getData();
+            int size = Math.min(arrayLimit, list.size());
+            int start = sb.length();
+            sb.append('[');
+            for (int i = 0; i < size; i++) {
+                sb.append(list.getBoolean(i)).append(COMMA).append(' ');
+            }
+            closeArray(sb, start, list.size(), size, list.size());
+        } else if (type instanceof VNumber) {
+            appendNumber(((VNumber) type).getValue(), sb);
+        } else if (type instanceof VEnum) {
+            VEnum en = (VEnum) type;
+            String val = en.getValue();
+            if (val.isEmpty() && areAllEmpty(en.getLabels())) {
+                // if all labels are empty, use the index, otherwise use the label
+                sb.append(en.getIndex());
+            } else {
+                sb.append(val);
+            }
+        } else if (type instanceof VString) {
+            sb.append(((VString) type).getValue());
+        } else if (type instanceof VBoolean) {
+            sb.append(((VBoolean) type).getValue());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends the number to the builder in the presentation format. Floating point numbers are appended as doubles
+     * and the primitive integer types as integers. If the number is null, nothing is appended.
+     *
+     * @param number the number to append
+     * @param sb the destination
+     */
+    public static void appendNumber(Number number, StringBuilder sb) {
+        if (number instanceof Double || number instanceof Float) {
+            sb.append(number.doubleValue());
+        } else if (isInteger(number)) {
+            sb.append(number.longValue());
+        } else if (number != null) {
+            sb.append(number.doubleValue());
+        }
+    }
+
+    private static void appendRawNumber(Number number, StringBuilder sb) {
+        if (number instanceof Double) {
+            sb.append(number.doubleValue());
+        } else if (number instanceof Float) {
+            sb.append(number.floatValue());
+        } else if (isInteger(number)) {
+            sb.append(number.longValue());
+        } else {
+            sb.append(number);
+        }
+    }
+
+    private static boolean isInteger(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+            || number instanceof Byte;
+    }
+
+    private static void appendStrings(List<String> list, int arrayLimit, StringBuilder sb) {
+        int size = Math.min(arrayLimit, list.size());
+        int start = sb.length();
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            sb.append(list.get(i)).append(COMMA).append(' ');
+        }
+        closeArray(sb, start, size, size, list.size());
+    }
+
+    /**
+     * Closes the array, which has been opened at the start position and followed by the given number of elements,
+     * each of them terminated by a comma and space.
+     */
+    private static void closeArray(StringBuilder sb, int start, int emptyCheck, int size, int fullSize) {
+        int length = sb.length();
+        if (emptyCheck == 0) {
+            sb.append(']');
+        } else if (size < fullSize) {
+            // replace the space after the last element with an ellipsis
+            sb.setCharAt(length - 1, '.');
+            sb.append("..]");
+        } else if (length - start > 1) {
+            // replace the comma after the last element and drop the trailing space
+            sb.setCharAt(length - 2, ']');
+            sb.setLength(length - 1);
+        } else {
+            sb.append(']');
+        }
+    }
+
+    /**
+     * Appends the value in the raw format to the builder. If the value is an array, it is encapsulated into
+     * rectangular parenthesis and individual items are separated by semicolons. In case of enums the value is followed
+     * by a tilde and another rectangular parenthesis containing all possible enumeration values.
+     *
+     * @param type the value to append
+     * @param sb the destination
+     */
+    public static void appendRawValue(VType type, StringBuilder sb) {
+        if (type instanceof VNumberArray) {
+            ListNumber list = ((VNumberArray) type).getData();
+            int size = list.size();
+            sb.append('[');
+            if (type instanceof VDoubleArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getDouble(i)).append(SEMI_COLON);
+                }
+            } else if (type instanceof VFloatArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getFloat(i)).append(SEMI_COLON);
+                }
+            } else if (type instanceof VLongArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getLong(i)).append(SEMI_COLON);
+                }
+            } else if (type instanceof VIntArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getInt(i)).append(SEMI_COLON);
+                }
+            } else if (type instanceof VShortArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getShort(i)).append(SEMI_COLON);
+                }
+            } else if (type instanceof VByteArray) {
+                for (int i = 0; i < size; i++) {
+                    sb.append(list.getByte(i)).append(SEMI_COLON);
+                }
+            }
+            closeRawArray(sb, size);
+        } else if (type instanceof VEnumArray) {
+            appendRawStrings(((VEnumArray) type).getData(), sb);
+            sb.append('~');
+            appendRawStrings(((VEnumArray) type).getLabels(), sb);
+        } else if (type instanceof VStringArray) {
+            appendRawStrings(((VStringArray) type).getData(), sb);
+        } else if (type instanceof VBooleanArray) {
+            ListBoolean list = ((VBooleanArray) type).getData();
+            int size = list.size();
+            sb.append('[');
+            for (int i = 0; i < size; i++) {
+                sb.append(list.getBoolean(i)).append(SEMI_COLON);
+            }
+            closeRawArray(sb, size);
+        } else if (type instanceof VNumber) {
+            appendRawNumber(((VNumber) type).getValue(), sb);
+        } else if (type instanceof VEnum) {
+            List<String> labels = ((VEnum) type).getLabels();
+            String value = ((VEnum) type).getValue();
+            if (areAllEmpty(labels)) {
+                List<String> newLabels = new ArrayList<>(labels.size());
+                for (int i = 0; i < labels.size(); i++) {
+                    newLabels.add(String.valueOf(i));
+                }
+                labels = newLabels;
+                if (value.isEmpty()) {
+                    value = String.valueOf(((VEnum) type).getIndex());
+                }
+            }
+            sb.append(value).append('~');
+            appendRawStrings(labels, sb);
+        } else if (type instanceof VString) {
+            sb.append(((VString) type).getValue());
+        } else if (type instanceof VBoolean) {
+            sb.append(((VBoolean) type).getValue());
+        } else {
+            sb.append(type);
+        }
+    }
+
+    private static void appendRawStrings(List<String> list, StringBuilder sb) {
+        int size = list.size();
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            sb.append(list.get(i)).append(SEMI_COLON);
+        }
+        closeRawArray(sb, size);
+    }
+
+    private static void closeRawArray(StringBuilder sb, int size) {
+        if (size == 0) {
+            sb.append(']');
+        } else {
+            sb.setCharAt(sb.length() - 1, ']');
+        }
+    }
+
+    private static boolean areAllEmpty(List<String> labels) {
+        for (String s : labels) {
+            if (!s.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
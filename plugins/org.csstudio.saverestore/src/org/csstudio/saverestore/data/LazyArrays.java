@@ -0,0 +1,326 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.data;
+
+import java.util.function.IntFunction;
+
+import org.diirt.util.array.ListByte;
+import org.diirt.util.array.ListDouble;
+import org.diirt.util.array.ListFloat;
+import org.diirt.util.array.ListInt;
+import org.diirt.util.array.ListLong;
+import org.diirt.util.array.ListShort;
+
+/**
+ *
+ * <code>LazyArrays</code> provides lists of numbers, which decode their elements from the raw source (e.g. the text
+ * of a snapshot file or the structure received from the service) when they are first accessed. The size of the list
+ * is known upfront, so the lists can be wrapped into regular array VTypes, while the alarm, time and display of the
+ * value remain eager. The elements are decoded in order and in chunks, so presenting the first few elements of a
+ * large waveform decodes only those elements, while the comparison, restore or plotting decodes the whole array.
+ * When all elements are decoded, the decoder and thereby the raw source are released.
+ * <p>
+ * The lists are thread safe: decoding is synchronised and the decoded elements are published before they are read.
+ */
+public final class LazyArrays {
+
+    /**
+     * Arrays that have at most this many elements should be decoded immediately, because the deferred decoding
+     * costs more than it saves and the snapshot table shows that many elements anyway.
+     */
+    public static final int EAGER_LIMIT = 16;
+
+    /**
+     * <code>Decoder</code> decodes the elements of the raw source into a primitive array. The elements are requested
+     * strictly in order: the first call starts at 0 and each subsequent call starts where the previous one ended,
+     * which allows the decoder to read the source sequentially.
+     *
+     * @param <T> the type of the primitive array
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+
+        /**
+         * Decodes the elements between <code>from</code> (inclusive) and <code>to</code> (exclusive) and stores them
+         * into the array at the same indexes.
+         *
+         * @param array the destination array, which has the size of the list
+         * @param from the index of the first element to decode
+         * @param to the index after the last element to decode
+         */
+        void decode(T array, int from, int to);
+    }
+
+    /**
+     * <code>Elements</code> holds the decoded part of the array and decodes the rest on demand.
+     *
+     * @param <T> the type of the primitive array
+     */
+    private static final class Elements<T> {
+        private final int size;
+        private final IntFunction<T> allocator;
+        private Decoder<T> decoder;
+        private T array;
+        private volatile int decoded;
+
+        Elements(int size, IntFunction<T> allocator, Decoder<T> decoder) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Size should not be negative: " + size);
+            }
+            this.size = size;
+            this.allocator = allocator;
+            this.decoder = decoder;
+        }
+
+        /**
+         * Returns the array, in which the element at the given index is already decoded.
+         *
+         * @param index the index of the element that is going to be read
+         * @return the array of elements
+         */
+        T upTo(int index) {
+            // the volatile read guarantees that the array and its decoded elements are visible
+            if (index >= decoded || index < 0) {
+                decode(index);
+            }
+            return array;
+        }
+
+        /**
+         * Decodes at least all elements up to and including the given index. The number of decoded elements is at
+         * least doubled, so that reading the array sequentially decodes it in a few steps.
+         *
+         * @param index the index of the element that has to be decoded
+         */
+        private synchronized void decode(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            } else if (index < decoded) {
+                return;
+            }
+            if (array == null) {
+                array = allocator.apply(size);
+            }
+            int from = decoded;
+            int to = Math.min(size, Math.max(index + 1, Math.max(from << 1, EAGER_LIMIT)));
+            decoder.decode(array, from, to);
+            if (to == size) {
+                decoder = null;
+            }
+            decoded = to;
+        }
+
+        boolean isDecoded() {
+            return decoded == size;
+        }
+    }
+
+    private static final class LazyListDouble extends ListDouble {
+        private final Elements<double[]> elements;
+
+        LazyListDouble(int size, Decoder<double[]> decoder) {
+            this.elements = new Elements<>(size, double[]::new, decoder);
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private static final class LazyListFloat extends ListFloat {
+        private final Elements<float[]> elements;
+
+        LazyListFloat(int size, Decoder<float[]> decoder) {
+            this.elements = new Elements<>(size, float[]::new, decoder);
+        }
+
+        @Override
+        public float getFloat(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private static final class LazyListLong extends ListLong {
+        private final Elements<long[]> elements;
+
+        LazyListLong(int size, Decoder<long[]> decoder) {
+            this.elements = new Elements<>(size, long[]::new, decoder);
+        }
+
+        @Override
+        public long getLong(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private static final class LazyListInt extends ListInt {
+        private final Elements<int[]> elements;
+
+        LazyListInt(int size, Decoder<int[]> decoder) {
+            this.elements = new Elements<>(size, int[]::new, decoder);
+        }
+
+        @Override
+        public int getInt(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private static final class LazyListShort extends ListShort {
+        private final Elements<short[]> elements;
+
+        LazyListShort(int size, Decoder<short[]> decoder) {
+            this.elements = new Elements<>(size, short[]::new, decoder);
+        }
+
+        @Override
+        public short getShort(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private static final class LazyListByte extends ListByte {
+        private final Elements<byte[]> elements;
+
+        LazyListByte(int size, Decoder<byte[]> decoder) {
+            this.elements = new Elements<>(size, byte[]::new, decoder);
+        }
+
+        @Override
+        public byte getByte(int index) {
+            return elements.upTo(index)[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+    }
+
+    private LazyArrays() {
+    }
+
+    /**
+     * Creates a list of doubles, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListDouble doubles(int size, Decoder<double[]> decoder) {
+        return new LazyListDouble(size, decoder);
+    }
+
+    /**
+     * Creates a list of floats, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListFloat floats(int size, Decoder<float[]> decoder) {
+        return new LazyListFloat(size, decoder);
+    }
+
+    /**
+     * Creates a list of longs, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListLong longs(int size, Decoder<long[]> decoder) {
+        return new LazyListLong(size, decoder);
+    }
+
+    /**
+     * Creates a list of integers, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListInt ints(int size, Decoder<int[]> decoder) {
+        return new LazyListInt(size, decoder);
+    }
+
+    /**
+     * Creates a list of shorts, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListShort shorts(int size, Decoder<short[]> decoder) {
+        return new LazyListShort(size, decoder);
+    }
+
+    /**
+     * Creates a list of bytes, which are decoded on demand.
+     *
+     * @param size the number of elements
+     * @param decoder the decoder of elements
+     * @return the list
+     */
+    public static ListByte bytes(int size, Decoder<byte[]> decoder) {
+        return new LazyListByte(size, decoder);
+    }
+
+    /**
+     * Checks if the given list is a lazy list, which still has some elements that were not decoded yet.
+     *
+     * @param list the list to check
+     * @return true if the list is lazy and not fully decoded or false otherwise
+     */
+    public static boolean isPending(Object list) {
+        Elements<?> elements = null;
+        if (list instanceof LazyListDouble) {
+            elements = ((LazyListDouble) list).elements;
+        } else if (list instanceof LazyListFloat) {
+            elements = ((LazyListFloat) list).elements;
+        } else if (list instanceof LazyListLong) {
+            elements = ((LazyListLong) list).elements;
+        } else if (list instanceof LazyListInt) {
+            elements = ((LazyListInt) list).elements;
+        } else if (list instanceof LazyListShort) {
+            elements = ((LazyListShort) list).elements;
+        } else if (list instanceof LazyListByte) {
+            elements = ((LazyListByte) list).elements;
+        }
+        return elements != null && !elements.isDecoded();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.data;
+
+import java.util.List;
+
+/**
+ *
+ * <code>NameIndex</code> maps pv names to their positions in a list of names. The map uses open addressing with linear
+ * probing in two parallel arrays, so that a lookup does not allocate and the entries do not need to be boxed. If a name
+ * appears in the list several times, the index of the first occurrence is stored, same as with
+ * {@link List#indexOf(Object)}.
+ * <p>
+ * The index is not thread safe; it follows the same rules as the list that it indexes. The owner of the index has to
+ * publish it safely (e.g. through a volatile field) if it is built by one thread and read by others.
+ */
+final class NameIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] positions;
+    private int size;
+    private boolean duplicates;
+
+    /**
+     * Constructs a new index of the given names.
+     *
+     * @param names the names to index
+     */
+    NameIndex(List<String> names) {
+        allocate(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            add(names.get(i), i);
+        }
+    }
+
+    private void allocate(int expectedSize) {
+        // keep the load factor below 0.5, which keeps the probe sequences short
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        positions = new int[capacity];
+        size = 0;
+    }
+
+    private int slot(String name) {
+        int h = name.hashCode();
+        return (h ^ (h >>> 16)) & (keys.length - 1);
+    }
+
+    /**
+     * Returns the position of the given name or -1 if the name is not indexed.
+     *
+     * @param name the name to look for
+     * @return the position of the name
+     */
+    int get(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(name); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(name)) {
+                return positions[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the name at the given position. If the name is already indexed, the existing position is kept.
+     *
+     * @param name the name to add
+     * @param position the position of the name
+     */
+    void add(String name, int position) {
+        if (name == null) {
+            // null names are never looked up, but have to be remembered when the positions are shifted
+            duplicates = true;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            String[] oldKeys = keys;
+            int[] oldPositions = positions;
+            allocate(size + 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldPositions[i]);
+                }
+            }
+        }
+        if (!insert(name, position)) {
+            duplicates = true;
+        }
+    }
+
+    private boolean insert(String name, int position) {
+        int mask = keys.length - 1;
+        int i = slot(name);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(name)) {
+                return false;
+            }
+        }
+        keys[i] = name;
+        positions[i] = position;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the name at the given position and moves all names that follow that position one position down, the
+     * same as {@link List#remove(int)} does with the list of names. The method returns false if the index cannot be
+     * updated in place, because the list contained duplicated names. In that case the index has to be rebuilt.
+     *
+     * @param name the name to remove
+     * @param position the position of the removed name
+     * @return true if the index was updated or false if it has to be rebuilt
+     */
+    boolean remove(String name, int position) {
+        if (duplicates) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        int i = slot(name);
+        while (keys[i] != null && !keys[i].equals(name)) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == null) {
+            return false;
+        }
+        // backward shift deletion: move the entries of the probe sequence into the gap, so no tombstones are needed
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                positions[gap] = positions[j];
+                gap = j;
+            }
+        }
+        keys[gap] = null;
+        size--;
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] != null && positions[j] > position) {
+                positions[j]--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the positions of the given names. The returned array has the same length as the list of names and
+     * contains -1 for every name that is not indexed.
+     *
+     * @param names the names to look for
+     * @return the positions of the names
+     */
+    int[] getAll(List<String> names) {
+        int[] result = new int[names.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = get(names.get(i));
+        }
+        return result;
+    }
+}
@@ -10,16 +10,12 @@
  */
 package org.csstudio.saverestore.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-import javax.script.SimpleBindings;
-
 /**
  *
  * <code>Threshold</code> represents threshold values for a pv. It provides two values, one for positive threshold and
@@ -37,12 +33,6 @@ public class Threshold<T extends Number> implements Serializable {
     private static final Logger LOGGER = Logger.getLogger(Threshold.class.getName());
     private static final long serialVersionUID = 7839497629386640415L;
 
-//    private static final String[] FUNCTIONS = new String[] { "PI", "E", "abs(", "cos(", "acos(", "sin(", "asin(",
-//        "tan(", "atan(", "exp(", "log(", "max(", "min(", "pow(", "sqrt(" };
-    private static final String BASE = "base";
-    private static final String VALUE = "value";
-    private static final ScriptEngine EVALUATOR = new ScriptEngineManager().getEngineByName("JavaScript");
-
     @SuppressWarnings("unchecked")
     private static <U extends Number> U toNegativeValue(U n) {
         if (n instanceof Byte) {
@@ -56,7 +46,7 @@ public class Threshold<T extends Number> implements Serializable {
         } else if (n instanceof Float) {
             return (U) Float.valueOf(-n.floatValue());
         } else if (n instanceof Double) {
-            return (U) Double.valueOf(-n.byteValue());
+            return (U) Double.valueOf(-n.doubleValue());
         }
         throw new IllegalArgumentException("Cannot negate the value " + n);
     }
@@ -79,6 +69,15 @@ public class Threshold<T extends Number> implements Serializable {
     private final boolean isBooleanFunction;
     private boolean logError = true;
     private boolean isMalformed = false;
+    // primitive copies of the threshold values, so that the values can be compared without boxing
+    private transient boolean hasLimits;
+    private transient double positiveDouble;
+    private transient double negativeDouble;
+    private transient long positiveLong;
+    private transient long negativeLong;
+    // the compiled function and the reason why it could not be compiled
+    private transient ThresholdExpression expression;
+    private transient IllegalArgumentException compileError;
 
     /**
      * Construct a new threshold, where the positive and negative threshold value have the same absolute value.
@@ -91,6 +90,7 @@ public class Threshold<T extends Number> implements Serializable {
         this.negativeThreshold = toNegativeValue(absoluteThresholdValue);
         this.function = null;
         this.isBooleanFunction = false;
+        initialise();
     }
 
     /**
@@ -106,6 +106,7 @@ public class Threshold<T extends Number> implements Serializable {
         this.negativeThreshold = negativeThreshold;
         this.function = null;
         this.isBooleanFunction = false;
+        initialise();
     }
 
     /**
@@ -114,11 +115,16 @@ public class Threshold<T extends Number> implements Serializable {
      * a function type threshold.
      * <p>
      * The function can either be a function that returns double or boolean. In case of a double type function, the
-     * function must accept a value <code>x</code> (or <code>y</code>) and calculate the threshold at this value (base).
+     * function must accept a value <code>x</code> (or <code>base</code>) and calculate the threshold at this value.
      * The difference between value and base, will be compared to the threshold. For example: <code>4*x+12</code>. If
      * the function is boolean type it must accept <code>value</code> and <code>base</code>. The function should
      * evaluate if the difference between value and base is acceptable and return true if yes, or false if not.
      * </p>
+     * <p>
+     * The function is written as a JavaScript expression and may use the arithmetic, comparison and logical operators
+     * and the functions and constants of the <code>Math</code> object (e.g. <code>abs(x)</code> or
+     * <code>Math.PI</code>). The function is compiled once, when the threshold is constructed.
+     * </p>
      *
      * @param thresholdDefinition the definition of the threshold (number of function)
      */
@@ -155,6 +161,36 @@ public class Threshold<T extends Number> implements Serializable {
             this.function = thresholdDefinition;
             this.isBooleanFunction = this.function.indexOf("base") > -1 && this.function.indexOf("value") > -1;
         }
+        initialise();
+    }
+
+    private void initialise() {
+        hasLimits = positiveThreshold != null && negativeThreshold != null;
+        if (hasLimits) {
+            positiveDouble = positiveThreshold.doubleValue();
+            negativeDouble = negativeThreshold.doubleValue();
+            // integer differences are within the limits exactly when they are within the truncated limits
+            positiveLong = positiveThreshold.longValue();
+            negativeLong = negativeThreshold.longValue();
+        } else if (function != null && !function.isEmpty()) {
+            try {
+                expression = isBooleanFunction
+                    ? ThresholdExpression.compile(function, ThresholdExpression.VALUE, ThresholdExpression.BASE)
+                    : ThresholdExpression.compile(function, ThresholdExpression.BASE, ThresholdExpression.X);
+                if (expression.isBoolean() != isBooleanFunction) {
+                    expression = null;
+                    compileError = new IllegalArgumentException(isBooleanFunction
+                        ? "The function does not return a boolean." : "The function does not return a number.");
+                }
+            } catch (IllegalArgumentException e) {
+                compileError = e;
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initialise();
     }
 
     /**
@@ -195,45 +231,67 @@ public class Threshold<T extends Number> implements Serializable {
      * @return true if the value is within threshold limits or false otherwise
      */
     public boolean isWithinThreshold(T value, T base) {
+        if (value == null || base == null) {
+            return false;
+        } else if (value instanceof Double || value instanceof Float) {
+            return isWithinThreshold(value.doubleValue(), base.doubleValue());
+        } else {
+            return isWithinThreshold(value.longValue(), base.longValue());
+        }
+    }
+
+    /**
+     * Checks if the given floating point value is within the threshold limits. This method does the same as
+     * {@link #isWithinThreshold(Number, Number)}, but does not box the values.
+     *
+     * @param value the value to compare to the thresholds
+     * @param base the base value
+     * @return true if the value is within threshold limits or false otherwise
+     */
+    public boolean isWithinThreshold(double value, double base) {
+        if (isMalformed) {
+            return false;
+        } else if (hasLimits) {
+            double v = value - base;
+            return v >= negativeDouble && v <= positiveDouble;
+        }
+        return evaluate(value, base);
+    }
+
+    /**
+     * Checks if the given integer value is within the threshold limits. This method does the same as
+     * {@link #isWithinThreshold(Number, Number)}, but does not box the values.
+     *
+     * @param value the value to compare to the thresholds
+     * @param base the base value
+     * @return true if the value is within threshold limits or false otherwise
+     */
+    public boolean isWithinThreshold(long value, long base) {
         if (isMalformed) {
             return false;
+        } else if (hasLimits) {
+            long l = value - base;
+            return l >= negativeLong && l <= positiveLong;
         }
-        if (positiveThreshold != null && negativeThreshold != null) {
-            if (value instanceof Long) {
-                long l = value.longValue() - base.longValue();
-                return l >= negativeThreshold.longValue() && l <= positiveThreshold.longValue();
+        return evaluate(value, base);
+    }
+
+    private boolean evaluate(double value, double base) {
+        if (expression != null) {
+            if (isBooleanFunction) {
+                return expression.test(value, base);
             } else {
-                double v = value.doubleValue() - base.doubleValue();
-                return v >= negativeThreshold.doubleValue() && v <= positiveThreshold.doubleValue();
+                double threshold = Math.abs(expression.evaluate(value, base));
+                return Math.abs(value - base) <= threshold;
             }
-        } else if (function != null && !function.isEmpty()) {
-            try {
-                if (isBooleanFunction) {
-                    Bindings b = new SimpleBindings();
-                    b.put(BASE, base);
-                    b.put(VALUE, value);
-                    return (Boolean) EVALUATOR.eval(function, b);
-                } else {
-                    // value to string is good enough here
-                    Bindings b = new SimpleBindings();
-                    b.put(BASE, base);
-                    b.put("x", base);
-                    double threshold = Math.abs(((Number) EVALUATOR.eval(function,b)).doubleValue());
-                    double v = Math.abs(value.doubleValue() - base.doubleValue());
-                    return v <= threshold;
-                }
-            } catch (ScriptException | ClassCastException | NullPointerException e) {
-                isMalformed = true;
-                if (logError) {
-                    LOGGER.log(Level.WARNING, "Threshold function " + function + " cannot be evaluated.",
-                        (Throwable) e);
-                    logError = false;
-                }
+        } else if (compileError != null) {
+            isMalformed = true;
+            if (logError) {
+                LOGGER.log(Level.WARNING, "Threshold function " + function + " cannot be evaluated.", compileError);
+                logError = false;
             }
-            return false;
-        } else {
-            return false;
         }
+        return false;
     }
 
     /**
@@ -243,11 +301,10 @@ public class Threshold<T extends Number> implements Serializable {
      *
      * @return true if the definition is acceptable or false if there is a potential error
      */
-    @SuppressWarnings("unchecked")
     public boolean test() {
         boolean log = logError;
         logError = false;
-        isWithinThreshold((T)Long.valueOf(1), (T)Long.valueOf(0));
+        isWithinThreshold(1L, 0L);
         logError = log;
         return !isMalformed;
     }
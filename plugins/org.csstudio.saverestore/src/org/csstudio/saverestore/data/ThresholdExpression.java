@@ -0,0 +1,435 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * <code>ThresholdExpression</code> is a compiled threshold function. The function is parsed once into a tree of
+ * primitive double operations, which can be evaluated any number of times without allocation and from any thread.
+ * <p>
+ * The syntax is a subset of JavaScript expressions: number literals, the variables, arithmetic operators
+ * (<code>+ - * / %</code>), comparison operators (<code>&lt; &lt;= &gt; &gt;= == != === !==</code>), logical
+ * operators (<code>&amp;&amp; || !</code>), the conditional operator (<code>? :</code>), parentheses and the functions
+ * and constants of the JavaScript <code>Math</code> object, with or without the <code>Math.</code> prefix:
+ * <code>abs, acos, asin, atan, atan2, ceil, cos, exp, floor, log, max, min, pow, round, sin, sqrt, tan, PI, E</code>.
+ * As in JavaScript, all numbers are doubles and booleans are treated as 1 (true) and 0 (false) in arithmetic.
+ */
+final class ThresholdExpression {
+
+    /**
+     * <code>Node</code> is a node of the expression tree, which evaluates to a number.
+     */
+    @FunctionalInterface
+    private interface Node {
+        double eval(double value, double base);
+    }
+
+    /**
+     * <code>Condition</code> is a node of the expression tree, which evaluates to a boolean (1 or 0).
+     */
+    @FunctionalInterface
+    private interface Condition extends Node {
+    }
+
+    /** The name of the variable holding the compared value */
+    static final String VALUE = "value";
+    /** The name of the variable holding the base value */
+    static final String BASE = "base";
+    /** The alternative name of the variable holding the base value */
+    static final String X = "x";
+
+    private static final String MATH_PREFIX = "Math.";
+
+    private final Node root;
+    private final boolean isBoolean;
+
+    private ThresholdExpression(Node root) {
+        this.root = root;
+        this.isBoolean = root instanceof Condition;
+    }
+
+    /**
+     * Parses the expression and compiles it into an expression tree.
+     *
+     * @param expression the expression to parse
+     * @param variables the names of the variables that may be used in the expression (any of {@link #VALUE},
+     *            {@link #BASE} and {@link #X})
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression cannot be parsed
+     */
+    static ThresholdExpression compile(String expression, String... variables) {
+        Parser parser = new Parser(expression, variables);
+        Node root = parser.parseTernary();
+        parser.skipWhitespace();
+        if (parser.pos < expression.length()) {
+            throw parser.error("Unexpected character");
+        }
+        return new ThresholdExpression(root);
+    }
+
+    /**
+     * Returns true if the expression results in a boolean (e.g. a comparison) or false if it results in a number.
+     *
+     * @return true if the expression is a boolean expression
+     */
+    boolean isBoolean() {
+        return isBoolean;
+    }
+
+    /**
+     * Evaluates the expression for the given value and base.
+     *
+     * @param value the compared value
+     * @param base the base value
+     * @return the result of the expression (1 or 0 for boolean expressions)
+     */
+    double evaluate(double value, double base) {
+        return root.eval(value, base);
+    }
+
+    /**
+     * Evaluates the expression for the given value and base and returns true if the result is truthy (not 0 and not
+     * NaN).
+     *
+     * @param value the compared value
+     * @param base the base value
+     * @return the result of the expression as a boolean
+     */
+    boolean test(double value, double base) {
+        return truth(root.eval(value, base));
+    }
+
+    private static boolean truth(double d) {
+        return d != 0 && !Double.isNaN(d);
+    }
+
+    private static double bool(boolean b) {
+        return b ? 1 : 0;
+    }
+
+    /**
+     * <code>Parser</code> is a recursive descent parser of the expression, which follows the JavaScript operator
+     * precedence.
+     */
+    private static final class Parser {
+        private final String text;
+        private final String[] variables;
+        private int pos;
+
+        Parser(String text, String[] variables) {
+            this.text = text;
+            this.variables = variables;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in '" + text + "'.");
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean accept(String token) {
+            skipWhitespace();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        Node parseTernary() {
+            Node condition = parseOr();
+            if (accept("?")) {
+                Node a = parseTernary();
+                expect(":");
+                Node b = parseTernary();
+                if (a instanceof Condition && b instanceof Condition) {
+                    return (Condition) (v, x) -> truth(condition.eval(v, x)) ? a.eval(v, x) : b.eval(v, x);
+                }
+                return (v, x) -> truth(condition.eval(v, x)) ? a.eval(v, x) : b.eval(v, x);
+            }
+            return condition;
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while (accept("||")) {
+                Node a = left;
+                Node b = parseAnd();
+                left = (Condition) (v, x) -> bool(truth(a.eval(v, x)) || truth(b.eval(v, x)));
+            }
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseEquality();
+            while (accept("&&")) {
+                Node a = left;
+                Node b = parseEquality();
+                left = (Condition) (v, x) -> bool(truth(a.eval(v, x)) && truth(b.eval(v, x)));
+            }
+            return left;
+        }
+
+        Node parseEquality() {
+            Node left = parseRelational();
+            while (true) {
+                Node a = left;
+                if (accept("===") || accept("==")) {
+                    Node b = parseRelational();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) == b.eval(v, x));
+                } else if (accept("!==") || accept("!=")) {
+                    Node b = parseRelational();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) != b.eval(v, x));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseRelational() {
+            Node left = parseAdditive();
+            while (true) {
+                Node a = left;
+                if (accept("<=")) {
+                    Node b = parseAdditive();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) <= b.eval(v, x));
+                } else if (accept(">=")) {
+                    Node b = parseAdditive();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) >= b.eval(v, x));
+                } else if (accept("<")) {
+                    Node b = parseAdditive();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) < b.eval(v, x));
+                } else if (accept(">")) {
+                    Node b = parseAdditive();
+                    left = (Condition) (v, x) -> bool(a.eval(v, x) > b.eval(v, x));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseAdditive() {
+            Node left = parseMultiplicative();
+            while (true) {
+                Node a = left;
+                if (accept("+")) {
+                    Node b = parseMultiplicative();
+                    left = (v, x) -> a.eval(v, x) + b.eval(v, x);
+                } else if (accept("-")) {
+                    Node b = parseMultiplicative();
+                    left = (v, x) -> a.eval(v, x) - b.eval(v, x);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseMultiplicative() {
+            Node left = parseUnary();
+            while (true) {
+                Node a = left;
+                if (accept("*")) {
+                    Node b = parseUnary();
+                    left = (v, x) -> a.eval(v, x) * b.eval(v, x);
+                } else if (accept("/")) {
+                    Node b = parseUnary();
+                    left = (v, x) -> a.eval(v, x) / b.eval(v, x);
+                } else if (accept("%")) {
+                    Node b = parseUnary();
+                    left = (v, x) -> a.eval(v, x) % b.eval(v, x);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseUnary() {
+            if (accept("!")) {
+                Node a = parseUnary();
+                return (Condition) (v, x) -> bool(!truth(a.eval(v, x)));
+            } else if (accept("-")) {
+                Node a = parseUnary();
+                return (v, x) -> -a.eval(v, x);
+            } else if (accept("+")) {
+                return parseUnary();
+            }
+            return parsePrimary();
+        }
+
+        Node parsePrimary() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node a = parseTernary();
+                expect(")");
+                return a;
+            } else if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            } else if (Character.isJavaIdentifierStart(c)) {
+                return parseIdentifier();
+            }
+            throw error("Unexpected character '" + c + "'");
+        }
+
+        Node parseNumber() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            try {
+                double d = Double.parseDouble(text.substring(start, pos));
+                return (v, x) -> d;
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("Malformed number");
+            }
+        }
+
+        Node parseIdentifier() {
+            int start = pos;
+            while (pos < text.length()
+                && (Character.isJavaIdentifierPart(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            String name = text.substring(start, pos);
+            if (name.startsWith(MATH_PREFIX)) {
+                name = name.substring(MATH_PREFIX.length());
+            }
+            if (accept("(")) {
+                List<Node> args = new ArrayList<>(2);
+                if (!accept(")")) {
+                    do {
+                        args.add(parseTernary());
+                    } while (accept(","));
+                    expect(")");
+                }
+                return function(name, args, start);
+            }
+            switch (name) {
+                case "PI":
+                    return (v, x) -> Math.PI;
+                case "E":
+                    return (v, x) -> Math.E;
+                case "true":
+                    return (Condition) (v, x) -> 1;
+                case "false":
+                    return (Condition) (v, x) -> 0;
+                default:
+                    break;
+            }
+            for (String var : variables) {
+                if (var.equals(name)) {
+                    return VALUE.equals(name) ? (v, x) -> v : (v, x) -> x;
+                }
+            }
+            pos = start;
+            throw error("Unknown variable '" + name + "'");
+        }
+
+        Node function(String name, List<Node> args, int start) {
+            int n = args.size();
+            Node a = n > 0 ? args.get(0) : null;
+            Node b = n > 1 ? args.get(1) : null;
+            switch (name) {
+                case "max":
+                    return fold(args, Double.NEGATIVE_INFINITY, true);
+                case "min":
+                    return fold(args, Double.POSITIVE_INFINITY, false);
+                default:
+                    break;
+            }
+            if (n == 1) {
+                switch (name) {
+                    case "abs":
+                        return (v, x) -> Math.abs(a.eval(v, x));
+                    case "acos":
+                        return (v, x) -> Math.acos(a.eval(v, x));
+                    case "asin":
+                        return (v, x) -> Math.asin(a.eval(v, x));
+                    case "atan":
+                        return (v, x) -> Math.atan(a.eval(v, x));
+                    case "ceil":
+                        return (v, x) -> Math.ceil(a.eval(v, x));
+                    case "cos":
+                        return (v, x) -> Math.cos(a.eval(v, x));
+                    case "exp":
+                        return (v, x) -> Math.exp(a.eval(v, x));
+                    case "floor":
+                        return (v, x) -> Math.floor(a.eval(v, x));
+                    case "log":
+                        return (v, x) -> Math.log(a.eval(v, x));
+                    case "round":
+                        return (v, x) -> Math.floor(a.eval(v, x) + 0.5);
+                    case "sin":
+                        return (v, x) -> Math.sin(a.eval(v, x));
+                    case "sqrt":
+                        return (v, x) -> Math.sqrt(a.eval(v, x));
+                    case "tan":
+                        return (v, x) -> Math.tan(a.eval(v, x));
+                    default:
+                        break;
+                }
+            } else if (n == 2) {
+                switch (name) {
+                    case "atan2":
+                        return (v, x) -> Math.atan2(a.eval(v, x), b.eval(v, x));
+                    case "pow":
+                        return (v, x) -> Math.pow(a.eval(v, x), b.eval(v, x));
+                    default:
+                        break;
+                }
+            }
+            pos = start;
+            throw error("Unknown function '" + name + "' with " + n + " arguments");
+        }
+
+        Node fold(List<Node> args, double identity, boolean max) {
+            Node[] nodes = args.toArray(new Node[args.size()]);
+            return (v, x) -> {
+                double result = identity;
+                for (Node node : nodes) {
+                    double d = node.eval(v, x);
+                    if (Double.isNaN(d)) {
+                        return Double.NaN;
+                    }
+                    result = max ? Math.max(result, d) : Math.min(result, d);
+                }
+                return result;
+            };
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class VSnapshot implements VType, Time, Array, Serializable {
     private final Snapshot snapshot;
     private String forcedName;
     private boolean dirty;
+    private transient volatile NameIndex index;
 
     /**
      * Constructs a new data object from the {@link VTable}. The table is expected to have 3 columns: pv names, selected
@@ -317,10 +318,29 @@ public class VSnapshot implements VType, Time, Array, Serializable {
         if (deltas.isEmpty()) {
             return null;
         }
-        int idx = names.indexOf(pvName);
+        int idx = indexOf(pvName);
         return idx < 0 ? null : deltas.get(idx);
     }
 
+    /**
+     * Returns the delta values for the given pv names. The returned list has the same size and order as the list of pv
+     * names and contains null for every pv that is not defined in this snapshot or if this snapshot has no deltas.
+     *
+     * @param pvNames the names of the pvs for which the deltas are requested
+     * @return the list of delta values
+     */
+    public List<String> getDeltas(List<String> pvNames) {
+        List<String> result = new ArrayList<>(pvNames.size());
+        if (deltas.isEmpty()) {
+            pvNames.forEach(e -> result.add(null));
+        } else {
+            for (int idx : indexesOf(pvNames)) {
+                result.add(idx < 0 ? null : deltas.get(idx));
+            }
+        }
+        return result;
+    }
+
     /**
      * Constructs and returns the threshold for the given pv name. If the threshold cannot be created (pv name not
      * defined in this snapshot or the delta for the pv is unknown), null is returned.
@@ -337,6 +357,63 @@ public class VSnapshot implements VType, Time, Array, Serializable {
         return new Threshold<>(delta);
     }
 
+    /**
+     * Constructs and returns the thresholds for the given pv names. The returned list has the same size and order as
+     * the list of pv names and contains null for every pv for which the threshold cannot be created.
+     *
+     * @param pvNames the names of the pvs for which the thresholds are requested
+     * @return the list of thresholds
+     * @see #getThreshold(String)
+     */
+    @SuppressWarnings("rawtypes")
+    public List<Threshold> getThresholds(List<String> pvNames) {
+        List<Threshold> result = new ArrayList<>(pvNames.size());
+        for (String delta : getDeltas(pvNames)) {
+            result.add(delta == null || delta.isEmpty() ? null : new Threshold<>(delta));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the given pv in this snapshot, which is the index of the pv's data in all lists returned
+     * by this snapshot (names, values, deltas etc.). If the pv is not defined in this snapshot, -1 is returned.
+     *
+     * @param pvName the name of the pv
+     * @return the position of the pv or -1 if the pv does not exist
+     */
+    public int indexOf(String pvName) {
+        return getIndex().get(pvName);
+    }
+
+    /**
+     * Returns the positions of all given pvs in this snapshot. The returned array has the same size and order as the
+     * list of pv names and contains -1 for every pv that is not defined in this snapshot.
+     *
+     * @param pvNames the names of the pvs
+     * @return the positions of the pvs
+     * @see #indexOf(String)
+     */
+    public int[] indexesOf(List<String> pvNames) {
+        return getIndex().getAll(pvNames);
+    }
+
+    private NameIndex getIndex() {
+        // the index is created when first needed, because most snapshots are only loaded and displayed; the snapshot
+        // can be read by several threads (e.g. restore and compare), so the index is built once and published through
+        // the volatile field
+        NameIndex idx = index;
+        if (idx == null) {
+            synchronized (this) {
+                idx = index;
+                if (idx == null) {
+                    idx = new NameIndex(names);
+                    index = idx;
+                }
+            }
+        }
+        return idx;
+    }
+
     /**
      * Set the value of the PV in this snapshot or adds an additional PV, if the PV does not exist yet. When a PV is
      * added or set this snapshot is marked as dirty, which means that it becomes saveable.
@@ -347,8 +424,10 @@ public class VSnapshot implements VType, Time, Array, Serializable {
      * @return true if the PV was added (PV already exists), or false of the PV was set
      */
     public boolean addOrSetPV(String name, boolean selected, VType value) {
-        int idx = names.indexOf(name);
+        NameIndex nameIndex = getIndex();
+        int idx = nameIndex.get(name);
         if (idx < 0) {
+            nameIndex.add(name, names.size());
             this.names.add(name);
             this.selected.add(selected);
             this.values.add(value);
@@ -372,8 +451,12 @@ public class VSnapshot implements VType, Time, Array, Serializable {
      * @return true if the PV was removed, or false if the PV could not be found
      */
     public boolean removePV(String name) {
-        int idx = names.indexOf(name);
+        NameIndex nameIndex = getIndex();
+        int idx = nameIndex.get(name);
         if (idx >= 0) {
+            if (!nameIndex.remove(name, idx)) {
+                index = null;
+            }
             this.names.remove(idx);
             this.values.remove(idx);
             this.selected.remove(idx);